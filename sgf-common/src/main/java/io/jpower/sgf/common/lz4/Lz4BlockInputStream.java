@@ -52,6 +52,18 @@ public class Lz4BlockInputStream extends FilterInputStream {
         this(in, LZ4Factory.fastestInstance().fastDecompressor());
     }
 
+    /**
+     * 重新开始从另一个输入流读取，重用已经分配的缓冲区
+     *
+     * @param in
+     */
+    public void reuse(InputStream in) {
+        this.in = in;
+        this.finished = false;
+        this.reachEOF = false;
+        this.offset = this.decompressedLength = 0;
+    }
+
     private void ensureNotFinished() {
         if (finished) {
             throw new IllegalStateException("This stream is already closed");
@@ -70,6 +70,19 @@ public class Lz4BlockOutputStream extends FilterOutputStream {
         this(out, 1 << 16); // 64KB
     }
 
+    /**
+     * 重新开始写入到另一个输出流，重用已经分配的缓冲区
+     * <p>
+     * 当前的数据需要先{@link #close()}，否则会被丢弃
+     *
+     * @param out
+     */
+    public void reuse(OutputStream out) {
+        this.out = out;
+        this.finished = false;
+        this.currentBlockLength = 0;
+    }
+
     private void ensureNotFinished() {
         if (finished) {
             throw new IllegalStateException("This stream is already closed");
@@ -0,0 +1,148 @@
+package io.jpower.sgf.common.lz4;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import io.jpower.sgf.ser.Ser;
+import io.jpower.sgf.utils.JavaUtils;
+
+/**
+ * 使用<a href=" http://www.lz4.org">LZ4</a>压缩的{@link Ser}
+ * <p>
+ * <ul>
+ * <li>序列化后的数据达到阈值时用{@link Lz4BlockOutputStream}压缩，开头写入1个字节的压缩标记；
+ * 没有达到阈值或者压缩后没有变小时直接返回原始数据</li>
+ * <li>压缩标记不会出现在{@link Ser}数据的开头，所以反序列化时可以直接读取没有压缩的旧数据</li>
+ * <li>压缩和解压使用线程本地缓存的缓冲区</li>
+ * <li>线程安全的</li>
+ * </ul>
+ *
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+public class Lz4Ser {
+
+    /**
+     * 压缩标记
+     * <p>
+     * Ser数据的第一个字节是tag的低7位，其中低4位是wire type，没有wire type为15的tag，所以不会和没有压缩的数据冲突
+     */
+    public static final int COMPRESSED_MARK = 0x0F;
+
+    /**
+     * 默认的压缩阈值，太小的数据压缩效果不明显
+     */
+    public static final int DEFAULT_THRESHOLD = 512;
+
+    private static final int BLOCK_SIZE = 1 << 16; // 64KB
+
+    /**
+     * 线程本地缓存的输出缓冲区最多保留的字节数，超过的用完后直接丢弃
+     */
+    private static final int LOCAL_OUTPUT_MAX_SIZE = 4 * BLOCK_SIZE;
+
+    private static final ThreadLocal<Compressor> LOCAL_COMPRESSOR = new ThreadLocal<>();
+
+    /**
+     * 解压时会调用反序列化的before和after方法，可能嵌套使用，所以使用时取出来，用完再放回去
+     */
+    private static final ThreadLocal<Lz4BlockInputStream> LOCAL_INPUT = new ThreadLocal<>();
+
+    private final Ser ser;
+
+    private final int threshold;
+
+    public Lz4Ser() {
+        this(Ser.ins(), DEFAULT_THRESHOLD);
+    }
+
+    public Lz4Ser(Ser ser, int threshold) {
+        if (ser == null) {
+            throw new IllegalArgumentException("ser cannot be null");
+        }
+        this.ser = ser;
+        this.threshold = threshold;
+    }
+
+    /**
+     * 序列化，数据达到阈值时压缩
+     *
+     * @param obj
+     * @return
+     */
+    public byte[] serialize(Object obj) {
+        byte[] data = ser.serialize(obj);
+        if (data.length < threshold) {
+            return data;
+        }
+        Compressor compressor = LOCAL_COMPRESSOR.get();
+        if (compressor == null) {
+            compressor = new Compressor();
+            LOCAL_COMPRESSOR.set(compressor);
+        }
+        byte[] compressed = compressor.compress(data);
+        if (compressor.size() > LOCAL_OUTPUT_MAX_SIZE) {
+            LOCAL_COMPRESSOR.remove();
+        }
+        return compressed.length < data.length ? compressed : data;
+    }
+
+    /**
+     * 反序列化，自动识别数据是否压缩
+     *
+     * @param data
+     * @param type
+     * @return
+     */
+    public <T> T deserialize(byte[] data, Class<T> type) {
+        if (!isCompressed(data)) {
+            return ser.deserialize(data, type);
+        }
+        Lz4BlockInputStream input = LOCAL_INPUT.get();
+        if (input == null) { // 第一次使用或者正在被外层调用使用
+            input = new Lz4BlockInputStream(null);
+        } else {
+            LOCAL_INPUT.set(null);
+        }
+        input.reuse(new ByteArrayInputStream(data, 1, data.length - 1));
+        try {
+            return ser.deserialize(input, type);
+        } finally {
+            LOCAL_INPUT.set(input);
+        }
+    }
+
+    /**
+     * 数据是否是压缩过的
+     *
+     * @param data
+     * @return
+     */
+    public static boolean isCompressed(byte[] data) {
+        return data.length > 0 && data[0] == COMPRESSED_MARK;
+    }
+
+    private static class Compressor extends ByteArrayOutputStream {
+
+        private final Lz4BlockOutputStream output = new Lz4BlockOutputStream(null, BLOCK_SIZE);
+
+        Compressor() {
+            super(BLOCK_SIZE);
+        }
+
+        byte[] compress(byte[] data) {
+            reset();
+            write(COMPRESSED_MARK);
+            output.reuse(this);
+            try {
+                output.write(data);
+                output.close();
+            } catch (IOException e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+            return toByteArray();
+        }
+
+    }
+
+}
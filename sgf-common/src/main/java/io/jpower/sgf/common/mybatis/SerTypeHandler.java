@@ -5,20 +5,30 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
+import io.jpower.sgf.common.lz4.Lz4Ser;
 import io.jpower.sgf.ser.Ser;
+import io.jpower.sgf.utils.SystemPropertyUtils;
 import org.apache.ibatis.type.BaseTypeHandler;
 import org.apache.ibatis.type.JdbcType;
 
 /**
  * javaType: Ser Object <-> jdbcType: bytes
+ * <p>
+ * 系统属性io.jpower.sgf.common.mybatis.serCompress为true时，写入的数据达到阈值会使用LZ4压缩，见{@link Lz4Ser}。
+ * 读取时总会自动识别，可以随时开启和关闭，已有的数据不需要转换
  *
  * @author <a href="mailto:szhnet@gmail.com">szh</a>
  */
 public class SerTypeHandler<T> extends BaseTypeHandler<T> {
 
+    private static final boolean COMPRESS = SystemPropertyUtils
+            .getBoolean("io.jpower.sgf.common.mybatis.serCompress", false);
+
+    private static final Lz4Ser SER = new Lz4Ser();
+
     private Class<T> type;
 
-    private Ser ser = Ser.ins();
+    private boolean compress = COMPRESS;
 
     public SerTypeHandler(Class<T> type) {
         if (type == null) {
@@ -27,10 +37,23 @@ public class SerTypeHandler<T> extends BaseTypeHandler<T> {
         this.type = type;
     }
 
+    public boolean isCompress() {
+        return compress;
+    }
+
+    /**
+     * 设置是否压缩写入的数据，默认值由系统属性io.jpower.sgf.common.mybatis.serCompress决定
+     *
+     * @param compress
+     */
+    public void setCompress(boolean compress) {
+        this.compress = compress;
+    }
+
     @Override
     public void setNonNullParameter(PreparedStatement ps, int i, Object parameter,
                                     JdbcType jdbcType) throws SQLException {
-        ps.setBytes(i, ser.serialize(parameter));
+        ps.setBytes(i, compress ? SER.serialize(parameter) : Ser.ins().serialize(parameter));
     }
 
     @Override
@@ -39,7 +62,7 @@ public class SerTypeHandler<T> extends BaseTypeHandler<T> {
         if (data == null) {
             return null;
         } else {
-            return ser.deserialize(data, type);
+            return SER.deserialize(data, type);
         }
     }
 
@@ -49,7 +72,7 @@ public class SerTypeHandler<T> extends BaseTypeHandler<T> {
         if (data == null) {
             return null;
         } else {
-            return ser.deserialize(data, type);
+            return SER.deserialize(data, type);
         }
     }
 
@@ -59,7 +82,7 @@ public class SerTypeHandler<T> extends BaseTypeHandler<T> {
         if (data == null) {
             return null;
         } else {
-            return ser.deserialize(data, type);
+            return SER.deserialize(data, type);
         }
     }
 
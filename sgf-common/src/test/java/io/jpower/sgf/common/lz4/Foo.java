@@ -0,0 +1,97 @@
+package io.jpower.sgf.common.lz4;
+
+import java.util.Arrays;
+
+import io.jpower.sgf.ser.annotation.AfterDeserialize;
+import io.jpower.sgf.ser.annotation.Field;
+import io.jpower.sgf.ser.annotation.Serializable;
+
+/**
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+@Serializable
+public class Foo {
+
+    @Field(1)
+    private String name;
+
+    @Field(2)
+    private byte[] data;
+
+    /**
+     * 序列化后的{@link Foo}，反序列化之后解码到{@link #inner}
+     */
+    @Field(3)
+    private byte[] innerData;
+
+    private Foo inner;
+
+    public Foo() {
+
+    }
+
+    @AfterDeserialize
+    public void afterDeserialize() {
+        if (innerData != null) {
+            inner = new Lz4Ser().deserialize(innerData, Foo.class);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public void setData(byte[] data) {
+        this.data = data;
+    }
+
+    public byte[] getInnerData() {
+        return innerData;
+    }
+
+    public void setInnerData(byte[] innerData) {
+        this.innerData = innerData;
+    }
+
+    public Foo getInner() {
+        return inner;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        Foo foo = (Foo) o;
+
+        if (name != null ? !name.equals(foo.name) : foo.name != null) return false;
+        if (!Arrays.equals(data, foo.data)) return false;
+        return Arrays.equals(innerData, foo.innerData);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = name != null ? name.hashCode() : 0;
+        result = 31 * result + Arrays.hashCode(data);
+        result = 31 * result + Arrays.hashCode(innerData);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Foo(" +
+                "name=" + name +
+                ", data=" + Arrays.toString(data) +
+                ", innerData=" + Arrays.toString(innerData) +
+                ')';
+    }
+
+}
@@ -0,0 +1,217 @@
+package io.jpower.sgf.common.lz4;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+import org.junit.Test;
+
+import io.jpower.sgf.ser.Ser;
+
+/**
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+public class Lz4SerTest {
+
+    @Test
+    public void testCompressed() {
+        Lz4Ser lz4Ser = new Lz4Ser();
+        Foo foo = foo(repeat("lz4", 1000), new byte[1024]);
+
+        byte[] raw = Ser.ins().serialize(foo);
+        byte[] data = lz4Ser.serialize(foo);
+        assertTrue(Lz4Ser.isCompressed(data));
+        assertTrue(data.length < raw.length);
+        assertEquals(foo, lz4Ser.deserialize(data, Foo.class));
+
+        // 重复使用线程本地缓存的压缩和解压缓冲区
+        assertArrayEquals(data, lz4Ser.serialize(foo));
+        assertEquals(foo, lz4Ser.deserialize(data, Foo.class));
+    }
+
+    @Test
+    public void testUncompressed() {
+        Lz4Ser lz4Ser = new Lz4Ser();
+        Foo foo = foo("small", new byte[]{1, 2, 3});
+
+        byte[] data = lz4Ser.serialize(foo);
+        assertFalse(Lz4Ser.isCompressed(data));
+        assertArrayEquals(Ser.ins().serialize(foo), data);
+        assertEquals(foo, lz4Ser.deserialize(data, Foo.class));
+    }
+
+    @Test
+    public void testThreshold() {
+        Foo foo = foo(repeat("lz4", 100), null);
+        byte[] raw = Ser.ins().serialize(foo);
+
+        byte[] data = new Lz4Ser(Ser.ins(), raw.length).serialize(foo); // 刚好达到阈值
+        assertTrue(Lz4Ser.isCompressed(data));
+        assertEquals(foo, new Lz4Ser().deserialize(data, Foo.class));
+
+        data = new Lz4Ser(Ser.ins(), raw.length + 1).serialize(foo);
+        assertArrayEquals(raw, data);
+    }
+
+    @Test
+    public void testIncompressible() {
+        byte[] random = new byte[4096];
+        new Random(1).nextBytes(random);
+        Foo foo = foo(null, random);
+
+        Lz4Ser lz4Ser = new Lz4Ser(Ser.ins(), 0);
+        byte[] data = lz4Ser.serialize(foo);
+        assertFalse(Lz4Ser.isCompressed(data));
+        assertArrayEquals(Ser.ins().serialize(foo), data);
+        assertEquals(foo, lz4Ser.deserialize(data, Foo.class));
+    }
+
+    @Test
+    public void testLegacyData() {
+        Lz4Ser lz4Ser = new Lz4Ser();
+        Foo[] foos = new Foo[]{
+                new Foo(),
+                foo("a", null),
+                foo(null, new byte[]{Lz4Ser.COMPRESSED_MARK}),
+                foo(repeat("legacy", 200), new byte[]{Lz4Ser.COMPRESSED_MARK}),
+        };
+        for (Foo foo : foos) {
+            byte[] raw = Ser.ins().serialize(foo); // 没有压缩的旧数据
+            assertFalse(Lz4Ser.isCompressed(raw));
+            assertEquals(foo, lz4Ser.deserialize(raw, Foo.class));
+        }
+        assertFalse(Lz4Ser.isCompressed(new byte[0]));
+    }
+
+    @Test
+    public void testReentrantDeserialize() {
+        Lz4Ser lz4Ser = new Lz4Ser();
+        Foo inner = foo(repeat("inner", 500), null);
+        Foo outer = foo(repeat("outer", 500), null);
+        outer.setInnerData(lz4Ser.serialize(inner));
+        assertTrue(Lz4Ser.isCompressed(outer.getInnerData()));
+
+        byte[] data = lz4Ser.serialize(outer);
+        assertTrue(Lz4Ser.isCompressed(data));
+
+        // 反序列化之后的方法中再次解压，不能和外层共用同一个输入流
+        Foo deser = lz4Ser.deserialize(data, Foo.class);
+        assertEquals(outer, deser);
+        assertEquals(inner, deser.getInner());
+
+        deser = lz4Ser.deserialize(data, Foo.class);
+        assertEquals(outer, deser);
+        assertEquals(inner, deser.getInner());
+    }
+
+    @Test
+    public void testInputStreamReuse() throws IOException {
+        byte[] first = compress(repeat("first", 100).getBytes("UTF-8"));
+        byte[] second = compress(repeat("second", 100).getBytes("UTF-8"));
+
+        Lz4BlockInputStream input = new Lz4BlockInputStream(new ByteArrayInputStream(first));
+        assertNotEquals(-1, input.read()); // 只读取一部分
+
+        input.reuse(new ByteArrayInputStream(second));
+        assertEquals(repeat("second", 100), new String(readAll(input), "UTF-8"));
+
+        // 损坏的数据
+        input.reuse(new ByteArrayInputStream(new byte[]{(byte) 0x7F, 1, 2, 3}));
+        try {
+            readAll(input);
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+
+        input.reuse(new ByteArrayInputStream(first));
+        assertEquals(repeat("first", 100), new String(readAll(input), "UTF-8"));
+
+        input.close();
+        input.reuse(new ByteArrayInputStream(second));
+        assertEquals(repeat("second", 100), new String(readAll(input), "UTF-8"));
+    }
+
+    @Test
+    public void testOutputStreamReuse() throws IOException {
+        byte[] data = repeat("data", 100).getBytes("UTF-8");
+
+        Lz4BlockOutputStream output = new Lz4BlockOutputStream(new ByteArrayOutputStream());
+        output.write(data); // 没有close，数据被丢弃
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        output.reuse(out);
+        output.write(data);
+        output.close();
+        assertArrayEquals(data, decompress(out.toByteArray()));
+
+        // 写入失败
+        output.reuse(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("failed");
+            }
+        });
+        output.write(data);
+        try {
+            output.close();
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+
+        out = new ByteArrayOutputStream();
+        output.reuse(out);
+        output.write(data);
+        output.close();
+        assertArrayEquals(data, decompress(out.toByteArray()));
+    }
+
+    private static Foo foo(String name, byte[] data) {
+        Foo foo = new Foo();
+        foo.setName(name);
+        foo.setData(data);
+        return foo;
+    }
+
+    private static String repeat(String s, int count) {
+        StringBuilder sb = new StringBuilder(s.length() * count);
+        for (int i = 0; i < count; i++) {
+            sb.append(s);
+        }
+        return sb.toString();
+    }
+
+    private static byte[] compress(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Lz4BlockOutputStream output = new Lz4BlockOutputStream(out);
+        output.write(data);
+        output.close();
+        return out.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] data) throws IOException {
+        return readAll(new Lz4BlockInputStream(new ByteArrayInputStream(data)));
+    }
+
+    private static byte[] readAll(InputStream input) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[256];
+        int n;
+        while ((n = input.read(buf)) != -1) {
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+}
@@ -0,0 +1,520 @@
+package io.jpower.sgf.ser.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+import io.jpower.sgf.ser.IntEncodeType;
+import io.jpower.sgf.ser.SerClassDefinition;
+import io.jpower.sgf.ser.SerClassProvider;
+import io.jpower.sgf.ser.annotation.AfterDeserialize;
+import io.jpower.sgf.ser.annotation.AfterSerialize;
+import io.jpower.sgf.ser.annotation.BeforeDeserialize;
+import io.jpower.sgf.ser.annotation.BeforeSerialize;
+import io.jpower.sgf.ser.annotation.Field;
+import io.jpower.sgf.ser.annotation.Serializable;
+
+/**
+ * 在编译期分析有{@link Serializable}注解的类，生成对应的{@link SerClassProvider}
+ * <p>
+ * <ul>
+ * <li>生成的类和目标类在同一个包中，类名为目标类名加上{@link #PROVIDER_SUFFIX}，嵌套类的类名用'_'连接</li>
+ * <li>所有生成的类会写到<code>META-INF/services/io.jpower.sgf.ser.SerClassProvider</code>中</li>
+ * <li>getter和setter的查找规则和运行时的反射分析一致，没有getter或setter时，
+ * 如果字段可以访问就直接访问字段，否则交给运行时通过字段偏移量来访问</li>
+ * <li>运行时会报错的情况（如重复的field number）会在编译期报错</li>
+ * </ul>
+ *
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+@SupportedAnnotationTypes("io.jpower.sgf.ser.annotation.Serializable")
+public class SerClassProcessor extends AbstractProcessor {
+
+    static final String PROVIDER_SUFFIX = "_SerClassProvider";
+
+    private static final String SERVICE_FILE = "META-INF/services/" + SerClassProvider.class.getName();
+
+    private static final String DEFINITION = SerClassDefinition.class.getName();
+
+    private static final String INT_ENCODE_TYPE = IntEncodeType.class.getName();
+
+    /**
+     * field number的最大值，和WireFormat.MAX_FIELD_NUMBER一致
+     */
+    private static final int MAX_FIELD_NUMBER = (1 << 28) - 1;
+
+    private Elements elements;
+
+    private Types types;
+
+    private Filer filer;
+
+    private Messager messager;
+
+    private final Set<String> providers = new TreeSet<>();
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        this.elements = processingEnv.getElementUtils();
+        this.types = processingEnv.getTypeUtils();
+        this.filer = processingEnv.getFiler();
+        this.messager = processingEnv.getMessager();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(Serializable.class)) {
+            try {
+                generate(checkClass(element));
+            } catch (ProcessException e) {
+                messager.printMessage(Diagnostic.Kind.ERROR, e.getMessage(), e.element);
+            } catch (IOException e) {
+                messager.printMessage(Diagnostic.Kind.ERROR, "Write SerClassProvider failed: " + e, element);
+            }
+        }
+
+        if (roundEnv.processingOver() && !providers.isEmpty()) {
+            try {
+                writeServiceFile();
+            } catch (IOException e) {
+                messager.printMessage(Diagnostic.Kind.ERROR, "Write " + SERVICE_FILE + " failed: " + e);
+            }
+        }
+        return false;
+    }
+
+    private TypeElement checkClass(Element element) {
+        if (element.getKind() != ElementKind.CLASS) {
+            throw new ProcessException(element + " is not class", element);
+        }
+        TypeElement type = (TypeElement) element;
+        Set<Modifier> modifiers = type.getModifiers();
+        if (modifiers.contains(Modifier.ABSTRACT)) {
+            throw new ProcessException(type + " is abstract", type);
+        }
+        if (!modifiers.contains(Modifier.PUBLIC)) {
+            throw new ProcessException(type + " is not public", type);
+        }
+        if (type.getNestingKind() == NestingKind.MEMBER && !modifiers.contains(Modifier.STATIC)) {
+            throw new ProcessException(type + " is inner class", type);
+        }
+        if (type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+            throw new ProcessException(type + " is local class", type);
+        }
+        boolean hasDefaultConstructor = false;
+        for (ExecutableElement c : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (c.getParameters().isEmpty() && c.getModifiers().contains(Modifier.PUBLIC)) {
+                hasDefaultConstructor = true;
+                break;
+            }
+        }
+        if (!hasDefaultConstructor) {
+            throw new ProcessException(type + " has not default constructor", type);
+        }
+        return type;
+    }
+
+    private void generate(TypeElement type) throws IOException {
+        PackageElement pkg = elements.getPackageOf(type);
+        String pkgName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        String binaryName = elements.getBinaryName(type).toString();
+        String simpleName = (pkgName.isEmpty() ? binaryName : binaryName.substring(pkgName.length() + 1))
+                .replace('$', '_') + PROVIDER_SUFFIX;
+        String providerName = pkgName.isEmpty() ? simpleName : pkgName + "." + simpleName;
+        String className = type.getQualifiedName().toString();
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("// Generated by sgf-ser-processor. Do not edit.\n");
+        if (!pkgName.isEmpty()) {
+            sb.append("package ").append(pkgName).append(";\n\n");
+        }
+        sb.append("public final class ").append(simpleName).append(" implements ")
+                .append(SerClassProvider.class.getName()).append(" {\n\n");
+        sb.append("    @Override\n");
+        sb.append("    @SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+        sb.append("    public ").append(DEFINITION).append("<?> define() {\n");
+        // 不使用链式调用，unchecked的调用会让后面的返回值都变成raw type
+        sb.append("        ").append(DEFINITION).append(".Builder<").append(className).append("> b = ")
+                .append(DEFINITION).append(".builder(").append(className).append(".class, ").append(className)
+                .append("::new);\n");
+
+        Map<Integer, VariableElement> numbers = new TreeMap<>();
+        for (TypeElement t = type; t != null; t = superclass(t)) {
+            for (VariableElement field : ElementFilter.fieldsIn(t.getEnclosedElements())) {
+                Field anno = field.getAnnotation(Field.class);
+                if (anno == null) {
+                    continue;
+                }
+                VariableElement exists = numbers.put(anno.value(), field);
+                if (exists != null) {
+                    throw new ProcessException(type + " fieldNumber duplicate. fieldNumber=" + anno.value()
+                            + ", field1=" + exists + ", field2=" + field, field);
+                }
+                sb.append("        b").append(field(type, pkg, t, field, anno)).append(";\n");
+            }
+        }
+
+        hook(sb, type, BeforeSerialize.class, "beforeSerialize");
+        hook(sb, type, AfterSerialize.class, "afterSerialize");
+        hook(sb, type, BeforeDeserialize.class, "beforeDeserialize");
+        hook(sb, type, AfterDeserialize.class, "afterDeserialize");
+
+        sb.append("        return b.build();\n");
+        sb.append("    }\n\n");
+        sb.append("}\n");
+
+        JavaFileObject file = filer.createSourceFile(providerName, type);
+        try (Writer writer = file.openWriter()) {
+            writer.write(sb.toString());
+        }
+        providers.add(providerName);
+    }
+
+    private String field(TypeElement type, PackageElement pkg, TypeElement declaring, VariableElement field,
+                         Field anno) {
+        if (field.getModifiers().contains(Modifier.STATIC)) {
+            throw new ProcessException(field + " is static", field);
+        }
+        int number = anno.value();
+        if (number <= 0 || number > MAX_FIELD_NUMBER) {
+            throw new ProcessException("Illegal fieldNumber: " + number, field);
+        }
+
+        TypeMirror fieldType = field.asType();
+        TypeMirror erasure = types.erasure(fieldType);
+        String name = field.getSimpleName().toString();
+        String baseName = name.substring(0, 1).toUpperCase(Locale.ENGLISH) + name.substring(1);
+
+        // 和SerClassParser中的查找规则一致
+        ExecutableElement getter = findMethod(declaring, "get" + baseName, null);
+        if (getter == null && (fieldType.getKind() == TypeKind.BOOLEAN
+                || isType(erasure, Boolean.class.getName()))) {
+            getter = findMethod(declaring, "is" + baseName, null);
+        }
+        if (getter != null && (!isCallable(getter)
+                || !types.isSameType(types.erasure(getter.getReturnType()), erasure))) {
+            getter = null;
+        }
+        ExecutableElement setter = findMethod(declaring, "set" + baseName, erasure);
+        if (setter != null && !isCallable(setter)) {
+            setter = null;
+        }
+
+        // 直接访问字段，父类的字段需要先转换一下，避免被子类同名的字段隐藏
+        boolean direct = isAccessible(field, pkg) && isAccessible(erasure, pkg);
+        String receiver = declaring == type ? "o"
+                : "((" + types.erasure(declaring.asType()) + ") o)";
+
+        String kind;
+        String cast;
+        switch (fieldType.getKind()) {
+            case BYTE:
+                kind = "byteField";
+                cast = "(byte) ";
+                break;
+            case CHAR:
+                kind = "charField";
+                cast = "(char) ";
+                break;
+            case SHORT:
+                kind = "shortField";
+                cast = "(short) ";
+                break;
+            case INT:
+                kind = "intField";
+                cast = "";
+                break;
+            case LONG:
+                kind = "longField";
+                cast = "";
+                break;
+            case FLOAT:
+                kind = "floatField";
+                cast = "(float) ";
+                break;
+            case DOUBLE:
+                kind = "doubleField";
+                cast = "";
+                break;
+            case BOOLEAN:
+                kind = "boolField";
+                cast = "";
+                break;
+            default:
+                kind = "objectField";
+                cast = "(" + erasure + ") ";
+                break;
+        }
+
+        String getterExpr;
+        if (getter != null) {
+            getterExpr = "o -> o." + getter.getSimpleName() + "()";
+        } else if (direct) {
+            getterExpr = "o -> " + receiver + "." + name;
+        } else {
+            getterExpr = "null";
+        }
+        String setterExpr;
+        if (setter != null && isAccessible(erasure, pkg)) {
+            setterExpr = "(o, v) -> o." + setter.getSimpleName() + "(" + cast + "v)";
+        } else if (direct && !field.getModifiers().contains(Modifier.FINAL)) {
+            setterExpr = "(o, v) -> " + receiver + "." + name + " = " + cast + "v";
+        } else {
+            setterExpr = "null";
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append('.').append(kind).append('(').append(number).append(", \"").append(name).append("\", ");
+        switch (fieldType.getKind()) {
+            case BYTE:
+            case CHAR:
+            case SHORT:
+            case INT:
+            case LONG:
+                sb.append(INT_ENCODE_TYPE).append('.').append(anno.intEncodeType().name()).append(", ");
+                break;
+            case FLOAT:
+            case DOUBLE:
+            case BOOLEAN:
+                break;
+            default:
+                sb.append(typeExpr(fieldType)).append(", ");
+                sb.append(INT_ENCODE_TYPE).append('.').append(anno.intEncodeType().name()).append(", ");
+                sb.append(anno.intern()).append(", ");
+                sb.append(deSerClazz(field)).append(", ");
+                break;
+        }
+        sb.append(getterExpr).append(", ").append(setterExpr).append(')');
+        return sb.toString();
+    }
+
+    private void hook(StringBuilder sb, TypeElement type, Class<? extends Annotation> annoType, String builderMethod) {
+        ExecutableElement method = null;
+        for (ExecutableElement m : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            if (m.getAnnotation(annoType) == null) {
+                continue;
+            }
+            if (method != null) {
+                throw new ProcessException(type + " has duplicate @" + annoType.getSimpleName()
+                        + " method. method1=" + method + " method2=" + m, m);
+            }
+            Set<Modifier> modifiers = m.getModifiers();
+            if (modifiers.contains(Modifier.STATIC)) {
+                throw new ProcessException("@" + annoType.getSimpleName() + " method is static. method=" + m, m);
+            }
+            if (modifiers.contains(Modifier.ABSTRACT)) {
+                throw new ProcessException("@" + annoType.getSimpleName() + " method is abstract. method=" + m, m);
+            }
+            if (modifiers.contains(Modifier.PRIVATE)) {
+                throw new ProcessException("@" + annoType.getSimpleName() + " method is private. method=" + m, m);
+            }
+            if (!m.getParameters().isEmpty()) {
+                throw new ProcessException("@" + annoType.getSimpleName() + " method has parameters. method=" + m,
+                        m);
+            }
+            method = m;
+        }
+        if (method != null) {
+            sb.append("        b.").append(builderMethod).append("(o -> o.").append(method.getSimpleName())
+                    .append("());\n");
+        }
+    }
+
+    /**
+     * 查找public的方法，包括继承来的
+     *
+     * @param type
+     * @param name
+     * @param paramType 为null时查找没有参数的方法
+     * @return
+     */
+    private ExecutableElement findMethod(TypeElement type, String name, TypeMirror paramType) {
+        for (ExecutableElement m : ElementFilter.methodsIn(elements.getAllMembers(type))) {
+            if (!m.getSimpleName().contentEquals(name) || !m.getModifiers().contains(Modifier.PUBLIC)) {
+                continue;
+            }
+            List<? extends VariableElement> params = m.getParameters();
+            if (paramType == null) {
+                if (params.isEmpty()) {
+                    return m;
+                }
+            } else if (params.size() == 1
+                    && types.isSameType(types.erasure(params.get(0).asType()), paramType)) {
+                return m;
+            }
+        }
+        return null;
+    }
+
+    private boolean isCallable(ExecutableElement method) {
+        Set<Modifier> modifiers = method.getModifiers();
+        return !modifiers.contains(Modifier.STATIC) && !modifiers.contains(Modifier.ABSTRACT)
+                && modifiers.contains(Modifier.PUBLIC);
+    }
+
+    private boolean isAccessible(Element element, PackageElement pkg) {
+        Set<Modifier> modifiers = element.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE)) {
+            return false;
+        }
+        if (!modifiers.contains(Modifier.PUBLIC) && !elements.getPackageOf(element).equals(pkg)) {
+            return false;
+        }
+        Element enclosing = element.getEnclosingElement();
+        if (enclosing != null && (enclosing.getKind().isClass() || enclosing.getKind().isInterface())) {
+            return isAccessible(enclosing, pkg);
+        }
+        return true;
+    }
+
+    private boolean isAccessible(TypeMirror type, PackageElement pkg) {
+        switch (type.getKind()) {
+            case ARRAY:
+                return isAccessible(((ArrayType) type).getComponentType(), pkg);
+            case DECLARED:
+                return isAccessible(((DeclaredType) type).asElement(), pkg);
+            default:
+                return type.getKind().isPrimitive();
+        }
+    }
+
+    /**
+     * 字段类型的表达式，容器类型需要带上泛型参数
+     */
+    private String typeExpr(TypeMirror type) {
+        if (type.getKind() == TypeKind.DECLARED) {
+            DeclaredType declared = (DeclaredType) type;
+            String raw = ((TypeElement) declared.asElement()).getQualifiedName() + ".class";
+            List<? extends TypeMirror> args = declared.getTypeArguments();
+            if (args.isEmpty()) {
+                return raw;
+            }
+            List<String> argExprs = new ArrayList<>(args.size());
+            for (TypeMirror arg : args) {
+                if (arg.getKind() != TypeKind.DECLARED) {
+                    return raw; // 通配符之类的不支持，交给运行时报错
+                }
+                argExprs.add(typeExpr(arg));
+            }
+            return DEFINITION + ".parameterizedType(" + raw + ", " + String.join(", ", argExprs) + ")";
+        }
+        return types.erasure(type) + ".class";
+    }
+
+    private String deSerClazz(VariableElement field) {
+        for (AnnotationMirror mirror : field.getAnnotationMirrors()) {
+            if (!isType(mirror.getAnnotationType(), Field.class.getName())) {
+                continue;
+            }
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> e : mirror.getElementValues()
+                    .entrySet()) {
+                if (e.getKey().getSimpleName().contentEquals("deSerClazz")) {
+                    TypeMirror clazz = (TypeMirror) e.getValue().getValue();
+                    return types.erasure(clazz) + ".class";
+                }
+            }
+        }
+        return "void.class";
+    }
+
+    private boolean isType(TypeMirror type, String name) {
+        return type.getKind() == TypeKind.DECLARED
+                && ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().contentEquals(name);
+    }
+
+    private TypeElement superclass(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED || isType(superclass, Object.class.getName())) {
+            return null;
+        }
+        return (TypeElement) ((DeclaredType) superclass).asElement();
+    }
+
+    private void writeServiceFile() throws IOException {
+        Set<String> all = new TreeSet<>(providers);
+        // 增量编译时保留之前生成的
+        try {
+            FileObject exists = filer.getResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(exists.openInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (!line.isEmpty() && !line.startsWith("#")) {
+                        all.add(line);
+                    }
+                }
+            }
+        } catch (IOException ignored) {
+
+        }
+
+        FileObject file = filer.createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+        try (Writer writer = new OutputStreamWriter(file.openOutputStream(), StandardCharsets.UTF_8)) {
+            for (String provider : all) {
+                writer.write(provider);
+                writer.write('\n');
+            }
+        }
+    }
+
+    private static class ProcessException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Element element;
+
+        ProcessException(String message, Element element) {
+            super(message);
+            this.element = element;
+        }
+
+    }
+
+}
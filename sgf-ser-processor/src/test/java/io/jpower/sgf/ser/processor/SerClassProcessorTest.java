@@ -0,0 +1,188 @@
+package io.jpower.sgf.ser.processor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import io.jpower.sgf.collection.IntMap;
+import io.jpower.sgf.ser.Ser;
+import io.jpower.sgf.ser.annotation.Serializable;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+public class SerClassProcessorTest {
+
+    private static final String SAMPLE = "package sample;\n"
+            + "\n"
+            + "import java.util.*;\n"
+            + "import io.jpower.sgf.ser.IntEncodeType;\n"
+            + "import io.jpower.sgf.ser.annotation.*;\n"
+            + "\n"
+            + "@Serializable\n"
+            + "public class Sample {\n"
+            + "    @Field(1) private int id;\n"
+            + "    @Field(2) private byte level;\n"
+            + "    @Field(3) String name;\n"
+            + "    @Field(4) private List<String> tags;\n"
+            + "    @Field(5) private Map<Integer, List<String>> groups;\n"
+            + "    @Field(value = 6, intEncodeType = IntEncodeType.SIGNED_VARINT) protected long score;\n"
+            + "    @Field(7) boolean flag;\n"
+            + "    @Field(8) private float ratio;\n"
+            + "    @Field(value = 9, deSerClazz = LinkedList.class) private List<Integer> ids;\n"
+            + "    private int afterDeserCount;\n"
+            + "\n"
+            + "    public static Sample sample() {\n"
+            + "        Sample s = new Sample();\n"
+            + "        s.id = 10001; s.level = -3; s.name = \"sample\"; s.score = -99999999999L;\n"
+            + "        s.flag = true; s.ratio = 0.5f;\n"
+            + "        s.tags = new ArrayList<>(Arrays.asList(\"a\", \"b\"));\n"
+            + "        s.groups = new HashMap<>();\n"
+            + "        s.groups.put(1, new ArrayList<>(Arrays.asList(\"x\")));\n"
+            + "        s.ids = new ArrayList<>(Arrays.asList(1, 2, 3));\n"
+            + "        return s;\n"
+            + "    }\n"
+            + "\n"
+            + "    // 包访问权限，只有生成的代码才能调用，用来确认使用的是生成的SerClassProvider\n"
+            + "    @AfterDeserialize void afterDeser() { afterDeserCount++; }\n"
+            + "\n"
+            + "    public int getAfterDeserCount() { return afterDeserCount; }\n"
+            + "    public Class<?> idsClass() { return ids.getClass(); }\n"
+            + "    public int getId() { return id; }\n"
+            + "    public void setId(int id) { this.id = id; }\n"
+            + "    public List<String> getTags() { return tags; }\n"
+            + "    public void setTags(List<String> tags) { this.tags = tags; }\n"
+            + "    public Map<Integer, List<String>> getGroups() { return groups; }\n"
+            + "    public void setGroups(Map<Integer, List<String>> groups) { this.groups = groups; }\n"
+            + "    public float getRatio() { return ratio; }\n"
+            + "    public void setRatio(float ratio) { this.ratio = ratio; }\n"
+            + "\n"
+            + "    @Override\n"
+            + "    public boolean equals(Object o) {\n"
+            + "        if (!(o instanceof Sample)) return false;\n"
+            + "        Sample s = (Sample) o;\n"
+            + "        return id == s.id && level == s.level && Objects.equals(name, s.name)\n"
+            + "                && Objects.equals(tags, s.tags) && Objects.equals(groups, s.groups)\n"
+            + "                && score == s.score && flag == s.flag && ratio == s.ratio\n"
+            + "                && Objects.equals(ids, s.ids);\n"
+            + "    }\n"
+            + "\n"
+            + "    @Override\n"
+            + "    public int hashCode() { return id; }\n"
+            + "}\n";
+
+    @Test
+    public void testGenerate() throws Exception {
+        File out = Files.createTempDirectory("sgf-ser-processor").toFile();
+        List<Diagnostic<? extends JavaFileObject>> errors = compile(out, "sample.Sample", SAMPLE);
+        assertTrue(errors.toString(), errors.isEmpty());
+
+        assertTrue(new File(out, "sample/Sample" + SerClassProcessor.PROVIDER_SUFFIX + ".class").isFile());
+        List<String> services = Files.readAllLines(
+                new File(out, "META-INF/services/io.jpower.sgf.ser.SerClassProvider").toPath(),
+                StandardCharsets.UTF_8);
+        assertEquals(Collections.singletonList("sample.Sample" + SerClassProcessor.PROVIDER_SUFFIX), services);
+
+        ClassLoader old = Thread.currentThread().getContextClassLoader();
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{out.toURI().toURL()},
+                getClass().getClassLoader())) {
+            // Ser第一次使用时通过当前线程的ClassLoader加载SerClassProvider
+            Thread.currentThread().setContextClassLoader(loader);
+            Class<?> clazz = loader.loadClass("sample.Sample");
+            Object sample = clazz.getMethod("sample").invoke(null);
+
+            Ser ser = Ser.ins();
+            byte[] data = ser.serialize(sample);
+            Object deser = ser.deserialize(data, clazz);
+            assertEquals(sample, deser);
+            assertEquals(1, clazz.getMethod("getAfterDeserCount").invoke(deser));
+            assertEquals(LinkedList.class, clazz.getMethod("idsClass").invoke(deser));
+            assertArrayEquals(data, ser.serialize(deser));
+        } finally {
+            Thread.currentThread().setContextClassLoader(old);
+        }
+    }
+
+    @Test
+    public void testDuplicateFieldNumber() throws Exception {
+        File out = Files.createTempDirectory("sgf-ser-processor").toFile();
+        String source = "package sample;\n"
+                + "import io.jpower.sgf.ser.annotation.*;\n"
+                + "@Serializable\n"
+                + "public class Dup {\n"
+                + "    @Field(1) int a;\n"
+                + "    @Field(1) int b;\n"
+                + "}\n";
+        List<Diagnostic<? extends JavaFileObject>> errors = compile(out, "sample.Dup", source);
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).getMessage(null).contains("fieldNumber duplicate"));
+        assertFalse(new File(out, "sample/Dup" + SerClassProcessor.PROVIDER_SUFFIX + ".class").exists());
+    }
+
+    private List<Diagnostic<? extends JavaFileObject>> compile(File out, String className, String source)
+            throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null,
+                StandardCharsets.UTF_8)) {
+            fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singletonList(out));
+            fileManager.setLocation(StandardLocation.SOURCE_OUTPUT, Collections.singletonList(out));
+            fileManager.setLocation(StandardLocation.CLASS_PATH, Arrays.asList(location(Serializable.class),
+                    location(IntMap.class)));
+
+            JavaFileObject file = new SimpleJavaFileObject(
+                    URI.create("string:///" + className.replace('.', '/') + ".java"), JavaFileObject.Kind.SOURCE) {
+
+                @Override
+                public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                    return source;
+                }
+            };
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+                    Arrays.asList("-encoding", "UTF-8"), null, Collections.singletonList(file));
+            task.setProcessors(Collections.singletonList(new SerClassProcessor()));
+            task.call();
+        }
+
+        List<Diagnostic<? extends JavaFileObject>> errors = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+            if (d.getKind() == Diagnostic.Kind.ERROR) {
+                errors.add(d);
+            }
+        }
+        return errors;
+    }
+
+    private static File location(Class<?> clazz) {
+        try {
+            return new File(clazz.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,623 @@
+package io.jpower.sgf.ser;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+import io.jpower.sgf.ser.SerClassDefinition.ObjBoolConsumer;
+import io.jpower.sgf.utils.JavaUtils;
+import io.jpower.sgf.utils.SystemPropertyUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sun.misc.Unsafe;
+
+/**
+ * 为{@link SerClass}生成实例化和字段访问的代码，用来代替反射调用
+ * <p>
+ * <ul>
+ * <li>默认构造方法、getter和setter方法通过{@link LambdaMetafactory}生成直接调用的实现</li>
+ * <li>没有getter或setter方法的字段，通过{@link Unsafe}按字段偏移量直接访问</li>
+ * <li>生成失败时（比如类对当前ClassLoader不可见）退回到反射</li>
+ * <li>可以通过系统属性<code>io.jpower.sgf.ser.generateAccessor=false</code>关闭，全部使用反射</li>
+ * </ul>
+ *
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+final class AccessorGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessorGenerator.class);
+
+    static final boolean ENABLED = SystemPropertyUtils.getBoolean("io.jpower.sgf.ser.generateAccessor", true);
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private AccessorGenerator() {
+
+    }
+
+    /**
+     * 生成调用默认构造方法的实例化代码
+     *
+     * @param constructor
+     * @return
+     */
+    static Supplier<Object> generateInstantiator(Constructor<?> constructor) {
+        Class<?> clazz = constructor.getDeclaringClass();
+        if (ENABLED && isVisible(clazz)) {
+            try {
+                MethodHandle impl = LOOKUP.unreflectConstructor(constructor);
+                @SuppressWarnings("unchecked")
+                Supplier<Object> instantiator = metafactory(Supplier.class, "get",
+                        MethodType.methodType(Object.class), impl, MethodType.methodType(clazz));
+                return instantiator;
+            } catch (Throwable e) {
+                log.debug("Generate instantiator failed, use reflection instead. class={}", clazz, e);
+            }
+        }
+        return () -> {
+            try {
+                return constructor.newInstance(Utils.EMPTY_OBJS);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        };
+    }
+
+    /**
+     * 生成调用before和after方法的代码
+     *
+     * @param method
+     * @return
+     */
+    static Consumer<Object> generateHook(Method method) {
+        Class<?> clazz = method.getDeclaringClass();
+        if (ENABLED && isVisible(clazz)) {
+            try {
+                MethodHandle impl = LOOKUP.unreflect(method);
+                @SuppressWarnings("unchecked")
+                Consumer<Object> hook = metafactory(Consumer.class, "accept",
+                        MethodType.methodType(void.class, Object.class), impl, MethodType.methodType(void.class, clazz));
+                return hook;
+            } catch (Throwable e) {
+                log.debug("Generate hook failed, use reflection instead. method={}", method, e);
+            }
+        }
+        return obj -> Utils.invoke(method, obj, Utils.EMPTY_OBJS);
+    }
+
+    /**
+     * 生成字段的访问代码
+     *
+     * @param field
+     * @param getter 可以为null
+     * @param setter 可以为null
+     * @return
+     */
+    static FieldAccessor generateAccessor(Field field, Method getter, Method setter) {
+        FieldAccessor reflect = new ReflectFieldAccessor(field, getter, setter);
+        if (!ENABLED) {
+            return reflect;
+        }
+        if ((getter != null && !isVisible(getter.getDeclaringClass()))
+                || (setter != null && !isVisible(setter.getDeclaringClass()))) {
+            return reflect;
+        }
+
+        try {
+            // 没有getter或者setter方法的那一侧直接访问字段
+            Unsafe unsafe = JavaUtils.getUnsafe();
+            FieldAccessor direct = unsafe != null ? new UnsafeFieldAccessor(unsafe, field) : reflect;
+            return generate(field.getName(), field.getType(), getter, setter, direct);
+        } catch (Throwable e) {
+            log.debug("Generate accessor failed, use reflection instead. field={}", field, e);
+            return reflect;
+        }
+    }
+
+    /**
+     * 使用{@link SerClassDefinition}中编译期生成的getter和setter创建字段的访问代码
+     *
+     * @param name   字段的名字
+     * @param type   字段的类型
+     * @param getter 参见{@link SerClassDefinition.Builder}中对应类型的参数，为null时直接访问字段
+     * @param setter 参见{@link SerClassDefinition.Builder}中对应类型的参数，为null时直接访问字段
+     * @param field  getter或者setter为null时使用，否则可以为null
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    static FieldAccessor defineAccessor(String name, Class<?> type, Object getter, Object setter, Field field) {
+        FieldAccessor direct = null;
+        if (getter == null || setter == null) {
+            Unsafe unsafe = ENABLED ? JavaUtils.getUnsafe() : null;
+            direct = unsafe != null ? new UnsafeFieldAccessor(unsafe, field)
+                    : new ReflectFieldAccessor(field, null, null);
+        }
+
+        if (type == byte.class) {
+            ObjIntConsumer<Object> s = (ObjIntConsumer<Object>) setter;
+            return new ByteAccessor(name, getter != null ? (ToIntFunction<Object>) getter : direct::getByte,
+                    s != null ? s::accept : direct::setByte);
+
+        } else if (type == char.class) {
+            ObjIntConsumer<Object> s = (ObjIntConsumer<Object>) setter;
+            return new CharAccessor(name, getter != null ? (ToIntFunction<Object>) getter : direct::getChar,
+                    s != null ? s::accept : direct::setChar);
+
+        } else if (type == short.class) {
+            ObjIntConsumer<Object> s = (ObjIntConsumer<Object>) setter;
+            return new ShortAccessor(name, getter != null ? (ToIntFunction<Object>) getter : direct::getShort,
+                    s != null ? s::accept : direct::setShort);
+
+        } else if (type == int.class) {
+            return new IntAccessor(name, getter != null ? (ToIntFunction<Object>) getter : direct::getInt,
+                    setter != null ? (ObjIntConsumer<Object>) setter : direct::setInt);
+
+        } else if (type == long.class) {
+            return new LongAccessor(name, getter != null ? (ToLongFunction<Object>) getter : direct::getLong,
+                    setter != null ? (ObjLongConsumer<Object>) setter : direct::setLong);
+
+        } else if (type == float.class) {
+            ObjDoubleConsumer<Object> s = (ObjDoubleConsumer<Object>) setter;
+            return new FloatAccessor(name, getter != null ? (ToDoubleFunction<Object>) getter : direct::getFloat,
+                    s != null ? s::accept : direct::setFloat);
+
+        } else if (type == double.class) {
+            return new DoubleAccessor(name, getter != null ? (ToDoubleFunction<Object>) getter : direct::getDouble,
+                    setter != null ? (ObjDoubleConsumer<Object>) setter : direct::setDouble);
+
+        } else if (type == boolean.class) {
+            return new BoolAccessor(name, getter != null ? (Predicate<Object>) getter : direct::getBool,
+                    setter != null ? (ObjBoolConsumer<Object>) setter : direct::setBool);
+
+        } else {
+            return new ObjectAccessor(name, type, getter != null ? (Function<Object, Object>) getter : direct::get,
+                    setter != null ? (BiConsumer<Object, Object>) setter : direct::set);
+        }
+    }
+
+    private static FieldAccessor generate(String name, Class<?> type, Method getter, Method setter, FieldAccessor direct)
+            throws Throwable {
+        if (type == byte.class) {
+            ToIntFunction<Object> g = getter != null ? getter(ToIntFunction.class, "applyAsInt", int.class, getter)
+                    : direct::getByte;
+            ByteSetter s = setter != null ? setter(ByteSetter.class, "set", byte.class, setter) : direct::setByte;
+            return new ByteAccessor(name, g, s);
+
+        } else if (type == char.class) {
+            ToIntFunction<Object> g = getter != null ? getter(ToIntFunction.class, "applyAsInt", int.class, getter)
+                    : direct::getChar;
+            CharSetter s = setter != null ? setter(CharSetter.class, "set", char.class, setter) : direct::setChar;
+            return new CharAccessor(name, g, s);
+
+        } else if (type == short.class) {
+            ToIntFunction<Object> g = getter != null ? getter(ToIntFunction.class, "applyAsInt", int.class, getter)
+                    : direct::getShort;
+            ShortSetter s = setter != null ? setter(ShortSetter.class, "set", short.class, setter)
+                    : direct::setShort;
+            return new ShortAccessor(name, g, s);
+
+        } else if (type == int.class) {
+            ToIntFunction<Object> g = getter != null ? getter(ToIntFunction.class, "applyAsInt", int.class, getter)
+                    : direct::getInt;
+            ObjIntConsumer<Object> s = setter != null ? setter(ObjIntConsumer.class, "accept", int.class, setter)
+                    : direct::setInt;
+            return new IntAccessor(name, g, s);
+
+        } else if (type == long.class) {
+            ToLongFunction<Object> g = getter != null ? getter(ToLongFunction.class, "applyAsLong", long.class, getter)
+                    : direct::getLong;
+            ObjLongConsumer<Object> s = setter != null ? setter(ObjLongConsumer.class, "accept", long.class, setter)
+                    : direct::setLong;
+            return new LongAccessor(name, g, s);
+
+        } else if (type == float.class) {
+            ToDoubleFunction<Object> g = getter != null
+                    ? getter(ToDoubleFunction.class, "applyAsDouble", double.class, getter) : direct::getFloat;
+            FloatSetter s = setter != null ? setter(FloatSetter.class, "set", float.class, setter) : direct::setFloat;
+            return new FloatAccessor(name, g, s);
+
+        } else if (type == double.class) {
+            ToDoubleFunction<Object> g = getter != null
+                    ? getter(ToDoubleFunction.class, "applyAsDouble", double.class, getter) : direct::getDouble;
+            ObjDoubleConsumer<Object> s = setter != null
+                    ? setter(ObjDoubleConsumer.class, "accept", double.class, setter)
+                    : direct::setDouble;
+            return new DoubleAccessor(name, g, s);
+
+        } else if (type == boolean.class) {
+            Predicate<Object> g = getter != null ? getter(Predicate.class, "test", boolean.class, getter)
+                    : direct::getBool;
+            ObjBoolConsumer<Object> s = setter != null ? setter(ObjBoolConsumer.class, "accept", boolean.class, setter)
+                    : direct::setBool;
+            return new BoolAccessor(name, g, s);
+
+        } else {
+            Function<Object, Object> g = getter != null ? getter(Function.class, "apply", Object.class, getter)
+                    : direct::get;
+            BiConsumer<Object, Object> s = setter != null ? setter(BiConsumer.class, "accept", Object.class, setter)
+                    : direct::set;
+            return new ObjectAccessor(name, type, g, s);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T getter(Class<?> samType, String samName, Class<?> samReturnType, Method getter)
+            throws Throwable {
+        MethodHandle impl = LOOKUP.unreflect(getter);
+        return (T) metafactory(samType, samName, MethodType.methodType(samReturnType, Object.class), impl,
+                MethodType.methodType(samReturnType == Object.class ? getter.getReturnType() : samReturnType,
+                        getter.getDeclaringClass()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T setter(Class<?> samType, String samName, Class<?> samParamType, Method setter)
+            throws Throwable {
+        MethodHandle impl = LOOKUP.unreflect(setter);
+        return (T) metafactory(samType, samName,
+                MethodType.methodType(void.class, Object.class, samParamType), impl,
+                MethodType.methodType(void.class, setter.getDeclaringClass(), setter.getParameterTypes()[0]));
+    }
+
+    private static <T> T metafactory(Class<T> samType, String samName, MethodType samMethodType,
+                                     MethodHandle impl, MethodType instantiatedMethodType) throws Throwable {
+        CallSite site = LambdaMetafactory.metafactory(LOOKUP, samName, MethodType.methodType(samType),
+                samMethodType, impl, instantiatedMethodType);
+        return samType.cast(site.getTarget().invoke());
+    }
+
+    /**
+     * 生成的类由当前类的ClassLoader来解析，所以目标类必须对它可见
+     */
+    private static boolean isVisible(Class<?> clazz) {
+        try {
+            return Class.forName(clazz.getName(), false, AccessorGenerator.class.getClassLoader()) == clazz;
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    /* ########## 基本类型setter ########## */
+
+    @FunctionalInterface
+    interface ByteSetter {
+
+        void set(Object obj, byte value);
+
+    }
+
+    @FunctionalInterface
+    interface CharSetter {
+
+        void set(Object obj, char value);
+
+    }
+
+    @FunctionalInterface
+    interface ShortSetter {
+
+        void set(Object obj, short value);
+
+    }
+
+    @FunctionalInterface
+    interface FloatSetter {
+
+        void set(Object obj, float value);
+
+    }
+
+    /* ########## 生成的FieldAccessor ########## */
+
+    private static final class ByteAccessor extends FieldAccessor {
+
+        private final ToIntFunction<Object> getter;
+
+        private final ByteSetter setter;
+
+        ByteAccessor(String name, ToIntFunction<Object> getter, ByteSetter setter) {
+            super(name, byte.class);
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        @Override
+        Object get(Object obj) {
+            return getByte(obj);
+        }
+
+        @Override
+        void set(Object obj, Object value) {
+            setByte(obj, (Byte) value);
+        }
+
+        @Override
+        byte getByte(Object obj) {
+            return (byte) getter.applyAsInt(obj);
+        }
+
+        @Override
+        void setByte(Object obj, byte value) {
+            setter.set(obj, value);
+        }
+
+    }
+
+    private static final class CharAccessor extends FieldAccessor {
+
+        private final ToIntFunction<Object> getter;
+
+        private final CharSetter setter;
+
+        CharAccessor(String name, ToIntFunction<Object> getter, CharSetter setter) {
+            super(name, char.class);
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        @Override
+        Object get(Object obj) {
+            return getChar(obj);
+        }
+
+        @Override
+        void set(Object obj, Object value) {
+            setChar(obj, (Character) value);
+        }
+
+        @Override
+        char getChar(Object obj) {
+            return (char) getter.applyAsInt(obj);
+        }
+
+        @Override
+        void setChar(Object obj, char value) {
+            setter.set(obj, value);
+        }
+
+    }
+
+    private static final class ShortAccessor extends FieldAccessor {
+
+        private final ToIntFunction<Object> getter;
+
+        private final ShortSetter setter;
+
+        ShortAccessor(String name, ToIntFunction<Object> getter, ShortSetter setter) {
+            super(name, short.class);
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        @Override
+        Object get(Object obj) {
+            return getShort(obj);
+        }
+
+        @Override
+        void set(Object obj, Object value) {
+            setShort(obj, (Short) value);
+        }
+
+        @Override
+        short getShort(Object obj) {
+            return (short) getter.applyAsInt(obj);
+        }
+
+        @Override
+        void setShort(Object obj, short value) {
+            setter.set(obj, value);
+        }
+
+    }
+
+    private static final class IntAccessor extends FieldAccessor {
+
+        private final ToIntFunction<Object> getter;
+
+        private final ObjIntConsumer<Object> setter;
+
+        IntAccessor(String name, ToIntFunction<Object> getter, ObjIntConsumer<Object> setter) {
+            super(name, int.class);
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        @Override
+        Object get(Object obj) {
+            return getInt(obj);
+        }
+
+        @Override
+        void set(Object obj, Object value) {
+            setInt(obj, (Integer) value);
+        }
+
+        @Override
+        int getInt(Object obj) {
+            return getter.applyAsInt(obj);
+        }
+
+        @Override
+        void setInt(Object obj, int value) {
+            setter.accept(obj, value);
+        }
+
+    }
+
+    private static final class LongAccessor extends FieldAccessor {
+
+        private final ToLongFunction<Object> getter;
+
+        private final ObjLongConsumer<Object> setter;
+
+        LongAccessor(String name, ToLongFunction<Object> getter, ObjLongConsumer<Object> setter) {
+            super(name, long.class);
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        @Override
+        Object get(Object obj) {
+            return getLong(obj);
+        }
+
+        @Override
+        void set(Object obj, Object value) {
+            setLong(obj, (Long) value);
+        }
+
+        @Override
+        long getLong(Object obj) {
+            return getter.applyAsLong(obj);
+        }
+
+        @Override
+        void setLong(Object obj, long value) {
+            setter.accept(obj, value);
+        }
+
+    }
+
+    private static final class FloatAccessor extends FieldAccessor {
+
+        private final ToDoubleFunction<Object> getter;
+
+        private final FloatSetter setter;
+
+        FloatAccessor(String name, ToDoubleFunction<Object> getter, FloatSetter setter) {
+            super(name, float.class);
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        @Override
+        Object get(Object obj) {
+            return getFloat(obj);
+        }
+
+        @Override
+        void set(Object obj, Object value) {
+            setFloat(obj, (Float) value);
+        }
+
+        @Override
+        float getFloat(Object obj) {
+            return (float) getter.applyAsDouble(obj);
+        }
+
+        @Override
+        void setFloat(Object obj, float value) {
+            setter.set(obj, value);
+        }
+
+    }
+
+    private static final class DoubleAccessor extends FieldAccessor {
+
+        private final ToDoubleFunction<Object> getter;
+
+        private final ObjDoubleConsumer<Object> setter;
+
+        DoubleAccessor(String name, ToDoubleFunction<Object> getter, ObjDoubleConsumer<Object> setter) {
+            super(name, double.class);
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        @Override
+        Object get(Object obj) {
+            return getDouble(obj);
+        }
+
+        @Override
+        void set(Object obj, Object value) {
+            setDouble(obj, (Double) value);
+        }
+
+        @Override
+        double getDouble(Object obj) {
+            return getter.applyAsDouble(obj);
+        }
+
+        @Override
+        void setDouble(Object obj, double value) {
+            setter.accept(obj, value);
+        }
+
+    }
+
+    private static final class BoolAccessor extends FieldAccessor {
+
+        private final Predicate<Object> getter;
+
+        private final ObjBoolConsumer<Object> setter;
+
+        BoolAccessor(String name, Predicate<Object> getter, ObjBoolConsumer<Object> setter) {
+            super(name, boolean.class);
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        @Override
+        Object get(Object obj) {
+            return getBool(obj);
+        }
+
+        @Override
+        void set(Object obj, Object value) {
+            setBool(obj, (Boolean) value);
+        }
+
+        @Override
+        boolean getBool(Object obj) {
+            return getter.test(obj);
+        }
+
+        @Override
+        void setBool(Object obj, boolean value) {
+            setter.accept(obj, value);
+        }
+
+    }
+
+    private static final class ObjectAccessor extends FieldAccessor {
+
+        private final Function<Object, Object> getter;
+
+        private final BiConsumer<Object, Object> setter;
+
+        ObjectAccessor(String name, Class<?> type, Function<Object, Object> getter, BiConsumer<Object, Object> setter) {
+            super(name, type);
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        @Override
+        Object get(Object obj) {
+            return getter.apply(obj);
+        }
+
+        @Override
+        void set(Object obj, Object value) {
+            setter.accept(obj, value);
+        }
+
+    }
+
+}
@@ -1,5 +1,9 @@
 package io.jpower.sgf.ser;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
 /**
  * 包装了一个字节数组
  *
@@ -11,18 +15,33 @@ class ByteArrayReader extends CodedReader {
 
     private int pos;
 
+    /**
+     * 可以读取的最大位置（不包含），有字节数限制时可能小于{@link #end}
+     */
     private int limit;
 
+    /**
+     * 数据的结束位置（不包含）
+     */
+    private final int end;
+
+    /**
+     * 字节数限制，见{@link #setByteLimit(int)}
+     */
+    private int byteLimit = Ser.NO_SIZE_LIMIT;
+
     ByteArrayReader(byte buf[]) {
         this.buf = buf;
         this.pos = 0;
         this.limit = buf.length;
+        this.end = limit;
     }
 
     ByteArrayReader(byte buf[], int offset, int length) {
         this.buf = buf;
         this.pos = offset;
         this.limit = Math.min(offset + length, buf.length);
+        this.end = limit;
     }
 
     /* ########## 实现父类方法 ########## */
@@ -31,7 +50,20 @@ class ByteArrayReader extends CodedReader {
     String readString(int size) {
         checkSize(size);
 
-        final String result = new String(buf, pos, size, Utils.CHARSET);
+        final String result = Utils.decodeUtf8(buf, pos, size);
+        pos += size;
+
+        return result;
+    }
+
+    /**
+     * 返回字节数组中这部分数据的只读视图，不复制
+     */
+    @Override
+    ByteBuffer readByteBuffer(int size) {
+        checkSize(size);
+
+        final ByteBuffer result = ByteBuffer.wrap(buf, pos, size).slice().asReadOnlyBuffer();
         pos += size;
 
         return result;
@@ -52,11 +84,213 @@ class ByteArrayReader extends CodedReader {
         skip(size);
     }
 
+    /* ########## 覆盖父类方法，直接在数组上解码 ########## */
+
+    @Override
+    int readRawVarint32() {
+        // 实现同StreamReader#readRawVarint32
+        fastpath:
+        {
+            int tempPos = pos;
+
+            if (limit == tempPos) {
+                break fastpath;
+            }
+
+            final byte[] buffer = this.buf;
+            int x;
+            if ((x = buffer[tempPos++]) >= 0) {
+                pos = tempPos;
+                return x;
+            } else if (limit - tempPos < 9) {
+                break fastpath;
+            } else if ((x ^= (buffer[tempPos++] << 7)) < 0) {
+                x ^= (~0 << 7);
+            } else if ((x ^= (buffer[tempPos++] << 14)) >= 0) {
+                x ^= (~0 << 7) ^ (~0 << 14);
+            } else if ((x ^= (buffer[tempPos++] << 21)) < 0) {
+                x ^= (~0 << 7) ^ (~0 << 14) ^ (~0 << 21);
+            } else {
+                int y = buffer[tempPos++];
+                x ^= y << 28;
+                x ^= (~0 << 7) ^ (~0 << 14) ^ (~0 << 21) ^ (~0 << 28);
+                if (y < 0
+                        && buffer[tempPos++] < 0
+                        && buffer[tempPos++] < 0
+                        && buffer[tempPos++] < 0
+                        && buffer[tempPos++] < 0
+                        && buffer[tempPos++] < 0) {
+                    break fastpath; // Will throw malformedVarint()
+                }
+            }
+            pos = tempPos;
+            return x;
+        }
+        return super.readRawVarint32();
+    }
+
+    @Override
+    long readRawVarint64() {
+        // 实现同StreamReader#readRawVarint64
+        fastpath:
+        {
+            int tempPos = pos;
+
+            if (limit == tempPos) {
+                break fastpath;
+            }
+
+            final byte[] buffer = this.buf;
+            long x;
+            int y;
+            if ((y = buffer[tempPos++]) >= 0) {
+                pos = tempPos;
+                return y;
+            } else if (limit - tempPos < 9) {
+                break fastpath;
+            } else if ((x = y ^ (buffer[tempPos++] << 7)) < 0) {
+                x ^= (~0 << 7);
+            } else if ((x ^= (buffer[tempPos++] << 14)) >= 0) {
+                x ^= (~0 << 7) ^ (~0 << 14);
+            } else if ((x ^= (buffer[tempPos++] << 21)) < 0) {
+                x ^= (~0 << 7) ^ (~0 << 14) ^ (~0 << 21);
+            } else if ((x ^= ((long) buffer[tempPos++] << 28)) >= 0L) {
+                x ^= (~0L << 7) ^ (~0L << 14) ^ (~0L << 21) ^ (~0L << 28);
+            } else if ((x ^= ((long) buffer[tempPos++] << 35)) < 0L) {
+                x ^= (~0L << 7) ^ (~0L << 14) ^ (~0L << 21) ^ (~0L << 28) ^ (~0L << 35);
+            } else if ((x ^= ((long) buffer[tempPos++] << 42)) >= 0L) {
+                x ^= (~0L << 7) ^ (~0L << 14) ^ (~0L << 21) ^ (~0L << 28) ^ (~0L << 35) ^ (~0L << 42);
+            } else if ((x ^= ((long) buffer[tempPos++] << 49)) < 0L) {
+                x ^=
+                        (~0L << 7)
+                                ^ (~0L << 14)
+                                ^ (~0L << 21)
+                                ^ (~0L << 28)
+                                ^ (~0L << 35)
+                                ^ (~0L << 42)
+                                ^ (~0L << 49);
+            } else {
+                x ^= ((long) buffer[tempPos++] << 56);
+                x ^=
+                        (~0L << 7)
+                                ^ (~0L << 14)
+                                ^ (~0L << 21)
+                                ^ (~0L << 28)
+                                ^ (~0L << 35)
+                                ^ (~0L << 42)
+                                ^ (~0L << 49)
+                                ^ (~0L << 56);
+                if (x < 0L) {
+                    if (buffer[tempPos++] < 0L) {
+                        break fastpath; // Will throw malformedVarint()
+                    }
+                }
+            }
+            pos = tempPos;
+            return x;
+        }
+        return super.readRawVarint64();
+    }
+
+    @Override
+    short readRawLittleEndian16() {
+        checkSize(WireFormat.FIXED_16_SIZE);
+
+        final byte[] buffer = this.buf;
+        final int tempPos = pos;
+        pos = tempPos + WireFormat.FIXED_16_SIZE;
+        return (short) (((buffer[tempPos] & 0xff))
+                | ((buffer[tempPos + 1] & 0xff) << 8));
+    }
+
+    @Override
+    int readRawLittleEndian32() {
+        checkSize(WireFormat.FIXED_32_SIZE);
+
+        final byte[] buffer = this.buf;
+        final int tempPos = pos;
+        pos = tempPos + WireFormat.FIXED_32_SIZE;
+        return (((buffer[tempPos] & 0xff))
+                | ((buffer[tempPos + 1] & 0xff) << 8)
+                | ((buffer[tempPos + 2] & 0xff) << 16)
+                | ((buffer[tempPos + 3] & 0xff) << 24));
+    }
+
+    @Override
+    long readRawLittleEndian64() {
+        checkSize(WireFormat.FIXED_64_SIZE);
+
+        final byte[] buffer = this.buf;
+        final int tempPos = pos;
+        pos = tempPos + WireFormat.FIXED_64_SIZE;
+        return ((((long) buffer[tempPos] & 0xffL))
+                | (((long) buffer[tempPos + 1] & 0xffL) << 8)
+                | (((long) buffer[tempPos + 2] & 0xffL) << 16)
+                | (((long) buffer[tempPos + 3] & 0xffL) << 24)
+                | (((long) buffer[tempPos + 4] & 0xffL) << 32)
+                | (((long) buffer[tempPos + 5] & 0xffL) << 40)
+                | (((long) buffer[tempPos + 6] & 0xffL) << 48)
+                | (((long) buffer[tempPos + 7] & 0xffL) << 56));
+    }
+
+    @Override
+    void skipRawVarint() {
+        if (limit - pos >= WireFormat.MAX_VARINT_SIZE) {
+            final byte[] buffer = this.buf;
+            for (int i = 0; i < WireFormat.MAX_VARINT_SIZE; i++) {
+                if (buffer[pos++] >= 0) {
+                    return;
+                }
+            }
+            throw SerializationException.malformedVarint();
+        }
+        super.skipRawVarint();
+    }
+
+    @Override
+    void readRawLittleEndian32s(int[] dst) {
+        littleEndianBuffer(dst.length * WireFormat.FIXED_32_SIZE).asIntBuffer().get(dst);
+    }
+
+    @Override
+    void readRawLittleEndian64s(long[] dst) {
+        littleEndianBuffer(dst.length * WireFormat.FIXED_64_SIZE).asLongBuffer().get(dst);
+    }
+
+    @Override
+    void readRawFloats(float[] dst) {
+        littleEndianBuffer(dst.length * WireFormat.FIXED_32_SIZE).asFloatBuffer().get(dst);
+    }
+
+    @Override
+    void readRawDoubles(double[] dst) {
+        littleEndianBuffer(dst.length * WireFormat.FIXED_64_SIZE).asDoubleBuffer().get(dst);
+    }
+
+    /**
+     * 直接缩小可以读取的范围
+     */
+    @Override
+    void setByteLimit(int byteLimit) {
+        this.byteLimit = byteLimit;
+        this.limit = byteLimit == Ser.NO_SIZE_LIMIT ? end : (int) Math.min(end, (long) pos + byteLimit);
+    }
+
     /* ########## 自己的方法 ########## */
 
+    /**
+     * 读取size个字节，返回包装这部分数据的{@link ByteBuffer}
+     */
+    private ByteBuffer littleEndianBuffer(int size) {
+        checkSize(size);
+        ByteBuffer buffer = ByteBuffer.wrap(buf, pos, size).slice().order(ByteOrder.LITTLE_ENDIAN);
+        pos += size;
+        return buffer;
+    }
+
     byte read() {
         if (pos >= limit) {
-            throw new IndexOutOfBoundsException("Not enough readable bytes.");
+            throw notEnoughBytes(1);
         }
 
         return buf[pos++];
@@ -71,7 +305,7 @@ class ByteArrayReader extends CodedReader {
 
         int avail = limit - pos;
         if (len > avail) {
-            throw new IndexOutOfBoundsException("Not enough readable bytes.");
+            throw notEnoughBytes(len);
         }
         System.arraycopy(buf, pos, b, off, len);
         pos += len;
@@ -83,6 +317,17 @@ class ByteArrayReader extends CodedReader {
         pos += len;
     }
 
+    @Override
+    int position() {
+        return pos;
+    }
+
+    @Override
+    byte[] copyOfRange(int from, int to) {
+        return Arrays.copyOfRange(buf, from, to);
+    }
+
+    @Override
     int available() {
         return limit - pos;
     }
@@ -92,8 +337,18 @@ class ByteArrayReader extends CodedReader {
             throw new SerializationException("Negative size: " + size);
         }
         if (size > limit - pos) {
-            throw new IndexOutOfBoundsException("Not enough readable bytes.");
+            throw notEnoughBytes(size);
+        }
+    }
+
+    /**
+     * 后面还有数据时是超过了字节数限制
+     */
+    private RuntimeException notEnoughBytes(int size) {
+        if (limit < end && size <= end - pos) {
+            return SerializationException.totalByteSizeExceeded((long) pos + size - (limit - byteLimit), byteLimit);
         }
+        return new IndexOutOfBoundsException("Not enough readable bytes.");
     }
 
 }
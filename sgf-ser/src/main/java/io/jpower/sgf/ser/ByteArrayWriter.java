@@ -1,9 +1,18 @@
 package io.jpower.sgf.ser;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 
+import io.jpower.sgf.utils.SystemPropertyUtils;
+
 /**
  * 包装了一个字节数组
+ * <p>
+ * <ul>
+ * <li>默认空间不够时会自动扩容</li>
+ * <li>也可以包装一个外部的字节数组，这时不会扩容，空间不够时抛出{@link SerializationException}</li>
+ * </ul>
  *
  * @author <a href="mailto:szhnet@gmail.com">szh</a>
  */
@@ -16,10 +25,39 @@ class ByteArrayWriter extends CodedWriter {
      */
     private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
 
+    /**
+     * 线程本地缓存的{@link ByteArrayWriter}最多保留的容量，超过的用完后直接丢弃
+     */
+    static final int LOCAL_MAX_CAPACITY = SystemPropertyUtils
+            .getInt("io.jpower.sgf.ser.localWriterMaxCapacity", 64 * 1024);
+
     private byte buf[];
 
+    /**
+     * 数据在buf中的起始位置
+     */
+    private final int offset;
+
+    /**
+     * buf中的写入位置
+     */
     private int count;
 
+    /**
+     * 包装外部字节数组时可以写入的最大位置（不包含），自动扩容时为-1
+     */
+    private final int limit;
+
+    /**
+     * 包装外部字节数组时，是否出现过空间不够的情况
+     */
+    private boolean overflow;
+
+    /**
+     * 字节数限制对应的最大位置，不限制时为{@link Long#MAX_VALUE}
+     */
+    private long byteLimitEnd = Long.MAX_VALUE;
+
     ByteArrayWriter() {
         this(128);
     }
@@ -29,6 +67,26 @@ class ByteArrayWriter extends CodedWriter {
             throw new IllegalArgumentException("Negative initialCapacity: " + initialCapacity);
         }
         this.buf = new byte[initialCapacity];
+        this.offset = 0;
+        this.limit = -1;
+    }
+
+    /**
+     * 包装外部的字节数组，从offset开始写入，最多写入length个字节，不会扩容
+     *
+     * @param buf
+     * @param offset
+     * @param length
+     */
+    ByteArrayWriter(byte[] buf, int offset, int length) {
+        if ((offset < 0) || (length < 0) || (offset > buf.length - length)) {
+            throw new IndexOutOfBoundsException(
+                    "buf.length=" + buf.length + ", offset=" + offset + ", length=" + length);
+        }
+        this.buf = buf;
+        this.offset = offset;
+        this.count = offset;
+        this.limit = offset + length;
     }
 
     /* ########## 实现父类方法 ########## */
@@ -41,9 +99,107 @@ class ByteArrayWriter extends CodedWriter {
         write(value, offset, length);
     }
 
+    /* ########## 覆盖父类方法，直接批量写入 ########## */
+
+    @Override
+    void writeRawLittleEndian32s(int[] value) {
+        littleEndianBuffer(value.length * WireFormat.FIXED_32_SIZE).asIntBuffer().put(value);
+    }
+
+    @Override
+    void writeRawLittleEndian64s(long[] value) {
+        littleEndianBuffer(value.length * WireFormat.FIXED_64_SIZE).asLongBuffer().put(value);
+    }
+
+    @Override
+    void writeRawFloats(float[] value) {
+        littleEndianBuffer(value.length * WireFormat.FIXED_32_SIZE).asFloatBuffer().put(value);
+    }
+
+    @Override
+    void writeRawDoubles(double[] value) {
+        littleEndianBuffer(value.length * WireFormat.FIXED_64_SIZE).asDoubleBuffer().put(value);
+    }
+
+    /**
+     * 先计算编码后的长度，再直接编码到buf中，不创建临时的字节数组
+     */
+    @Override
+    void writeStringNoTag(String value) {
+        int length = Utils.utf8Length(value);
+        writeRawVarint32(length);
+        ensureCapacity(count + length);
+        count = Utils.encodeUtf8(value, buf, count);
+    }
+
+    @Override
+    void writeRawBytes(ByteBuffer value) {
+        int length = value.remaining();
+        int newCount = count + length;
+        ensureCapacity(newCount);
+        value.duplicate().get(buf, count, length);
+        count = newCount;
+    }
+
+    /**
+     * 在当前位置分配size个字节，返回包装这部分空间的{@link ByteBuffer}
+     */
+    private ByteBuffer littleEndianBuffer(int size) {
+        int newCount = count + size;
+        ensureCapacity(newCount);
+        ByteBuffer buffer = ByteBuffer.wrap(buf, count, size).slice().order(ByteOrder.LITTLE_ENDIAN);
+        count = newCount;
+        return buffer;
+    }
+
+    /**
+     * 先预留1个字节的长度，结束时长度需要更多字节再把值整体后移
+     */
+    @Override
+    int beginLengthDelimited() {
+        write((byte) 0);
+        return count;
+    }
+
+    @Override
+    void endLengthDelimited(int mark) {
+        int length = count - mark;
+        int lengthSize = computeRawVarint32Size(length);
+        if (lengthSize > 1) {
+            int shift = lengthSize - 1;
+            ensureCapacity(count + shift);
+            System.arraycopy(buf, mark, buf, mark + shift, length);
+            count += shift;
+        }
+        int pos = mark - 1;
+        while ((length & ~0x7F) != 0) {
+            buf[pos++] = (byte) ((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        buf[pos] = (byte) length;
+    }
+
+    @Override
+    void setByteLimit(int byteLimit) {
+        super.setByteLimit(byteLimit);
+        byteLimitEnd = byteLimit == Ser.NO_SIZE_LIMIT ? Long.MAX_VALUE : (long) count + byteLimit;
+    }
+
     /* ########## 自己的方法 ########## */
 
     private void ensureCapacity(int minCapacity) {
+        if (minCapacity > byteLimitEnd) { // 扩容之前先检查，不会为超过限制的数据分配空间
+            throw SerializationException.totalByteSizeExceeded(minCapacity - (byteLimitEnd - getByteLimit()),
+                    getByteLimit());
+        }
+        if (limit >= 0) {
+            if (minCapacity - limit > 0 || minCapacity < 0) {
+                overflow = true;
+                throw new SerializationException("Buffer overflow. capacity=" + (limit - offset)
+                        + ", required=" + (minCapacity - offset));
+            }
+            return;
+        }
         // overflow-conscious code
         if (minCapacity - buf.length > 0) {
             // overflow-conscious code
@@ -88,19 +244,57 @@ class ByteArrayWriter extends CodedWriter {
     }
 
     void reset() {
-        count = 0;
+        count = offset;
     }
 
     int size() {
-        return count;
+        return count - offset;
     }
 
+    /**
+     * 当前的字节数组，数据从{@link #offset()}开始
+     *
+     * @return
+     */
     byte[] buf() {
         return buf;
     }
 
+    int offset() {
+        return offset;
+    }
+
+    boolean isOverflow() {
+        return overflow;
+    }
+
     byte[] toByteArray() {
-        return Arrays.copyOf(buf, count);
+        return Arrays.copyOfRange(buf, offset, count);
+    }
+
+    /**
+     * 从线程本地缓存中取出writer，使用时取出来，用完再用{@link #releaseLocal(ThreadLocal, ByteArrayWriter)}放回去，
+     * 这样嵌套调用时也不会冲突
+     *
+     * @param local
+     * @return
+     */
+    static ByteArrayWriter acquireLocal(ThreadLocal<ByteArrayWriter> local) {
+        ByteArrayWriter byteArrayWriter = local.get();
+        if (byteArrayWriter == null) { // 第一次使用或者正在被外层调用使用
+            return new ByteArrayWriter();
+        }
+        local.set(null);
+        return byteArrayWriter;
+    }
+
+    static void releaseLocal(ThreadLocal<ByteArrayWriter> local, ByteArrayWriter byteArrayWriter) {
+        if (byteArrayWriter.buf().length > LOCAL_MAX_CAPACITY) {
+            return;
+        }
+        byteArrayWriter.reset();
+        byteArrayWriter.setByteLimit(Ser.NO_SIZE_LIMIT);
+        local.set(byteArrayWriter);
     }
 
 }
@@ -0,0 +1,268 @@
+package io.jpower.sgf.ser;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 包装了一个{@link ByteBuffer}，读取position到limit之间的数据
+ * <p>
+ * <ul>
+ * <li>direct buffer和{@link java.nio.MappedByteBuffer}也可以直接读取，不需要先复制到堆中</li>
+ * <li>读取的是buffer的副本，不会修改原来buffer的position和字节序</li>
+ * </ul>
+ *
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+class ByteBufferReader extends CodedReader {
+
+    private final ByteBuffer buf;
+
+    /**
+     * 数据的结束位置（不包含），有字节数限制时buf的limit可能小于这个值
+     */
+    private final int end;
+
+    /**
+     * 字节数限制，见{@link #setByteLimit(int)}
+     */
+    private int byteLimit = Ser.NO_SIZE_LIMIT;
+
+    ByteBufferReader(ByteBuffer src) {
+        this.buf = src.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        this.end = buf.limit();
+    }
+
+    /* ########## 实现父类方法 ########## */
+
+    @Override
+    String readString(int size) {
+        checkSize(size);
+
+        if (size == 0) {
+            return "";
+        }
+        if (buf.hasArray()) {
+            final String result = Utils.decodeUtf8(buf.array(), buf.arrayOffset() + buf.position(), size);
+            buf.position(buf.position() + size);
+            return result;
+        }
+        byte[] bytes = new byte[size];
+        buf.get(bytes);
+        return Utils.decodeUtf8(bytes, 0, size);
+    }
+
+    /**
+     * 返回buffer中这部分数据的只读视图，不复制
+     */
+    @Override
+    ByteBuffer readByteBuffer(int size) {
+        checkSize(size);
+
+        ByteBuffer result = buf.duplicate();
+        result.limit(result.position() + size);
+        buf.position(buf.position() + size);
+
+        return result.slice().asReadOnlyBuffer();
+    }
+
+    @Override
+    byte readRawByte() {
+        if (!buf.hasRemaining()) {
+            throw notEnoughBytes(1);
+        }
+
+        return buf.get();
+    }
+
+    @Override
+    void readRawBytes(byte[] value, int offset, int len) {
+        checkSize(len);
+
+        buf.get(value, offset, len);
+    }
+
+    @Override
+    void skipRawBytes(int size) {
+        checkSize(size);
+
+        buf.position(buf.position() + size);
+    }
+
+    /* ########## 覆盖父类方法，直接按小端读取 ########## */
+
+    @Override
+    int readRawVarint32() {
+        final ByteBuffer buffer = this.buf;
+        int tempPos = buffer.position();
+        if (tempPos == buffer.limit()) {
+            return super.readRawVarint32();
+        }
+        int x = buffer.get(tempPos++);
+        if (x >= 0) {
+            buffer.position(tempPos);
+            return x;
+        }
+        if (buffer.limit() - tempPos < WireFormat.MAX_VARINT_SIZE - 1) {
+            return super.readRawVarint32();
+        }
+        x &= 0x7f;
+        for (int shift = 7; shift < 64; shift += 7) {
+            final byte b = buffer.get(tempPos++);
+            if (shift < 32) {
+                x |= (b & 0x7f) << shift;
+            }
+            if (b >= 0) {
+                buffer.position(tempPos);
+                return x;
+            }
+        }
+        throw SerializationException.malformedVarint();
+    }
+
+    @Override
+    long readRawVarint64() {
+        final ByteBuffer buffer = this.buf;
+        int tempPos = buffer.position();
+        if (tempPos == buffer.limit()) {
+            return super.readRawVarint64();
+        }
+        long x = buffer.get(tempPos++);
+        if (x >= 0) {
+            buffer.position(tempPos);
+            return x;
+        }
+        if (buffer.limit() - tempPos < WireFormat.MAX_VARINT_SIZE - 1) {
+            return super.readRawVarint64();
+        }
+        x &= 0x7f;
+        for (int shift = 7; shift < 64; shift += 7) {
+            final byte b = buffer.get(tempPos++);
+            x |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                buffer.position(tempPos);
+                return x;
+            }
+        }
+        throw SerializationException.malformedVarint();
+    }
+
+    @Override
+    void skipRawVarint() {
+        final ByteBuffer buffer = this.buf;
+        int tempPos = buffer.position();
+        if (buffer.limit() - tempPos < WireFormat.MAX_VARINT_SIZE) {
+            super.skipRawVarint();
+            return;
+        }
+        for (int i = 0; i < WireFormat.MAX_VARINT_SIZE; i++) {
+            if (buffer.get(tempPos++) >= 0) {
+                buffer.position(tempPos);
+                return;
+            }
+        }
+        throw SerializationException.malformedVarint();
+    }
+
+    @Override
+    short readRawLittleEndian16() {
+        checkSize(WireFormat.FIXED_16_SIZE);
+        return buf.getShort();
+    }
+
+    @Override
+    int readRawLittleEndian32() {
+        checkSize(WireFormat.FIXED_32_SIZE);
+        return buf.getInt();
+    }
+
+    @Override
+    long readRawLittleEndian64() {
+        checkSize(WireFormat.FIXED_64_SIZE);
+        return buf.getLong();
+    }
+
+    @Override
+    void readRawLittleEndian32s(int[] dst) {
+        int size = dst.length * WireFormat.FIXED_32_SIZE;
+        checkSize(size);
+        buf.asIntBuffer().get(dst);
+        buf.position(buf.position() + size);
+    }
+
+    @Override
+    void readRawLittleEndian64s(long[] dst) {
+        int size = dst.length * WireFormat.FIXED_64_SIZE;
+        checkSize(size);
+        buf.asLongBuffer().get(dst);
+        buf.position(buf.position() + size);
+    }
+
+    @Override
+    void readRawFloats(float[] dst) {
+        int size = dst.length * WireFormat.FIXED_32_SIZE;
+        checkSize(size);
+        buf.asFloatBuffer().get(dst);
+        buf.position(buf.position() + size);
+    }
+
+    @Override
+    void readRawDoubles(double[] dst) {
+        int size = dst.length * WireFormat.FIXED_64_SIZE;
+        checkSize(size);
+        buf.asDoubleBuffer().get(dst);
+        buf.position(buf.position() + size);
+    }
+
+    @Override
+    int available() {
+        return buf.remaining();
+    }
+
+    @Override
+    int position() {
+        return buf.position();
+    }
+
+    @Override
+    byte[] copyOfRange(int from, int to) {
+        ByteBuffer range = buf.duplicate();
+        range.limit(to);
+        range.position(from);
+        byte[] bytes = new byte[to - from];
+        range.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * 直接缩小buffer的limit
+     */
+    @Override
+    void setByteLimit(int byteLimit) {
+        this.byteLimit = byteLimit;
+        buf.limit(byteLimit == Ser.NO_SIZE_LIMIT ? end : (int) Math.min(end, (long) buf.position() + byteLimit));
+    }
+
+    /* ########## 自己的方法 ########## */
+
+    void checkSize(int size) {
+        if (size < 0) {
+            throw new SerializationException("Negative size: " + size);
+        }
+        if (size > buf.remaining()) {
+            throw notEnoughBytes(size);
+        }
+    }
+
+    /**
+     * 后面还有数据时是超过了字节数限制
+     */
+    private RuntimeException notEnoughBytes(int size) {
+        int pos = buf.position();
+        if (buf.limit() < end && size <= end - pos) {
+            return SerializationException.totalByteSizeExceeded((long) pos + size - (buf.limit() - byteLimit),
+                    byteLimit);
+        }
+        return new IndexOutOfBoundsException("Not enough readable bytes.");
+    }
+
+}
@@ -0,0 +1,196 @@
+package io.jpower.sgf.ser;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 包装了一个{@link ByteBuffer}，从position开始写入，最多写到limit
+ * <p>
+ * <ul>
+ * <li>direct buffer和{@link java.nio.MappedByteBuffer}也可以直接写入，不需要经过堆中的缓冲区</li>
+ * <li>不会扩容，空间不够时抛出{@link SerializationException}</li>
+ * <li>写入的是buffer的副本，不会修改原来buffer的position和字节序</li>
+ * </ul>
+ *
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+class ByteBufferWriter extends CodedWriter {
+
+    private final ByteBuffer buf;
+
+    /**
+     * 开始写入的位置
+     */
+    private final int offset;
+
+    /**
+     * 是否出现过空间不够的情况
+     */
+    private boolean overflow;
+
+    /**
+     * 字节数限制对应的最大位置，不限制时为{@link Long#MAX_VALUE}
+     */
+    private long byteLimitEnd = Long.MAX_VALUE;
+
+    ByteBufferWriter(ByteBuffer dst) {
+        this.buf = dst.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        this.offset = buf.position();
+    }
+
+    /* ########## 实现父类方法 ########## */
+
+    @Override
+    void writeRawByte(byte value) {
+        ensureRemaining(1);
+        buf.put(value);
+    }
+
+    @Override
+    void writeRawBytes(byte[] value, int offset, int len) {
+        ensureRemaining(len);
+        buf.put(value, offset, len);
+    }
+
+    /* ########## 覆盖父类方法，直接批量写入 ########## */
+
+    /**
+     * heap buffer直接编码到数组中，direct buffer没有数组，还是先编码为字节数组
+     */
+    @Override
+    void writeStringNoTag(String value) {
+        if (!buf.hasArray()) {
+            super.writeStringNoTag(value);
+            return;
+        }
+        int length = Utils.utf8Length(value);
+        writeRawVarint32(length);
+        ensureRemaining(length);
+        int start = buf.arrayOffset() + buf.position();
+        Utils.encodeUtf8(value, buf.array(), start);
+        buf.position(buf.position() + length);
+    }
+
+    @Override
+    void writeRawBytes(ByteBuffer value) {
+        ensureRemaining(value.remaining());
+        buf.put(value.duplicate());
+    }
+
+    @Override
+    void writeRawLittleEndian16(int value) {
+        ensureRemaining(WireFormat.FIXED_16_SIZE);
+        buf.putShort((short) value);
+    }
+
+    @Override
+    void writeRawLittleEndian32(int value) {
+        ensureRemaining(WireFormat.FIXED_32_SIZE);
+        buf.putInt(value);
+    }
+
+    @Override
+    void writeRawLittleEndian64(long value) {
+        ensureRemaining(WireFormat.FIXED_64_SIZE);
+        buf.putLong(value);
+    }
+
+    @Override
+    void writeRawLittleEndian32s(int[] value) {
+        int size = value.length * WireFormat.FIXED_32_SIZE;
+        ensureRemaining(size);
+        buf.asIntBuffer().put(value);
+        buf.position(buf.position() + size);
+    }
+
+    @Override
+    void writeRawLittleEndian64s(long[] value) {
+        int size = value.length * WireFormat.FIXED_64_SIZE;
+        ensureRemaining(size);
+        buf.asLongBuffer().put(value);
+        buf.position(buf.position() + size);
+    }
+
+    @Override
+    void writeRawFloats(float[] value) {
+        int size = value.length * WireFormat.FIXED_32_SIZE;
+        ensureRemaining(size);
+        buf.asFloatBuffer().put(value);
+        buf.position(buf.position() + size);
+    }
+
+    @Override
+    void writeRawDoubles(double[] value) {
+        int size = value.length * WireFormat.FIXED_64_SIZE;
+        ensureRemaining(size);
+        buf.asDoubleBuffer().put(value);
+        buf.position(buf.position() + size);
+    }
+
+    /**
+     * 和{@link ByteArrayWriter}一样，先预留1个字节的长度，结束时长度需要更多字节再把值整体后移
+     */
+    @Override
+    int beginLengthDelimited() {
+        writeRawByte((byte) 0);
+        return buf.position();
+    }
+
+    @Override
+    void endLengthDelimited(int mark) {
+        int length = buf.position() - mark;
+        int lengthSize = computeRawVarint32Size(length);
+        if (lengthSize > 1) {
+            int shift = lengthSize - 1;
+            ensureRemaining(shift);
+            if (buf.hasArray()) {
+                byte[] array = buf.array();
+                int start = buf.arrayOffset() + mark;
+                System.arraycopy(array, start, array, start + shift, length);
+            } else { // 源和目标有重叠，先复制出来
+                byte[] value = new byte[length];
+                ByteBuffer moved = buf.duplicate();
+                moved.position(mark);
+                moved.get(value);
+                moved.position(mark + shift);
+                moved.put(value);
+            }
+            buf.position(buf.position() + shift);
+        }
+        int pos = mark - 1;
+        while ((length & ~0x7F) != 0) {
+            buf.put(pos++, (byte) ((length & 0x7F) | 0x80));
+            length >>>= 7;
+        }
+        buf.put(pos, (byte) length);
+    }
+
+    @Override
+    void setByteLimit(int byteLimit) {
+        super.setByteLimit(byteLimit);
+        byteLimitEnd = byteLimit == Ser.NO_SIZE_LIMIT ? Long.MAX_VALUE : (long) buf.position() + byteLimit;
+    }
+
+    /* ########## 自己的方法 ########## */
+
+    private void ensureRemaining(int size) {
+        long end = (long) buf.position() + size;
+        if (end > byteLimitEnd) {
+            throw SerializationException.totalByteSizeExceeded(end - (byteLimitEnd - getByteLimit()), getByteLimit());
+        }
+        if (size > buf.remaining() || size < 0) {
+            overflow = true;
+            throw new SerializationException("Buffer overflow. capacity=" + (buf.limit() - offset)
+                    + ", required=" + (buf.position() - offset + size));
+        }
+    }
+
+    int size() {
+        return buf.position() - offset;
+    }
+
+    boolean isOverflow() {
+        return overflow;
+    }
+
+}
@@ -1,5 +1,7 @@
 package io.jpower.sgf.ser;
 
+import java.nio.ByteBuffer;
+
 import static io.jpower.sgf.ser.WireFormat.MAX_VARINT_SIZE;
 
 /**
@@ -107,7 +109,7 @@ abstract class CodedReader {
         }
 
         byte[] bytes = readBytes(size);
-        return new String(bytes, Utils.CHARSET);
+        return Utils.decodeUtf8(bytes, 0, size);
     }
 
     byte[] readBytes(int size) {
@@ -120,6 +122,15 @@ abstract class CodedReader {
         return buf;
     }
 
+    /**
+     * 读取size个字节，返回只读的{@link ByteBuffer}
+     * <p>
+     * 默认复制出来，数据在内存中的实现直接返回输入数据的视图，不复制
+     */
+    ByteBuffer readByteBuffer(int size) {
+        return ByteBuffer.wrap(readBytes(size)).asReadOnlyBuffer();
+    }
+
     int readTag() {
         return readRawVarint32();
     }
@@ -209,6 +220,36 @@ abstract class CodedReader {
                 (((long) readRawByte() & 0xffL) << 56));
     }
 
+    /**
+     * Read an array of little-endian 32-bit integers.
+     */
+    void readRawLittleEndian32s(final int[] dst) {
+        for (int i = 0; i < dst.length; i++) {
+            dst[i] = readRawLittleEndian32();
+        }
+    }
+
+    /**
+     * Read an array of little-endian 64-bit integers.
+     */
+    void readRawLittleEndian64s(final long[] dst) {
+        for (int i = 0; i < dst.length; i++) {
+            dst[i] = readRawLittleEndian64();
+        }
+    }
+
+    void readRawFloats(final float[] dst) {
+        for (int i = 0; i < dst.length; i++) {
+            dst[i] = Float.intBitsToFloat(readRawLittleEndian32());
+        }
+    }
+
+    void readRawDoubles(final double[] dst) {
+        for (int i = 0; i < dst.length; i++) {
+            dst[i] = Double.longBitsToDouble(readRawLittleEndian64());
+        }
+    }
+
     void skipRawVarint() {
         for (int i = 0; i < MAX_VARINT_SIZE; i++) {
             if (readRawByte() >= 0) {
@@ -229,6 +270,38 @@ abstract class CodedReader {
 
     /* ########## other ########## */
 
+    /**
+     * 设置从当前位置开始最多可以读取的字节数，{@link Ser#NO_SIZE_LIMIT}表示不限制
+     * <p>
+     * 读取超过限制的数据时抛出{@link SerializationException}，数据中的长度不会导致分配超过限制的空间。默认不检查
+     *
+     * @param byteLimit
+     */
+    void setByteLimit(int byteLimit) {
+
+    }
+
+    /**
+     * 剩余可读的字节数，不知道时返回-1
+     */
+    int available() {
+        return -1;
+    }
+
+    /**
+     * 当前的读取位置，不支持回退时返回-1
+     */
+    int position() {
+        return -1;
+    }
+
+    /**
+     * 复制已读取的一段数据，{@link #position()}返回-1时不支持
+     */
+    byte[] copyOfRange(int from, int to) {
+        throw new SerializationException("Lazy slicing is unsupported by " + getClass().getSimpleName());
+    }
+
     /**
      * Decode a ZigZag-encoded 32-bit value. ZigZag encodes signed integers into
      * values that can be efficiently encoded with varint. (Otherwise, negative
@@ -1,5 +1,7 @@
 package io.jpower.sgf.ser;
 
+import java.nio.ByteBuffer;
+
 /**
  * 用来进行编码
  * <p>
@@ -13,6 +15,11 @@ package io.jpower.sgf.ser;
  */
 abstract class CodedWriter {
 
+    /**
+     * 最多可以写入的字节数，见{@link #setByteLimit(int)}
+     */
+    private int byteLimit = Ser.NO_SIZE_LIMIT;
+
     CodedWriter() {
 
     }
@@ -221,18 +228,24 @@ abstract class CodedWriter {
 
     /**
      * Write a {@code string} field to the stream.
+     * <p>
+     * 默认先编码为字节数组再复制，底层是字节数组的实现会覆盖这个方法，用{@link Utils#encodeUtf8(String, byte[], int)}
+     * 直接编码到缓冲区中
      */
     void writeStringNoTag(final String value) {
-        // Unfortunately there does not appear to be any way to tell Java to
-        // encode
-        // UTF-8 directly into our buffer, so we have to let it create its own
-        // byte
-        // array and then copy.
         byte[] bytes = value.getBytes(Utils.CHARSET);
         writeRawVarint32(bytes.length);
         writeRawBytes(bytes);
     }
 
+    /**
+     * 写入buffer中position到limit之间的数据，和{@link #writeBytesNoTag(byte[])}的编码相同，不会修改buffer的position
+     */
+    void writeByteBufferNoTag(final ByteBuffer value) {
+        writeRawVarint32(value.remaining());
+        writeRawBytes(value);
+    }
+
     void writeTag(final int fieldNumber, final int wireType) {
         writeRawVarint32(WireFormat.makeTag(fieldNumber, wireType));
     }
@@ -241,6 +254,41 @@ abstract class CodedWriter {
         writeRawVarint32(wireType);
     }
 
+    /**
+     * 开始写入一个带字节长度前缀的值，返回的标记需要传给{@link #endLengthDelimited(int)}
+     * <p>
+     * 长度在值写完之后才能确定，需要支持回填，默认不支持
+     *
+     * @return
+     */
+    int beginLengthDelimited() {
+        throw new SerializationException("Length delimited format is not supported by " + getClass().getSimpleName());
+    }
+
+    /**
+     * 结束写入一个带字节长度前缀的值，回填长度
+     *
+     * @param mark {@link #beginLengthDelimited()}的返回值
+     */
+    void endLengthDelimited(int mark) {
+        throw new SerializationException("Length delimited format is not supported by " + getClass().getSimpleName());
+    }
+
+    /**
+     * 设置从当前位置开始最多可以写入的字节数，{@link Ser#NO_SIZE_LIMIT}表示不限制
+     * <p>
+     * 子类在分配空间或者输出数据时检查，超过时抛出{@link SerializationException}，不需要等到全部写完。默认不检查
+     *
+     * @param byteLimit
+     */
+    void setByteLimit(int byteLimit) {
+        this.byteLimit = byteLimit;
+    }
+
+    int getByteLimit() {
+        return byteLimit;
+    }
+
     /* ########## write raw value ########## */
 
     /**
@@ -264,6 +312,19 @@ abstract class CodedWriter {
 
     abstract void writeRawBytes(final byte[] value, int offset, int len);
 
+    /**
+     * 写入buffer中position到limit之间的数据，不会修改buffer的position
+     */
+    void writeRawBytes(final ByteBuffer value) {
+        if (value.hasArray()) {
+            writeRawBytes(value.array(), value.arrayOffset() + value.position(), value.remaining());
+        } else {
+            byte[] bytes = new byte[value.remaining()];
+            value.duplicate().get(bytes);
+            writeRawBytes(bytes);
+        }
+    }
+
     /**
      * Encode and write a varint. {@code value} is treated as unsigned, so it
      * won't be sign-extended if negative.
@@ -334,8 +395,97 @@ abstract class CodedWriter {
         writeRawByte((int) (value >> 56) & 0xFF);
     }
 
+    /**
+     * Write an array of little-endian 32-bit integers.
+     */
+    void writeRawLittleEndian32s(final int[] value) {
+        for (int e : value) {
+            writeRawLittleEndian32(e);
+        }
+    }
+
+    /**
+     * Write an array of little-endian 64-bit integers.
+     */
+    void writeRawLittleEndian64s(final long[] value) {
+        for (long e : value) {
+            writeRawLittleEndian64(e);
+        }
+    }
+
+    void writeRawFloats(final float[] value) {
+        for (float e : value) {
+            writeRawLittleEndian32(Float.floatToRawIntBits(e));
+        }
+    }
+
+    void writeRawDoubles(final double[] value) {
+        for (double e : value) {
+            writeRawLittleEndian64(Double.doubleToRawLongBits(e));
+        }
+    }
+
     /* ########## other ########## */
 
+    /**
+     * Compute the number of bytes that would be needed to encode an
+     * {@code int32} field, negative values are sign-extended.
+     */
+    static int computeInt32Size(final int value) {
+        if (value >= 0) {
+            return computeRawVarint32Size(value);
+        }
+        return WireFormat.MAX_VARINT_SIZE;
+    }
+
+    /**
+     * Compute the number of bytes that would be needed to encode a varint.
+     * {@code value} is treated as unsigned, so it won't be sign-extended if
+     * negative.
+     */
+    static int computeRawVarint32Size(final int value) {
+        if ((value & (~0 << 7)) == 0) {
+            return 1;
+        }
+        if ((value & (~0 << 14)) == 0) {
+            return 2;
+        }
+        if ((value & (~0 << 21)) == 0) {
+            return 3;
+        }
+        if ((value & (~0 << 28)) == 0) {
+            return 4;
+        }
+        return 5;
+    }
+
+    /**
+     * Compute the number of bytes that would be needed to encode a varint.
+     */
+    static int computeRawVarint64Size(long value) {
+        // handle two popular special cases up front ...
+        if ((value & (~0L << 7)) == 0L) {
+            return 1;
+        }
+        if (value < 0L) {
+            return 10;
+        }
+        // ... leaving us with 8 remaining, which we can divide and conquer
+        int n = 2;
+        if ((value & (~0L << 35)) != 0L) {
+            n += 4;
+            value >>>= 28;
+        }
+        if ((value & (~0L << 21)) != 0L) {
+            n += 2;
+            value >>>= 14;
+        }
+        if ((value & (~0L << 14)) != 0L) {
+            n += 1;
+        }
+        return n;
+    }
+
     /**
      * Encode a ZigZag-encoded 32-bit value. ZigZag encodes signed integers into
      * values that can be efficiently encoded with varint. (Otherwise, negative
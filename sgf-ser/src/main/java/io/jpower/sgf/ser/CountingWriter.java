@@ -0,0 +1,118 @@
+package io.jpower.sgf.ser;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 不写入任何数据，只计算编码后的字节数
+ * <p>
+ * <ul>
+ * <li>和{@link CodedWriter}的编码规则一致</li>
+ * <li>字符串只计算UTF-8编码后的长度，不会分配内存</li>
+ * </ul>
+ *
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+class CountingWriter extends CodedWriter {
+
+    private int count;
+
+    CountingWriter() {
+
+    }
+
+    /* ########## 实现父类方法 ########## */
+
+    @Override
+    void writeRawByte(byte value) {
+        count++;
+    }
+
+    @Override
+    void writeRawBytes(byte[] value, int offset, int len) {
+        count += len;
+    }
+
+    /* ########## 覆盖父类方法 ########## */
+
+    @Override
+    void writeStringNoTag(String value) {
+        int length = Utils.utf8Length(value);
+        count += computeRawVarint32Size(length) + length;
+    }
+
+    @Override
+    void writeRawBytes(ByteBuffer value) {
+        count += value.remaining();
+    }
+
+    @Override
+    void writeRawVarint32(int value) {
+        count += computeRawVarint32Size(value);
+    }
+
+    @Override
+    void writeRawVarint64(long value) {
+        count += computeRawVarint64Size(value);
+    }
+
+    @Override
+    void writeRawLittleEndian16(int value) {
+        count += WireFormat.FIXED_16_SIZE;
+    }
+
+    @Override
+    void writeRawLittleEndian32(int value) {
+        count += WireFormat.FIXED_32_SIZE;
+    }
+
+    @Override
+    void writeRawLittleEndian64(long value) {
+        count += WireFormat.FIXED_64_SIZE;
+    }
+
+    @Override
+    void writeRawLittleEndian32s(int[] value) {
+        count += value.length * WireFormat.FIXED_32_SIZE;
+    }
+
+    @Override
+    void writeRawLittleEndian64s(long[] value) {
+        count += value.length * WireFormat.FIXED_64_SIZE;
+    }
+
+    @Override
+    void writeRawFloats(float[] value) {
+        count += value.length * WireFormat.FIXED_32_SIZE;
+    }
+
+    @Override
+    void writeRawDoubles(double[] value) {
+        count += value.length * WireFormat.FIXED_64_SIZE;
+    }
+
+    @Override
+    int beginLengthDelimited() {
+        return count;
+    }
+
+    @Override
+    void endLengthDelimited(int mark) {
+        count += computeRawVarint32Size(count - mark);
+    }
+
+    /* ########## 自己的方法 ########## */
+
+    int count() {
+        return count;
+    }
+
+    /**
+     * 直接增加字节数，用于已经知道大小的部分
+     *
+     * @param size
+     */
+    void skip(int size) {
+        count += size;
+    }
+
+}
@@ -7,19 +7,104 @@ class DeserContext {
 
     private final CodedReader reader;
 
+    private final int containerSizeLimit;
+
     private final boolean failOnUnknowEnumValue;
 
+    /**
+     * 对象和容器嵌套的最大深度
+     */
+    private final int maxDepth;
+
+    /**
+     * 当前的嵌套深度
+     */
+    private int depth;
+
+    /**
+     * 数据中collection、map、serializable object的值前面是否带有字节长度，由数据格式头决定
+     */
+    private boolean lengthDelimited;
+
+    /**
+     * 是否合并到已有的对象中，见{@link Ser#deserializeInto(byte[], Object)}
+     */
+    private boolean merge;
+
+    /**
+     * 数据中的字符串表，由数据格式头决定，没有时为null
+     */
+    private String[] strings;
+
     DeserContext(CodedReader reader, boolean failOnUnknowEnumValue) {
+        this(reader, Ser.NO_SIZE_LIMIT, failOnUnknowEnumValue);
+    }
+
+    DeserContext(CodedReader reader, int containerSizeLimit, boolean failOnUnknowEnumValue) {
+        this(reader, containerSizeLimit, failOnUnknowEnumValue, Ser.DEFAULT_MAX_DEPTH);
+    }
+
+    DeserContext(CodedReader reader, int containerSizeLimit, boolean failOnUnknowEnumValue, int maxDepth) {
         this.reader = reader;
+        this.containerSizeLimit = containerSizeLimit;
         this.failOnUnknowEnumValue = failOnUnknowEnumValue;
+        this.maxDepth = maxDepth;
     }
 
     CodedReader getReader() {
         return reader;
     }
 
+    int getContainerSizeLimit() {
+        return containerSizeLimit;
+    }
+
     public boolean isFailOnUnknowEnumValue() {
         return failOnUnknowEnumValue;
     }
 
+    boolean isLengthDelimited() {
+        return lengthDelimited;
+    }
+
+    void setLengthDelimited(boolean lengthDelimited) {
+        this.lengthDelimited = lengthDelimited;
+    }
+
+    boolean isMerge() {
+        return merge;
+    }
+
+    void setMerge(boolean merge) {
+        this.merge = merge;
+    }
+
+    /**
+     * 进入嵌套的对象或者容器，超过最大深度时抛出{@link SerializationException}
+     */
+    void enterNested() {
+        if (++depth > maxDepth && maxDepth != Ser.NO_SIZE_LIMIT) {
+            throw new SerializationException("Nesting depth exceeded max allowed. limit=" + maxDepth);
+        }
+    }
+
+    void exitNested() {
+        depth--;
+    }
+
+    /**
+     * 从当前位置开始还可以嵌套的深度，不限制时返回{@link Ser#NO_SIZE_LIMIT}
+     */
+    int remainingDepth() {
+        return maxDepth == Ser.NO_SIZE_LIMIT ? Ser.NO_SIZE_LIMIT : maxDepth - depth;
+    }
+
+    String[] getStrings() {
+        return strings;
+    }
+
+    void setStrings(String[] strings) {
+        this.strings = strings;
+    }
+
 }
@@ -0,0 +1,113 @@
+package io.jpower.sgf.ser;
+
+/**
+ * 用来读写对象中某个字段的值
+ * <p>
+ * <ul>
+ * <li>基本类型的字段使用对应的getXxx和setXxx方法，避免装箱；所有字段都可以通过get和set方法读写装箱后的值</li>
+ * <li>只需要实现支持的getXxx和setXxx方法，其他的会抛出{@link SerializationException}</li>
+ * <li>实现必须是线程安全的</li>
+ * </ul>
+ *
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+abstract class FieldAccessor {
+
+    private final String name;
+
+    private final Class<?> type;
+
+    /**
+     * @param name 字段的名字，用于错误信息
+     * @param type 字段声明的类型
+     */
+    FieldAccessor(String name, Class<?> type) {
+        this.name = name;
+        this.type = type;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    Class<?> getType() {
+        return type;
+    }
+
+    abstract Object get(Object obj);
+
+    abstract void set(Object obj, Object value);
+
+    byte getByte(Object obj) {
+        throw unsupported("getByte");
+    }
+
+    void setByte(Object obj, byte value) {
+        throw unsupported("setByte");
+    }
+
+    char getChar(Object obj) {
+        throw unsupported("getChar");
+    }
+
+    void setChar(Object obj, char value) {
+        throw unsupported("setChar");
+    }
+
+    short getShort(Object obj) {
+        throw unsupported("getShort");
+    }
+
+    void setShort(Object obj, short value) {
+        throw unsupported("setShort");
+    }
+
+    int getInt(Object obj) {
+        throw unsupported("getInt");
+    }
+
+    void setInt(Object obj, int value) {
+        throw unsupported("setInt");
+    }
+
+    long getLong(Object obj) {
+        throw unsupported("getLong");
+    }
+
+    void setLong(Object obj, long value) {
+        throw unsupported("setLong");
+    }
+
+    float getFloat(Object obj) {
+        throw unsupported("getFloat");
+    }
+
+    void setFloat(Object obj, float value) {
+        throw unsupported("setFloat");
+    }
+
+    double getDouble(Object obj) {
+        throw unsupported("getDouble");
+    }
+
+    void setDouble(Object obj, double value) {
+        throw unsupported("setDouble");
+    }
+
+    boolean getBool(Object obj) {
+        throw unsupported("getBool");
+    }
+
+    void setBool(Object obj, boolean value) {
+        throw unsupported("setBool");
+    }
+
+    /**
+     * 读写的类型和字段的类型不符
+     */
+    private SerializationException unsupported(String method) {
+        return new SerializationException("Unsupported access: " + method + ". Field=" + name + ", Type="
+                + type.getName());
+    }
+
+}
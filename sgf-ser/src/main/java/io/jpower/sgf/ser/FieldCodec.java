@@ -0,0 +1,262 @@
+package io.jpower.sgf.ser;
+
+/**
+ * 字段的编码和解码（包括tag）
+ * <p>
+ * 分析字段时确定下来，保存在{@link SerField}中。基本类型的字段直接通过{@link FieldAccessor}读写，不需要装箱，
+ * 其他字段交给{@link SerWriter}和{@link SerReader}处理null，{@link Lazy}和带长度的格式，再调用{@link ValueCodec}
+ *
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+abstract class FieldCodec {
+
+    abstract void write(SerWriter serWriter, SerContext ctx, Object obj);
+
+    abstract void read(SerReader serReader, DeserContext ctx, Object obj);
+
+    /**
+     * 需要在字段的类型和{@link FieldAccessor}都确定以后调用
+     *
+     * @param serField
+     * @return
+     */
+    static FieldCodec of(SerField serField) {
+        FieldType type = serField.getType();
+        if (!type.isPrimitive()) {
+            return new ObjectFieldCodec(serField);
+        }
+        IntEncodeType intEncodeType = serField.getIntEncodeType();
+        switch (type.getJavaType()) {
+            case BYTE:
+                return new ByteFieldCodec(serField, IntEncoder.of(intEncodeType, WireFormat.FIXED_8_SIZE));
+            case CHAR:
+                return new CharFieldCodec(serField, IntEncoder.of(intEncodeType, WireFormat.FIXED_16_SIZE));
+            case SHORT:
+                return new ShortFieldCodec(serField, IntEncoder.of(intEncodeType, WireFormat.FIXED_16_SIZE));
+            case INT:
+                return new IntFieldCodec(serField, IntEncoder.of(intEncodeType, WireFormat.FIXED_32_SIZE));
+            case LONG:
+                return new LongFieldCodec(serField, LongEncoder.of(intEncodeType));
+            case FLOAT:
+                return new FloatFieldCodec(serField);
+            case DOUBLE:
+                return new DoubleFieldCodec(serField);
+            case BOOL:
+                return new BoolFieldCodec(serField);
+            default:
+                throw new SerializationException("Unsupported type: " + type);
+        }
+    }
+
+    private static final class ObjectFieldCodec extends FieldCodec {
+
+        private final SerField serField;
+
+        ObjectFieldCodec(SerField serField) {
+            this.serField = serField;
+        }
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, Object obj) {
+            serWriter.writeObjectField(ctx, obj, serField);
+        }
+
+        @Override
+        void read(SerReader serReader, DeserContext ctx, Object obj) {
+            serReader.readObjectField(ctx, obj, serField);
+        }
+
+    }
+
+    /**
+     * 基本类型的字段，tag在分析时计算好
+     */
+    private abstract static class PrimitiveFieldCodec extends FieldCodec {
+
+        final int tag;
+
+        final FieldAccessor accessor;
+
+        PrimitiveFieldCodec(SerField serField) {
+            this.tag = WireFormat.makeTag(serField.getNumber(), serField.getType().getWireType());
+            this.accessor = serField.getAccessor();
+        }
+
+    }
+
+    private static final class ByteFieldCodec extends PrimitiveFieldCodec {
+
+        private final IntEncoder encoder;
+
+        ByteFieldCodec(SerField serField, IntEncoder encoder) {
+            super(serField);
+            this.encoder = encoder;
+        }
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, Object obj) {
+            CodedWriter writer = ctx.getWriter();
+            writer.writeRawVarint32(tag);
+            encoder.writeInt(writer, accessor.getByte(obj));
+        }
+
+        @Override
+        void read(SerReader serReader, DeserContext ctx, Object obj) {
+            accessor.setByte(obj, (byte) encoder.readInt(ctx.getReader()));
+        }
+
+    }
+
+    private static final class CharFieldCodec extends PrimitiveFieldCodec {
+
+        private final IntEncoder encoder;
+
+        CharFieldCodec(SerField serField, IntEncoder encoder) {
+            super(serField);
+            this.encoder = encoder;
+        }
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, Object obj) {
+            CodedWriter writer = ctx.getWriter();
+            writer.writeRawVarint32(tag);
+            encoder.writeInt(writer, accessor.getChar(obj));
+        }
+
+        @Override
+        void read(SerReader serReader, DeserContext ctx, Object obj) {
+            accessor.setChar(obj, (char) encoder.readInt(ctx.getReader()));
+        }
+
+    }
+
+    private static final class ShortFieldCodec extends PrimitiveFieldCodec {
+
+        private final IntEncoder encoder;
+
+        ShortFieldCodec(SerField serField, IntEncoder encoder) {
+            super(serField);
+            this.encoder = encoder;
+        }
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, Object obj) {
+            CodedWriter writer = ctx.getWriter();
+            writer.writeRawVarint32(tag);
+            encoder.writeInt(writer, accessor.getShort(obj));
+        }
+
+        @Override
+        void read(SerReader serReader, DeserContext ctx, Object obj) {
+            accessor.setShort(obj, (short) encoder.readInt(ctx.getReader()));
+        }
+
+    }
+
+    private static final class IntFieldCodec extends PrimitiveFieldCodec {
+
+        private final IntEncoder encoder;
+
+        IntFieldCodec(SerField serField, IntEncoder encoder) {
+            super(serField);
+            this.encoder = encoder;
+        }
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, Object obj) {
+            CodedWriter writer = ctx.getWriter();
+            writer.writeRawVarint32(tag);
+            encoder.writeInt(writer, accessor.getInt(obj));
+        }
+
+        @Override
+        void read(SerReader serReader, DeserContext ctx, Object obj) {
+            accessor.setInt(obj, encoder.readInt(ctx.getReader()));
+        }
+
+    }
+
+    private static final class LongFieldCodec extends PrimitiveFieldCodec {
+
+        private final LongEncoder encoder;
+
+        LongFieldCodec(SerField serField, LongEncoder encoder) {
+            super(serField);
+            this.encoder = encoder;
+        }
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, Object obj) {
+            CodedWriter writer = ctx.getWriter();
+            writer.writeRawVarint32(tag);
+            encoder.writeLong(writer, accessor.getLong(obj));
+        }
+
+        @Override
+        void read(SerReader serReader, DeserContext ctx, Object obj) {
+            accessor.setLong(obj, encoder.readLong(ctx.getReader()));
+        }
+
+    }
+
+    private static final class FloatFieldCodec extends PrimitiveFieldCodec {
+
+        FloatFieldCodec(SerField serField) {
+            super(serField);
+        }
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, Object obj) {
+            CodedWriter writer = ctx.getWriter();
+            writer.writeRawVarint32(tag);
+            writer.writeFloatNoTag(accessor.getFloat(obj));
+        }
+
+        @Override
+        void read(SerReader serReader, DeserContext ctx, Object obj) {
+            accessor.setFloat(obj, ctx.getReader().readFloat());
+        }
+
+    }
+
+    private static final class DoubleFieldCodec extends PrimitiveFieldCodec {
+
+        DoubleFieldCodec(SerField serField) {
+            super(serField);
+        }
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, Object obj) {
+            CodedWriter writer = ctx.getWriter();
+            writer.writeRawVarint32(tag);
+            writer.writeDoubleNoTag(accessor.getDouble(obj));
+        }
+
+        @Override
+        void read(SerReader serReader, DeserContext ctx, Object obj) {
+            accessor.setDouble(obj, ctx.getReader().readDouble());
+        }
+
+    }
+
+    private static final class BoolFieldCodec extends PrimitiveFieldCodec {
+
+        BoolFieldCodec(SerField serField) {
+            super(serField);
+        }
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, Object obj) {
+            CodedWriter writer = ctx.getWriter();
+            writer.writeRawVarint32(tag);
+            writer.writeBoolNoTag(accessor.getBool(obj));
+        }
+
+        @Override
+        void read(SerReader serReader, DeserContext ctx, Object obj) {
+            accessor.setBool(obj, ctx.getReader().readBool());
+        }
+
+    }
+
+}
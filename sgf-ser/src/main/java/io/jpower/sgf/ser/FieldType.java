@@ -34,6 +34,11 @@ class FieldType {
      */
     private List<FieldType> subTypes;
 
+    /**
+     * 值的编码和解码
+     */
+    private ValueCodec codec;
+
     FieldType(Class<?> clazz, JavaType javaType, int wireType) {
         this(clazz, javaType, false, wireType);
     }
@@ -85,6 +90,14 @@ class FieldType {
         this.subTypes = subTypes;
     }
 
+    ValueCodec getCodec() {
+        return codec;
+    }
+
+    void setCodec(ValueCodec codec) {
+        this.codec = codec;
+    }
+
     @Override
     public String toString() {
         return "FieldType [rawType=" + rawType + ", javaType=" + javaType + ", primitive="
@@ -0,0 +1,115 @@
+package io.jpower.sgf.ser;
+
+/**
+ * 32位以内的整数的编码方式，由{@link IntEncodeType}和整数的位数决定，分析字段时确定下来，读写时不需要再判断
+ *
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+abstract class IntEncoder {
+
+    static final IntEncoder VARINT = new IntEncoder() {
+
+        @Override
+        void writeInt(CodedWriter writer, int value) {
+            writer.writeInt32NoTag(value);
+        }
+
+        @Override
+        int readInt(CodedReader reader) {
+            return reader.readInt32();
+        }
+
+    };
+
+    static final IntEncoder SIGNED_VARINT = new IntEncoder() {
+
+        @Override
+        void writeInt(CodedWriter writer, int value) {
+            writer.writeSInt32NoTag(value);
+        }
+
+        @Override
+        int readInt(CodedReader reader) {
+            return reader.readSInt32();
+        }
+
+    };
+
+    static final IntEncoder FIXED8 = new IntEncoder() {
+
+        @Override
+        void writeInt(CodedWriter writer, int value) {
+            writer.writeFixed8NoTag(value);
+        }
+
+        @Override
+        int readInt(CodedReader reader) {
+            return reader.readFixed8();
+        }
+
+    };
+
+    static final IntEncoder FIXED16 = new IntEncoder() {
+
+        @Override
+        void writeInt(CodedWriter writer, int value) {
+            writer.writeFixed16NoTag(value);
+        }
+
+        @Override
+        int readInt(CodedReader reader) {
+            return reader.readFixed16();
+        }
+
+    };
+
+    static final IntEncoder FIXED32 = new IntEncoder() {
+
+        @Override
+        void writeInt(CodedWriter writer, int value) {
+            writer.writeFixed32NoTag(value);
+        }
+
+        @Override
+        int readInt(CodedReader reader) {
+            return reader.readFixed32();
+        }
+
+    };
+
+    private IntEncoder() {
+
+    }
+
+    /**
+     * @param intEncodeType
+     * @param fixedSize     使用{@link IntEncodeType#FIXED}时的字节数，64位的整数见{@link LongEncoder}
+     * @return
+     */
+    static IntEncoder of(IntEncodeType intEncodeType, int fixedSize) {
+        switch (intEncodeType) {
+            case VARINT:
+                return VARINT;
+            case SIGNED_VARINT:
+                return SIGNED_VARINT;
+            case FIXED:
+                switch (fixedSize) {
+                    case WireFormat.FIXED_8_SIZE:
+                        return FIXED8;
+                    case WireFormat.FIXED_16_SIZE:
+                        return FIXED16;
+                    case WireFormat.FIXED_32_SIZE:
+                        return FIXED32;
+                    default:
+                        throw new IllegalArgumentException("fixedSize: " + fixedSize);
+                }
+            default:
+                throw new SerializationException("IntEncodeType mismatch: " + intEncodeType);
+        }
+    }
+
+    abstract void writeInt(CodedWriter writer, int value);
+
+    abstract int readInt(CodedReader reader);
+
+}
@@ -25,6 +25,16 @@ enum JavaType {
 
     BYTES,
 
+    BYTE_BUFFER,
+
+    INT_ARRAY,
+
+    LONG_ARRAY,
+
+    FLOAT_ARRAY,
+
+    DOUBLE_ARRAY,
+
     STRING,
 
     LIST,
@@ -49,7 +59,9 @@ enum JavaType {
 
     DOUBLE_VALUE_MAP,
 
-    SER_OBJECT,;
+    SER_OBJECT,
+
+    POLY_OBJECT,;
 
     JavaType() {
 
@@ -0,0 +1,144 @@
+package io.jpower.sgf.ser;
+
+import java.util.Objects;
+
+/**
+ * 延迟反序列化的字段值
+ * <p>
+ * <ul>
+ * <li>字段声明为<code>Lazy&lt;T&gt;</code>时，反序列化只保存该字段的原始字节，第一次调用{@link #get()}时才解码</li>
+ * <li>T只能是collection、map或者serializable object</li>
+ * <li>还没有解码时再次序列化会直接写入原始字节（格式相同并且都没有使用字符串表时），这时不会调用其中对象的before和after方法</li>
+ * <li>默认格式从流中反序列化时无法知道值的长度，会直接解码；带长度的格式没有这个限制</li>
+ * <li>不是线程安全的</li>
+ * </ul>
+ *
+ * @param <T>
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+public final class Lazy<T> {
+
+    private static final SerReader SER_READER = new SerReader();
+
+    private T value;
+
+    /**
+     * 还没有解码的原始字节，解码后为null
+     */
+    private byte[] bytes;
+
+    /**
+     * 原始字节是否为带长度的格式
+     */
+    private boolean lengthDelimited;
+
+    /**
+     * 原始字节中字符串索引对应的字符串表，没有使用字符串表时为null
+     */
+    private String[] strings;
+
+    private boolean failOnUnknowEnumValue;
+
+    private int containerSizeLimit;
+
+    /**
+     * 解码时还可以嵌套的深度，等于所在位置剩余的深度
+     */
+    private int maxDepth;
+
+    private SerField serField;
+
+    private Lazy(T value) {
+        this.value = value;
+    }
+
+    Lazy(byte[] bytes, boolean lengthDelimited, String[] strings, boolean failOnUnknowEnumValue,
+         int containerSizeLimit, int maxDepth, SerField serField) {
+        this.bytes = bytes;
+        this.lengthDelimited = lengthDelimited;
+        this.strings = strings;
+        this.failOnUnknowEnumValue = failOnUnknowEnumValue;
+        this.containerSizeLimit = containerSizeLimit;
+        this.maxDepth = maxDepth;
+        this.serField = serField;
+    }
+
+    public static <T> Lazy<T> of(T value) {
+        return new Lazy<>(value);
+    }
+
+    /**
+     * 返回值，第一次调用时解码
+     *
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public T get() {
+        if (bytes != null) {
+            value = (T) SER_READER.readLazy(bytes, lengthDelimited, strings, failOnUnknowEnumValue,
+                    containerSizeLimit, maxDepth, serField);
+            bytes = null;
+            strings = null;
+            serField = null;
+        }
+        return value;
+    }
+
+    public void set(T value) {
+        this.value = value;
+        this.bytes = null;
+        this.strings = null;
+        this.serField = null;
+    }
+
+    /**
+     * 是否已经解码
+     *
+     * @return
+     */
+    public boolean isDecoded() {
+        return bytes == null;
+    }
+
+    /**
+     * 还没有解码并且格式相同（没有使用字符串表）时返回原始字节，否则返回null
+     *
+     * @param lengthDelimited
+     * @return
+     */
+    byte[] rawBytes(boolean lengthDelimited) {
+        return bytes != null && strings == null && this.lengthDelimited == lengthDelimited ? bytes : null;
+    }
+
+    /**
+     * 还没有解码时复制一个共用原始字节的对象，原始字节不会被修改
+     *
+     * @return
+     */
+    Lazy<T> duplicate() {
+        return new Lazy<>(bytes, lengthDelimited, strings, failOnUnknowEnumValue, containerSizeLimit, maxDepth,
+                serField);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        return Objects.equals(get(), ((Lazy<?>) o).get());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(get());
+    }
+
+    @Override
+    public String toString() {
+        if (bytes != null) {
+            return "Lazy(" + bytes.length + " bytes)";
+        }
+        return "Lazy(" + value + ")";
+    }
+
+}
@@ -0,0 +1,73 @@
+package io.jpower.sgf.ser;
+
+/**
+ * 64位整数的编码方式，由{@link IntEncodeType}决定，分析字段时确定下来，读写时不需要再判断
+ *
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+abstract class LongEncoder {
+
+    static final LongEncoder VARINT = new LongEncoder() {
+
+        @Override
+        void writeLong(CodedWriter writer, long value) {
+            writer.writeInt64NoTag(value);
+        }
+
+        @Override
+        long readLong(CodedReader reader) {
+            return reader.readInt64();
+        }
+
+    };
+
+    static final LongEncoder SIGNED_VARINT = new LongEncoder() {
+
+        @Override
+        void writeLong(CodedWriter writer, long value) {
+            writer.writeSInt64NoTag(value);
+        }
+
+        @Override
+        long readLong(CodedReader reader) {
+            return reader.readSInt64();
+        }
+
+    };
+
+    static final LongEncoder FIXED64 = new LongEncoder() {
+
+        @Override
+        void writeLong(CodedWriter writer, long value) {
+            writer.writeFixed64NoTag(value);
+        }
+
+        @Override
+        long readLong(CodedReader reader) {
+            return reader.readFixed64();
+        }
+
+    };
+
+    private LongEncoder() {
+
+    }
+
+    static LongEncoder of(IntEncodeType intEncodeType) {
+        switch (intEncodeType) {
+            case VARINT:
+                return VARINT;
+            case SIGNED_VARINT:
+                return SIGNED_VARINT;
+            case FIXED:
+                return FIXED64;
+            default:
+                throw new SerializationException("IntEncodeType mismatch: " + intEncodeType);
+        }
+    }
+
+    abstract void writeLong(CodedWriter writer, long value);
+
+    abstract long readLong(CodedReader reader);
+
+}
@@ -0,0 +1,336 @@
+package io.jpower.sgf.ser;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+import io.jpower.sgf.utils.JavaUtils;
+
+/**
+ * 通过反射来读写字段
+ * <p>
+ * 有getter和setter方法时优先使用方法，否则直接访问{@link Field}
+ *
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+class ReflectFieldAccessor extends FieldAccessor {
+
+    private final Field field;
+
+    private final Method getter;
+
+    private final Method setter;
+
+    ReflectFieldAccessor(Field field, Method getter, Method setter) {
+        super(field.getName(), field.getType());
+        this.field = field;
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    @Override
+    Object get(Object obj) {
+        if (getter != null) {
+            try {
+                return getter.invoke(obj, Utils.EMPTY_OBJS);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        } else {
+            try {
+                return field.get(obj);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        }
+    }
+
+    @Override
+    void set(Object obj, Object value) {
+        if (setter != null) {
+            try {
+                setter.invoke(obj, value);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        } else {
+            try {
+                field.set(obj, value);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        }
+    }
+
+    @Override
+    byte getByte(Object obj) {
+        if (getter != null) {
+            try {
+                return (Byte) getter.invoke(obj, Utils.EMPTY_OBJS);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        } else {
+            try {
+                return field.getByte(obj);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        }
+    }
+
+    @Override
+    void setByte(Object obj, byte value) {
+        if (setter != null) {
+            try {
+                setter.invoke(obj, value);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        } else {
+            try {
+                field.setByte(obj, value);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        }
+    }
+
+    @Override
+    char getChar(Object obj) {
+        if (getter != null) {
+            try {
+                return (Character) getter.invoke(obj, Utils.EMPTY_OBJS);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        } else {
+            try {
+                return field.getChar(obj);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        }
+    }
+
+    @Override
+    void setChar(Object obj, char value) {
+        if (setter != null) {
+            try {
+                setter.invoke(obj, value);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        } else {
+            try {
+                field.setChar(obj, value);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        }
+    }
+
+    @Override
+    short getShort(Object obj) {
+        if (getter != null) {
+            try {
+                return (Short) getter.invoke(obj, Utils.EMPTY_OBJS);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        } else {
+            try {
+                return field.getShort(obj);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        }
+    }
+
+    @Override
+    void setShort(Object obj, short value) {
+        if (setter != null) {
+            try {
+                setter.invoke(obj, value);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        } else {
+            try {
+                field.setShort(obj, value);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        }
+    }
+
+    @Override
+    int getInt(Object obj) {
+        if (getter != null) {
+            try {
+                return (Integer) getter.invoke(obj, Utils.EMPTY_OBJS);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        } else {
+            try {
+                return field.getInt(obj);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        }
+    }
+
+    @Override
+    void setInt(Object obj, int value) {
+        if (setter != null) {
+            try {
+                setter.invoke(obj, value);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        } else {
+            try {
+                field.setInt(obj, value);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        }
+    }
+
+    @Override
+    long getLong(Object obj) {
+        if (getter != null) {
+            try {
+                return (Long) getter.invoke(obj, Utils.EMPTY_OBJS);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        } else {
+            try {
+                return field.getLong(obj);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        }
+    }
+
+    @Override
+    void setLong(Object obj, long value) {
+        if (setter != null) {
+            try {
+                setter.invoke(obj, value);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        } else {
+            try {
+                field.setLong(obj, value);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        }
+    }
+
+    @Override
+    float getFloat(Object obj) {
+        if (getter != null) {
+            try {
+                return (Float) getter.invoke(obj, Utils.EMPTY_OBJS);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        } else {
+            try {
+                return field.getFloat(obj);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        }
+    }
+
+    @Override
+    void setFloat(Object obj, float value) {
+        if (setter != null) {
+            try {
+                setter.invoke(obj, value);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        } else {
+            try {
+                field.setFloat(obj, value);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        }
+    }
+
+    @Override
+    double getDouble(Object obj) {
+        if (getter != null) {
+            try {
+                return (Double) getter.invoke(obj, Utils.EMPTY_OBJS);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        } else {
+            try {
+                return field.getDouble(obj);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        }
+    }
+
+    @Override
+    void setDouble(Object obj, double value) {
+        if (setter != null) {
+            try {
+                setter.invoke(obj, value);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        } else {
+            try {
+                field.setDouble(obj, value);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        }
+    }
+
+    @Override
+    boolean getBool(Object obj) {
+        if (getter != null) {
+            try {
+                return (Boolean) getter.invoke(obj, Utils.EMPTY_OBJS);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        } else {
+            try {
+                return field.getBoolean(obj);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        }
+    }
+
+    @Override
+    void setBool(Object obj, boolean value) {
+        if (setter != null) {
+            try {
+                setter.invoke(obj, value);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        } else {
+            try {
+                field.setBoolean(obj, value);
+            } catch (Exception e) {
+                throw JavaUtils.sneakyThrow(e);
+            }
+        }
+    }
+
+}
@@ -1,7 +1,23 @@
 package io.jpower.sgf.ser;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+
+import io.jpower.sgf.collection.IntHashSet;
+import io.jpower.sgf.utils.JavaUtils;
 
 /**
  * 提供序列化和反序列化的Facade
@@ -21,12 +37,39 @@ public class Ser {
      */
     public static final int NO_SIZE_LIMIT = -1;
 
+    /**
+     * 默认的最大嵌套深度
+     */
+    public static final int DEFAULT_MAX_DEPTH = 100;
+
     private static final SerWriter SER_WRITER = new SerWriter();
 
     private static final SerReader SER_READER = new SerReader();
 
+    private static final SerCopier SER_COPIER = new SerCopier();
+
+    /**
+     * 并行处理时最多分成的批次数量
+     */
+    private static final int PARALLEL_MAX_BATCHES = Runtime.getRuntime().availableProcessors() * 4;
+
+    /**
+     * 并行处理时每批最少的对象数量，太少时调度的开销比序列化本身还大
+     */
+    private static final int PARALLEL_MIN_BATCH_SIZE = 16;
+
+    /**
+     * 线程本地缓存的{@link ByteArrayWriter}，使用时会取出来，用完再放回去，这样嵌套调用时也不会冲突
+     */
+    private static final ThreadLocal<ByteArrayWriter> LOCAL_WRITER = new ThreadLocal<>();
+
     /**
      * 最终序列化后的字节大小限制
+     * <p>
+     * <ul>
+     * <li>序列化时边写边检查，超过时立即抛出异常，不会先把整个对象写完，也不会为超出的部分分配空间</li>
+     * <li>反序列化时读取的字节数超过时抛出异常，不会等到读取完整个输入</li>
+     * </ul>
      */
     private final int totalByteSizeLimit;
 
@@ -40,6 +83,34 @@ public class Ser {
      */
     private final boolean failOnUnknowEnumValue;
 
+    /**
+     * 反序列化时serializable object、collection、map的最大嵌套深度，防止恶意数据导致栈溢出
+     */
+    private final int maxDepth;
+
+    /**
+     * 序列化时collection、map、serializable object的值前面是否写入字节长度
+     * <p>
+     * <ul>
+     * <li>反序列化时遇到不认识的字段可以直接跳过，不需要逐个解析其中的内容</li>
+     * <li>数据开头会写入格式头，反序列化时根据格式头自动识别，两种格式都能读取</li>
+     * <li>旧版本不认识这种格式，需要所有读取方都升级之后再开启</li>
+     * </ul>
+     */
+    private final boolean lengthDelimited;
+
+    /**
+     * 序列化时是否使用字符串表
+     * <p>
+     * <ul>
+     * <li>相同的字符串只在数据开头的字符串表中写入一次，值中只写入表中的索引，反序列化时相同的字符串也只会创建一次</li>
+     * <li>需要先把对象写入缓冲区再写入字符串表，适合有大量重复字符串的对象</li>
+     * <li>增量序列化和快照不使用字符串表</li>
+     * <li>反序列化时根据格式头自动识别，旧版本不认识这种格式，需要所有读取方都升级之后再开启</li>
+     * </ul>
+     */
+    private final boolean stringTable;
+
     /**
      * 返回默认对象实例。一般用这个就行了。如果有特殊需求也可以自己创建对象。
      *
@@ -49,49 +120,439 @@ public class Ser {
         return INS;
     }
 
+    /**
+     * 注册多态字段的具体类型，和在基类上使用{@link io.jpower.sgf.ser.annotation.SubTypes}注解的效果相同
+     * <p>
+     * <ul>
+     * <li>字段的类型是接口或者抽象类时，序列化时写入值的type id，反序列化时根据type id创建对象</li>
+     * <li>所有类型共用同一个type id空间，需要在启动时序列化和反序列化之前注册</li>
+     * </ul>
+     *
+     * @param typeId 大于0，最大值为2^16 - 1
+     * @param clazz  具体的类型，需要有{@link io.jpower.sgf.ser.annotation.Serializable}注解
+     */
+    public static void registerType(int typeId, Class<?> clazz) {
+        SerTypeRegistry.ins().register(typeId, clazz);
+    }
+
 
     public Ser() {
         this(NO_SIZE_LIMIT, NO_SIZE_LIMIT, false);
     }
 
     public Ser(int totalByteSizeLimit, int containerSizeLimit, boolean failOnUnknowEnumValue) {
+        this(totalByteSizeLimit, containerSizeLimit, failOnUnknowEnumValue, false);
+    }
+
+    public Ser(int totalByteSizeLimit, int containerSizeLimit, boolean failOnUnknowEnumValue,
+               boolean lengthDelimited) {
         this.totalByteSizeLimit = totalByteSizeLimit;
         this.containerSizeLimit = containerSizeLimit;
         this.failOnUnknowEnumValue = failOnUnknowEnumValue;
+        this.maxDepth = DEFAULT_MAX_DEPTH;
+        this.lengthDelimited = lengthDelimited;
+        this.stringTable = false;
+    }
+
+    private Ser(Builder builder) {
+        this.totalByteSizeLimit = builder.totalByteSizeLimit;
+        this.containerSizeLimit = builder.containerSizeLimit;
+        this.failOnUnknowEnumValue = builder.failOnUnknowEnumValue;
+        this.maxDepth = builder.maxDepth;
+        this.lengthDelimited = builder.lengthDelimited;
+        this.stringTable = builder.stringTable;
+    }
+
+    public static Builder builder() {
+        return new Builder();
     }
 
     /**
      * 将一个对象序列化为二进制并以字节数组返回
+     * <p>
+     * 序列化过程中使用线程本地缓存的缓冲区，只会分配最终结果的字节数组
      *
      * @param obj
      * @return
      */
     public byte[] serialize(Object obj) {
-        ByteArrayWriter byteArrayWriter = new ByteArrayWriter();
-        SerContext ctx = new SerContext(byteArrayWriter, containerSizeLimit);
+        if (obj instanceof SizeCacheable && !lengthDelimited && !stringTable) {
+            int cachedSize = ((SizeCacheable) obj).getCachedSerializedSize();
+            if (cachedSize >= 0) { // 已经知道大小，直接分配
+                byte[] bytes = serializeWithSize(obj, cachedSize);
+                if (bytes != null) {
+                    return bytes;
+                }
+            }
+        }
+
+        ByteArrayWriter byteArrayWriter = acquireLocalWriter();
+        try {
+            write(byteArrayWriter, obj);
+            return byteArrayWriter.toByteArray();
+        } finally {
+            releaseLocalWriter(byteArrayWriter);
+        }
+    }
+
+    private byte[] serializeWithSize(Object obj, int size) {
+        checkTotalByteSize(size, obj);
+        byte[] bytes = new byte[size];
+        ByteArrayWriter byteArrayWriter = new ByteArrayWriter(bytes, 0, size);
+        try {
+            SER_WRITER.write(newSerContext(byteArrayWriter), obj);
+        } catch (SerializationException e) {
+            if (!byteArrayWriter.isOverflow()) {
+                throw e;
+            }
+            // 缓存的大小不对，空间不够了
+            ((SizeCacheable) obj).setCachedSerializedSize(-1);
+            return null;
+        }
+        if (byteArrayWriter.size() != size) { // 缓存的大小不对
+            ((SizeCacheable) obj).setCachedSerializedSize(-1);
+            return Arrays.copyOf(bytes, byteArrayWriter.size());
+        }
+        return bytes;
+    }
+
+    /**
+     * 计算一个对象序列化后的字节数，不会产生任何数据
+     * <p>
+     * <ul>
+     * <li>和序列化一样会调用before和after方法</li>
+     * <li>实现了{@link SizeCacheable}的对象（包括嵌套的对象）会缓存计算结果，下次直接使用</li>
+     * </ul>
+     *
+     * @param obj
+     * @return
+     */
+    public int serializedSize(Object obj) {
+        CountingWriter countingWriter = new CountingWriter();
+        SerContext ctx = newSerContext(countingWriter);
+        SER_WRITER.write(ctx, obj);
+        return countingWriter.count();
+    }
+
+    /**
+     * 将一个对象序列化为二进制并写入到指定的字节数组中
+     * <p>
+     * 从off开始写入，空间不够时抛出{@link SerializationException}，这时dst中已经写入了部分数据
+     *
+     * @param obj
+     * @param dst
+     * @param off
+     * @return 写入的字节数
+     */
+    public int serialize(Object obj, byte[] dst, int off) {
+        return serialize(obj, dst, off, dst.length - off);
+    }
+
+    /**
+     * 将一个对象序列化为二进制并写入到指定的{@link ByteBuffer}中
+     * <p>
+     * <ul>
+     * <li>从position开始写入，写入后position会增加写入的字节数</li>
+     * <li>direct buffer和{@link java.nio.MappedByteBuffer}直接写入，不经过堆中的缓冲区</li>
+     * <li>空间不够时抛出{@link SerializationException}，这时dst中已经写入了部分数据，position不变</li>
+     * </ul>
+     *
+     * @param obj
+     * @param dst
+     * @return 写入的字节数
+     */
+    public int serialize(Object obj, ByteBuffer dst) {
+        int size;
+        if (dst.hasArray()) { // 直接写到数组中
+            size = serialize(obj, dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+        } else {
+            ByteBufferWriter byteBufferWriter = new ByteBufferWriter(dst);
+            SER_WRITER.write(newSerContext(byteBufferWriter), obj);
+            size = byteBufferWriter.size();
+            checkTotalByteSize(size, obj);
+        }
+        dst.position(dst.position() + size);
+        return size;
+    }
+
+    private int serialize(Object obj, byte[] dst, int off, int len) {
+        ByteArrayWriter byteArrayWriter = new ByteArrayWriter(dst, off, len);
+        write(byteArrayWriter, obj);
+        return byteArrayWriter.size();
+    }
+
+    private void write(ByteArrayWriter byteArrayWriter, Object obj) {
+        SerContext ctx = newSerContext(byteArrayWriter);
         SER_WRITER.write(ctx, obj);
-        byte[] bytes = byteArrayWriter.toByteArray();
 
-        if (totalByteSizeLimit != Ser.NO_SIZE_LIMIT && bytes.length > totalByteSizeLimit) {
-            throw new SerializationException("Total byte size exceeded max allowed. size=" + bytes.length
+        checkTotalByteSize(byteArrayWriter.size(), obj);
+    }
+
+    private SerContext newSerContext(CodedWriter writer) {
+        return newSerContext(writer, totalByteSizeLimit);
+    }
+
+    private SerContext newSerContext(CodedWriter writer, int byteLimit) {
+        if (writer != null) {
+            writer.setByteLimit(byteLimit);
+        }
+        return new SerContext(writer, containerSizeLimit, lengthDelimited, stringTable);
+    }
+
+    private DeserContext newDeserContext(CodedReader reader) {
+        return newDeserContext(reader, totalByteSizeLimit);
+    }
+
+    private DeserContext newDeserContext(CodedReader reader, int byteLimit) {
+        reader.setByteLimit(byteLimit);
+        return new DeserContext(reader, containerSizeLimit, failOnUnknowEnumValue, maxDepth);
+    }
+
+    private void checkTotalByteSize(int size, Object obj) {
+        if (totalByteSizeLimit != Ser.NO_SIZE_LIMIT && size > totalByteSizeLimit) {
+            throw new SerializationException("Total byte size exceeded max allowed. size=" + size
                     + ", limit=" + totalByteSizeLimit + ", Object=" + obj);
         }
-        return bytes;
+    }
+
+    private static ByteArrayWriter acquireLocalWriter() {
+        return ByteArrayWriter.acquireLocal(LOCAL_WRITER);
+    }
+
+    private static void releaseLocalWriter(ByteArrayWriter byteArrayWriter) {
+        ByteArrayWriter.releaseLocal(LOCAL_WRITER, byteArrayWriter);
     }
 
     /**
      * 将一个对象序列化为二进制并写入到流中
+     * <p>
+     * 边写边检查字节大小限制，超过时抛出{@link SerializationException}，这时流中可能已经写入了部分数据
      *
      * @param obj
      * @param output
      */
     public void serialize(Object obj, OutputStream output) {
+        if (lengthDelimited || stringTable) { // 需要回填长度或者先写入字符串表，先写到缓冲区中
+            ByteArrayWriter byteArrayWriter = acquireLocalWriter();
+            try {
+                write(byteArrayWriter, obj);
+                output.write(byteArrayWriter.buf(), byteArrayWriter.offset(), byteArrayWriter.size());
+            } catch (IOException e) {
+                throw JavaUtils.sneakyThrow(e);
+            } finally {
+                releaseLocalWriter(byteArrayWriter);
+            }
+            return;
+        }
         StreamWriter streamWriter = new StreamWriter(output);
-        SerContext ctx = new SerContext(streamWriter, containerSizeLimit);
+        SerContext ctx = newSerContext(streamWriter);
         SER_WRITER.write(ctx, obj);
         streamWriter.flush();
     }
 
+    /**
+     * 在{@link ForkJoinPool#commonPool()}中并行序列化多个对象，见{@link #serializeParallel(List, Executor)}
+     *
+     * @param objs
+     * @return
+     */
+    public List<byte[]> serializeParallel(List<?> objs) {
+        return serializeParallel(objs, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 并行序列化多个对象，结果和objs的顺序一致
+     * <p>
+     * <ul>
+     * <li>分批提交到executor中执行，最后一批在当前线程执行，每个线程使用自己的本地缓冲区</li>
+     * <li>对象之间不能有共享的可变状态，序列化期间也不能被修改</li>
+     * <li>出错时抛出第一个异常</li>
+     * </ul>
+     *
+     * @param objs
+     * @param executor
+     * @return
+     */
+    public List<byte[]> serializeParallel(List<?> objs, Executor executor) {
+        byte[][] results = new byte[objs.size()][];
+        parallel(objs.size(), executor, i -> results[i] = serialize(objs.get(i)));
+        return Arrays.asList(results);
+    }
+
+    /**
+     * 写入一个带字节长度前缀的对象，同一个流中可以连续写入多个对象，用{@link #readDelimited(InputStream, Class)}读取
+     *
+     * @param obj
+     * @param output
+     */
+    public void writeDelimited(Object obj, OutputStream output) {
+        serializeAll(Collections.singletonList(obj), output);
+    }
+
+    /**
+     * 批量写入多个带字节长度前缀的对象，格式和{@link #writeDelimited(Object, OutputStream)}相同
+     * <p>
+     * 对象先写入线程本地缓存的缓冲区中，积累到一定大小再一起写入流
+     *
+     * @param objs
+     * @param output
+     */
+    public void serializeAll(Iterable<?> objs, OutputStream output) {
+        ByteArrayWriter byteArrayWriter = acquireLocalWriter();
+        try {
+            for (Object obj : objs) {
+                int start = byteArrayWriter.size();
+                int mark = byteArrayWriter.beginLengthDelimited();
+                SER_WRITER.write(newSerContext(byteArrayWriter), obj);
+                checkTotalByteSize(byteArrayWriter.size() - start - 1, obj); // 去掉预留的长度
+                byteArrayWriter.setByteLimit(NO_SIZE_LIMIT); // 回填长度时可能移动数据，不再限制
+                byteArrayWriter.endLengthDelimited(mark);
+                if (byteArrayWriter.size() >= ByteArrayWriter.LOCAL_MAX_CAPACITY / 2) {
+                    output.write(byteArrayWriter.buf(), byteArrayWriter.offset(), byteArrayWriter.size());
+                    byteArrayWriter.reset();
+                }
+            }
+            if (byteArrayWriter.size() > 0) {
+                output.write(byteArrayWriter.buf(), byteArrayWriter.offset(), byteArrayWriter.size());
+            }
+        } catch (IOException e) {
+            throw JavaUtils.sneakyThrow(e);
+        } finally {
+            releaseLocalWriter(byteArrayWriter);
+        }
+    }
+
+    /**
+     * 流式序列化，逐个写入迭代器中的元素，适合导出大量数据，内存占用不随元素数量增加
+     * <p>
+     * <ul>
+     * <li>元素需要是serializable object，不能为null</li>
+     * <li>分块写入，不需要知道元素的总数，结果需要用{@link #deserializeElements(InputStream, Class, SerElementVisitor)}读取</li>
+     * <li>不限制元素数量和总字节数，也不使用字符串表</li>
+     * </ul>
+     *
+     * @param elements
+     * @param output
+     */
+    public void serializeElements(Iterator<?> elements, OutputStream output) {
+        StreamWriter streamWriter = new StreamWriter(output);
+        SER_WRITER.writeElements(newSerContext(streamWriter, NO_SIZE_LIMIT), elements);
+        streamWriter.flush();
+    }
+
+    /**
+     * 深复制一个对象，结果和先序列化再反序列化相同，但是不需要编码和解码
+     * <p>
+     * <ul>
+     * <li>只复制序列化的字段，嵌套的对象和容器都会复制，容器的类型和反序列化时相同</li>
+     * <li>会调用obj的序列化before和after方法以及副本的反序列化before和after方法</li>
+     * <li>和序列化一样不处理共享的引用，同一个对象被多次引用时会复制多份；不能有循环引用</li>
+     * <li>还没有解码的{@link Lazy}字段会和原来的对象共用原始字节</li>
+     * </ul>
+     *
+     * @param obj
+     * @return
+     */
+    public <T> T deepCopy(T obj) {
+        @SuppressWarnings("unchecked")
+        T copy = (T) SER_COPIER.copy(obj);
+        return copy;
+    }
+
+    /**
+     * 增量序列化，只写入和base值不同的字段
+     * <p>
+     * <ul>
+     * <li>base和obj需要是同一个类，一般base是上次保存时的副本</li>
+     * <li>只比较最外层的字段（通过equals），嵌套的对象或者容器有变化时会写入整个字段</li>
+     * <li>结果需要用{@link #applyDelta(byte[], Object)}合并到和base相同的对象上</li>
+     * </ul>
+     *
+     * @param base
+     * @param obj
+     * @return
+     */
+    public byte[] serializeDelta(Object base, Object obj) {
+        ByteArrayWriter byteArrayWriter = acquireLocalWriter();
+        try {
+            SER_WRITER.writeDelta(newSerContext(byteArrayWriter), base, obj);
+            checkTotalByteSize(byteArrayWriter.size(), obj);
+            return byteArrayWriter.toByteArray();
+        } finally {
+            releaseLocalWriter(byteArrayWriter);
+        }
+    }
+
+    /**
+     * 生成补丁，和{@link #serializeDelta(Object, Object)}类似，但是会递归比较
+     * <p>
+     * <ul>
+     * <li>嵌套的对象，map、IntMap、LongMap两边都不为null时，只写入其中变化的字段或者key，适合同步大对象中的少量修改</li>
+     * <li>结果用{@link #applyDelta(byte[], Object)}合并到和base相同的对象上，其中对应的嵌套对象和map会被直接修改</li>
+     * </ul>
+     *
+     * @param base
+     * @param obj
+     * @return
+     */
+    public byte[] diff(Object base, Object obj) {
+        ByteArrayWriter byteArrayWriter = acquireLocalWriter();
+        try {
+            SER_WRITER.writePatch(newSerContext(byteArrayWriter), base, obj);
+            checkTotalByteSize(byteArrayWriter.size(), obj);
+            return byteArrayWriter.toByteArray();
+        } finally {
+            releaseLocalWriter(byteArrayWriter);
+        }
+    }
+
+    /**
+     * 增量序列化，只写入编码后和快照不同的字段
+     * <p>
+     * <ul>
+     * <li>不依赖字段的equals方法，但是每次都需要编码所有字段</li>
+     * <li>快照需要由当前的{@link Ser}创建</li>
+     * </ul>
+     *
+     * @param base
+     * @param obj
+     * @return
+     */
+    public byte[] serializeDelta(SerSnapshot base, Object obj) {
+        ByteArrayWriter byteArrayWriter = acquireLocalWriter();
+        try {
+            SER_WRITER.writeDelta(newSerContext(byteArrayWriter), base, obj);
+            checkTotalByteSize(byteArrayWriter.size(), obj);
+            return byteArrayWriter.toByteArray();
+        } finally {
+            releaseLocalWriter(byteArrayWriter);
+        }
+    }
+
+    /**
+     * 创建对象当前状态的快照，用于{@link #serializeDelta(SerSnapshot, Object)}
+     *
+     * @param obj
+     * @return
+     */
+    public SerSnapshot snapshot(Object obj) {
+        return SER_WRITER.snapshot(newSerContext(null), obj);
+    }
+
+    /**
+     * 将增量数据或者{@link #diff(Object, Object)}生成的补丁合并到target中，只修改其中包含的字段
+     *
+     * @param delta
+     * @param target
+     * @return target
+     */
+    public <T> T applyDelta(byte[] delta, T target) {
+        ByteArrayReader byteArrayReader = new ByteArrayReader(delta);
+        DeserContext ctx = newDeserContext(byteArrayReader);
+        SER_READER.readDelta(ctx, target);
+        return target;
+    }
+
     /**
      * 根据指定字节数组进行反序列化
      *
@@ -101,10 +562,102 @@ public class Ser {
      */
     public <T> T deserialize(byte[] data, Class<T> type) {
         ByteArrayReader byteArrayReader = new ByteArrayReader(data);
-        DeserContext ctx = new DeserContext(byteArrayReader, failOnUnknowEnumValue);
+        DeserContext ctx = newDeserContext(byteArrayReader);
         return SER_READER.read(ctx, type);
     }
 
+    /**
+     * 在{@link ForkJoinPool#commonPool()}中并行反序列化，见{@link #deserializeParallel(List, Class, Executor)}
+     *
+     * @param data
+     * @param type
+     * @return
+     */
+    public <T> List<T> deserializeParallel(List<byte[]> data, Class<T> type) {
+        return deserializeParallel(data, type, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 并行反序列化多个对象，结果和data的顺序一致，分批方式见{@link #serializeParallel(List, Executor)}
+     *
+     * @param data
+     * @param type
+     * @param executor
+     * @return
+     */
+    public <T> List<T> deserializeParallel(List<byte[]> data, Class<T> type, Executor executor) {
+        Object[] results = new Object[data.size()];
+        parallel(data.size(), executor, i -> results[i] = deserialize(data.get(i), type));
+        @SuppressWarnings("unchecked")
+        List<T> list = (List<T>) Arrays.asList(results);
+        return list;
+    }
+
+    /**
+     * 把[0, size)分批提交到executor中执行，最后一批在当前线程执行，等待全部完成
+     */
+    private static void parallel(int size, Executor executor, IntConsumer action) {
+        int batchSize = Math.max((size + PARALLEL_MAX_BATCHES - 1) / PARALLEL_MAX_BATCHES, PARALLEL_MIN_BATCH_SIZE);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        int from = 0;
+        for (; size - from > batchSize; from += batchSize) {
+            int start = from;
+            int end = from + batchSize;
+            futures.add(CompletableFuture.runAsync(() -> {
+                for (int i = start; i < end; i++) {
+                    action.accept(i);
+                }
+            }, executor));
+        }
+        for (int i = from; i < size; i++) {
+            action.accept(i);
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            throw JavaUtils.sneakyThrow(e.getCause());
+        }
+    }
+
+    /**
+     * 根据buffer中position到limit之间的数据进行反序列化
+     * <p>
+     * <ul>
+     * <li>direct buffer和{@link java.nio.MappedByteBuffer}直接读取，不需要先复制到堆中</li>
+     * <li>完成后position移动到数据的末尾，buffer中可以连续存放多个对象</li>
+     * </ul>
+     *
+     * @param src
+     * @param type
+     * @return
+     */
+    public <T> T deserialize(ByteBuffer src, Class<T> type) {
+        CodedReader reader = newReader(src);
+        int start = reader.position();
+        T obj = SER_READER.read(newDeserContext(reader), type);
+        src.position(src.position() + reader.position() - start);
+        return obj;
+    }
+
+    /**
+     * 根据指定字节数组进行反序列化，只解码指定的字段，其他字段直接跳过
+     * <p>
+     * <ul>
+     * <li>只对最外层的对象有效，指定字段中嵌套的对象会完整解码</li>
+     * <li>使用带长度的格式（lengthDelimited）时，跳过嵌套的对象和容器不需要解析其中的内容</li>
+     * </ul>
+     *
+     * @param data
+     * @param type
+     * @param fieldNumbers
+     * @return
+     */
+    public <T> T deserialize(byte[] data, Class<T> type, int... fieldNumbers) {
+        ByteArrayReader byteArrayReader = new ByteArrayReader(data);
+        DeserContext ctx = newDeserContext(byteArrayReader);
+        return SER_READER.read(ctx, type, new IntHashSet(fieldNumbers));
+    }
+
     /**
      * 根据指定输入流中的数据进行反序列化
      *
@@ -114,8 +667,198 @@ public class Ser {
      */
     public <T> T deserialize(InputStream input, Class<T> type) {
         StreamReader streamReader = new StreamReader(input);
-        DeserContext ctx = new DeserContext(streamReader, failOnUnknowEnumValue);
+        DeserContext ctx = newDeserContext(streamReader);
         return SER_READER.read(ctx, type);
     }
 
+    /**
+     * 依次读取流中{@link #writeDelimited(Object, OutputStream)}或{@link #serializeAll(Iterable, OutputStream)}写入的对象
+     * <p>
+     * <ul>
+     * <li>所有对象共用一个{@link StreamReader}和它的缓冲区，读取时会预读流中后面的数据</li>
+     * <li>每次调用{@link Iterator#next()}时才解码下一个对象，流结束时{@link Iterator#hasNext()}返回false</li>
+     * <li>每个对象最多读取长度前缀指定的字节数，超过时抛出{@link SerializationException}；没有读完时跳过剩余的字节</li>
+     * </ul>
+     *
+     * @param input
+     * @param type
+     * @return
+     */
+    public <T> Iterator<T> readDelimited(InputStream input, Class<T> type) {
+        StreamReader streamReader = new StreamReader(input);
+        return new Iterator<T>() {
+
+            @Override
+            public boolean hasNext() {
+                return !streamReader.isAtEnd();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int size = streamReader.readRawVarint32();
+                if (size < 0) {
+                    throw new SerializationException("Negative size: " + size);
+                }
+                if (totalByteSizeLimit != Ser.NO_SIZE_LIMIT && size > totalByteSizeLimit) {
+                    throw new SerializationException("Total byte size exceeded max allowed. size=" + size
+                            + ", limit=" + totalByteSizeLimit + ", type=" + type);
+                }
+                long start = streamReader.totalBytesRead();
+                T obj = SER_READER.read(newDeserContext(streamReader, size), type); // 不能超出这个对象的数据
+                streamReader.setByteLimit(NO_SIZE_LIMIT);
+                long remaining = size - (streamReader.totalBytesRead() - start);
+                if (remaining > 0) { // 对齐到下一个对象
+                    streamReader.skipRawBytes((int) remaining);
+                }
+                return obj;
+            }
+
+        };
+    }
+
+    /**
+     * 流式反序列化{@link #serializeElements(Iterator, OutputStream)}写入的数据，每解码一个元素就交给visitor，不会创建整个容器
+     *
+     * @param input
+     * @param type    元素的类型
+     * @param visitor
+     */
+    public <T> void deserializeElements(InputStream input, Class<T> type, SerElementVisitor<? super T> visitor) {
+        StreamReader streamReader = new StreamReader(input);
+        SER_READER.readElements(newDeserContext(streamReader, NO_SIZE_LIMIT), type, visitor);
+    }
+
+    /**
+     * 流式反序列化buffer中position到limit之间的数据，见{@link #deserializeElements(InputStream, Class, SerElementVisitor)}
+     * <p>
+     * 可以直接读取{@link java.nio.MappedByteBuffer}，完成后position移动到读取结束的位置
+     *
+     * @param src
+     * @param type    元素的类型
+     * @param visitor
+     */
+    public <T> void deserializeElements(ByteBuffer src, Class<T> type, SerElementVisitor<? super T> visitor) {
+        CodedReader reader = newReader(src);
+        int start = reader.position();
+        SER_READER.readElements(newDeserContext(reader, NO_SIZE_LIMIT), type, visitor);
+        src.position(src.position() + reader.position() - start);
+    }
+
+    /**
+     * 反序列化到已有的对象中
+     * <p>
+     * <ul>
+     * <li>重用target中类型相同的容器和嵌套对象（list中的元素按位置重用），减少重新加载时创建的对象</li>
+     * <li>会调用before和after方法</li>
+     * <li>target以及从target中重用的对象，数据中没有的字段会设为null，基本类型的字段总会写入，不受影响；
+     * 新建的对象和{@link #deserialize(byte[], Class)}相同，保留字段的默认值</li>
+     * <li>容器会被清空后重新填充，不要在其他地方持有它们</li>
+     * </ul>
+     *
+     * @param data
+     * @param target
+     * @return target
+     */
+    public <T> T deserializeInto(byte[] data, T target) {
+        ByteArrayReader byteArrayReader = new ByteArrayReader(data);
+        DeserContext ctx = newDeserContext(byteArrayReader);
+        SER_READER.readInto(ctx, target);
+        return target;
+    }
+
+    /**
+     * 根据指定输入流中的数据反序列化到已有的对象中，见{@link #deserializeInto(byte[], Object)}
+     *
+     * @param input
+     * @param target
+     * @return target
+     */
+    public <T> T deserializeInto(InputStream input, T target) {
+        StreamReader streamReader = new StreamReader(input);
+        DeserContext ctx = newDeserContext(streamReader);
+        SER_READER.readInto(ctx, target);
+        return target;
+    }
+
+    /**
+     * 根据buffer中position到limit之间的数据反序列化到已有的对象中，见{@link #deserializeInto(byte[], Object)}
+     * <p>
+     * 完成后position移动到数据的末尾
+     *
+     * @param src
+     * @param target
+     * @return target
+     */
+    public <T> T deserializeInto(ByteBuffer src, T target) {
+        CodedReader reader = newReader(src);
+        int start = reader.position();
+        SER_READER.readInto(newDeserContext(reader), target);
+        src.position(src.position() + reader.position() - start);
+        return target;
+    }
+
+    private static CodedReader newReader(ByteBuffer src) {
+        if (src.hasArray()) {
+            return new ByteArrayReader(src.array(), src.arrayOffset() + src.position(), src.remaining());
+        }
+        return new ByteBufferReader(src);
+    }
+
+    public static final class Builder {
+
+        private int totalByteSizeLimit = NO_SIZE_LIMIT;
+
+        private int containerSizeLimit = NO_SIZE_LIMIT;
+
+        private boolean failOnUnknowEnumValue;
+
+        private int maxDepth = DEFAULT_MAX_DEPTH;
+
+        private boolean lengthDelimited;
+
+        private boolean stringTable;
+
+        private Builder() {
+
+        }
+
+        public Builder totalByteSizeLimit(int totalByteSizeLimit) {
+            this.totalByteSizeLimit = totalByteSizeLimit;
+            return this;
+        }
+
+        public Builder containerSizeLimit(int containerSizeLimit) {
+            this.containerSizeLimit = containerSizeLimit;
+            return this;
+        }
+
+        public Builder failOnUnknowEnumValue(boolean failOnUnknowEnumValue) {
+            this.failOnUnknowEnumValue = failOnUnknowEnumValue;
+            return this;
+        }
+
+        public Builder maxDepth(int maxDepth) {
+            this.maxDepth = maxDepth;
+            return this;
+        }
+
+        public Builder lengthDelimited(boolean lengthDelimited) {
+            this.lengthDelimited = lengthDelimited;
+            return this;
+        }
+
+        public Builder stringTable(boolean stringTable) {
+            this.stringTable = stringTable;
+            return this;
+        }
+
+        public Ser build() {
+            return new Ser(this);
+        }
+
+    }
+
 }
@@ -1,8 +1,9 @@
 package io.jpower.sgf.ser;
 
 import java.lang.reflect.Constructor;
-import java.lang.reflect.Method;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import io.jpower.sgf.collection.IntMap;
 
@@ -13,21 +14,41 @@ import io.jpower.sgf.collection.IntMap;
  */
 class SerClass {
 
+    /**
+     * 最大的fieldNumber小于这个值时，使用数组按fieldNumber直接查找字段
+     */
+    static final int DENSE_FIELD_NUMBER_LIMIT = 256;
+
     /**
      * 类
      */
     private Class<?> clazz;
 
     /**
-     * 默认构造方法
+     * 默认构造方法，通过{@link SerClassDefinition}定义的类为null
      */
     private Constructor<?> constructor;
 
+    /**
+     * 用来创建实例，调用的是默认构造方法
+     */
+    private Supplier<Object> instantiator;
+
     /**
      * 需要进行序列化的字段
      */
     private List<SerField> fields;
 
+    /**
+     * 和{@link #fields}相同，按fieldNumber排序，用来按顺序遍历
+     */
+    private SerField[] fieldArray;
+
+    /**
+     * 下标为fieldNumber，字段比较密集时使用，否则为null
+     */
+    private SerField[] fieldTable;
+
     /**
      * 需要进行序列化的字段，key: fieldNumber
      */
@@ -36,22 +57,22 @@ class SerClass {
     /**
      * 序列化前需要调用的方法
      */
-    private Method beforeSerMethod;
+    private Consumer<Object> beforeSer;
 
     /**
      * 序列化后需要调用的方法
      */
-    private Method afterSerMethod;
+    private Consumer<Object> afterSer;
 
     /**
      * 反序列化前需要调用的方法
      */
-    private Method beforeDeserMethod;
+    private Consumer<Object> beforeDeser;
 
     /**
      * 反序列化后需要调用的方法
      */
-    private Method afterDeserMethod;
+    private Consumer<Object> afterDeser;
 
     SerClass(Class<?> clazz) {
         this.clazz = clazz;
@@ -69,15 +90,46 @@ class SerClass {
         this.constructor = constructor;
     }
 
+    void setInstantiator(Supplier<Object> instantiator) {
+        this.instantiator = instantiator;
+    }
+
+    Object newInstance() {
+        return instantiator.get();
+    }
+
     List<SerField> getFields() {
         return fields;
     }
 
     void setFields(List<SerField> fields) {
         this.fields = fields;
+        this.fieldArray = fields.toArray(new SerField[fields.size()]);
+        int maxFieldNumber = 0;
+        for (int i = 0; i < fieldArray.length; i++) {
+            fieldArray[i].setIndex(i);
+            maxFieldNumber = Math.max(maxFieldNumber, fieldArray[i].getNumber());
+        }
+        if (maxFieldNumber < DENSE_FIELD_NUMBER_LIMIT) {
+            SerField[] table = new SerField[maxFieldNumber + 1];
+            for (SerField f : fieldArray) {
+                table[f.getNumber()] = f;
+            }
+            this.fieldTable = table;
+        } else {
+            this.fieldTable = null;
+        }
+    }
+
+    SerField[] getFieldArray() {
+        return fieldArray;
     }
 
     SerField getField(int fieldNumber) {
+        SerField[] table = fieldTable;
+        if (table != null) {
+            return fieldNumber < table.length ? table[fieldNumber] : null;
+        }
         return fieldMap.get(fieldNumber);
     }
 
@@ -89,36 +141,36 @@ class SerClass {
         this.fieldMap = fieldMap;
     }
 
-    Method getBeforeSerMethod() {
-        return beforeSerMethod;
+    Consumer<Object> getBeforeSer() {
+        return beforeSer;
     }
 
-    void setBeforeSerMethod(Method beforeSerMethod) {
-        this.beforeSerMethod = beforeSerMethod;
+    void setBeforeSer(Consumer<Object> beforeSer) {
+        this.beforeSer = beforeSer;
     }
 
-    Method getAfterSerMethod() {
-        return afterSerMethod;
+    Consumer<Object> getAfterSer() {
+        return afterSer;
     }
 
-    void setAfterSerMethod(Method afterSerMethod) {
-        this.afterSerMethod = afterSerMethod;
+    void setAfterSer(Consumer<Object> afterSer) {
+        this.afterSer = afterSer;
     }
 
-    Method getBeforeDeserMethod() {
-        return beforeDeserMethod;
+    Consumer<Object> getBeforeDeser() {
+        return beforeDeser;
     }
 
-    void setBeforeDeserMethod(Method beforeDeserMethod) {
-        this.beforeDeserMethod = beforeDeserMethod;
+    void setBeforeDeser(Consumer<Object> beforeDeser) {
+        this.beforeDeser = beforeDeser;
     }
 
-    Method getAfterDeserMethod() {
-        return afterDeserMethod;
+    Consumer<Object> getAfterDeser() {
+        return afterDeser;
     }
 
-    void setAfterDeserMethod(Method afterDeserMethod) {
-        this.afterDeserMethod = afterDeserMethod;
+    void setAfterDeser(Consumer<Object> afterDeser) {
+        this.afterDeser = afterDeser;
     }
 
     @Override
@@ -0,0 +1,271 @@
+package io.jpower.sgf.ser;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+import io.jpower.sgf.ser.annotation.Serializable;
+
+/**
+ * 一个可序列化类的完整描述，相当于{@link SerClassParser}在运行时通过反射分析出来的结果
+ * <p>
+ * <ul>
+ * <li>一般由sgf-ser-processor在编译期根据{@link Serializable}注解生成，再通过{@link SerClassProvider}注册</li>
+ * <li>getter和setter都可以为null，为null时会在运行时直接访问字段</li>
+ * <li>byte、char、short类型使用int的函数接口，float类型使用double的函数接口，setter中需要自己转换回原类型</li>
+ * </ul>
+ *
+ * @param <T>
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+public final class SerClassDefinition<T> {
+
+    private final Class<T> clazz;
+
+    private final Supplier<T> instantiator;
+
+    private final List<FieldDefinition> fields;
+
+    private final Consumer<T> beforeSer;
+
+    private final Consumer<T> afterSer;
+
+    private final Consumer<T> beforeDeser;
+
+    private final Consumer<T> afterDeser;
+
+    private SerClassDefinition(Builder<T> builder) {
+        this.clazz = builder.clazz;
+        this.instantiator = builder.instantiator;
+        this.fields = Collections.unmodifiableList(new ArrayList<>(builder.fields));
+        this.beforeSer = builder.beforeSer;
+        this.afterSer = builder.afterSer;
+        this.beforeDeser = builder.beforeDeser;
+        this.afterDeser = builder.afterDeser;
+    }
+
+    public static <T> Builder<T> builder(Class<T> clazz, Supplier<T> instantiator) {
+        return new Builder<>(clazz, instantiator);
+    }
+
+    /**
+     * 构建容器字段的泛型类型，如<code>parameterizedType(List.class, Bar.class)</code>表示<code>List&lt;Bar&gt;</code>
+     *
+     * @param rawType
+     * @param typeArguments
+     * @return
+     */
+    public static ParameterizedType parameterizedType(Class<?> rawType, Type... typeArguments) {
+        return new SerParameterizedType(rawType, typeArguments);
+    }
+
+    public Class<T> getClazz() {
+        return clazz;
+    }
+
+    Supplier<T> getInstantiator() {
+        return instantiator;
+    }
+
+    List<FieldDefinition> getFields() {
+        return fields;
+    }
+
+    Consumer<T> getBeforeSer() {
+        return beforeSer;
+    }
+
+    Consumer<T> getAfterSer() {
+        return afterSer;
+    }
+
+    Consumer<T> getBeforeDeser() {
+        return beforeDeser;
+    }
+
+    Consumer<T> getAfterDeser() {
+        return afterDeser;
+    }
+
+    @Override
+    public String toString() {
+        return "SerClassDefinition [clazz=" + clazz + ", fields=" + fields + "]";
+    }
+
+    public static final class Builder<T> {
+
+        private final Class<T> clazz;
+
+        private final Supplier<T> instantiator;
+
+        private final List<FieldDefinition> fields = new ArrayList<>();
+
+        private Consumer<T> beforeSer;
+
+        private Consumer<T> afterSer;
+
+        private Consumer<T> beforeDeser;
+
+        private Consumer<T> afterDeser;
+
+        private Builder(Class<T> clazz, Supplier<T> instantiator) {
+            this.clazz = Objects.requireNonNull(clazz, "clazz");
+            this.instantiator = Objects.requireNonNull(instantiator, "instantiator");
+        }
+
+        public Builder<T> byteField(int number, String name, IntEncodeType intEncodeType,
+                                    ToIntFunction<T> getter, ObjIntConsumer<T> setter) {
+            return field(number, name, byte.class, intEncodeType, false, void.class, getter, setter);
+        }
+
+        public Builder<T> charField(int number, String name, IntEncodeType intEncodeType,
+                                    ToIntFunction<T> getter, ObjIntConsumer<T> setter) {
+            return field(number, name, char.class, intEncodeType, false, void.class, getter, setter);
+        }
+
+        public Builder<T> shortField(int number, String name, IntEncodeType intEncodeType,
+                                     ToIntFunction<T> getter, ObjIntConsumer<T> setter) {
+            return field(number, name, short.class, intEncodeType, false, void.class, getter, setter);
+        }
+
+        public Builder<T> intField(int number, String name, IntEncodeType intEncodeType,
+                                   ToIntFunction<T> getter, ObjIntConsumer<T> setter) {
+            return field(number, name, int.class, intEncodeType, false, void.class, getter, setter);
+        }
+
+        public Builder<T> longField(int number, String name, IntEncodeType intEncodeType,
+                                    ToLongFunction<T> getter, ObjLongConsumer<T> setter) {
+            return field(number, name, long.class, intEncodeType, false, void.class, getter, setter);
+        }
+
+        public Builder<T> floatField(int number, String name, ToDoubleFunction<T> getter,
+                                     ObjDoubleConsumer<T> setter) {
+            return field(number, name, float.class, IntEncodeType.VARINT, false, void.class, getter, setter);
+        }
+
+        public Builder<T> doubleField(int number, String name, ToDoubleFunction<T> getter,
+                                      ObjDoubleConsumer<T> setter) {
+            return field(number, name, double.class, IntEncodeType.VARINT, false, void.class, getter, setter);
+        }
+
+        public Builder<T> boolField(int number, String name, Predicate<T> getter, ObjBoolConsumer<T> setter) {
+            return field(number, name, boolean.class, IntEncodeType.VARINT, false, void.class, getter, setter);
+        }
+
+        /**
+         * 非基本类型的字段
+         *
+         * @param number
+         * @param name
+         * @param type          字段的类型，容器类型需要是{@link ParameterizedType}
+         * @param intEncodeType
+         * @param intern
+         * @param deSerClazz    没有指定时为<code>void.class</code>
+         * @param getter
+         * @param setter
+         * @return
+         */
+        public Builder<T> objectField(int number, String name, Type type, IntEncodeType intEncodeType,
+                                      boolean intern, Class<?> deSerClazz, Function<T, ?> getter,
+                                      BiConsumer<T, Object> setter) {
+            return field(number, name, type, intEncodeType, intern, deSerClazz, getter, setter);
+        }
+
+        public Builder<T> beforeSerialize(Consumer<T> hook) {
+            this.beforeSer = hook;
+            return this;
+        }
+
+        public Builder<T> afterSerialize(Consumer<T> hook) {
+            this.afterSer = hook;
+            return this;
+        }
+
+        public Builder<T> beforeDeserialize(Consumer<T> hook) {
+            this.beforeDeser = hook;
+            return this;
+        }
+
+        public Builder<T> afterDeserialize(Consumer<T> hook) {
+            this.afterDeser = hook;
+            return this;
+        }
+
+        public SerClassDefinition<T> build() {
+            return new SerClassDefinition<>(this);
+        }
+
+        private Builder<T> field(int number, String name, Type type, IntEncodeType intEncodeType,
+                                 boolean intern, Class<?> deSerClazz, Object getter, Object setter) {
+            fields.add(new FieldDefinition(number, Objects.requireNonNull(name, "name"),
+                    Objects.requireNonNull(type, "type"), Objects.requireNonNull(intEncodeType, "intEncodeType"),
+                    intern, Objects.requireNonNull(deSerClazz, "deSerClazz"), getter, setter));
+            return this;
+        }
+
+    }
+
+    /**
+     * boolean类型字段的setter
+     *
+     * @param <T>
+     */
+    @FunctionalInterface
+    public interface ObjBoolConsumer<T> {
+
+        void accept(T obj, boolean value);
+
+    }
+
+    static final class FieldDefinition {
+
+        final int number;
+
+        final String name;
+
+        final Type type;
+
+        final IntEncodeType intEncodeType;
+
+        final boolean intern;
+
+        final Class<?> deSerClazz;
+
+        final Object getter;
+
+        final Object setter;
+
+        FieldDefinition(int number, String name, Type type, IntEncodeType intEncodeType, boolean intern,
+                        Class<?> deSerClazz, Object getter, Object setter) {
+            this.number = number;
+            this.name = name;
+            this.type = type;
+            this.intEncodeType = intEncodeType;
+            this.intern = intern;
+            this.deSerClazz = deSerClazz;
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        @Override
+        public String toString() {
+            return "FieldDefinition [number=" + number + ", name=" + name + ", type=" + type + "]";
+        }
+
+    }
+
+}
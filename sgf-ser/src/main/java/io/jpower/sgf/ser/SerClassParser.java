@@ -7,14 +7,20 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import io.jpower.sgf.collection.DoubleValueMap;
 import io.jpower.sgf.collection.FloatValueMap;
@@ -30,6 +36,8 @@ import io.jpower.sgf.ser.annotation.AfterSerialize;
 import io.jpower.sgf.ser.annotation.BeforeDeserialize;
 import io.jpower.sgf.ser.annotation.BeforeSerialize;
 import io.jpower.sgf.ser.annotation.Serializable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * 用来分析有{@link Serializable}注解的类
@@ -38,6 +46,8 @@ import io.jpower.sgf.ser.annotation.Serializable;
  */
 class SerClassParser {
 
+    private static final Logger log = LoggerFactory.getLogger(SerClassParser.class);
+
     private static final SerClassParser INS = new SerClassParser();
 
     private ConcurrentMap<Class<?>, SerClass> cache = new ConcurrentHashMap<>();
@@ -45,7 +55,7 @@ class SerClassParser {
     private ConcurrentMap<ParameterizedType, List<FieldType>> subTypeMap = new ConcurrentHashMap<>();
 
     private SerClassParser() {
-
+        loadProviders();
     }
 
     static SerClassParser ins() {
@@ -68,6 +78,96 @@ class SerClassParser {
         return serClass;
     }
 
+    /**
+     * 加载编译期生成的{@link SerClassDefinition}，这些类不需要再通过反射来分析
+     */
+    private void loadProviders() {
+        Iterator<SerClassProvider> it = ServiceLoader.load(SerClassProvider.class).iterator();
+        while (true) {
+            SerClassProvider provider;
+            try {
+                if (!it.hasNext()) {
+                    break;
+                }
+                provider = it.next();
+            } catch (ServiceConfigurationError e) {
+                log.warn("Load SerClassProvider failed", e);
+                continue;
+            }
+            try {
+                SerClass serClass = define(provider.define());
+                cache.put(serClass.getClazz(), serClass);
+            } catch (RuntimeException e) { // 交给运行时通过反射来分析
+                log.warn("Define SerClass failed. provider={}", provider.getClass().getName(), e);
+            }
+        }
+    }
+
+    /**
+     * 根据{@link SerClassDefinition}构建{@link SerClass}
+     *
+     * @param definition
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    SerClass define(SerClassDefinition<?> definition) {
+        Class<?> clazz = definition.getClazz();
+        SerClass serClass = new SerClass(clazz);
+        serClass.setInstantiator((Supplier<Object>) definition.getInstantiator());
+
+        IntMap<SerField> serFieldMap = new IntHashMap<>();
+        for (SerClassDefinition.FieldDefinition fd : definition.getFields()) {
+            Utils.checkFieldNumber(fd.number);
+
+            Field field = null;
+            if (fd.getter == null || fd.setter == null) { // 需要直接访问字段
+                field = findField(clazz, fd.number, fd.name);
+            }
+            SerField serField = new SerField(fd.name, field);
+            serField.setNumber(fd.number);
+            serField.setIntern(fd.intern);
+            serField.setIntEncodeType(fd.intEncodeType);
+            serField.setDeSerClazz(fd.deSerClazz);
+
+            Class<?> fieldClass = fd.type instanceof ParameterizedType
+                    ? (Class<?>) ((ParameterizedType) fd.type).getRawType() : (Class<?>) fd.type;
+            serField.setType(parseFieldType(fieldClass, fd.type, serField));
+            serField.setAccessor(AccessorGenerator.defineAccessor(fd.name, fieldClass, fd.getter, fd.setter, field));
+            resolveCodec(serField);
+
+            putSerField(clazz, serFieldMap, serField);
+        }
+        serClass.setFields(toSerFieldList(serFieldMap));
+        serClass.setFieldMap(serFieldMap);
+
+        serClass.setBeforeSer((Consumer<Object>) definition.getBeforeSer());
+        serClass.setAfterSer((Consumer<Object>) definition.getAfterSer());
+        serClass.setBeforeDeser((Consumer<Object>) definition.getBeforeDeser());
+        serClass.setAfterDeser((Consumer<Object>) definition.getAfterDeser());
+
+        return serClass;
+    }
+
+    private Field findField(Class<?> clazz, int number, String name) {
+        for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+            Field field;
+            try {
+                field = c.getDeclaredField(name);
+            } catch (NoSuchFieldException e) {
+                continue;
+            }
+            io.jpower.sgf.ser.annotation.Field anno = field
+                    .getAnnotation(io.jpower.sgf.ser.annotation.Field.class);
+            if (anno != null && anno.value() == number) {
+                if (!field.isAccessible()) {
+                    field.setAccessible(true);
+                }
+                return field;
+            }
+        }
+        throw new SerializationException(clazz + " can not find field. fieldNumber=" + number + ", name=" + name);
+    }
+
     private SerClass parseClazz(Class<?> clazz) {
         // 检查
         Serializable serAnno = clazz.getAnnotation(Serializable.class);
@@ -93,6 +193,7 @@ class SerClassParser {
         }
         SerClass serClass = new SerClass(clazz);
         serClass.setConstructor(constructor);
+        serClass.setInstantiator(AccessorGenerator.generateInstantiator(constructor));
 
         // 分析field
         IntMap<SerField> serFieldMap = new IntHashMap<>(); // key: fieldNumber
@@ -103,16 +204,16 @@ class SerClassParser {
 
         // 分析before after方法
         Method beforeSerMethod = findMethods(clazz, BeforeSerialize.class);
-        serClass.setBeforeSerMethod(beforeSerMethod);
+        serClass.setBeforeSer(hook(beforeSerMethod));
 
         Method afterSerMethod = findMethods(clazz, AfterSerialize.class);
-        serClass.setAfterSerMethod(afterSerMethod);
+        serClass.setAfterSer(hook(afterSerMethod));
 
         Method beforeDeserMethod = findMethods(clazz, BeforeDeserialize.class);
-        serClass.setBeforeDeserMethod(beforeDeserMethod);
+        serClass.setBeforeDeser(hook(beforeDeserMethod));
 
         Method afterDeserMethod = findMethods(clazz, AfterDeserialize.class);
-        serClass.setAfterDeserMethod(afterDeserMethod);
+        serClass.setAfterDeser(hook(afterDeserMethod));
 
         return serClass;
     }
@@ -144,12 +245,7 @@ class SerClassParser {
             if (serField == null) {
                 continue; // 没有就跳过
             }
-            SerField exists = serFieldMap.put(serField.getNumber(), serField);
-            if (exists != null) {
-                throw new SerializationException(clazz + " fieldNumber duplicate. fieldNumber="
-                        + serField.getNumber() + ", field1=" + exists.getField() + ", field2="
-                        + serField.getField());
-            }
+            putSerField(clazz, serFieldMap, serField);
         }
 
         // 查找父类的field
@@ -160,6 +256,15 @@ class SerClassParser {
         parseField(superclass, serFieldMap);
     }
 
+    private void putSerField(Class<?> clazz, IntMap<SerField> serFieldMap, SerField serField) {
+        SerField exists = serFieldMap.put(serField.getNumber(), serField);
+        if (exists != null) {
+            throw new SerializationException(clazz + " fieldNumber duplicate. fieldNumber="
+                    + serField.getNumber() + ", field1=" + exists.getName() + ", field2="
+                    + serField.getName());
+        }
+    }
+
     private SerField parseField(Class<?> clazz, Field field) {
         io.jpower.sgf.ser.annotation.Field anno = field
                 .getAnnotation(io.jpower.sgf.ser.annotation.Field.class);
@@ -177,7 +282,7 @@ class SerClassParser {
             field.setAccessible(true);
         }
 
-        SerField serField = new SerField(field);
+        SerField serField = new SerField(field.getName(), field);
         serField.setNumber(number);
 
         // 寻找getter和setter
@@ -213,6 +318,8 @@ class SerClassParser {
         if (setter != null && checkMethodModifier(setter.getModifiers())) {
             serField.setSetter(setter);
         }
+        serField.setAccessor(AccessorGenerator.generateAccessor(field, serField.getGetter(),
+                serField.getSetter()));
 
         // intern
         boolean intern = anno.intern();
@@ -227,14 +334,27 @@ class SerClassParser {
         serField.setDeSerClazz(deSerClazz);
 
         // 判断类型
-        FieldType fieldType = parseFieldType(field, serField);
+        FieldType fieldType = parseFieldType(field.getType(), field.getGenericType(), serField);
         serField.setType(fieldType);
+        resolveCodec(serField);
 
         return serField;
     }
 
-    private FieldType parseFieldType(Field field, SerField serField) {
-        Class<?> fieldClass = field.getType();
+    /**
+     * 确定字段的编码和解码方式，需要在字段的类型和{@link FieldAccessor}都确定以后调用
+     *
+     * @param serField
+     */
+    private void resolveCodec(SerField serField) {
+        serField.getType().setCodec(ValueCodec.forField(serField));
+        serField.setCodec(FieldCodec.of(serField));
+    }
+
+    private FieldType parseFieldType(Class<?> fieldClass, Type genericType, SerField serField) {
+        if (fieldClass == Lazy.class) {
+            return parseLazyFieldType(genericType, serField);
+        }
         FieldType fieldType = null;
         if (fieldClass == byte.class || fieldClass == Byte.class) {
             fieldType = new FieldType(fieldClass, JavaType.BYTE, fieldClass.isPrimitive(),
@@ -275,16 +395,34 @@ class SerClassParser {
         } else if (fieldClass == byte[].class) {
             fieldType = new FieldType(fieldClass, JavaType.BYTES, WireFormat.WIRETYPE_BYTES);
 
+        } else if (fieldClass == ByteBuffer.class) {
+            fieldType = new FieldType(fieldClass, JavaType.BYTE_BUFFER, WireFormat.WIRETYPE_BYTES);
+
+        } else if (ByteBuffer.class.isAssignableFrom(fieldClass)) { // 反序列化的结果只能是ByteBuffer
+            throw new SerializationException("Unsupported ByteBuffer type: " + fieldClass);
+
+        } else if (fieldClass == int[].class) {
+            fieldType = new FieldType(fieldClass, JavaType.INT_ARRAY, WireFormat.WIRETYPE_BYTES);
+
+        } else if (fieldClass == long[].class) {
+            fieldType = new FieldType(fieldClass, JavaType.LONG_ARRAY, WireFormat.WIRETYPE_BYTES);
+
+        } else if (fieldClass == float[].class) {
+            fieldType = new FieldType(fieldClass, JavaType.FLOAT_ARRAY, WireFormat.WIRETYPE_BYTES);
+
+        } else if (fieldClass == double[].class) {
+            fieldType = new FieldType(fieldClass, JavaType.DOUBLE_ARRAY, WireFormat.WIRETYPE_BYTES);
+
         } else if (fieldClass == String.class) {
             fieldType = new FieldType(fieldClass, JavaType.STRING, WireFormat.WIRETYPE_BYTES);
 
         } else if (List.class.isAssignableFrom(fieldClass)) {
             fieldType = new FieldType(fieldClass, JavaType.LIST, WireFormat.WIRETYPE_COLLECTION);
-            parseSubFieldType(field.getGenericType(), fieldType);
+            parseSubFieldType(genericType, fieldType);
 
         } else if (Set.class.isAssignableFrom(fieldClass)) {
             fieldType = new FieldType(fieldClass, JavaType.SET, WireFormat.WIRETYPE_COLLECTION);
-            parseSubFieldType(field.getGenericType(), fieldType);
+            parseSubFieldType(genericType, fieldType);
 
         } else if (IntSet.class.isAssignableFrom(fieldClass)) {
             fieldType = new FieldType(fieldClass, JavaType.INT_SET, WireFormat.WIRETYPE_COLLECTION);
@@ -295,33 +433,38 @@ class SerClassParser {
 
         } else if (Map.class.isAssignableFrom(fieldClass)) {
             fieldType = new FieldType(fieldClass, JavaType.MAP, WireFormat.WIRETYPE_MAP);
-            parseSubFieldType(field.getGenericType(), fieldType);
+            parseSubFieldType(genericType, fieldType);
 
         } else if (IntMap.class.isAssignableFrom(fieldClass)) {
             fieldType = new FieldType(fieldClass, JavaType.INT_MAP, WireFormat.WIRETYPE_MAP);
-            parseSubFieldType(field.getGenericType(), fieldType);
+            parseSubFieldType(genericType, fieldType);
 
         } else if (LongMap.class.isAssignableFrom(fieldClass)) {
             fieldType = new FieldType(fieldClass, JavaType.LONG_MAP, WireFormat.WIRETYPE_MAP);
-            parseSubFieldType(field.getGenericType(), fieldType);
+            parseSubFieldType(genericType, fieldType);
 
         } else if (IntValueMap.class.isAssignableFrom(fieldClass)) {
             fieldType = new FieldType(fieldClass, JavaType.INT_VALUE_MAP, WireFormat.WIRETYPE_MAP);
-            parseSubFieldType(field.getGenericType(), fieldType);
+            parseSubFieldType(genericType, fieldType);
 
         } else if (LongValueMap.class.isAssignableFrom(fieldClass)) {
             fieldType = new FieldType(fieldClass, JavaType.LONG_VALUE_MAP, WireFormat.WIRETYPE_MAP);
-            parseSubFieldType(field.getGenericType(), fieldType);
+            parseSubFieldType(genericType, fieldType);
 
         } else if (FloatValueMap.class.isAssignableFrom(fieldClass)) {
             fieldType = new FieldType(fieldClass, JavaType.FLOAT_VALUE_MAP,
                     WireFormat.WIRETYPE_MAP);
-            parseSubFieldType(field.getGenericType(), fieldType);
+            parseSubFieldType(genericType, fieldType);
 
         } else if (DoubleValueMap.class.isAssignableFrom(fieldClass)) {
             fieldType = new FieldType(fieldClass, JavaType.DOUBLE_VALUE_MAP,
                     WireFormat.WIRETYPE_MAP);
-            parseSubFieldType(field.getGenericType(), fieldType);
+            parseSubFieldType(genericType, fieldType);
+
+        } else if (isPolymorphic(fieldClass)) {
+            SerTypeRegistry.ins().registerSubTypes(fieldClass);
+            fieldType = new FieldType(fieldClass, JavaType.POLY_OBJECT,
+                    WireFormat.WIRETYPE_POLY_OBJECT);
 
         } else {
             fieldType = new FieldType(fieldClass, JavaType.SER_OBJECT,
@@ -331,6 +474,37 @@ class SerClassParser {
         return fieldType;
     }
 
+    /**
+     * 分析{@link Lazy}字段中值的类型
+     *
+     * @param genericType
+     * @param serField
+     * @return
+     */
+    private FieldType parseLazyFieldType(Type genericType, SerField serField) {
+        if (!(genericType instanceof ParameterizedType)) {
+            throw new SerializationException("Unsupported lazy type: " + genericType);
+        }
+        Type valueType = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+        Class<?> valueClass = null;
+        if (valueType instanceof Class) {
+            valueClass = (Class<?>) valueType;
+        } else if (valueType instanceof ParameterizedType) {
+            valueClass = (Class<?>) ((ParameterizedType) valueType).getRawType();
+        }
+        if (valueClass == null || valueClass == Lazy.class) {
+            throw new SerializationException("Unsupported lazy type: " + genericType);
+        }
+
+        FieldType fieldType = parseFieldType(valueClass, valueType, serField);
+        if (!WireFormat.isLengthDelimited(fieldType.getWireType())) {
+            throw new SerializationException(
+                    "Lazy only supports collection, map and serializable object: " + genericType);
+        }
+        serField.setLazy(true);
+        return fieldType;
+    }
+
     /**
      * 分析容器（如list，map等）的子类型
      *
@@ -406,6 +580,24 @@ class SerClassParser {
         } else if (fieldClass == byte[].class) {
             fieldType = new FieldType(fieldClass, JavaType.BYTES, WireFormat.WIRETYPE_BYTES);
 
+        } else if (fieldClass == ByteBuffer.class) {
+            fieldType = new FieldType(fieldClass, JavaType.BYTE_BUFFER, WireFormat.WIRETYPE_BYTES);
+
+        } else if (ByteBuffer.class.isAssignableFrom(fieldClass)) { // 反序列化的结果只能是ByteBuffer
+            throw new SerializationException("Unsupported ByteBuffer type: " + fieldClass);
+
+        } else if (fieldClass == int[].class) {
+            fieldType = new FieldType(fieldClass, JavaType.INT_ARRAY, WireFormat.WIRETYPE_BYTES);
+
+        } else if (fieldClass == long[].class) {
+            fieldType = new FieldType(fieldClass, JavaType.LONG_ARRAY, WireFormat.WIRETYPE_BYTES);
+
+        } else if (fieldClass == float[].class) {
+            fieldType = new FieldType(fieldClass, JavaType.FLOAT_ARRAY, WireFormat.WIRETYPE_BYTES);
+
+        } else if (fieldClass == double[].class) {
+            fieldType = new FieldType(fieldClass, JavaType.DOUBLE_ARRAY, WireFormat.WIRETYPE_BYTES);
+
         } else if (fieldClass == String.class) {
             fieldType = new FieldType(fieldClass, JavaType.STRING, WireFormat.WIRETYPE_BYTES);
 
@@ -454,15 +646,28 @@ class SerClassParser {
                     WireFormat.WIRETYPE_MAP);
             parseSubFieldType(type, fieldType);
 
+        } else if (isPolymorphic(fieldClass)) {
+            SerTypeRegistry.ins().registerSubTypes(fieldClass);
+            fieldType = new FieldType(fieldClass, JavaType.POLY_OBJECT,
+                    WireFormat.WIRETYPE_POLY_OBJECT);
+
         } else {
             fieldType = new FieldType(fieldClass, JavaType.SER_OBJECT,
                     WireFormat.WIRETYPE_SER_OBJECT);
 
         }
+        fieldType.setCodec(ValueCodec.forElement(fieldType));
 
         return fieldType;
     }
 
+    /**
+     * 接口或者抽象类，具体的类型通过{@link SerTypeRegistry}确定
+     */
+    private boolean isPolymorphic(Class<?> fieldClass) {
+        return fieldClass.isInterface() || Modifier.isAbstract(fieldClass.getModifiers());
+    }
+
     private boolean checkMethodModifier(int modifiers) {
         if (Modifier.isStatic(modifiers)) {
             return false;
@@ -476,6 +681,13 @@ class SerClassParser {
         return true;
     }
 
+    private Consumer<Object> hook(Method method) {
+        if (method == null) {
+            return null;
+        }
+        return AccessorGenerator.generateHook(method);
+    }
+
     private Method findMethods(Class<?> clazz, Class<? extends Annotation> annoType) {
         Method[] methods = clazz.getDeclaredMethods();
         Method method = null;
@@ -0,0 +1,23 @@
+package io.jpower.sgf.ser;
+
+import java.util.ServiceLoader;
+
+import io.jpower.sgf.ser.annotation.Serializable;
+
+/**
+ * 提供一个可序列化类的{@link SerClassDefinition}
+ * <p>
+ * <ul>
+ * <li>sgf-ser-processor会在编译期为每个有{@link Serializable}注解的类生成一个实现，
+ * 并写到<code>META-INF/services/io.jpower.sgf.ser.SerClassProvider</code>中</li>
+ * <li>{@link Ser}初始化时会通过{@link ServiceLoader}加载所有的实现，这些类就不需要在运行时通过反射来分析了</li>
+ * <li>没有注册的类仍然会在第一次使用时通过反射来分析</li>
+ * </ul>
+ *
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+public interface SerClassProvider {
+
+    SerClassDefinition<?> define();
+
+}
@@ -9,9 +9,34 @@ class SerContext {
 
     private final int containerSizeLimit;
 
+    /**
+     * collection、map、serializable object的值前面是否写入字节长度
+     */
+    private final boolean lengthDelimited;
+
+    /**
+     * 是否使用字符串表
+     */
+    private final boolean stringTable;
+
+    /**
+     * 正在写入的字符串表，为null时字符串直接写入
+     */
+    private StringTable strings;
+
     SerContext(CodedWriter writer, int containerSizeLimit) {
+        this(writer, containerSizeLimit, false);
+    }
+
+    SerContext(CodedWriter writer, int containerSizeLimit, boolean lengthDelimited) {
+        this(writer, containerSizeLimit, lengthDelimited, false);
+    }
+
+    SerContext(CodedWriter writer, int containerSizeLimit, boolean lengthDelimited, boolean stringTable) {
         this.writer = writer;
         this.containerSizeLimit = containerSizeLimit;
+        this.lengthDelimited = lengthDelimited;
+        this.stringTable = stringTable;
     }
 
     CodedWriter getWriter() {
@@ -22,4 +47,20 @@ class SerContext {
         return containerSizeLimit;
     }
 
+    boolean isLengthDelimited() {
+        return lengthDelimited;
+    }
+
+    boolean isStringTable() {
+        return stringTable;
+    }
+
+    StringTable getStrings() {
+        return strings;
+    }
+
+    void setStrings(StringTable strings) {
+        this.strings = strings;
+    }
+
 }
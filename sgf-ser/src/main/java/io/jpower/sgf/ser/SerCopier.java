@@ -0,0 +1,270 @@
+package io.jpower.sgf.ser;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import io.jpower.sgf.collection.DoubleValueMap;
+import io.jpower.sgf.collection.FloatValueMap;
+import io.jpower.sgf.collection.IntIterator;
+import io.jpower.sgf.collection.IntMap;
+import io.jpower.sgf.collection.IntSet;
+import io.jpower.sgf.collection.IntValueMap;
+import io.jpower.sgf.collection.LongIterator;
+import io.jpower.sgf.collection.LongMap;
+import io.jpower.sgf.collection.LongSet;
+import io.jpower.sgf.collection.LongValueMap;
+
+/**
+ * 按照{@link SerClass}的信息直接复制对象，不经过编码和解码
+ * <p>
+ * 结果和序列化后再反序列化相同：只复制序列化的字段，容器按照和反序列化相同的方式创建，会调用序列化和反序列化的before和after方法
+ *
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+class SerCopier {
+
+    Object copy(Object obj) {
+        SerClass serClass = SerClassParser.ins().parse(obj.getClass());
+        return copySerObject(obj, serClass);
+    }
+
+    private Object copySerObject(Object obj, SerClass serClass) {
+        callHook(serClass.getBeforeSer(), obj);
+        Object copy = serClass.newInstance();
+        callHook(serClass.getBeforeDeser(), copy);
+
+        for (SerField serField : serClass.getFieldArray()) {
+            copyField(obj, copy, serField);
+        }
+
+        callHook(serClass.getAfterSer(), obj);
+        callHook(serClass.getAfterDeser(), copy);
+        return copy;
+    }
+
+    private void callHook(Consumer<Object> hook, Object obj) {
+        if (hook != null) {
+            hook.accept(obj);
+        }
+    }
+
+    private void copyField(Object obj, Object copy, SerField serField) {
+        FieldType type = serField.getType();
+        FieldAccessor accessor = serField.getAccessor();
+        if (type.isPrimitive()) {
+            copyPrimitiveField(obj, copy, accessor, type);
+            return;
+        }
+        Object value = accessor.get(obj);
+        if (value == null) { // 和反序列化相同，保留字段的默认值
+            return;
+        }
+        if (serField.isLazy()) {
+            Lazy<?> lazy = (Lazy<?>) value;
+            // 还没有解码时共用原始字节
+            value = lazy.isDecoded() ? Lazy.of(copyValue(serField.getDeSerClazz(), type, lazy.get())) :
+                    lazy.duplicate();
+        } else {
+            value = copyValue(serField.getDeSerClazz(), type, value);
+        }
+        accessor.set(copy, value);
+    }
+
+    private void copyPrimitiveField(Object obj, Object copy, FieldAccessor accessor, FieldType type) {
+        switch (type.getJavaType()) {
+            case BYTE:
+                accessor.setByte(copy, accessor.getByte(obj));
+                break;
+            case CHAR:
+                accessor.setChar(copy, accessor.getChar(obj));
+                break;
+            case SHORT:
+                accessor.setShort(copy, accessor.getShort(obj));
+                break;
+            case INT:
+                accessor.setInt(copy, accessor.getInt(obj));
+                break;
+            case LONG:
+                accessor.setLong(copy, accessor.getLong(obj));
+                break;
+            case FLOAT:
+                accessor.setFloat(copy, accessor.getFloat(obj));
+                break;
+            case DOUBLE:
+                accessor.setDouble(copy, accessor.getDouble(obj));
+                break;
+            case BOOL:
+                accessor.setBool(copy, accessor.getBool(obj));
+                break;
+            default:
+                throw new SerializationException("Unsupported type: " + type);
+        }
+    }
+
+    /**
+     * @param clazz 字段指定的容器类型，容器中的元素为null，使用默认类型
+     * @param type
+     * @param value
+     * @return
+     */
+    private Object copyValue(Class<?> clazz, FieldType type, Object value) {
+        if (value == null) {
+            return null;
+        }
+        switch (type.getJavaType()) {
+            case BYTES:
+                return ((byte[]) value).clone();
+            case BYTE_BUFFER:
+                return copyByteBuffer((ByteBuffer) value);
+            case INT_ARRAY:
+                return ((int[]) value).clone();
+            case LONG_ARRAY:
+                return ((long[]) value).clone();
+            case FLOAT_ARRAY:
+                return ((float[]) value).clone();
+            case DOUBLE_ARRAY:
+                return ((double[]) value).clone();
+            case LIST:
+                return copyList(clazz, type, (List<?>) value);
+            case SET:
+                return copySet(clazz, type, (Set<?>) value);
+            case INT_SET:
+                return copyIntSet(clazz, (IntSet) value);
+            case LONG_SET:
+                return copyLongSet(clazz, (LongSet) value);
+            case MAP:
+                return copyMap(clazz, type, (Map<?, ?>) value);
+            case INT_MAP:
+                return copyIntMap(clazz, type, (IntMap<?>) value);
+            case LONG_MAP:
+                return copyLongMap(clazz, type, (LongMap<?>) value);
+            case INT_VALUE_MAP:
+                return copyIntValueMap(clazz, type, (IntValueMap<?>) value);
+            case LONG_VALUE_MAP:
+                return copyLongValueMap(clazz, type, (LongValueMap<?>) value);
+            case FLOAT_VALUE_MAP:
+                return copyFloatValueMap(clazz, type, (FloatValueMap<?>) value);
+            case DOUBLE_VALUE_MAP:
+                return copyDoubleValueMap(clazz, type, (DoubleValueMap<?>) value);
+            case SER_OBJECT:
+                return copySerObject(value, SerClassParser.ins().parse(type.getRawType()));
+            case POLY_OBJECT:
+                return copySerObject(value, SerClassParser.ins().parse(value.getClass()));
+            default: // 基本类型的包装类型、枚举、字符串都是不可变的
+                return value;
+        }
+    }
+
+    /**
+     * 和反序列化一样，返回只读的buffer
+     */
+    private ByteBuffer copyByteBuffer(ByteBuffer value) {
+        byte[] bytes = new byte[value.remaining()];
+        value.duplicate().get(bytes);
+        return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
+
+    private List<?> copyList(Class<?> clazz, FieldType type, List<?> value) {
+        FieldType subType = type.getSubTypes().get(0);
+        List<Object> copy = SerReader.createList(clazz, value.size());
+        for (Object e : value) {
+            copy.add(copyValue(null, subType, e));
+        }
+        return copy;
+    }
+
+    private Set<?> copySet(Class<?> clazz, FieldType type, Set<?> value) {
+        FieldType subType = type.getSubTypes().get(0);
+        Set<Object> copy = SerReader.createSet(clazz, type, value.size());
+        for (Object e : value) {
+            copy.add(copyValue(null, subType, e));
+        }
+        return copy;
+    }
+
+    private IntSet copyIntSet(Class<?> clazz, IntSet value) {
+        IntSet copy = SerReader.createIntSet(clazz, value.size());
+        IntIterator itr = value.iterator();
+        while (itr.hasNext()) {
+            copy.add(itr.next());
+        }
+        return copy;
+    }
+
+    private LongSet copyLongSet(Class<?> clazz, LongSet value) {
+        LongSet copy = SerReader.createLongSet(clazz, value.size());
+        LongIterator itr = value.iterator();
+        while (itr.hasNext()) {
+            copy.add(itr.next());
+        }
+        return copy;
+    }
+
+    private Map<?, ?> copyMap(Class<?> clazz, FieldType type, Map<?, ?> value) {
+        FieldType keyType = type.getSubTypes().get(0);
+        FieldType valueType = type.getSubTypes().get(1);
+        Map<Object, Object> copy = SerReader.createMap(clazz, type, value.size());
+        for (Map.Entry<?, ?> e : value.entrySet()) {
+            copy.put(copyValue(null, keyType, e.getKey()), copyValue(null, valueType, e.getValue()));
+        }
+        return copy;
+    }
+
+    private IntMap<?> copyIntMap(Class<?> clazz, FieldType type, IntMap<?> value) {
+        FieldType valueType = type.getSubTypes().get(0);
+        IntMap<Object> copy = SerReader.createIntMap(clazz, value.size());
+        for (IntMap.Entry<?> e : value.entrySet()) {
+            copy.put(e.getKey(), copyValue(null, valueType, e.getValue()));
+        }
+        return copy;
+    }
+
+    private LongMap<?> copyLongMap(Class<?> clazz, FieldType type, LongMap<?> value) {
+        FieldType valueType = type.getSubTypes().get(0);
+        LongMap<Object> copy = SerReader.createLongMap(clazz, value.size());
+        for (LongMap.Entry<?> e : value.entrySet()) {
+            copy.put(e.getKey(), copyValue(null, valueType, e.getValue()));
+        }
+        return copy;
+    }
+
+    private IntValueMap<?> copyIntValueMap(Class<?> clazz, FieldType type, IntValueMap<?> value) {
+        FieldType keyType = type.getSubTypes().get(0);
+        IntValueMap<Object> copy = SerReader.createIntValueMap(clazz, value.size());
+        for (IntValueMap.Entry<?> e : value.entrySet()) {
+            copy.put(copyValue(null, keyType, e.getKey()), e.getValue());
+        }
+        return copy;
+    }
+
+    private LongValueMap<?> copyLongValueMap(Class<?> clazz, FieldType type, LongValueMap<?> value) {
+        FieldType keyType = type.getSubTypes().get(0);
+        LongValueMap<Object> copy = SerReader.createLongValueMap(clazz, value.size());
+        for (LongValueMap.Entry<?> e : value.entrySet()) {
+            copy.put(copyValue(null, keyType, e.getKey()), e.getValue());
+        }
+        return copy;
+    }
+
+    private FloatValueMap<?> copyFloatValueMap(Class<?> clazz, FieldType type, FloatValueMap<?> value) {
+        FieldType keyType = type.getSubTypes().get(0);
+        FloatValueMap<Object> copy = SerReader.createFloatValueMap(clazz, value.size());
+        for (FloatValueMap.Entry<?> e : value.entrySet()) {
+            copy.put(copyValue(null, keyType, e.getKey()), e.getValue());
+        }
+        return copy;
+    }
+
+    private DoubleValueMap<?> copyDoubleValueMap(Class<?> clazz, FieldType type, DoubleValueMap<?> value) {
+        FieldType keyType = type.getSubTypes().get(0);
+        DoubleValueMap<Object> copy = SerReader.createDoubleValueMap(clazz, value.size());
+        for (DoubleValueMap.Entry<?> e : value.entrySet()) {
+            copy.put(copyValue(null, keyType, e.getKey()), e.getValue());
+        }
+        return copy;
+    }
+
+}
@@ -0,0 +1,20 @@
+package io.jpower.sgf.ser;
+
+/**
+ * 流式反序列化时逐个接收元素，见{@link Ser#deserializeElements(java.io.InputStream, Class, SerElementVisitor)}
+ *
+ * @param <T>
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+@FunctionalInterface
+public interface SerElementVisitor<T> {
+
+    /**
+     * 接收一个元素，元素解码后就不再被引用
+     *
+     * @param element
+     * @return 是否继续读取，返回false时停止，后面的数据不会被读取
+     */
+    boolean visit(T element);
+
+}
@@ -21,7 +21,12 @@ class SerField {
     private FieldType type;
 
     /**
-     * Filed
+     * 字段名
+     */
+    private String name;
+
+    /**
+     * Filed，通过{@link SerClassDefinition}定义并且不需要直接访问字段时为null
      */
     private Field field;
 
@@ -50,10 +55,35 @@ class SerField {
      */
     private Class<?> deSerClazz;
 
-    SerField(Field field) {
+    /**
+     * 用来读写字段的值
+     */
+    private FieldAccessor accessor;
+
+    /**
+     * 字段声明为{@link Lazy}，这时{@link #type}是Lazy中值的类型
+     */
+    private boolean lazy;
+
+    /**
+     * 在{@link SerClass#getFieldArray()}中的位置
+     */
+    private int index;
+
+    /**
+     * 字段的编码和解码
+     */
+    private FieldCodec codec;
+
+    SerField(String name, Field field) {
+        this.name = name;
         this.field = field;
     }
 
+    String getName() {
+        return name;
+    }
+
     Field getField() {
         return field;
     }
@@ -114,11 +144,43 @@ class SerField {
         this.deSerClazz = deSerClazz;
     }
 
+    FieldAccessor getAccessor() {
+        return accessor;
+    }
+
+    void setAccessor(FieldAccessor accessor) {
+        this.accessor = accessor;
+    }
+
+    boolean isLazy() {
+        return lazy;
+    }
+
+    void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    void setIndex(int index) {
+        this.index = index;
+    }
+
+    FieldCodec getCodec() {
+        return codec;
+    }
+
+    void setCodec(FieldCodec codec) {
+        this.codec = codec;
+    }
+
     @Override
     public String toString() {
-        return "SerField [number=" + number + ", type=" + type + ", field=" + field + ", getter="
+        return "SerField [number=" + number + ", name=" + name + ", type=" + type + ", field=" + field + ", getter="
                 + getter + ", setter=" + setter + ", intern=" + intern + ", intEncodeType="
-                + intEncodeType + ", deSerClazz=" + deSerClazz + "]";
+                + intEncodeType + ", deSerClazz=" + deSerClazz + ", lazy=" + lazy + "]";
     }
 
 }
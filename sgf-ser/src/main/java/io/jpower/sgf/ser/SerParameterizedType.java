@@ -0,0 +1,72 @@
+package io.jpower.sgf.ser;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * {@link SerClassDefinition}中用来描述容器字段泛型类型的{@link ParameterizedType}
+ * <p>
+ * equals和hashCode与jdk的实现保持一致，可以和反射得到的类型共用{@link SerClassParser}中的缓存
+ *
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+final class SerParameterizedType implements ParameterizedType {
+
+    private final Class<?> rawType;
+
+    private final Type[] typeArguments;
+
+    SerParameterizedType(Class<?> rawType, Type[] typeArguments) {
+        this.rawType = Objects.requireNonNull(rawType, "rawType");
+        this.typeArguments = typeArguments.clone();
+    }
+
+    @Override
+    public Type[] getActualTypeArguments() {
+        return typeArguments.clone();
+    }
+
+    @Override
+    public Type getRawType() {
+        return rawType;
+    }
+
+    @Override
+    public Type getOwnerType() {
+        return rawType.getDeclaringClass();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ParameterizedType)) return false;
+
+        ParameterizedType that = (ParameterizedType) o;
+
+        return Objects.equals(getOwnerType(), that.getOwnerType())
+                && Objects.equals(rawType, that.getRawType())
+                && Arrays.equals(typeArguments, that.getActualTypeArguments());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(typeArguments) ^ Objects.hashCode(getOwnerType()) ^ Objects.hashCode(rawType);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(rawType.getName());
+        sb.append('<');
+        for (int i = 0; i < typeArguments.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(typeArguments[i].getTypeName());
+        }
+        sb.append('>');
+        return sb.toString();
+    }
+
+}
@@ -5,8 +5,7 @@ import static io.jpower.sgf.ser.WireFormat.FIXED_32_SIZE;
 import static io.jpower.sgf.ser.WireFormat.FIXED_64_SIZE;
 
 import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.EnumSet;
@@ -14,7 +13,9 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import io.jpower.sgf.collection.DoubleValueHashMap;
 import io.jpower.sgf.collection.DoubleValueMap;
@@ -44,490 +45,471 @@ class SerReader {
 
     private static final Logger log = LoggerFactory.getLogger(SerReader.class);
 
+    /**
+     * 不知道剩余字节数时（比如从流中读取），创建容器的初始容量不超过这个值，避免错误的数据导致分配过大的内存
+     */
+    private static final int MAX_INITIAL_CAPACITY = 4096;
+
+    /**
+     * 自定义容器类型的(int initialCapacity)构造方法，没有时为null
+     */
+    private static final ClassValue<Constructor<?>> CAPACITY_CONSTRUCTOR = new ClassValue<Constructor<?>>() {
+
+        @Override
+        protected Constructor<?> computeValue(Class<?> type) {
+            try {
+                return type.getConstructor(int.class);
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+
+    };
+
     <T> T read(DeserContext ctx, Class<T> clazz) {
+        return read(ctx, clazz, null);
+    }
+
+    /**
+     * @param ctx
+     * @param clazz
+     * @param projection 只解码这些字段，其他的直接跳过，为null时解码所有字段
+     * @return
+     */
+    <T> T read(DeserContext ctx, Class<T> clazz, IntSet projection) {
         SerClass serClass = SerClassParser.ins().parse(clazz);
+        int tag = readFirstTag(ctx);
         @SuppressWarnings("unchecked")
-        T obj = (T) readSerObject(ctx, serClass);
+        T obj = (T) readSerObject(ctx, serClass, tag, projection);
         return obj;
     }
 
-    private Object readSerObject(DeserContext ctx, SerClass serClass) {
-        // 构建对象
-        Object obj = null;
-        try {
-            obj = serClass.getConstructor().newInstance(Utils.EMPTY_OBJS);
-        } catch (Exception e) {
-            throw JavaUtils.sneakyThrow(e);
+    /**
+     * 解码到已有的对象中，重用其中类型相同的容器和对象，重用的对象中数据中没有的字段设为null，新建的对象保留字段的默认值
+     *
+     * @param ctx
+     * @param obj
+     */
+    void readInto(DeserContext ctx, Object obj) {
+        SerClass serClass = SerClassParser.ins().parse(obj.getClass());
+        int tag = readFirstTag(ctx);
+        ctx.setMerge(true);
+        readSerObject(ctx, serClass, obj, tag, null);
+    }
+
+    /**
+     * 流式读取元素，每解码一个就交给visitor，格式见{@link SerWriter#writeElements(SerContext, java.util.Iterator)}
+     *
+     * @param ctx
+     * @param clazz
+     * @param visitor
+     */
+    <T> void readElements(DeserContext ctx, Class<T> clazz, SerElementVisitor<? super T> visitor) {
+        SerClass serClass = SerClassParser.ins().parse(clazz);
+        readFormat(ctx);
+        CodedReader reader = ctx.getReader();
+        for (int count = reader.readInt32(); count != 0; count = reader.readInt32()) {
+            if (count < 0) {
+                throw new SerializationException("Chunk size < 0: " + count);
+            }
+            for (int i = 0; i < count; i++) {
+                if (ctx.isLengthDelimited()) {
+                    reader.readRawVarint32(); // 字节长度，读取时用不到
+                }
+                @SuppressWarnings("unchecked")
+                T element = (T) readSerObject(ctx, serClass);
+                if (!visitor.visit(element)) {
+                    return;
+                }
+            }
         }
+    }
 
-        // 调用before方法
-        Method beforeDeserMethod = serClass.getBeforeDeserMethod();
-        if (beforeDeserMethod != null) {
-            Utils.invoke(beforeDeserMethod, obj, Utils.EMPTY_OBJS);
-        }
+    /**
+     * 将增量数据或者补丁合并到obj中，格式见{@link SerWriter#writeDelta(SerContext, Object, Object)}和{@link
+     * SerWriter#writePatch(SerContext, Object, Object)}
+     *
+     * @param ctx
+     * @param obj
+     */
+    void readDelta(DeserContext ctx, Object obj) {
+        SerClass serClass = SerClassParser.ins().parse(obj.getClass());
+        int tag = readFirstTag(ctx);
+        readDelta(ctx, serClass, obj, tag);
+    }
 
-        CodedReader reader = ctx.getReader();
+    private void readDelta(DeserContext ctx, SerClass serClass, Object obj, int tag) {
+        callHook(serClass.getBeforeDeser(), obj);
+        readFields(ctx, serClass, obj, tag, null);
 
-        // 解码字段
-        while (true) {
-            int tag = reader.readTag();
-            int fieldNumber = WireFormat.getTagFieldNumber(tag);
-            if (fieldNumber == 0) { // 0表示结束
-                break;
-            }
-            int wireType = WireFormat.getTagWireType(tag);
+        // 变为null的字段
+        CodedReader reader = ctx.getReader();
+        int clearedSize = reader.readInt32();
+        for (int i = 0; i < clearedSize; i++) {
+            int fieldNumber = reader.readInt32();
             SerField serField = serClass.getField(fieldNumber);
             if (serField == null) {
                 if (log.isWarnEnabled()) {
-                    log.warn("Not found field. fieldNumber={}, class={}", fieldNumber,
-                            serClass.getClazz());
+                    log.warn("Not found field. fieldNumber={}, class={}", fieldNumber, serClass.getClazz());
                 }
-                skip(ctx, wireType); // 不匹配，跳过
                 continue;
             }
-            if (wireType != serField.getType().getWireType()) {
-                log.warn("WireType mismatch. Data type={}, Field type={}, Field={}", wireType,
-                        serField.getType().getWireType(), serField);
-                skip(ctx, wireType); // 不匹配，跳过
-                continue;
-            }
-            try {
-                readField(ctx, obj, serField);
-            } catch (Exception e) {
-                throw new SerializationException("Error while reading the field. Field=" + serField, e);
+            if (!serField.getType().isPrimitive()) {
+                serField.getAccessor().set(obj, null);
             }
         }
+        callHook(serClass.getAfterDeser(), obj);
+    }
 
-        // 调用after方法
-        Method afterDeserMethod = serClass.getAfterDeserMethod();
-        if (afterDeserMethod != null) {
-            Utils.invoke(afterDeserMethod, obj, Utils.EMPTY_OBJS);
+    /**
+     * 读取第一个tag，如果有数据格式头先处理格式头
+     */
+    private int readFirstTag(DeserContext ctx) {
+        CodedReader reader = ctx.getReader();
+        int tag = reader.readTag();
+        if (tag == WireFormat.FORMAT_TAG) { // 有数据格式头
+            readFormat(ctx);
+            tag = reader.readTag();
         }
-
-        return obj;
+        return tag;
     }
 
-    private void readField(DeserContext ctx, Object obj, SerField serField) {
-        if (serField.getType().isPrimitive()) {
-            readPrimitiveField(ctx, obj, serField);
-        } else {
-            readObjectField(ctx, obj, serField);
+    private void readFormat(DeserContext ctx) {
+        int format = ctx.getReader().readFixed8() & 0xFF;
+        if ((format & ~(WireFormat.FORMAT_LENGTH_DELIMITED | WireFormat.FORMAT_STRING_TABLE)) != 0) {
+            throw new SerializationException("Unsupported format: " + format);
+        }
+        ctx.setLengthDelimited((format & WireFormat.FORMAT_LENGTH_DELIMITED) != 0);
+        if ((format & WireFormat.FORMAT_STRING_TABLE) != 0) {
+            readStringTable(ctx);
         }
     }
 
-    private void readObjectField(DeserContext ctx, Object obj, SerField serField) {
-        FieldType fieldType = serField.getType();
-        switch (fieldType.getJavaType()) {
-            case BYTE:
-                setValue(obj, serField, readByte(ctx, serField));
-                break;
-            case CHAR:
-                setValue(obj, serField, readChar(ctx, serField));
-                break;
-            case SHORT:
-                setValue(obj, serField, readShort(ctx, serField));
-                break;
-            case INT:
-                setValue(obj, serField, readInt(ctx, serField));
-                break;
-            case LONG:
-                setValue(obj, serField, readLong(ctx, serField));
-                break;
-
-            case FLOAT:
-                setValue(obj, serField, readFloat(ctx, serField));
-                break;
-
-            case DOUBLE:
-                setValue(obj, serField, readDouble(ctx, serField));
-                break;
-
-            case BOOL:
-                setValue(obj, serField, readBool(ctx, serField));
-                break;
-
-            case ENUM:
-                Enum<?> enumValue = readEnum(ctx, serField);
-                if (enumValue != null) {
-                    setValue(obj, serField, enumValue);
-                }
-                break;
-
-            case BYTES:
-                setValue(obj, serField, readBytes(ctx, serField));
-                break;
-
-            case STRING:
-                setValue(obj, serField, readString(ctx, serField));
-                break;
-
-            case LIST:
-                List<?> listValue = readList(ctx, serField);
-                if (listValue != null) {
-                    setValue(obj, serField, listValue);
-                }
-                break;
-
-            case SET:
-                Set<?> setValue = readSet(ctx, serField);
-                if (setValue != null) {
-                    setValue(obj, serField, setValue);
-                }
-                break;
-
-            case INT_SET:
-                IntSet intSetValue = readIntSet(ctx, serField);
-                if (intSetValue != null) {
-                    setValue(obj, serField, intSetValue);
-                }
-                break;
-
-            case LONG_SET:
-                LongSet longSetValue = readLongSet(ctx, serField);
-                if (longSetValue != null) {
-                    setValue(obj, serField, longSetValue);
-                }
-                break;
-
-            case MAP:
-                Map<?, ?> mapValue = readMap(ctx, serField);
-                if (mapValue != null) {
-                    setValue(obj, serField, mapValue);
-                }
-                break;
-
-            case INT_MAP:
-                IntMap<?> intMapValue = readIntMap(ctx, serField);
-                if (intMapValue != null) {
-                    setValue(obj, serField, intMapValue);
-                }
-                break;
-
-            case LONG_MAP:
-                LongMap<?> longMapValue = readLongMap(ctx, serField);
-                if (longMapValue != null) {
-                    setValue(obj, serField, longMapValue);
-                }
-                break;
-
-            case INT_VALUE_MAP:
-                IntValueMap<?> intValueMapValue = readIntValueMap(ctx, serField);
-                if (intValueMapValue != null) {
-                    setValue(obj, serField, intValueMapValue);
-                }
-                break;
-
-            case LONG_VALUE_MAP:
-                LongValueMap<?> longValueMapValue = readLongValueMap(ctx, serField);
-                if (longValueMapValue != null) {
-                    setValue(obj, serField, longValueMapValue);
-                }
-                break;
-
-            case FLOAT_VALUE_MAP:
-                FloatValueMap<?> floatValueMapValue = readFloatValueMap(ctx, serField);
-                if (floatValueMapValue != null) {
-                    setValue(obj, serField, floatValueMapValue);
-                }
-                break;
-
-            case DOUBLE_VALUE_MAP:
-                DoubleValueMap<?> doubleValueMapValue = readDoubleValueMap(ctx, serField);
-                if (doubleValueMapValue != null) {
-                    setValue(obj, serField, doubleValueMapValue);
-                }
-                break;
-
-            case SER_OBJECT:
-                Object serObjValue = readSerObject(ctx, serField);
-                if (serObjValue != null) {
-                    setValue(obj, serField, serObjValue);
-                }
-                break;
-
-            default:
-                throw new SerializationException("Unsupported type: " + fieldType);
+    private void readStringTable(DeserContext ctx) {
+        CodedReader reader = ctx.getReader();
+        int size = reader.readInt32(); // 数量
+        List<String> strings = new ArrayList<>(checkContainerSize(ctx, size, null));
+        for (int i = 0; i < size; i++) {
+            strings.add(reader.readString(reader.readInt32()));
         }
+        ctx.setStrings(strings.toArray(new String[0]));
     }
 
-    private void readPrimitiveField(DeserContext ctx, Object obj, SerField serField) {
-        FieldType fieldType = serField.getType();
-        switch (fieldType.getJavaType()) {
-            case BYTE:
-                setByteValue(obj, serField, readByte(ctx, serField));
-                break;
-            case CHAR:
-                setCharValue(obj, serField, readChar(ctx, serField));
-                break;
-            case SHORT:
-                setShortValue(obj, serField, readShort(ctx, serField));
-                break;
-            case INT:
-                setIntValue(obj, serField, readInt(ctx, serField));
-                break;
-            case LONG:
-                setLongValue(obj, serField, readLong(ctx, serField));
-                break;
+    private Object readSerObject(DeserContext ctx, SerClass serClass) {
+        return readSerObject(ctx, serClass, ctx.getReader().readTag(), null);
+    }
 
-            case FLOAT:
-                setFloatValue(obj, serField, readFloat(ctx, serField));
-                break;
+    private Object readSerObject(DeserContext ctx, SerClass serClass, int firstTag, IntSet projection) {
+        // 构建对象
+        Object obj = serClass.newInstance();
+        boolean merge = ctx.isMerge();
+        if (merge) { // 新建的对象没有可以重用的内容，按普通的反序列化处理，保留字段的默认值
+            ctx.setMerge(false);
+        }
+        readSerObject(ctx, serClass, obj, firstTag, projection);
+        ctx.setMerge(merge);
+        return obj;
+    }
 
-            case DOUBLE:
-                setDoubleValue(obj, serField, readDouble(ctx, serField));
-                break;
+    private void readSerObject(DeserContext ctx, SerClass serClass, Object obj, int firstTag, IntSet projection) {
+        // 调用before方法
+        callHook(serClass.getBeforeDeser(), obj);
 
-            case BOOL:
-                setBoolValue(obj, serField, readBool(ctx, serField));
-                break;
+        readFields(ctx, serClass, obj, firstTag, projection);
 
-            default:
-                throw new SerializationException("Unsupported type: " + fieldType);
-        }
+        // 调用after方法
+        callHook(serClass.getAfterDeser(), obj);
     }
 
-    /* ########## setValue ########## */
+    private void readFields(DeserContext ctx, SerClass serClass, Object obj, int firstTag, IntSet projection) {
+        CodedReader reader = ctx.getReader();
+        SerField[] serFields = serClass.getFieldArray();
+        int expected = 0; // 下一个期望的字段，数据按字段顺序写入时不需要查找
+        int next = 0; // 合并时，在这之前没有出现的字段已经设为null
+        ctx.enterNested();
 
-    private void setValue(Object obj, SerField serField, Object value) {
-        Method setter = serField.getSetter();
-        if (setter != null) {
-            try {
-                setter.invoke(obj, value);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
+        // 解码字段
+        for (int tag = firstTag; ; tag = reader.readTag()) {
+            int fieldNumber = WireFormat.getTagFieldNumber(tag);
+            if (fieldNumber == 0) { // 0表示结束
+                break;
             }
-        } else {
-            Field field = serField.getField();
-            try {
-                field.set(obj, value);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
+            int wireType = WireFormat.getTagWireType(tag);
+            if (projection != null && !projection.contains(fieldNumber)) {
+                skip(ctx, wireType); // 不需要的字段，跳过
+                continue;
             }
-        }
-    }
-
-    private void setByteValue(Object obj, SerField serField, byte value) {
-        Method setter = serField.getSetter();
-        if (setter != null) {
-            try {
-                setter.invoke(obj, value);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
+            SerField serField;
+            if (expected < serFields.length && serFields[expected].getNumber() == fieldNumber) {
+                serField = serFields[expected];
+            } else {
+                serField = serClass.getField(fieldNumber);
+                if (serField == null) {
+                    if (log.isWarnEnabled()) {
+                        log.warn("Not found field. fieldNumber={}, class={}", fieldNumber,
+                                serClass.getClazz());
+                    }
+                    skip(ctx, wireType); // 不匹配，跳过
+                    continue;
+                }
             }
-        } else {
-            Field field = serField.getField();
-            try {
-                field.setByte(obj, value);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
+            expected = serField.getIndex() + 1;
+            if (wireType != serField.getType().getWireType()) {
+                if (wireType == WireFormat.WIRETYPE_PATCH) { // 补丁
+                    if (ctx.isLengthDelimited()) {
+                        reader.readRawVarint32(); // 字节长度，读取时用不到
+                    }
+                    readFieldPatch(ctx, obj, serField);
+                    continue;
+                }
+                log.warn("WireType mismatch. Data type={}, Field type={}, Field={}", wireType,
+                        serField.getType().getWireType(), serField);
+                skip(ctx, wireType); // 不匹配，跳过
+                continue;
             }
-        }
-    }
-
-    private void setCharValue(Object obj, SerField serField, char value) {
-        Method setter = serField.getSetter();
-        if (setter != null) {
-            try {
-                setter.invoke(obj, value);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
+            if (ctx.isMerge() && serField.getIndex() >= next) {
+                clearFields(serFields, obj, next, serField.getIndex());
+                next = serField.getIndex() + 1;
             }
-        } else {
-            Field field = serField.getField();
-            try {
-                field.setChar(obj, value);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
+            if (serField.isLazy()) {
+                serField.getAccessor().set(obj, readLazyField(ctx, serField, wireType));
+                continue;
             }
-        }
-    }
-
-    private void setShortValue(Object obj, SerField serField, short value) {
-        Method setter = serField.getSetter();
-        if (setter != null) {
-            try {
-                setter.invoke(obj, value);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
+            if (ctx.isLengthDelimited() && WireFormat.isLengthDelimited(wireType)) {
+                reader.readRawVarint32(); // 字节长度，读取时用不到
             }
-        } else {
-            Field field = serField.getField();
             try {
-                field.setShort(obj, value);
+                readField(ctx, obj, serField);
             } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
+                throw new SerializationException("Error while reading the field. Field=" + serField, e);
             }
         }
-    }
-
-    private void setIntValue(Object obj, SerField serField, int value) {
-        Method setter = serField.getSetter();
-        if (setter != null) {
-            try {
-                setter.invoke(obj, value);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
-            }
-        } else {
-            Field field = serField.getField();
-            try {
-                field.setInt(obj, value);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
-            }
+        if (ctx.isMerge()) {
+            clearFields(serFields, obj, next, serFields.length);
         }
+        ctx.exitNested();
     }
 
-    private void setLongValue(Object obj, SerField serField, long value) {
-        Method setter = serField.getSetter();
-        if (setter != null) {
-            try {
-                setter.invoke(obj, value);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
-            }
-        } else {
-            Field field = serField.getField();
-            try {
-                field.setLong(obj, value);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
+    /**
+     * 合并时数据中没有的字段设为null，基本类型的字段保持原值
+     */
+    private void clearFields(SerField[] serFields, Object obj, int from, int to) {
+        for (int i = from; i < to; i++) {
+            SerField serField = serFields[i];
+            if (!serField.getType().isPrimitive()) {
+                serField.getAccessor().set(obj, null);
             }
         }
     }
 
-    private void setFloatValue(Object obj, SerField serField, float value) {
-        Method setter = serField.getSetter();
-        if (setter != null) {
-            try {
-                setter.invoke(obj, value);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
-            }
-        } else {
-            Field field = serField.getField();
-            try {
-                field.setFloat(obj, value);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
-            }
+    private void callHook(Consumer<Object> hook, Object obj) {
+        if (hook != null) {
+            hook.accept(obj);
         }
     }
 
-    private void setDoubleValue(Object obj, SerField serField, double value) {
-        Method setter = serField.getSetter();
-        if (setter != null) {
-            try {
-                setter.invoke(obj, value);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
-            }
-        } else {
-            Field field = serField.getField();
-            try {
-                field.setDouble(obj, value);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
-            }
-        }
+    private void readField(DeserContext ctx, Object obj, SerField serField) {
+        serField.getCodec().read(this, ctx, obj);
     }
 
-    private void setBoolValue(Object obj, SerField serField, boolean value) {
-        Method setter = serField.getSetter();
-        if (setter != null) {
-            try {
-                setter.invoke(obj, value);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
-            }
-        } else {
-            Field field = serField.getField();
-            try {
-                field.setBoolean(obj, value);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
-            }
+    void readObjectField(DeserContext ctx, Object obj, SerField serField) {
+        if (ctx.isMerge()) {
+            FieldAccessor accessor = serField.getAccessor();
+            accessor.set(obj, readObjectValue(ctx, serField, accessor.get(obj)));
+            return;
+        }
+        Object value = readObjectValue(ctx, serField, null);
+        if (value != null) {
+            serField.getAccessor().set(obj, value);
         }
     }
 
-    /* ########## read ########## */
-
-    private byte readByte(DeserContext ctx, SerField serField) {
-        CodedReader reader = ctx.getReader();
-        return readInt8(reader, serField);
+    private Object readObjectValue(DeserContext ctx, SerField serField, Object reuse) {
+        FieldType fieldType = serField.getType();
+        return fieldType.getCodec().read(this, ctx, serField, fieldType, reuse);
     }
 
-    private char readChar(DeserContext ctx, SerField serField) {
-        CodedReader reader = ctx.getReader();
-        return (char) readInt16(reader, serField);
-    }
+    /* ########## patch ########## */
 
-    private short readShort(DeserContext ctx, SerField serField) {
-        CodedReader reader = ctx.getReader();
-        return readInt16(reader, serField);
+    private void readFieldPatch(DeserContext ctx, Object obj, SerField serField) {
+        Object value = serField.getAccessor().get(obj);
+        if (value == null || serField.isLazy()) {
+            throw new SerializationException("Can not apply the patch to the field. value=" + value + ", Field="
+                    + serField);
+        }
+        try {
+            readPatch(ctx, serField, serField.getType(), value);
+        } catch (Exception e) {
+            throw new SerializationException("Error while reading the field patch. Field=" + serField, e);
+        }
     }
 
-    private int readInt(DeserContext ctx, SerField serField) {
-        CodedReader reader = ctx.getReader();
-        return readInt32(reader, serField);
+    /**
+     * 读取补丁并修改target，格式见{@link SerWriter#writePatch(SerContext, Object, Object)}
+     */
+    @SuppressWarnings("unchecked")
+    private void readPatch(DeserContext ctx, SerField serField, FieldType type, Object target) {
+        int wireType = ctx.getReader().readWireType(); // 被修改的值的wireType
+        if (wireType != type.getWireType()) {
+            throw new SerializationException("Patch wireType mismatch. Data type=" + wireType + ", Field type="
+                    + type.getWireType() + ", Field=" + serField);
+        }
+        switch (type.getJavaType()) {
+            case SER_OBJECT:
+                SerClass serClass = SerClassParser.ins().parse(target.getClass());
+                readDelta(ctx, serClass, target, ctx.getReader().readTag());
+                break;
+            case MAP:
+                readMapPatch(ctx, serField, type, (Map<Object, Object>) target);
+                break;
+            case INT_MAP:
+                readIntMapPatch(ctx, serField, type, (IntMap<Object>) target);
+                break;
+            case LONG_MAP:
+                readLongMapPatch(ctx, serField, type, (LongMap<Object>) target);
+                break;
+            default:
+                throw new SerializationException("Unsupported patch type: " + type);
+        }
     }
 
-    private long readLong(DeserContext ctx, SerField serField) {
+    /**
+     * 读取map中一个修改的值，返回新的值，是补丁时修改原来的值并返回它
+     */
+    private Object readEntryPatch(DeserContext ctx, SerField serField, FieldType valueType, Object oldValue) {
         CodedReader reader = ctx.getReader();
-        return readInt64(reader, serField);
+        int wireType = reader.readWireType();
+        if (wireType == WireFormat.WIRETYPE_PATCH) {
+            if (oldValue == null) {
+                throw new SerializationException("Can not apply the patch to null. Field=" + serField);
+            }
+            if (ctx.isLengthDelimited()) {
+                reader.readRawVarint32(); // 字节长度，读取时用不到
+            }
+            readPatch(ctx, serField, valueType, oldValue);
+            return oldValue;
+        }
+        if (wireType != valueType.getWireType()) {
+            throw new SerializationException("WireType mismatch. Data type=" + wireType + ", Field type="
+                    + valueType.getWireType() + ", Field=" + serField);
+        }
+        return readSubValue(ctx, serField, valueType, null);
     }
 
-    private float readFloat(DeserContext ctx, SerField serField) {
+    private void readMapPatch(DeserContext ctx, SerField serField, FieldType type, Map<Object, Object> target) {
         CodedReader reader = ctx.getReader();
-        return reader.readFloat();
-    }
+        FieldType keyType = type.getSubTypes().get(0);
+        FieldType valueType = type.getSubTypes().get(1);
 
-    private double readDouble(DeserContext ctx, SerField serField) {
-        CodedReader reader = ctx.getReader();
-        return reader.readDouble();
+        checkPatchKeyWireType(reader.readWireType(), keyType.getWireType(), serField);
+        int size = reader.readInt32(); // 修改的数量
+        checkContainerSize(ctx, size, serField);
+        for (int i = 0; i < size; i++) {
+            Object k = readSubValue(ctx, serField, keyType, null);
+            target.put(k, readEntryPatch(ctx, serField, valueType, target.get(k)));
+        }
+        int removed = reader.readInt32(); // 删除的数量
+        checkContainerSize(ctx, removed, serField);
+        for (int i = 0; i < removed; i++) {
+            target.remove(readSubValue(ctx, serField, keyType, null));
+        }
     }
 
-    private boolean readBool(DeserContext ctx, SerField serField) {
+    private void readIntMapPatch(DeserContext ctx, SerField serField, FieldType type, IntMap<Object> target) {
         CodedReader reader = ctx.getReader();
-        return reader.readBool();
+        FieldType valueType = type.getSubTypes().get(0);
+
+        checkPatchKeyWireType(reader.readWireType(), WireFormat.WIRETYPE_VARINT, serField);
+        int size = reader.readInt32(); // 修改的数量
+        checkContainerSize(ctx, size, serField);
+        for (int i = 0; i < size; i++) {
+            int k = reader.readInt32();
+            target.put(k, readEntryPatch(ctx, serField, valueType, target.get(k)));
+        }
+        int removed = reader.readInt32(); // 删除的数量
+        checkContainerSize(ctx, removed, serField);
+        for (int i = 0; i < removed; i++) {
+            target.remove(reader.readInt32());
+        }
     }
 
-    private Enum<?> readEnum(DeserContext ctx, SerField serField) {
+    private void readLongMapPatch(DeserContext ctx, SerField serField, FieldType type, LongMap<Object> target) {
         CodedReader reader = ctx.getReader();
-        FieldType fieldType = serField.getType();
-        int tag = readInt32(reader, serField); // read tag
+        FieldType valueType = type.getSubTypes().get(0);
 
-        @SuppressWarnings("unchecked")
-        Enum<?> value = parseEnum(ctx, (Class<? extends Enum<?>>) fieldType.getRawType(), tag);
-        return value;
+        checkPatchKeyWireType(reader.readWireType(), WireFormat.WIRETYPE_VARINT, serField);
+        int size = reader.readInt32(); // 修改的数量
+        checkContainerSize(ctx, size, serField);
+        for (int i = 0; i < size; i++) {
+            long k = reader.readInt64();
+            target.put(k, readEntryPatch(ctx, serField, valueType, target.get(k)));
+        }
+        int removed = reader.readInt32(); // 删除的数量
+        checkContainerSize(ctx, removed, serField);
+        for (int i = 0; i < removed; i++) {
+            target.remove(reader.readInt64());
+        }
     }
 
-    private byte[] readBytes(DeserContext ctx, SerField serField) {
-        return readBytes0(ctx, serField);
+    private void checkPatchKeyWireType(int wireType, int expected, SerField serField) {
+        if (wireType != expected) {
+            throw new SerializationException("Patch key wireType mismatch. Data type=" + wireType + ", Field type="
+                    + expected + ", Field=" + serField);
+        }
     }
 
-    private String readString(DeserContext ctx, SerField serField) {
-        String value = readString0(ctx, serField);
-        if (serField.isIntern()) {
-            value = value.intern();
+    /**
+     * 只保存{@link Lazy}字段的原始字节，不解码
+     */
+    private Lazy<?> readLazyField(DeserContext ctx, SerField serField, int wireType) {
+        CodedReader reader = ctx.getReader();
+        byte[] bytes;
+        if (ctx.isLengthDelimited()) {
+            bytes = reader.readBytes(reader.readRawVarint32());
+        } else if (reader.position() >= 0) {
+            int start = reader.position();
+            skip(ctx, wireType);
+            bytes = reader.copyOfRange(start, reader.position());
+        } else { // 不能回退，直接解码
+            return Lazy.of(readObjectValue(ctx, serField, null));
+        }
+        return new Lazy<>(bytes, ctx.isLengthDelimited(), ctx.getStrings(), ctx.isFailOnUnknowEnumValue(),
+                ctx.getContainerSizeLimit(), ctx.remainingDepth(), serField);
+    }
+
+    /**
+     * 解码{@link Lazy}字段保存的原始字节
+     */
+    Object readLazy(byte[] bytes, boolean lengthDelimited, String[] strings, boolean failOnUnknowEnumValue,
+                    int containerSizeLimit, int maxDepth, SerField serField) {
+        DeserContext ctx = new DeserContext(new ByteArrayReader(bytes), containerSizeLimit, failOnUnknowEnumValue,
+                maxDepth);
+        ctx.setLengthDelimited(lengthDelimited);
+        ctx.setStrings(strings);
+        try {
+            return readObjectValue(ctx, serField, null);
+        } catch (Exception e) {
+            throw new SerializationException("Error while reading the lazy field. Field=" + serField, e);
         }
-        return value;
     }
 
-    private List<?> readList(DeserContext ctx, SerField serField) {
+    /* ########## read ########## */
+
+    List<?> readList(DeserContext ctx, SerField serField, Object reuse) {
         CodedReader reader = ctx.getReader();
         FieldType fieldType = serField.getType();
 
         FieldType subType = fieldType.getSubTypes().get(0); // 子类型
         int subWireType = reader.readWireType(); // sub wireType
         int size = reader.readInt32(); // 数量
+        int capacity = checkContainerSize(ctx, size, serField);
 
         if (subWireType == subType.getWireType()) {
-            List<Object> value = createList(serField.getDeSerClazz());
-            for (int i = 0; i < size; i++) {
-                Object e = readSubValue(ctx, serField, subType);
-                value.add(e);
+            List<Object> value = reuse(reuse, serField.getDeSerClazz(), ArrayList.class);
+            if (value == null) {
+                value = createList(serField.getDeSerClazz(), capacity);
             }
+            readListElements(ctx, serField, subType, value, size);
             return value;
         } else {
             if (log.isWarnEnabled()) {
@@ -542,18 +524,24 @@ class SerReader {
         }
     }
 
-    private Set<?> readSet(DeserContext ctx, SerField serField) {
+    Set<?> readSet(DeserContext ctx, SerField serField, Object reuse) {
         CodedReader reader = ctx.getReader();
         FieldType fieldType = serField.getType();
 
         FieldType subType = fieldType.getSubTypes().get(0); // 子类型
         int subWireType = reader.readWireType(); // sub wireType
         int size = reader.readInt32(); // 数量
+        int capacity = checkContainerSize(ctx, size, serField);
 
         if (subWireType == subType.getWireType()) {
-            Set<Object> value = createSet(serField.getDeSerClazz(), serField.getType());
+            Set<Object> value = reuse(reuse, serField.getDeSerClazz(), HashSet.class);
+            if (value == null) {
+                value = createSet(serField.getDeSerClazz(), fieldType, capacity);
+            } else {
+                value.clear();
+            }
             for (int i = 0; i < size; i++) {
-                Object e = readSubValue(ctx, serField, subType);
+                Object e = readSubValue(ctx, serField, subType, null);
                 value.add(e);
             }
             return value;
@@ -570,14 +558,20 @@ class SerReader {
         }
     }
 
-    private IntSet readIntSet(DeserContext ctx, SerField serField) {
+    IntSet readIntSet(DeserContext ctx, SerField serField, Object reuse) {
         CodedReader reader = ctx.getReader();
 
         int subWireType = reader.readWireType(); // sub wireType
         int size = reader.readInt32(); // 数量
+        int capacity = checkContainerSize(ctx, size, serField);
 
         if (subWireType == WireFormat.WIRETYPE_VARINT) {
-            IntSet value = createIntSet(serField.getDeSerClazz());
+            IntSet value = reuse(reuse, serField.getDeSerClazz(), IntHashSet.class);
+            if (value == null) {
+                value = createIntSet(serField.getDeSerClazz(), capacity);
+            } else {
+                value.clear();
+            }
             for (int i = 0; i < size; i++) {
                 int e = reader.readInt32();
                 value.add(e);
@@ -596,14 +590,20 @@ class SerReader {
         }
     }
 
-    private LongSet readLongSet(DeserContext ctx, SerField serField) {
+    LongSet readLongSet(DeserContext ctx, SerField serField, Object reuse) {
         CodedReader reader = ctx.getReader();
 
         int subWireType = reader.readWireType(); // sub wireType
         int size = reader.readInt32(); // 数量
+        int capacity = checkContainerSize(ctx, size, serField);
 
         if (subWireType == WireFormat.WIRETYPE_VARINT) {
-            LongSet value = createLongSet(serField.getDeSerClazz());
+            LongSet value = reuse(reuse, serField.getDeSerClazz(), LongHashSet.class);
+            if (value == null) {
+                value = createLongSet(serField.getDeSerClazz(), capacity);
+            } else {
+                value.clear();
+            }
             for (int i = 0; i < size; i++) {
                 long e = reader.readInt64();
                 value.add(e);
@@ -622,7 +622,7 @@ class SerReader {
         }
     }
 
-    private Map<?, ?> readMap(DeserContext ctx, SerField serField) {
+    Map<?, ?> readMap(DeserContext ctx, SerField serField, Object reuse) {
         CodedReader reader = ctx.getReader();
         FieldType fieldType = serField.getType();
 
@@ -632,12 +632,18 @@ class SerReader {
         int keyWireType = reader.readWireType(); // key wireType
         int valueWireType = reader.readWireType(); // value wireType
         int size = reader.readInt32(); // 数量
+        int capacity = checkContainerSize(ctx, size, serField);
 
         if (keyWireType == keyType.getWireType() && valueWireType == valueType.getWireType()) {
-            Map<Object, Object> value = createMap(serField.getDeSerClazz(), fieldType);
+            Map<Object, Object> value = reuse(reuse, serField.getDeSerClazz(), HashMap.class);
+            if (value == null) {
+                value = createMap(serField.getDeSerClazz(), fieldType, capacity);
+            } else {
+                value.clear();
+            }
             for (int i = 0; i < size; i++) {
-                Object k = readSubValue(ctx, serField, keyType);
-                Object v = readSubValue(ctx, serField, valueType);
+                Object k = readSubValue(ctx, serField, keyType, null);
+                Object v = readSubValue(ctx, serField, valueType, null);
                 value.put(k, v);
             }
             return value;
@@ -658,7 +664,7 @@ class SerReader {
         }
     }
 
-    private IntMap<?> readIntMap(DeserContext ctx, SerField serField) {
+    IntMap<?> readIntMap(DeserContext ctx, SerField serField, Object reuse) {
         CodedReader reader = ctx.getReader();
         FieldType fieldType = serField.getType();
 
@@ -667,12 +673,18 @@ class SerReader {
         int keyWireType = reader.readWireType(); // key wireType
         int valueWireType = reader.readWireType(); // value wireType
         int size = reader.readInt32(); // 数量
+        int capacity = checkContainerSize(ctx, size, serField);
 
         if (keyWireType == WireFormat.WIRETYPE_VARINT && valueWireType == valueType.getWireType()) {
-            IntMap<Object> value = createIntMap(serField.getDeSerClazz());
+            IntMap<Object> value = reuse(reuse, serField.getDeSerClazz(), IntHashMap.class);
+            if (value == null) {
+                value = createIntMap(serField.getDeSerClazz(), capacity);
+            } else {
+                value.clear();
+            }
             for (int i = 0; i < size; i++) {
                 int k = reader.readInt32();
-                Object v = readSubValue(ctx, serField, valueType);
+                Object v = readSubValue(ctx, serField, valueType, null);
                 value.put(k, v);
             }
             return value;
@@ -693,7 +705,7 @@ class SerReader {
         }
     }
 
-    private LongMap<?> readLongMap(DeserContext ctx, SerField serField) {
+    LongMap<?> readLongMap(DeserContext ctx, SerField serField, Object reuse) {
         CodedReader reader = ctx.getReader();
         FieldType fieldType = serField.getType();
 
@@ -702,12 +714,18 @@ class SerReader {
         int keyWireType = reader.readWireType(); // key wireType
         int valueWireType = reader.readWireType(); // value wireType
         int size = reader.readInt32(); // 数量
+        int capacity = checkContainerSize(ctx, size, serField);
 
         if (keyWireType == WireFormat.WIRETYPE_VARINT && valueWireType == valueType.getWireType()) {
-            LongMap<Object> value = createLongMap(serField.getDeSerClazz());
+            LongMap<Object> value = reuse(reuse, serField.getDeSerClazz(), LongHashMap.class);
+            if (value == null) {
+                value = createLongMap(serField.getDeSerClazz(), capacity);
+            } else {
+                value.clear();
+            }
             for (int i = 0; i < size; i++) {
                 long k = reader.readInt64();
-                Object v = readSubValue(ctx, serField, valueType);
+                Object v = readSubValue(ctx, serField, valueType, null);
                 value.put(k, v);
             }
             return value;
@@ -728,7 +746,7 @@ class SerReader {
         }
     }
 
-    private IntValueMap<?> readIntValueMap(DeserContext ctx, SerField serField) {
+    IntValueMap<?> readIntValueMap(DeserContext ctx, SerField serField, Object reuse) {
         CodedReader reader = ctx.getReader();
         FieldType fieldType = serField.getType();
 
@@ -737,11 +755,17 @@ class SerReader {
         int keyWireType = reader.readWireType(); // key wireType
         int valueWireType = reader.readWireType(); // value wireType
         int size = reader.readInt32(); // 数量
+        int capacity = checkContainerSize(ctx, size, serField);
 
         if (keyWireType == keyType.getWireType() && valueWireType == WireFormat.WIRETYPE_VARINT) {
-            IntValueMap<Object> value = createIntValueMap(serField.getDeSerClazz());
+            IntValueMap<Object> value = reuse(reuse, serField.getDeSerClazz(), IntValueHashMap.class);
+            if (value == null) {
+                value = createIntValueMap(serField.getDeSerClazz(), capacity);
+            } else {
+                value.clear();
+            }
             for (int i = 0; i < size; i++) {
-                Object k = readSubValue(ctx, serField, keyType);
+                Object k = readSubValue(ctx, serField, keyType, null);
                 int v = reader.readInt32();
                 value.put(k, v);
             }
@@ -763,7 +787,7 @@ class SerReader {
         }
     }
 
-    private LongValueMap<?> readLongValueMap(DeserContext ctx, SerField serField) {
+    LongValueMap<?> readLongValueMap(DeserContext ctx, SerField serField, Object reuse) {
         CodedReader reader = ctx.getReader();
         FieldType fieldType = serField.getType();
 
@@ -772,11 +796,17 @@ class SerReader {
         int keyWireType = reader.readWireType(); // key wireType
         int valueWireType = reader.readWireType(); // value wireType
         int size = reader.readInt32(); // 数量
+        int capacity = checkContainerSize(ctx, size, serField);
 
         if (keyWireType == keyType.getWireType() && valueWireType == WireFormat.WIRETYPE_VARINT) {
-            LongValueMap<Object> value = createLongValueMap(serField.getDeSerClazz());
+            LongValueMap<Object> value = reuse(reuse, serField.getDeSerClazz(), LongValueHashMap.class);
+            if (value == null) {
+                value = createLongValueMap(serField.getDeSerClazz(), capacity);
+            } else {
+                value.clear();
+            }
             for (int i = 0; i < size; i++) {
-                Object k = readSubValue(ctx, serField, keyType);
+                Object k = readSubValue(ctx, serField, keyType, null);
                 long v = reader.readInt64();
                 value.put(k, v);
             }
@@ -798,7 +828,7 @@ class SerReader {
         }
     }
 
-    private FloatValueMap<?> readFloatValueMap(DeserContext ctx, SerField serField) {
+    FloatValueMap<?> readFloatValueMap(DeserContext ctx, SerField serField, Object reuse) {
         CodedReader reader = ctx.getReader();
         FieldType fieldType = serField.getType();
 
@@ -807,11 +837,17 @@ class SerReader {
         int keyWireType = reader.readWireType(); // key wireType
         int valueWireType = reader.readWireType(); // value wireType
         int size = reader.readInt32(); // 数量
+        int capacity = checkContainerSize(ctx, size, serField);
 
         if (keyWireType == keyType.getWireType() && valueWireType == WireFormat.WIRETYPE_FIXED32) {
-            FloatValueMap<Object> value = createFloatValueMap(serField.getDeSerClazz());
+            FloatValueMap<Object> value = reuse(reuse, serField.getDeSerClazz(), FloatValueHashMap.class);
+            if (value == null) {
+                value = createFloatValueMap(serField.getDeSerClazz(), capacity);
+            } else {
+                value.clear();
+            }
             for (int i = 0; i < size; i++) {
-                Object k = readSubValue(ctx, serField, keyType);
+                Object k = readSubValue(ctx, serField, keyType, null);
                 float v = reader.readFloat();
                 value.put(k, v);
             }
@@ -833,7 +869,7 @@ class SerReader {
         }
     }
 
-    private DoubleValueMap<?> readDoubleValueMap(DeserContext ctx, SerField serField) {
+    DoubleValueMap<?> readDoubleValueMap(DeserContext ctx, SerField serField, Object reuse) {
         CodedReader reader = ctx.getReader();
         FieldType fieldType = serField.getType();
 
@@ -842,11 +878,17 @@ class SerReader {
         int keyWireType = reader.readWireType(); // key wireType
         int valueWireType = reader.readWireType(); // value wireType
         int size = reader.readInt32(); // 数量
+        int capacity = checkContainerSize(ctx, size, serField);
 
         if (keyWireType == keyType.getWireType() && valueWireType == WireFormat.WIRETYPE_FIXED64) {
-            DoubleValueMap<Object> value = createDoubleValueMap(serField.getDeSerClazz());
+            DoubleValueMap<Object> value = reuse(reuse, serField.getDeSerClazz(), DoubleValueHashMap.class);
+            if (value == null) {
+                value = createDoubleValueMap(serField.getDeSerClazz(), capacity);
+            } else {
+                value.clear();
+            }
             for (int i = 0; i < size; i++) {
-                Object k = readSubValue(ctx, serField, keyType);
+                Object k = readSubValue(ctx, serField, keyType, null);
                 double v = reader.readDouble();
                 value.put(k, v);
             }
@@ -868,233 +910,54 @@ class SerReader {
         }
     }
 
-    private Object readSerObject(DeserContext ctx, SerField serField) {
-        FieldType fieldType = serField.getType();
-        SerClass valueSerClass = SerClassParser.ins().parse(fieldType.getRawType());
-        return readSerObject(ctx, valueSerClass);
-    }
-
-    private byte readInt8(CodedReader reader, SerField serField) {
-        switch (serField.getIntEncodeType()) {
-            case VARINT:
-                return (byte) reader.readInt32();
-            case SIGNED_VARINT:
-                return (byte) reader.readSInt32();
-            case FIXED:
-                return reader.readFixed8();
-
-            default:
-                throw new SerializationException(
-                        "IntEncodeType mismatch: " + serField.getIntEncodeType());
-        }
-    }
-
-    private short readInt16(CodedReader reader, SerField serField) {
-        switch (serField.getIntEncodeType()) {
-            case VARINT:
-                return (short) reader.readInt32();
-            case SIGNED_VARINT:
-                return (short) reader.readSInt32();
-            case FIXED:
-                return reader.readFixed16();
-
-            default:
-                throw new SerializationException(
-                        "IntEncodeType mismatch: " + serField.getIntEncodeType());
-        }
-    }
-
-    private int readInt32(CodedReader reader, SerField serField) {
-        switch (serField.getIntEncodeType()) {
-            case VARINT:
-                return reader.readInt32();
-            case SIGNED_VARINT:
-                return reader.readSInt32();
-            case FIXED:
-                return reader.readFixed32();
-
-            default:
-                throw new SerializationException(
-                        "IntEncodeType mismatch: " + serField.getIntEncodeType());
-        }
-    }
-
-    private long readInt64(CodedReader reader, SerField serField) {
-        switch (serField.getIntEncodeType()) {
-            case VARINT:
-                return reader.readInt64();
-            case SIGNED_VARINT:
-                return reader.readSInt64();
-            case FIXED:
-                return reader.readFixed64();
-
-            default:
-                throw new SerializationException(
-                        "IntEncodeType mismatch: " + serField.getIntEncodeType());
-        }
-    }
-
     /* ########## read sub ########## */
 
-    private Object readSubValue(DeserContext ctx, SerField serField, FieldType type) {
-        Object value = null;
-        switch (type.getJavaType()) {
-            case BYTE:
-                value = readByte(ctx, serField, type);
-                break;
-
-            case CHAR:
-                value = readChar(ctx, serField, type);
-                break;
-
-            case SHORT:
-                value = readShort(ctx, serField, type);
-                break;
-
-            case INT:
-                value = readInt(ctx, serField, type);
-                break;
-
-            case LONG:
-                value = readLong(ctx, serField, type);
-                break;
-
-            case FLOAT:
-                value = readFloat(ctx, serField, type);
-                break;
-
-            case DOUBLE:
-                value = readDouble(ctx, serField, type);
-                break;
-
-            case BOOL:
-                value = readBool(ctx, serField, type);
-                break;
-
-            case ENUM:
-                value = readEnum(ctx, serField, type);
-                break;
-
-            case BYTES:
-                value = readBytes(ctx, serField, type);
-                break;
-
-            case STRING:
-                value = readString(ctx, serField, type);
-                break;
-
-            case LIST:
-                value = readList(ctx, serField, type);
-                break;
-
-            case SET:
-                value = readSet(ctx, serField, type);
-                break;
-
-            case INT_SET:
-                value = readIntSet(ctx, serField, type);
-                break;
-
-            case LONG_SET:
-                value = readLongSet(ctx, serField, type);
-                break;
-
-            case MAP:
-                value = readMap(ctx, serField, type);
-                break;
-
-            case INT_MAP:
-                value = readIntMap(ctx, serField, type);
-                break;
-
-            case LONG_MAP:
-                value = readLongMap(ctx, serField, type);
-                break;
-
-            case SER_OBJECT:
-                value = readSerObject(ctx, serField, type);
-                break;
-
-            default:
-                throw new SerializationException("Unsupported type: " + type);
+    private Object readSubValue(DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+        if (ctx.isLengthDelimited() && WireFormat.isLengthDelimited(type.getWireType())) {
+            ctx.getReader().readRawVarint32(); // 字节长度，读取时用不到
         }
-
+        Object value = type.getCodec().read(this, ctx, serField, type, reuse);
         if (value == null) {
             throw new SerializationException("Deserialization failed: " + type);
         }
         return value;
     }
 
-    private byte readByte(DeserContext ctx, SerField serField, FieldType type) {
-        CodedReader reader = ctx.getReader();
-        return (byte) reader.readInt32();
-    }
-
-    private char readChar(DeserContext ctx, SerField serField, FieldType type) {
-        CodedReader reader = ctx.getReader();
-        return (char) reader.readInt32();
-    }
-
-    private short readShort(DeserContext ctx, SerField serField, FieldType type) {
-        CodedReader reader = ctx.getReader();
-        return (short) reader.readInt32();
-    }
-
-    private int readInt(DeserContext ctx, SerField serField, FieldType type) {
-        CodedReader reader = ctx.getReader();
-        return reader.readInt32();
-    }
-
-    private long readLong(DeserContext ctx, SerField serField, FieldType type) {
-        CodedReader reader = ctx.getReader();
-        return reader.readInt64();
-    }
-
-    private float readFloat(DeserContext ctx, SerField serField, FieldType type) {
-        CodedReader reader = ctx.getReader();
-        return reader.readFloat();
-    }
-
-    private double readDouble(DeserContext ctx, SerField serField, FieldType type) {
-        CodedReader reader = ctx.getReader();
-        return reader.readDouble();
-    }
-
-    private boolean readBool(DeserContext ctx, SerField serField, FieldType type) {
-        CodedReader reader = ctx.getReader();
-        return reader.readBool();
-    }
-
-    private Enum<?> readEnum(DeserContext ctx, SerField serField, FieldType type) {
-        CodedReader reader = ctx.getReader();
-        int tag = reader.readInt32(); // read tag
-
-        @SuppressWarnings("unchecked")
-        Enum<?> value = parseEnum(ctx, (Class<? extends Enum<?>>) type.getRawType(), tag);
-        return value;
-    }
-
-    private byte[] readBytes(DeserContext ctx, SerField serField, FieldType type) {
-        return readBytes0(ctx, serField);
-    }
-
-    private String readString(DeserContext ctx, SerField serField, FieldType type) {
-        return readString0(ctx, serField);
+    /**
+     * 读取list的元素，合并时按位置重用原来的元素
+     */
+    private void readListElements(DeserContext ctx, SerField serField, FieldType subType, List<Object> value,
+                                  int size) {
+        if (!(value instanceof RandomAccess)) {
+            value.clear();
+        }
+        int oldSize = value.size();
+        for (int i = 0; i < size; i++) {
+            if (i < oldSize) {
+                value.set(i, readSubValue(ctx, serField, subType, value.get(i)));
+            } else {
+                value.add(readSubValue(ctx, serField, subType, null));
+            }
+        }
+        if (oldSize > size) {
+            value.subList(size, oldSize).clear();
+        }
     }
 
-    private List<?> readList(DeserContext ctx, SerField serField, FieldType type) {
+    List<?> readList(DeserContext ctx, SerField serField, FieldType type, Object reuse) {
         CodedReader reader = ctx.getReader();
 
         FieldType subType = type.getSubTypes().get(0); // 子类型
         int subWireType = reader.readWireType(); // sub wireType
         int size = reader.readInt32(); // 数量
+        int capacity = checkContainerSize(ctx, size, serField);
 
         if (subWireType == subType.getWireType()) {
-            List<Object> value = new ArrayList<>(size);
-            for (int i = 0; i < size; i++) {
-                Object e = readSubValue(ctx, serField, subType);
-                value.add(e);
+            List<Object> value = reuse(reuse, null, ArrayList.class);
+            if (value == null) {
+                value = new ArrayList<>(capacity);
             }
+            readListElements(ctx, serField, subType, value, size);
             return value;
         } else {
             if (log.isWarnEnabled()) {
@@ -1109,17 +972,23 @@ class SerReader {
         }
     }
 
-    private Set<?> readSet(DeserContext ctx, SerField serField, FieldType type) {
+    Set<?> readSet(DeserContext ctx, SerField serField, FieldType type, Object reuse) {
         CodedReader reader = ctx.getReader();
 
         FieldType subType = type.getSubTypes().get(0); // 子类型
         int subWireType = reader.readWireType(); // sub wireType
         int size = reader.readInt32(); // 数量
+        int capacity = checkContainerSize(ctx, size, serField);
 
         if (subWireType == subType.getWireType()) {
-            Set<Object> value = new HashSet<>();
+            Set<Object> value = reuse(reuse, null, HashSet.class);
+            if (value == null) {
+                value = new HashSet<>(hashCapacity(capacity));
+            } else {
+                value.clear();
+            }
             for (int i = 0; i < size; i++) {
-                Object e = readSubValue(ctx, serField, subType);
+                Object e = readSubValue(ctx, serField, subType, null);
                 value.add(e);
             }
             return value;
@@ -1136,14 +1005,20 @@ class SerReader {
         }
     }
 
-    private IntSet readIntSet(DeserContext ctx, SerField serField, FieldType type) {
+    IntSet readIntSet(DeserContext ctx, SerField serField, FieldType type, Object reuse) {
         CodedReader reader = ctx.getReader();
 
         int subWireType = reader.readWireType(); // sub wireType
         int size = reader.readInt32(); // 数量
+        int capacity = checkContainerSize(ctx, size, serField);
 
         if (subWireType == WireFormat.WIRETYPE_VARINT) {
-            IntSet value = new IntHashSet();
+            IntSet value = reuse(reuse, null, IntHashSet.class);
+            if (value == null) {
+                value = new IntHashSet(hashCapacity(capacity));
+            } else {
+                value.clear();
+            }
             for (int i = 0; i < size; i++) {
                 int e = reader.readInt32();
                 value.add(e);
@@ -1162,14 +1037,20 @@ class SerReader {
         }
     }
 
-    private LongSet readLongSet(DeserContext ctx, SerField serField, FieldType type) {
+    LongSet readLongSet(DeserContext ctx, SerField serField, FieldType type, Object reuse) {
         CodedReader reader = ctx.getReader();
 
         int subWireType = reader.readWireType(); // sub wireType
         int size = reader.readInt32(); // 数量
+        int capacity = checkContainerSize(ctx, size, serField);
 
         if (subWireType == WireFormat.WIRETYPE_VARINT) {
-            LongSet value = new LongHashSet();
+            LongSet value = reuse(reuse, null, LongHashSet.class);
+            if (value == null) {
+                value = new LongHashSet(hashCapacity(capacity));
+            } else {
+                value.clear();
+            }
             for (int i = 0; i < size; i++) {
                 long e = reader.readInt64();
                 value.add(e);
@@ -1188,7 +1069,7 @@ class SerReader {
         }
     }
 
-    private Map<?, ?> readMap(DeserContext ctx, SerField serField, FieldType type) {
+    Map<?, ?> readMap(DeserContext ctx, SerField serField, FieldType type, Object reuse) {
         CodedReader reader = ctx.getReader();
 
         FieldType keyType = type.getSubTypes().get(0); // key类型
@@ -1197,12 +1078,18 @@ class SerReader {
         int keyWireType = reader.readWireType(); // key wireType
         int valueWireType = reader.readWireType(); // value wireType
         int size = reader.readInt32(); // 数量
+        int capacity = checkContainerSize(ctx, size, serField);
 
         if (keyWireType == keyType.getWireType() && valueWireType == valueType.getWireType()) {
-            Map<Object, Object> value = new HashMap<>();
+            Map<Object, Object> value = reuse(reuse, null, HashMap.class);
+            if (value == null) {
+                value = new HashMap<>(hashCapacity(capacity));
+            } else {
+                value.clear();
+            }
             for (int i = 0; i < size; i++) {
-                Object k = readSubValue(ctx, serField, keyType);
-                Object v = readSubValue(ctx, serField, valueType);
+                Object k = readSubValue(ctx, serField, keyType, null);
+                Object v = readSubValue(ctx, serField, valueType, null);
                 value.put(k, v);
             }
             return value;
@@ -1223,7 +1110,7 @@ class SerReader {
         }
     }
 
-    private IntMap<?> readIntMap(DeserContext ctx, SerField serField, FieldType type) {
+    IntMap<?> readIntMap(DeserContext ctx, SerField serField, FieldType type, Object reuse) {
         CodedReader reader = ctx.getReader();
 
         FieldType valueType = type.getSubTypes().get(0); // value类型
@@ -1231,12 +1118,18 @@ class SerReader {
         int keyWireType = reader.readWireType(); // key wireType
         int valueWireType = reader.readWireType(); // value wireType
         int size = reader.readInt32(); // 数量
+        int capacity = checkContainerSize(ctx, size, serField);
 
         if (keyWireType == WireFormat.WIRETYPE_VARINT && valueWireType == valueType.getWireType()) {
-            IntMap<Object> value = new IntHashMap<>();
+            IntMap<Object> value = reuse(reuse, null, IntHashMap.class);
+            if (value == null) {
+                value = new IntHashMap<>(hashCapacity(capacity));
+            } else {
+                value.clear();
+            }
             for (int i = 0; i < size; i++) {
                 int k = reader.readInt32();
-                Object v = readSubValue(ctx, serField, valueType);
+                Object v = readSubValue(ctx, serField, valueType, null);
                 value.put(k, v);
             }
             return value;
@@ -1257,7 +1150,7 @@ class SerReader {
         }
     }
 
-    private LongMap<?> readLongMap(DeserContext ctx, SerField serField, FieldType type) {
+    LongMap<?> readLongMap(DeserContext ctx, SerField serField, FieldType type, Object reuse) {
         CodedReader reader = ctx.getReader();
 
         FieldType valueType = type.getSubTypes().get(0); // value类型
@@ -1265,12 +1158,18 @@ class SerReader {
         int keyWireType = reader.readWireType(); // key wireType
         int valueWireType = reader.readWireType(); // value wireType
         int size = reader.readInt32(); // 数量
+        int capacity = checkContainerSize(ctx, size, serField);
 
         if (keyWireType == WireFormat.WIRETYPE_VARINT && valueWireType == valueType.getWireType()) {
-            LongMap<Object> value = new LongHashMap<>();
+            LongMap<Object> value = reuse(reuse, null, LongHashMap.class);
+            if (value == null) {
+                value = new LongHashMap<>(hashCapacity(capacity));
+            } else {
+                value.clear();
+            }
             for (int i = 0; i < size; i++) {
                 long k = reader.readInt64();
-                Object v = readSubValue(ctx, serField, valueType);
+                Object v = readSubValue(ctx, serField, valueType, null);
                 value.put(k, v);
             }
             return value;
@@ -1291,14 +1190,146 @@ class SerReader {
         }
     }
 
-    private Object readSerObject(DeserContext ctx, SerField serField, FieldType type) {
+    Object readSerObject(DeserContext ctx, SerField serField, FieldType type, Object reuse) {
         SerClass valueSerClass = SerClassParser.ins().parse(type.getRawType());
+        if (reuse != null && reuse.getClass() == valueSerClass.getClazz()) {
+            readSerObject(ctx, valueSerClass, reuse, ctx.getReader().readTag(), null);
+            return reuse;
+        }
+        return readSerObject(ctx, valueSerClass);
+    }
+
+    Object readPolyObject(DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+        int typeId = ctx.getReader().readInt32();
+        SerClass valueSerClass = SerTypeRegistry.ins().getSerClass(typeId);
+        if (valueSerClass == null) {
+            log.warn("Not found typeId. typeId={}, Field={}", typeId, serField);
+            skipSerObject(ctx); // 不认识的类型，跳过
+            return null;
+        }
+        if (!type.getRawType().isAssignableFrom(valueSerClass.getClazz())) {
+            throw new SerializationException(valueSerClass.getClazz() + " is not subtype of " + type.getRawType()
+                    + ". typeId=" + typeId + ", Field=" + serField);
+        }
+        if (reuse != null && reuse.getClass() == valueSerClass.getClazz()) {
+            readSerObject(ctx, valueSerClass, reuse, ctx.getReader().readTag(), null);
+            return reuse;
+        }
         return readSerObject(ctx, valueSerClass);
     }
 
+    /* ########## packed array ########## */
+
+    int[] readIntArray(DeserContext ctx, SerField serField, IntEncodeType intEncodeType) {
+        int length = readArrayHeader(ctx, serField, intEncodeType.getInt32WireType());
+        if (length < 0) {
+            return null;
+        }
+        CodedReader reader = ctx.getReader();
+        int[] value = new int[length];
+        switch (intEncodeType) {
+            case VARINT:
+                for (int i = 0; i < length; i++) {
+                    value[i] = reader.readInt32();
+                }
+                break;
+            case SIGNED_VARINT:
+                for (int i = 0; i < length; i++) {
+                    value[i] = reader.readSInt32();
+                }
+                break;
+            case FIXED:
+                reader.readRawLittleEndian32s(value);
+                break;
+            default:
+                throw new SerializationException("IntEncodeType mismatch: " + intEncodeType);
+        }
+        return value;
+    }
+
+    long[] readLongArray(DeserContext ctx, SerField serField, IntEncodeType intEncodeType) {
+        int length = readArrayHeader(ctx, serField, intEncodeType.getInt64WireType());
+        if (length < 0) {
+            return null;
+        }
+        CodedReader reader = ctx.getReader();
+        long[] value = new long[length];
+        switch (intEncodeType) {
+            case VARINT:
+                for (int i = 0; i < length; i++) {
+                    value[i] = reader.readInt64();
+                }
+                break;
+            case SIGNED_VARINT:
+                for (int i = 0; i < length; i++) {
+                    value[i] = reader.readSInt64();
+                }
+                break;
+            case FIXED:
+                reader.readRawLittleEndian64s(value);
+                break;
+            default:
+                throw new SerializationException("IntEncodeType mismatch: " + intEncodeType);
+        }
+        return value;
+    }
+
+    float[] readFloatArray(DeserContext ctx, SerField serField) {
+        int length = readArrayHeader(ctx, serField, WireFormat.WIRETYPE_FIXED32);
+        if (length < 0) {
+            return null;
+        }
+        float[] value = new float[length];
+        ctx.getReader().readRawFloats(value);
+        return value;
+    }
+
+    double[] readDoubleArray(DeserContext ctx, SerField serField) {
+        int length = readArrayHeader(ctx, serField, WireFormat.WIRETYPE_FIXED64);
+        if (length < 0) {
+            return null;
+        }
+        double[] value = new double[length];
+        ctx.getReader().readRawDoubles(value);
+        return value;
+    }
+
+    /**
+     * 读取数组的头部，返回元素数量。元素的wireType不匹配时跳过整个数组，返回-1
+     */
+    private int readArrayHeader(DeserContext ctx, SerField serField, int expectedWireType) {
+        CodedReader reader = ctx.getReader();
+        int byteSize = reader.readRawVarint32(); // 字节长度
+        int elementWireType = reader.readWireType(); // 元素的wireType
+        int length = reader.readRawVarint32(); // 数量
+        int available = reader.available();
+        if (length < 0 || length > byteSize || (available >= 0 && length > available)) { // 每个元素至少1个字节
+            throw new SerializationException("Malformed array. byteSize=" + byteSize + ", length=" + length
+                    + ", Field=" + serField);
+        }
+        checkContainerSize(ctx, length, serField);
+        if (elementWireType != expectedWireType) {
+            if (log.isWarnEnabled()) {
+                log.warn("WireType mismatch. Data type={}, Field type={}, Field={}", elementWireType,
+                        expectedWireType, serField);
+            }
+            // 不匹配，跳过
+            reader.skipRawBytes(byteSize - CodedWriter.computeRawVarint32Size(elementWireType)
+                    - CodedWriter.computeRawVarint32Size(length));
+            return -1;
+        }
+        return length;
+    }
+
     /* ########## skip ########## */
 
     private void skip(DeserContext ctx, int wireType) {
+        if (ctx.isLengthDelimited() && WireFormat.isLengthDelimited(wireType)) {
+            // 有字节长度，直接跳过整个值
+            CodedReader reader = ctx.getReader();
+            reader.skipRawBytes(reader.readRawVarint32());
+            return;
+        }
         switch (wireType) {
             case WireFormat.WIRETYPE_VARINT:
                 skipVarint(ctx);
@@ -1336,6 +1367,15 @@ class SerReader {
                 skipSerObject(ctx);
                 break;
 
+            case WireFormat.WIRETYPE_POLY_OBJECT:
+                ctx.getReader().readInt32(); // typeId
+                skipSerObject(ctx);
+                break;
+
+            case WireFormat.WIRETYPE_PATCH:
+                skipPatch(ctx);
+                break;
+
             default:
                 throw new SerializationException("Unsupported wireType: " + wireType);
         }
@@ -1378,9 +1418,11 @@ class SerReader {
         int subWireType = reader.readWireType(); // sub wireType
         int size = reader.readInt32(); // 数量
 
+        ctx.enterNested();
         for (int i = 0; i < size; i++) {
             skip(ctx, subWireType);
         }
+        ctx.exitNested();
     }
 
     private void skipMap(DeserContext ctx) {
@@ -1390,14 +1432,17 @@ class SerReader {
         int valueWireType = reader.readWireType(); // value wireType
         int size = reader.readInt32(); // 数量
 
+        ctx.enterNested();
         for (int i = 0; i < size; i++) {
             skip(ctx, keyWireType);
             skip(ctx, valueWireType);
         }
+        ctx.exitNested();
     }
 
     private void skipSerObject(DeserContext ctx) {
         CodedReader reader = ctx.getReader();
+        ctx.enterNested();
         // 跳过字段
         while (true) {
             int tag = reader.readTag();
@@ -1408,12 +1453,48 @@ class SerReader {
             int wireType = WireFormat.getTagWireType(tag);
             skip(ctx, wireType);
         }
+        ctx.exitNested();
+    }
+
+    /**
+     * 跳过嵌套的补丁，格式见{@link SerWriter#writePatch(SerContext, Object, Object)}
+     */
+    private void skipPatch(DeserContext ctx) {
+        CodedReader reader = ctx.getReader();
+        int wireType = reader.readWireType(); // 被修改的值的wireType
+        switch (wireType) {
+            case WireFormat.WIRETYPE_SER_OBJECT: {
+                skipSerObject(ctx);
+                int clearedSize = reader.readInt32(); // 变为null的字段
+                for (int i = 0; i < clearedSize; i++) {
+                    reader.readInt32();
+                }
+                break;
+            }
+            case WireFormat.WIRETYPE_MAP: {
+                int keyWireType = reader.readWireType(); // key wireType
+                int size = reader.readInt32(); // 修改的数量
+                ctx.enterNested();
+                for (int i = 0; i < size; i++) {
+                    skip(ctx, keyWireType);
+                    skip(ctx, reader.readWireType()); // 值或者值的补丁
+                }
+                ctx.exitNested();
+                int removed = reader.readInt32(); // 删除的数量
+                for (int i = 0; i < removed; i++) {
+                    skip(ctx, keyWireType);
+                }
+                break;
+            }
+            default:
+                throw new SerializationException("Unsupported patch wireType: " + wireType);
+        }
     }
 
     /* ########## 其他 ########## */
 
     @SuppressWarnings({"unchecked", "rawtypes"})
-    private Enum<?> parseEnum(DeserContext ctx, Class<? extends Enum<?>> clazz, int tag) {
+    Enum<?> parseEnum(DeserContext ctx, Class<? extends Enum<?>> clazz, int tag) {
         Enum enumValue = EnumUtils.valueOf((Class) clazz, tag);
         if (enumValue == null && ctx.isFailOnUnknowEnumValue()) {
             throw new SerializationException("Can not deserialize value of type " + clazz + " from tag " + tag);
@@ -1421,24 +1502,92 @@ class SerReader {
         return enumValue;
     }
 
-    private byte[] readBytes0(DeserContext ctx, SerField serField) {
+    byte[] readBytes0(DeserContext ctx, SerField serField) {
         CodedReader reader = ctx.getReader();
         int size = reader.readInt32();
 
         return reader.readBytes(size);
     }
 
-    private String readString0(DeserContext ctx, SerField serField) {
+    ByteBuffer readByteBuffer0(DeserContext ctx, SerField serField) {
+        CodedReader reader = ctx.getReader();
+        int size = reader.readInt32();
+
+        return reader.readByteBuffer(size);
+    }
+
+    String readString0(DeserContext ctx, SerField serField) {
         CodedReader reader = ctx.getReader();
         int size = reader.readInt32();
 
-        return reader.readString(size);
+        String[] strings = ctx.getStrings();
+        if (strings == null) {
+            return reader.readString(size);
+        }
+        // 表中的索引
+        int index = reader.readRawVarint32();
+        if (index < 0 || index >= strings.length || size != CodedWriter.computeRawVarint32Size(index)) {
+            throw new SerializationException("Malformed string index. index=" + index + ", size=" + size
+                    + ", tableSize=" + strings.length + ", Field=" + serField);
+        }
+        return strings[index];
+    }
+
+    /**
+     * 检查数据中的容器数量，返回创建容器时使用的初始容量
+     * <p>
+     * 数量来自数据，不能完全信任。每个元素至少1个字节，所以初始容量不超过剩余的字节数，不知道剩余字节数时不超过{@link
+     * #MAX_INITIAL_CAPACITY}，超出的部分在添加元素时再扩容
+     */
+    private int checkContainerSize(DeserContext ctx, int size, SerField serField) {
+        if (size < 0) {
+            throw new SerializationException("Container size < 0: " + size + ", Field=" + serField);
+        }
+        int sizeLimit = ctx.getContainerSizeLimit();
+        if (sizeLimit != Ser.NO_SIZE_LIMIT && size > sizeLimit) {
+            throw new SerializationException("Container size exceeded max allowed. size=" + size
+                    + ", limit=" + sizeLimit + ", Field=" + serField);
+        }
+        int available = ctx.getReader().available();
+        return Math.min(size, available >= 0 ? available : MAX_INITIAL_CAPACITY);
+    }
+
+    /**
+     * 放入size个元素不需要扩容的hash容器的初始容量
+     */
+    static int hashCapacity(int size) {
+        return Math.max((int) (size / .75f) + 1, 16);
+    }
+
+    /**
+     * 有(int initialCapacity)构造方法时使用它创建，否则使用无参构造方法
+     */
+    private static Object newInstance(Class<?> clazz, int initialCapacity) throws Exception {
+        Constructor<?> constructor = CAPACITY_CONSTRUCTOR.get(clazz);
+        if (constructor != null) {
+            return constructor.newInstance(initialCapacity);
+        }
+        return clazz.newInstance();
+    }
+
+    /**
+     * 合并时重用原来的容器，类型需要和新创建的相同，否则返回null
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T reuse(Object reuse, Class<?> deSerClazz, Class<?> defaultClazz) {
+        if (reuse == null) {
+            return null;
+        }
+        if (deSerClazz == null || deSerClazz == void.class || deSerClazz == Void.class) {
+            return reuse.getClass() == defaultClazz ? (T) reuse : null;
+        }
+        return deSerClazz.isInstance(reuse) ? (T) reuse : null;
     }
 
     @SuppressWarnings("unchecked")
-    private <T> List<T> createList(Class<?> clazz) {
+    static <T> List<T> createList(Class<?> clazz, int capacity) {
         if (clazz == null || clazz == void.class || clazz == Void.class) {
-            return new ArrayList<>();
+            return new ArrayList<>(capacity);
         }
 
         if (!List.class.isAssignableFrom(clazz)) {
@@ -1446,16 +1595,16 @@ class SerReader {
         }
 
         try {
-            return (List<T>) clazz.newInstance();
+            return (List<T>) newInstance(clazz, capacity);
         } catch (Exception e) {
             throw JavaUtils.sneakyThrow(e);
         }
     }
 
     @SuppressWarnings({"unchecked", "rawtypes"})
-    private <T> Set<T> createSet(Class<?> clazz, FieldType fieldType) {
+    static <T> Set<T> createSet(Class<?> clazz, FieldType fieldType, int capacity) {
         if (clazz == null || clazz == void.class || clazz == Void.class) {
-            return new HashSet<>();
+            return new HashSet<>(hashCapacity(capacity));
         }
 
         if (!Set.class.isAssignableFrom(clazz)) {
@@ -1470,15 +1619,15 @@ class SerReader {
         }
 
         try {
-            return (Set<T>) clazz.newInstance();
+            return (Set<T>) newInstance(clazz, hashCapacity(capacity));
         } catch (Exception e) {
             throw JavaUtils.sneakyThrow(e);
         }
     }
 
-    private IntSet createIntSet(Class<?> clazz) {
+    static IntSet createIntSet(Class<?> clazz, int capacity) {
         if (clazz == null || clazz == void.class || clazz == Void.class) {
-            return new IntHashSet();
+            return new IntHashSet(hashCapacity(capacity));
         }
 
         if (!IntSet.class.isAssignableFrom(clazz)) {
@@ -1486,15 +1635,15 @@ class SerReader {
         }
 
         try {
-            return (IntSet) clazz.newInstance();
+            return (IntSet) newInstance(clazz, hashCapacity(capacity));
         } catch (Exception e) {
             throw JavaUtils.sneakyThrow(e);
         }
     }
 
-    private LongSet createLongSet(Class<?> clazz) {
+    static LongSet createLongSet(Class<?> clazz, int capacity) {
         if (clazz == null || clazz == void.class || clazz == Void.class) {
-            return new LongHashSet();
+            return new LongHashSet(hashCapacity(capacity));
         }
 
         if (!LongSet.class.isAssignableFrom(clazz)) {
@@ -1502,16 +1651,16 @@ class SerReader {
         }
 
         try {
-            return (LongSet) clazz.newInstance();
+            return (LongSet) newInstance(clazz, hashCapacity(capacity));
         } catch (Exception e) {
             throw JavaUtils.sneakyThrow(e);
         }
     }
 
     @SuppressWarnings("unchecked")
-    private <K, V> Map<K, V> createMap(Class<?> clazz, FieldType fieldType) {
+    static <K, V> Map<K, V> createMap(Class<?> clazz, FieldType fieldType, int capacity) {
         if (clazz == null || clazz == void.class || clazz == Void.class) {
-            return new HashMap<>();
+            return new HashMap<>(hashCapacity(capacity));
         }
 
         if (!Map.class.isAssignableFrom(clazz)) {
@@ -1529,16 +1678,16 @@ class SerReader {
         }
 
         try {
-            return (Map<K, V>) clazz.newInstance();
+            return (Map<K, V>) newInstance(clazz, hashCapacity(capacity));
         } catch (Exception e) {
             throw JavaUtils.sneakyThrow(e);
         }
     }
 
     @SuppressWarnings("unchecked")
-    private <V> IntMap<V> createIntMap(Class<?> clazz) {
+    static <V> IntMap<V> createIntMap(Class<?> clazz, int capacity) {
         if (clazz == null || clazz == void.class || clazz == Void.class) {
-            return new IntHashMap<>();
+            return new IntHashMap<>(hashCapacity(capacity));
         }
 
         if (!IntMap.class.isAssignableFrom(clazz)) {
@@ -1546,16 +1695,16 @@ class SerReader {
         }
 
         try {
-            return (IntMap<V>) clazz.newInstance();
+            return (IntMap<V>) newInstance(clazz, hashCapacity(capacity));
         } catch (Exception e) {
             throw JavaUtils.sneakyThrow(e);
         }
     }
 
     @SuppressWarnings("unchecked")
-    private <V> LongMap<V> createLongMap(Class<?> clazz) {
+    static <V> LongMap<V> createLongMap(Class<?> clazz, int capacity) {
         if (clazz == null || clazz == void.class || clazz == Void.class) {
-            return new LongHashMap<>();
+            return new LongHashMap<>(hashCapacity(capacity));
         }
 
         if (!LongMap.class.isAssignableFrom(clazz)) {
@@ -1563,16 +1712,16 @@ class SerReader {
         }
 
         try {
-            return (LongMap<V>) clazz.newInstance();
+            return (LongMap<V>) newInstance(clazz, hashCapacity(capacity));
         } catch (Exception e) {
             throw JavaUtils.sneakyThrow(e);
         }
     }
 
     @SuppressWarnings("unchecked")
-    private <K> IntValueMap<K> createIntValueMap(Class<?> clazz) {
+    static <K> IntValueMap<K> createIntValueMap(Class<?> clazz, int capacity) {
         if (clazz == null || clazz == void.class || clazz == Void.class) {
-            return new IntValueHashMap<>();
+            return new IntValueHashMap<>(hashCapacity(capacity));
         }
 
         if (!IntValueMap.class.isAssignableFrom(clazz)) {
@@ -1580,16 +1729,16 @@ class SerReader {
         }
 
         try {
-            return (IntValueMap<K>) clazz.newInstance();
+            return (IntValueMap<K>) newInstance(clazz, hashCapacity(capacity));
         } catch (Exception e) {
             throw JavaUtils.sneakyThrow(e);
         }
     }
 
     @SuppressWarnings("unchecked")
-    private <K> LongValueMap<K> createLongValueMap(Class<?> clazz) {
+    static <K> LongValueMap<K> createLongValueMap(Class<?> clazz, int capacity) {
         if (clazz == null || clazz == void.class || clazz == Void.class) {
-            return new LongValueHashMap<>();
+            return new LongValueHashMap<>(hashCapacity(capacity));
         }
 
         if (!LongValueMap.class.isAssignableFrom(clazz)) {
@@ -1597,16 +1746,16 @@ class SerReader {
         }
 
         try {
-            return (LongValueMap<K>) clazz.newInstance();
+            return (LongValueMap<K>) newInstance(clazz, hashCapacity(capacity));
         } catch (Exception e) {
             throw JavaUtils.sneakyThrow(e);
         }
     }
 
     @SuppressWarnings("unchecked")
-    private <K> FloatValueMap<K> createFloatValueMap(Class<?> clazz) {
+    static <K> FloatValueMap<K> createFloatValueMap(Class<?> clazz, int capacity) {
         if (clazz == null || clazz == void.class || clazz == Void.class) {
-            return new FloatValueHashMap<>();
+            return new FloatValueHashMap<>(hashCapacity(capacity));
         }
 
         if (!FloatValueMap.class.isAssignableFrom(clazz)) {
@@ -1614,16 +1763,16 @@ class SerReader {
         }
 
         try {
-            return (FloatValueMap<K>) clazz.newInstance();
+            return (FloatValueMap<K>) newInstance(clazz, hashCapacity(capacity));
         } catch (Exception e) {
             throw JavaUtils.sneakyThrow(e);
         }
     }
 
     @SuppressWarnings("unchecked")
-    private <K> DoubleValueMap<K> createDoubleValueMap(Class<?> clazz) {
+    static <K> DoubleValueMap<K> createDoubleValueMap(Class<?> clazz, int capacity) {
         if (clazz == null || clazz == void.class || clazz == Void.class) {
-            return new DoubleValueHashMap<>();
+            return new DoubleValueHashMap<>(hashCapacity(capacity));
         }
 
         if (!DoubleValueMap.class.isAssignableFrom(clazz)) {
@@ -1631,7 +1780,7 @@ class SerReader {
         }
 
         try {
-            return (DoubleValueMap<K>) clazz.newInstance();
+            return (DoubleValueMap<K>) newInstance(clazz, hashCapacity(capacity));
         } catch (Exception e) {
             throw JavaUtils.sneakyThrow(e);
         }
@@ -0,0 +1,61 @@
+package io.jpower.sgf.ser;
+
+/**
+ * 一个对象在某个时刻的序列化快照，保存了每个字段编码后的字节，用来生成增量数据
+ * <p>
+ * <ul>
+ * <li>通过{@link Ser#snapshot(Object)}创建，只能用于创建它的{@link Ser}（格式需要相同）</li>
+ * <li>和对象本身没有关联，之后修改对象不会影响快照</li>
+ * <li>不可变的，线程安全的</li>
+ * </ul>
+ *
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+public final class SerSnapshot {
+
+    private final Class<?> clazz;
+
+    private final boolean lengthDelimited;
+
+    /**
+     * 按{@link SerClass#getFields()}的顺序保存每个字段编码后的字节（包括tag），字段为null时长度为0
+     */
+    private final byte[][] fieldBytes;
+
+    SerSnapshot(Class<?> clazz, boolean lengthDelimited, byte[][] fieldBytes) {
+        this.clazz = clazz;
+        this.lengthDelimited = lengthDelimited;
+        this.fieldBytes = fieldBytes;
+    }
+
+    public Class<?> getClazz() {
+        return clazz;
+    }
+
+    boolean isLengthDelimited() {
+        return lengthDelimited;
+    }
+
+    byte[] getFieldBytes(int index) {
+        return fieldBytes[index];
+    }
+
+    /**
+     * 所有字段编码后的总字节数
+     *
+     * @return
+     */
+    public int size() {
+        int size = 0;
+        for (byte[] bytes : fieldBytes) {
+            size += bytes.length;
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "SerSnapshot [clazz=" + clazz + ", size=" + size() + "]";
+    }
+
+}
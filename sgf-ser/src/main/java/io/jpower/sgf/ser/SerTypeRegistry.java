@@ -0,0 +1,152 @@
+package io.jpower.sgf.ser;
+
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import io.jpower.sgf.ser.annotation.SubType;
+import io.jpower.sgf.ser.annotation.SubTypes;
+
+/**
+ * 多态字段的type id和具体类型的对应关系
+ * <p>
+ * <ul>
+ * <li>所有多态类型共用同一个序号空间</li>
+ * <li>反序列化时通过数组按type id直接查找，不需要类名，也不会调用{@link Class#forName(String)}</li>
+ * <li>注册时不分析类，第一次用到时才分析，这样类的字段中引用自己的基类也没有问题</li>
+ * </ul>
+ *
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+class SerTypeRegistry {
+
+    /**
+     * 最大的type id，type id用来做数组下标，不能太大
+     */
+    static final int MAX_TYPE_ID = (1 << 16) - 1;
+
+    private static final SerTypeRegistry INS = new SerTypeRegistry();
+
+    /**
+     * 下标为type id，注册时复制一份新的数组
+     */
+    private volatile Entry[] entries = new Entry[0];
+
+    private final ConcurrentMap<Class<?>, Entry> classEntries = new ConcurrentHashMap<>();
+
+    private SerTypeRegistry() {
+
+    }
+
+    static SerTypeRegistry ins() {
+        return INS;
+    }
+
+    /**
+     * 注册基类上{@link SubTypes}注解声明的具体类型
+     *
+     * @param baseType 接口或者抽象类
+     */
+    void registerSubTypes(Class<?> baseType) {
+        SubTypes anno = baseType.getAnnotation(SubTypes.class);
+        if (anno == null) {
+            return;
+        }
+        for (SubType subType : anno.value()) {
+            if (!baseType.isAssignableFrom(subType.value())) {
+                throw new SerializationException(subType.value() + " is not subtype of " + baseType);
+            }
+            register(subType.id(), subType.value());
+        }
+    }
+
+    /**
+     * 注册具体类型，同一个type id和类重复注册时忽略
+     *
+     * @param typeId
+     * @param clazz
+     */
+    synchronized void register(int typeId, Class<?> clazz) {
+        if (typeId <= 0 || typeId > MAX_TYPE_ID) {
+            throw new SerializationException("Illegal typeId: " + typeId + ", class=" + clazz);
+        }
+        if (clazz.isInterface() || Modifier.isAbstract(clazz.getModifiers())) {
+            throw new SerializationException(clazz + " is interface or abstract");
+        }
+
+        Entry[] entries = this.entries;
+        Entry exists = typeId < entries.length ? entries[typeId] : null;
+        if (exists != null) {
+            if (exists.clazz != clazz) {
+                throw new SerializationException("typeId duplicate. typeId=" + typeId + ", class1=" + exists.clazz
+                        + ", class2=" + clazz);
+            }
+            return;
+        }
+        Entry classEntry = classEntries.get(clazz);
+        if (classEntry != null) {
+            throw new SerializationException(clazz + " typeId duplicate. typeId1=" + classEntry.typeId
+                    + ", typeId2=" + typeId);
+        }
+
+        Entry entry = new Entry(typeId, clazz);
+        Entry[] newEntries = Arrays.copyOf(entries, Math.max(entries.length, typeId + 1));
+        newEntries[typeId] = entry;
+        classEntries.put(clazz, entry);
+        this.entries = newEntries;
+    }
+
+    /**
+     * 返回类的type id，没有注册时返回0
+     *
+     * @param clazz
+     * @return
+     */
+    int typeIdOf(Class<?> clazz) {
+        Entry entry = classEntries.get(clazz);
+        return entry != null ? entry.typeId : 0;
+    }
+
+    /**
+     * 返回type id对应的类的{@link SerClass}，没有注册时返回null
+     *
+     * @param typeId
+     * @return
+     */
+    SerClass getSerClass(int typeId) {
+        Entry[] entries = this.entries;
+        if (typeId <= 0 || typeId >= entries.length) {
+            return null;
+        }
+        Entry entry = entries[typeId];
+        if (entry == null) {
+            return null;
+        }
+        SerClass serClass = entry.serClass;
+        if (serClass == null) {
+            serClass = SerClassParser.ins().parse(entry.clazz);
+            entry.serClass = serClass;
+        }
+        return serClass;
+    }
+
+    private static class Entry {
+
+        private final int typeId;
+
+        private final Class<?> clazz;
+
+        /**
+         * 第一次用到时才分析
+         */
+        private volatile SerClass serClass;
+
+        Entry(int typeId, Class<?> clazz) {
+            this.typeId = typeId;
+            this.clazz = clazz;
+        }
+
+    }
+
+}
@@ -1,10 +1,12 @@
 package io.jpower.sgf.ser;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
 
 import io.jpower.sgf.collection.DoubleValueMap;
 import io.jpower.sgf.collection.FloatValueMap;
@@ -16,857 +18,694 @@ import io.jpower.sgf.collection.LongIterator;
 import io.jpower.sgf.collection.LongMap;
 import io.jpower.sgf.collection.LongSet;
 import io.jpower.sgf.collection.LongValueMap;
-import io.jpower.sgf.enumtype.EnumUtils;
-import io.jpower.sgf.utils.JavaUtils;
 
 /**
  * @author <a href="mailto:szhnet@gmail.com">szh</a>
  */
 class SerWriter {
 
-    void write(SerContext ctx, Object obj) {
-        Class<?> clazz = obj.getClass();
-        SerClass serClass = SerClassParser.ins().parse(clazz);
-        writeSerObject(ctx, obj, serClass);
-    }
-
-    private void writeSerObject(SerContext ctx, Object obj, SerClass serClass) {
-        // 调用before方法
-        Method beforeSerMethod = serClass.getBeforeSerMethod();
-        if (beforeSerMethod != null) {
-            Utils.invoke(beforeSerMethod, obj, Utils.EMPTY_OBJS);
-        }
-
-        CodedWriter writer = ctx.getWriter();
-
-        // 编码字段
-        List<SerField> serFields = serClass.getFields();
-        for (SerField serField : serFields) {
-            writeField(ctx, obj, serField);
-        }
-        // 字段结束
-        writer.writeStop();
-
-        // 调用after方法
-        Method afterSerMethod = serClass.getAfterSerMethod();
-        if (afterSerMethod != null) {
-            Utils.invoke(afterSerMethod, obj, Utils.EMPTY_OBJS);
-        }
-    }
-
-    private void writeField(SerContext ctx, Object obj, SerField serField) {
-        if (serField.getType().isPrimitive()) {
-            writePrimitiveField(ctx, obj, serField);
-        } else {
-            writeObjectField(ctx, obj, serField);
-        }
-    }
-
-    private void writeObjectField(SerContext ctx, Object obj, SerField serField) {
-        FieldType fieldType = serField.getType();
-        Object value = getValue(obj, serField);
-        if (value == null) {
-            return; // 跳过null
-        }
-        switch (fieldType.getJavaType()) {
-            case BYTE:
-                writeByte(ctx, serField, ((Byte) value).byteValue());
-                break;
-
-            case CHAR:
-                writeChar(ctx, serField, ((Character) value).charValue());
-                break;
-
-            case SHORT:
-                writeShort(ctx, serField, ((Short) value).shortValue());
-                break;
-
-            case INT:
-                writeInt(ctx, serField, ((Integer) value).intValue());
-                break;
-
-            case LONG:
-                writeLong(ctx, serField, ((Long) value).longValue());
-                break;
-
-            case FLOAT:
-                writeFloat(ctx, serField, ((Float) value).floatValue());
-                break;
-
-            case DOUBLE:
-                writeDouble(ctx, serField, ((Double) value).doubleValue());
-                break;
-
-            case BOOL:
-                writeBoolean(ctx, serField, ((Boolean) value).booleanValue());
-                break;
-
-            case ENUM:
-                writeEnum(ctx, serField, (Enum<?>) value);
-                break;
-
-            case BYTES:
-                writeBytes(ctx, serField, (byte[]) value);
-                break;
-
-            case STRING:
-                writeString(ctx, serField, (String) value);
-                break;
-
-            case LIST:
-            case SET:
-                writeCollection(ctx, serField, (Collection<?>) value);
-                break;
-
-            case INT_SET:
-                writeIntSet(ctx, serField, (IntSet) value);
-                break;
-
-            case LONG_SET:
-                writeLongSet(ctx, serField, (LongSet) value);
-                break;
-
-            case MAP:
-                writeMap(ctx, serField, (Map<?, ?>) value);
-                break;
-
-            case INT_MAP:
-                writeIntMap(ctx, serField, (IntMap<?>) value);
-                break;
-
-            case LONG_MAP:
-                writeLongMap(ctx, serField, (LongMap<?>) value);
-                break;
-
-            case INT_VALUE_MAP:
-                writeIntValueMap(ctx, serField, (IntValueMap<?>) value);
-                break;
-
-            case LONG_VALUE_MAP:
-                writeLongValueMap(ctx, serField, (LongValueMap<?>) value);
-                break;
-
-            case FLOAT_VALUE_MAP:
-                writeFloatValueMap(ctx, serField, (FloatValueMap<?>) value);
-                break;
-
-            case DOUBLE_VALUE_MAP:
-                writeDoubleValueMap(ctx, serField, (DoubleValueMap<?>) value);
-                break;
-
-            case SER_OBJECT:
-                writeSerObject(ctx, serField, value);
-                break;
-
-            default:
-                throw new SerializationException("Unsupported type: " + fieldType);
-        }
-    }
-
-    private void writePrimitiveField(SerContext ctx, Object obj, SerField serField) {
-        FieldType fieldType = serField.getType();
-        switch (fieldType.getJavaType()) {
-            case BYTE:
-                writeByte(ctx, serField, getByteValue(obj, serField));
-                break;
-
-            case CHAR:
-                writeChar(ctx, serField, getCharValue(obj, serField));
-                break;
-
-            case SHORT:
-                writeShort(ctx, serField, getShortValue(obj, serField));
-                break;
-
-            case INT:
-                writeInt(ctx, serField, getIntValue(obj, serField));
-                break;
-
-            case LONG:
-                writeLong(ctx, serField, getLongValue(obj, serField));
-                break;
-
-            case FLOAT:
-                writeFloat(ctx, serField, getFloatValue(obj, serField));
-                break;
-
-            case DOUBLE:
-                writeDouble(ctx, serField, getDoubleValue(obj, serField));
-                break;
-
-            case BOOL:
-                writeBoolean(ctx, serField, getBoolValue(obj, serField));
-                break;
-
-            default:
-                throw new SerializationException("Unsupported type: " + fieldType);
-        }
-    }
-
-    /* ########## getValue ########## */
-
-    private Object getValue(Object obj, SerField serField) {
-        Method getter = serField.getGetter();
-        if (getter != null) {
-            try {
-                return getter.invoke(obj, Utils.EMPTY_OBJS);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
-            }
-        } else {
-            Field field = serField.getField();
-            try {
-                return field.get(obj);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
-            }
-        }
-    }
-
-    private byte getByteValue(Object obj, SerField serField) {
-        Method getter = serField.getGetter();
-        if (getter != null) {
-            try {
-                return (Byte) getter.invoke(obj, Utils.EMPTY_OBJS);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
-            }
-        } else {
-            Field field = serField.getField();
-            try {
-                return field.getByte(obj);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
-            }
-        }
-    }
-
-    private char getCharValue(Object obj, SerField serField) {
-        Method getter = serField.getGetter();
-        if (getter != null) {
-            try {
-                return (Character) getter.invoke(obj, Utils.EMPTY_OBJS);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
-            }
-        } else {
-            Field field = serField.getField();
-            try {
-                return field.getChar(obj);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
-            }
-        }
-    }
+    /**
+     * 流式写入时每个块最多的元素数量
+     */
+    private static final int MAX_CHUNK_ELEMENTS = 1024;
 
-    private short getShortValue(Object obj, SerField serField) {
-        Method getter = serField.getGetter();
-        if (getter != null) {
-            try {
-                return (Short) getter.invoke(obj, Utils.EMPTY_OBJS);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
-            }
-        } else {
-            Field field = serField.getField();
-            try {
-                return field.getShort(obj);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
-            }
-        }
-    }
-
-    private int getIntValue(Object obj, SerField serField) {
-        Method getter = serField.getGetter();
-        if (getter != null) {
-            try {
-                return (Integer) getter.invoke(obj, Utils.EMPTY_OBJS);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
-            }
-        } else {
-            Field field = serField.getField();
-            try {
-                return field.getInt(obj);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
-            }
-        }
-    }
+    /**
+     * 流式写入时每个块的字节数达到这个值就写出
+     */
+    private static final int MAX_CHUNK_BYTES = 64 * 1024;
 
-    private long getLongValue(Object obj, SerField serField) {
-        Method getter = serField.getGetter();
-        if (getter != null) {
-            try {
-                return (Long) getter.invoke(obj, Utils.EMPTY_OBJS);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
-            }
-        } else {
-            Field field = serField.getField();
-            try {
-                return field.getLong(obj);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
-            }
-        }
-    }
+    /**
+     * 使用字符串表时线程本地缓存的对象缓冲区，见{@link ByteArrayWriter#acquireLocal(ThreadLocal)}
+     */
+    private static final ThreadLocal<ByteArrayWriter> LOCAL_BODY_WRITER = new ThreadLocal<>();
 
-    private float getFloatValue(Object obj, SerField serField) {
-        Method getter = serField.getGetter();
-        if (getter != null) {
-            try {
-                return (Float) getter.invoke(obj, Utils.EMPTY_OBJS);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
-            }
-        } else {
-            Field field = serField.getField();
-            try {
-                return field.getFloat(obj);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
-            }
-        }
-    }
-
-    private double getDoubleValue(Object obj, SerField serField) {
-        Method getter = serField.getGetter();
-        if (getter != null) {
-            try {
-                return (Double) getter.invoke(obj, Utils.EMPTY_OBJS);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
-            }
-        } else {
-            Field field = serField.getField();
-            try {
-                return field.getDouble(obj);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
-            }
+    void write(SerContext ctx, Object obj) {
+        Class<?> clazz = obj.getClass();
+        SerClass serClass = SerClassParser.ins().parse(clazz);
+        if (ctx.isStringTable()) {
+            writeWithStringTable(ctx, obj, serClass);
+            return;
         }
+        writeFormat(ctx);
+        writeSerObject(ctx, obj, serClass);
     }
 
-    private boolean getBoolValue(Object obj, SerField serField) {
-        Method getter = serField.getGetter();
-        if (getter != null) {
-            try {
-                return (Boolean) getter.invoke(obj, Utils.EMPTY_OBJS);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
+    /**
+     * 字符串表需要写在对象前面，所以先把对象写到缓冲区中，同时收集字符串表
+     */
+    private void writeWithStringTable(SerContext ctx, Object obj, SerClass serClass) {
+        ByteArrayWriter bodyWriter = ByteArrayWriter.acquireLocal(LOCAL_BODY_WRITER);
+        try {
+            bodyWriter.setByteLimit(ctx.getWriter().getByteLimit());
+            SerContext bodyCtx = new SerContext(bodyWriter, ctx.getContainerSizeLimit(), ctx.isLengthDelimited(),
+                    true);
+            StringTable strings = new StringTable();
+            bodyCtx.setStrings(strings);
+            encodeSerObject(bodyCtx, obj, serClass);
+
+            CodedWriter writer = ctx.getWriter();
+            int format = WireFormat.FORMAT_STRING_TABLE;
+            if (ctx.isLengthDelimited()) {
+                format |= WireFormat.FORMAT_LENGTH_DELIMITED;
             }
-        } else {
-            Field field = serField.getField();
-            try {
-                return field.getBoolean(obj);
-            } catch (Exception e) {
-                throw JavaUtils.sneakyThrow(e);
+            writer.writeRawVarint32(WireFormat.FORMAT_TAG);
+            writer.writeFixed8NoTag(format);
+            writer.writeInt32NoTag(strings.size()); // 数量
+            for (int i = 0; i < strings.size(); i++) {
+                writer.writeStringNoTag(strings.get(i));
             }
+            writer.writeRawBytes(bodyWriter.buf(), bodyWriter.offset(), bodyWriter.size());
+        } finally {
+            ByteArrayWriter.releaseLocal(LOCAL_BODY_WRITER, bodyWriter);
         }
-    }
-
-    /* ########## write ########## */
-
-    private void writeByte(SerContext ctx, SerField serField, byte value) {
-        CodedWriter writer = ctx.getWriter();
-        writeInt8(writer, serField, value);
-    }
-
-    private void writeChar(SerContext ctx, SerField serField, char value) {
-        CodedWriter writer = ctx.getWriter();
-        writeInt16(writer, serField, value);
-    }
-
-    private void writeShort(SerContext ctx, SerField serField, short value) {
-        CodedWriter writer = ctx.getWriter();
-        writeInt16(writer, serField, value);
-    }
-
-    private void writeInt(SerContext ctx, SerField serField, int value) {
-        CodedWriter writer = ctx.getWriter();
-        writeInt32(writer, serField, value);
-    }
-
-    private void writeLong(SerContext ctx, SerField serField, long value) {
-        CodedWriter writer = ctx.getWriter();
-        writeInt64(writer, serField, value);
-    }
-
-    private void writeFloat(SerContext ctx, SerField serField, float value) {
-        CodedWriter writer = ctx.getWriter();
-        writer.writeFloat(serField.getNumber(), value);
-    }
-
-    private void writeDouble(SerContext ctx, SerField serField, double value) {
-        CodedWriter writer = ctx.getWriter();
-        writer.writeDouble(serField.getNumber(), value);
-    }
-
-    private void writeBoolean(SerContext ctx, SerField serField, boolean value) {
-        CodedWriter writer = ctx.getWriter();
-        writer.writeBool(serField.getNumber(), value);
-    }
-
-    private void writeEnum(SerContext ctx, SerField serField, Enum<?> value) {
-        CodedWriter writer = ctx.getWriter();
-        writeInt32(writer, serField, EnumUtils.tagOf(value)); // write tag
-    }
-
-    private void writeBytes(SerContext ctx, SerField serField, byte[] value) {
-        CodedWriter writer = ctx.getWriter();
-        writer.writeBytes(serField.getNumber(), value);
-    }
-
-    private void writeString(SerContext ctx, SerField serField, String value) {
-        CodedWriter writer = ctx.getWriter();
-        writer.writeString(serField.getNumber(), value);
-    }
-
-    private void writeCollection(SerContext ctx, SerField serField, Collection<?> value) {
-        int size = value.size();
-        checkContainerSize(ctx, size, serField);
-
-        CodedWriter writer = ctx.getWriter();
-        FieldType fieldType = serField.getType();
-
-        writer.writeTag(serField.getNumber(), fieldType.getWireType());
-
-        FieldType subType = fieldType.getSubTypes().get(0);
-        writer.writeWireType(subType.getWireType()); // 子类型
-        writer.writeInt32NoTag(size); // 数量
-
-        for (Object e : value) {
-            writeSubValue(ctx, serField, subType, e);
-        }
-    }
-
-    private void writeIntSet(SerContext ctx, SerField serField, IntSet value) {
-        int size = value.size();
-        checkContainerSize(ctx, size, serField);
-
-        CodedWriter writer = ctx.getWriter();
-        FieldType fieldType = serField.getType();
-
-        writer.writeTag(serField.getNumber(), fieldType.getWireType());
-
-        writer.writeWireType(WireFormat.WIRETYPE_VARINT); // sub wireType
-        writer.writeInt32NoTag(size); // 数量
-
-        IntIterator itr = value.iterator();
-        while (itr.hasNext()) {
-            int e = itr.next();
-            writer.writeInt32NoTag(e);
-        }
-    }
-
-    private void writeLongSet(SerContext ctx, SerField serField, LongSet value) {
-        int size = value.size();
-        checkContainerSize(ctx, size, serField);
-
-        CodedWriter writer = ctx.getWriter();
-        FieldType fieldType = serField.getType();
-
-        writer.writeTag(serField.getNumber(), fieldType.getWireType());
-
-        writer.writeWireType(WireFormat.WIRETYPE_VARINT); // sub wireType
-        writer.writeInt32NoTag(size); // 数量
-
-        LongIterator itr = value.iterator();
-        while (itr.hasNext()) {
-            long e = itr.next();
-            writer.writeInt64NoTag(e);
-        }
-    }
-
-    private void writeMap(SerContext ctx, SerField serField, Map<?, ?> value) {
-        int size = value.size();
-        checkContainerSize(ctx, size, serField);
-
-        CodedWriter writer = ctx.getWriter();
-        FieldType fieldType = serField.getType();
-
-        writer.writeTag(serField.getNumber(), fieldType.getWireType());
-
-        FieldType keyType = fieldType.getSubTypes().get(0);
-        FieldType valueType = fieldType.getSubTypes().get(1);
-        writer.writeWireType(keyType.getWireType()); // key wireType
-        writer.writeWireType(valueType.getWireType()); // value wireType
-        writer.writeInt32NoTag(size); // 数量
-
-        for (Map.Entry<?, ?> e : value.entrySet()) {
-            writeSubValue(ctx, serField, keyType, e.getKey());
-            writeSubValue(ctx, serField, valueType, e.getValue());
-        }
-    }
-
-    private void writeIntMap(SerContext ctx, SerField serField, IntMap<?> value) {
-        int size = value.size();
-        checkContainerSize(ctx, size, serField);
-
-        CodedWriter writer = ctx.getWriter();
-        FieldType fieldType = serField.getType();
-
-        writer.writeTag(serField.getNumber(), fieldType.getWireType());
-
-        FieldType valueType = fieldType.getSubTypes().get(0);
-        writer.writeWireType(WireFormat.WIRETYPE_VARINT); // key wireType
-        writer.writeWireType(valueType.getWireType()); // value wireType
-        writer.writeInt32NoTag(size); // 数量
-
-        for (IntMap.Entry<?> e : value.entrySet()) {
-            writer.writeInt32NoTag(e.getKey());
-            writeSubValue(ctx, serField, valueType, e.getValue());
-        }
-    }
-
-    private void writeLongMap(SerContext ctx, SerField serField, LongMap<?> value) {
-        int size = value.size();
-        checkContainerSize(ctx, size, serField);
-
-        CodedWriter writer = ctx.getWriter();
-        FieldType fieldType = serField.getType();
-
-        writer.writeTag(serField.getNumber(), fieldType.getWireType());
-
-        FieldType valueType = fieldType.getSubTypes().get(0);
-        writer.writeWireType(WireFormat.WIRETYPE_VARINT); // key wireType
-        writer.writeWireType(valueType.getWireType()); // value wireType
-        writer.writeInt32NoTag(size); // 数量
-
-        for (LongMap.Entry<?> e : value.entrySet()) {
-            writer.writeInt64NoTag(e.getKey());
-            writeSubValue(ctx, serField, valueType, e.getValue());
-        }
-    }
-
-    private void writeIntValueMap(SerContext ctx, SerField serField, IntValueMap<?> value) {
-        int size = value.size();
-        checkContainerSize(ctx, size, serField);
-
-        CodedWriter writer = ctx.getWriter();
-        FieldType fieldType = serField.getType();
-
-        writer.writeTag(serField.getNumber(), fieldType.getWireType());
-
-        FieldType keyType = fieldType.getSubTypes().get(0);
-        writer.writeWireType(keyType.getWireType()); // key wireType
-        writer.writeWireType(WireFormat.WIRETYPE_VARINT); // value wireType
-        writer.writeInt32NoTag(size); // 数量
-
-        for (IntValueMap.Entry<?> e : value.entrySet()) {
-            writeSubValue(ctx, serField, keyType, e.getKey());
-            writer.writeInt32NoTag(e.getValue());
-        }
-    }
-
-    private void writeLongValueMap(SerContext ctx, SerField serField, LongValueMap<?> value) {
-        int size = value.size();
-        checkContainerSize(ctx, size, serField);
-
-        CodedWriter writer = ctx.getWriter();
-        FieldType fieldType = serField.getType();
-
-        writer.writeTag(serField.getNumber(), fieldType.getWireType());
-
-        FieldType keyType = fieldType.getSubTypes().get(0);
-        writer.writeWireType(keyType.getWireType()); // key wireType
-        writer.writeWireType(WireFormat.WIRETYPE_VARINT); // value wireType
-        writer.writeInt32NoTag(size); // 数量
-
-        for (LongValueMap.Entry<?> e : value.entrySet()) {
-            writeSubValue(ctx, serField, keyType, e.getKey());
-            writer.writeInt64NoTag(e.getValue());
-        }
-    }
-
-    private void writeFloatValueMap(SerContext ctx, SerField serField, FloatValueMap<?> value) {
-        int size = value.size();
-        checkContainerSize(ctx, size, serField);
-
-        CodedWriter writer = ctx.getWriter();
-        FieldType fieldType = serField.getType();
-
-        writer.writeTag(serField.getNumber(), fieldType.getWireType());
-
-        FieldType keyType = fieldType.getSubTypes().get(0);
-        writer.writeWireType(keyType.getWireType()); // key wireType
-        writer.writeWireType(WireFormat.WIRETYPE_FIXED32); // value wireType
-        writer.writeInt32NoTag(size); // 数量
-
-        for (FloatValueMap.Entry<?> e : value.entrySet()) {
-            writeSubValue(ctx, serField, keyType, e.getKey());
-            writer.writeFloatNoTag(e.getValue());
+    }
+
+    private void writeFormat(SerContext ctx) {
+        if (ctx.isLengthDelimited()) { // 写入数据格式头
+            CodedWriter writer = ctx.getWriter();
+            writer.writeRawVarint32(WireFormat.FORMAT_TAG);
+            writer.writeFixed8NoTag(WireFormat.FORMAT_LENGTH_DELIMITED);
         }
     }
 
-    private void writeDoubleValueMap(SerContext ctx, SerField serField, DoubleValueMap<?> value) {
-        int size = value.size();
-        checkContainerSize(ctx, size, serField);
+    /* ########## elements ########## */
 
+    /**
+     * 流式写入元素
+     * <p>
+     * 格式：1个字节的格式标记，多个块（元素数量，元素），结束标记（数量为0）。元素先编码到块缓冲区中，块中的元素数量或字节数达到上限时写出，
+     * 所以不需要知道元素的总数，占用的内存也不会随元素数量增加
+     *
+     * @param ctx
+     * @param elements
+     */
+    void writeElements(SerContext ctx, Iterator<?> elements) {
         CodedWriter writer = ctx.getWriter();
-        FieldType fieldType = serField.getType();
-
-        writer.writeTag(serField.getNumber(), fieldType.getWireType());
-
-        FieldType keyType = fieldType.getSubTypes().get(0);
-        writer.writeWireType(keyType.getWireType()); // key wireType
-        writer.writeWireType(WireFormat.WIRETYPE_FIXED64); // value wireType
-        writer.writeInt32NoTag(value.size()); // 数量
+        writer.writeFixed8NoTag(ctx.isLengthDelimited() ? WireFormat.FORMAT_LENGTH_DELIMITED : 0);
 
-        for (DoubleValueMap.Entry<?> e : value.entrySet()) {
-            writeSubValue(ctx, serField, keyType, e.getKey());
-            writer.writeDoubleNoTag(e.getValue());
+        ByteArrayWriter chunkWriter = new ByteArrayWriter();
+        SerContext chunkCtx = new SerContext(chunkWriter, ctx.getContainerSizeLimit(), ctx.isLengthDelimited());
+        int count = 0;
+        while (elements.hasNext()) {
+            Object element = elements.next();
+            if (element == null) {
+                throw new SerializationException("element is null");
+            }
+            SerClass serClass = SerClassParser.ins().parse(element.getClass());
+            if (ctx.isLengthDelimited()) {
+                int mark = chunkWriter.beginLengthDelimited();
+                encodeSerObject(chunkCtx, element, serClass);
+                chunkWriter.endLengthDelimited(mark);
+            } else {
+                encodeSerObject(chunkCtx, element, serClass);
+            }
+            count++;
+            if (count >= MAX_CHUNK_ELEMENTS || chunkWriter.size() >= MAX_CHUNK_BYTES) {
+                writeChunk(writer, chunkWriter, count);
+                count = 0;
+            }
         }
+        if (count > 0) {
+            writeChunk(writer, chunkWriter, count);
+        }
+        writer.writeInt32NoTag(0); // 结束
     }
 
-    private void writeSerObject(SerContext ctx, SerField serField, Object value) {
-        CodedWriter writer = ctx.getWriter();
-        FieldType fieldType = serField.getType();
+    private void writeChunk(CodedWriter writer, ByteArrayWriter chunkWriter, int count) {
+        writer.writeInt32NoTag(count); // 数量
+        writer.writeRawBytes(chunkWriter.buf(), chunkWriter.offset(), chunkWriter.size());
+        chunkWriter.reset();
+    }
 
-        writer.writeTag(serField.getNumber(), fieldType.getWireType());
+    /* ########## delta ########## */
 
-        SerClass valueSerClass = SerClassParser.ins().parse(value.getClass());
+    /**
+     * 和base比较，只写入值不同的字段
+     * <p>
+     * 增量数据的格式：值不同的字段（和普通的对象一样），结束标记，变为null的字段数量，变为null的fieldNumber
+     *
+     * @param ctx
+     * @param base
+     * @param obj
+     */
+    void writeDelta(SerContext ctx, Object base, Object obj) {
+        SerClass serClass = SerClassParser.ins().parse(obj.getClass());
+        if (base.getClass() != obj.getClass()) {
+            throw new SerializationException("Class mismatch. base=" + base.getClass() + ", obj=" + obj.getClass());
+        }
+        writeFormat(ctx);
+        CodedWriter writer = ctx.getWriter();
 
-        writeSerObject(ctx, value, valueSerClass);
+        callHook(serClass.getBeforeSer(), obj);
+        List<SerField> cleared = null;
+        for (SerField serField : serClass.getFields()) {
+            Object value = getValue(obj, serField);
+            if (Objects.deepEquals(value, getValue(base, serField))) {
+                continue;
+            }
+            if (value == null) {
+                if (cleared == null) {
+                    cleared = new ArrayList<>();
+                }
+                cleared.add(serField);
+            } else {
+                writeField(ctx, obj, serField);
+            }
+        }
+        writer.writeStop();
+        writeCleared(writer, cleared);
+        callHook(serClass.getAfterSer(), obj);
+    }
+
+    /**
+     * 生成补丁，和{@link #writeDelta(SerContext, Object, Object)}一样只写入值不同的字段，但是会递归比较
+     * <p>
+     * <ul>
+     * <li>两边都不为null的嵌套对象（类型相同）和map、IntMap、LongMap，只写入其中变化的部分，wireType为{@link WireFormat#WIRETYPE_PATCH}</li>
+     * <li>按照字段的类型递归比较值，嵌套对象不需要实现equals方法，没有变化的嵌套对象和map不会写入</li>
+     * <li>嵌套的补丁开头是被修改的值的wireType，不认识这个字段时也可以跳过</li>
+     * <li>嵌套对象的补丁格式：wireType，之后和最外层相同</li>
+     * <li>map的补丁格式：wireType，key的wireType，修改的数量，每个修改（key，值的wireType，值或者值的补丁），删除的数量，删除的key</li>
+     * <li>{@link Lazy}字段和其他类型的字段有变化时写入整个值</li>
+     * </ul>
+     *
+     * @param ctx
+     * @param base
+     * @param obj
+     */
+    void writePatch(SerContext ctx, Object base, Object obj) {
+        SerClass serClass = SerClassParser.ins().parse(obj.getClass());
+        if (base.getClass() != obj.getClass()) {
+            throw new SerializationException("Class mismatch. base=" + base.getClass() + ", obj=" + obj.getClass());
+        }
+        writeFormat(ctx);
+        writeObjectPatch(ctx, base, obj, serClass);
+    }
+
+    private void writeObjectPatch(SerContext ctx, Object base, Object obj, SerClass serClass) {
+        CodedWriter writer = ctx.getWriter();
+
+        callHook(serClass.getBeforeSer(), obj);
+        List<SerField> cleared = null;
+        for (SerField serField : serClass.getFields()) {
+            Object value = getValue(obj, serField);
+            Object baseValue = getValue(base, serField);
+            if (valueEquals(serField.getType(), value, baseValue)) {
+                continue;
+            }
+            if (value == null) {
+                if (cleared == null) {
+                    cleared = new ArrayList<>();
+                }
+                cleared.add(serField);
+            } else if (!serField.isLazy() && isPatchable(serField.getType(), baseValue, value)) {
+                writer.writeTag(serField.getNumber(), WireFormat.WIRETYPE_PATCH);
+                writeSubPatch(ctx, serField, serField.getType(), baseValue, value);
+            } else {
+                writeField(ctx, obj, serField);
+            }
+        }
+        writer.writeStop();
+        writeCleared(writer, cleared);
+        callHook(serClass.getAfterSer(), obj);
     }
 
-    private void writeInt8(CodedWriter writer, SerField serField, int value) {
-        int fieldNumber = serField.getNumber();
-        switch (serField.getIntEncodeType()) {
-            case VARINT:
-                writer.writeInt32(fieldNumber, value);
-                break;
-            case SIGNED_VARINT:
-                writer.writeSInt32(fieldNumber, value);
-                break;
-            case FIXED:
-                writer.writeFixed8(fieldNumber, value);
-                break;
-
+    /**
+     * 是否可以只写入变化的部分
+     */
+    private boolean isPatchable(FieldType type, Object baseValue, Object value) {
+        if (baseValue == null) {
+            return false;
+        }
+        switch (type.getJavaType()) {
+            case SER_OBJECT:
+                return baseValue.getClass() == value.getClass();
+            case MAP:
+            case INT_MAP:
+            case LONG_MAP:
+                return true;
             default:
-                throw new SerializationException(
-                        "IntEncodeType mismatch : " + serField.getIntEncodeType());
+                return false;
         }
     }
 
-    private void writeInt16(CodedWriter writer, SerField serField, int value) {
-        int fieldNumber = serField.getNumber();
-        switch (serField.getIntEncodeType()) {
-            case VARINT:
-                writer.writeInt32(fieldNumber, value);
-                break;
-            case SIGNED_VARINT:
-                writer.writeSInt32(fieldNumber, value);
-                break;
-            case FIXED:
-                writer.writeFixed16(fieldNumber, value);
-                break;
-
-            default:
-                throw new SerializationException(
-                        "IntEncodeType mismatch: " + serField.getIntEncodeType());
+    /**
+     * 按照字段的类型递归比较两个值，嵌套对象逐个比较序列化的字段，不依赖它们的equals方法
+     */
+    private boolean valueEquals(FieldType type, Object a, Object b) {
+        if (a == b) {
+            return true;
+        }
+        if (a == null || b == null) {
+            return false;
+        }
+        switch (type.getJavaType()) {
+            case SER_OBJECT:
+            case POLY_OBJECT: {
+                if (a.getClass() != b.getClass()) {
+                    return false;
+                }
+                SerClass serClass = SerClassParser.ins().parse(a.getClass());
+                for (SerField serField : serClass.getFieldArray()) {
+                    if (!valueEquals(serField.getType(), getValue(a, serField), getValue(b, serField))) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            case LIST: {
+                List<?> la = (List<?>) a;
+                List<?> lb = (List<?>) b;
+                if (la.size() != lb.size()) {
+                    return false;
+                }
+                FieldType elementType = type.getSubTypes().get(0);
+                Iterator<?> ia = la.iterator();
+                Iterator<?> ib = lb.iterator();
+                while (ia.hasNext()) {
+                    if (!valueEquals(elementType, ia.next(), ib.next())) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            case MAP: {
+                Map<?, ?> ma = (Map<?, ?>) a;
+                Map<?, ?> mb = (Map<?, ?>) b;
+                if (ma.size() != mb.size()) {
+                    return false;
+                }
+                FieldType valueType = type.getSubTypes().get(1);
+                for (Map.Entry<?, ?> e : ma.entrySet()) {
+                    if (!mb.containsKey(e.getKey()) || !valueEquals(valueType, e.getValue(), mb.get(e.getKey()))) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            case INT_MAP: {
+                IntMap<?> ma = (IntMap<?>) a;
+                IntMap<?> mb = (IntMap<?>) b;
+                if (ma.size() != mb.size()) {
+                    return false;
+                }
+                FieldType valueType = type.getSubTypes().get(0);
+                for (IntMap.Entry<?> e : ma.entrySet()) {
+                    if (!mb.containsKey(e.getKey()) || !valueEquals(valueType, e.getValue(), mb.get(e.getKey()))) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            case LONG_MAP: {
+                LongMap<?> ma = (LongMap<?>) a;
+                LongMap<?> mb = (LongMap<?>) b;
+                if (ma.size() != mb.size()) {
+                    return false;
+                }
+                FieldType valueType = type.getSubTypes().get(0);
+                for (LongMap.Entry<?> e : ma.entrySet()) {
+                    if (!mb.containsKey(e.getKey()) || !valueEquals(valueType, e.getValue(), mb.get(e.getKey()))) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            default: // 基本类型、字符串、数组、set等使用它们自己的equals
+                return Objects.deepEquals(a, b);
         }
     }
 
-    private void writeInt32(CodedWriter writer, SerField serField, int value) {
-        int fieldNumber = serField.getNumber();
-        switch (serField.getIntEncodeType()) {
-            case VARINT:
-                writer.writeInt32(fieldNumber, value);
-                break;
-            case SIGNED_VARINT:
-                writer.writeSInt32(fieldNumber, value);
-                break;
-            case FIXED:
-                writer.writeFixed32(fieldNumber, value);
-                break;
-
-            default:
-                throw new SerializationException(
-                        "IntEncodeType mismatch: " + serField.getIntEncodeType());
+    private void writeSubPatch(SerContext ctx, SerField serField, FieldType type, Object baseValue, Object value) {
+        if (ctx.isLengthDelimited()) {
+            CodedWriter writer = ctx.getWriter();
+            int mark = writer.beginLengthDelimited();
+            writeSubPatch0(ctx, serField, type, baseValue, value);
+            writer.endLengthDelimited(mark);
+        } else {
+            writeSubPatch0(ctx, serField, type, baseValue, value);
         }
     }
 
-    private void writeInt64(CodedWriter writer, SerField serField, long value) {
-        int fieldNumber = serField.getNumber();
-        switch (serField.getIntEncodeType()) {
-            case VARINT:
-                writer.writeInt64(fieldNumber, value);
+    private void writeSubPatch0(SerContext ctx, SerField serField, FieldType type, Object baseValue, Object value) {
+        ctx.getWriter().writeWireType(type.getWireType()); // 被修改的值的wireType
+        switch (type.getJavaType()) {
+            case SER_OBJECT:
+                writeObjectPatch(ctx, baseValue, value, SerClassParser.ins().parse(value.getClass()));
                 break;
-            case SIGNED_VARINT:
-                writer.writeSInt64(fieldNumber, value);
+            case MAP:
+                writeMapPatch(ctx, serField, type, (Map<?, ?>) baseValue, (Map<?, ?>) value);
                 break;
-            case FIXED:
-                writer.writeFixed64(fieldNumber, value);
+            case INT_MAP:
+                writeIntMapPatch(ctx, serField, type, (IntMap<?>) baseValue, (IntMap<?>) value);
+                break;
+            case LONG_MAP:
+                writeLongMapPatch(ctx, serField, type, (LongMap<?>) baseValue, (LongMap<?>) value);
                 break;
-
             default:
-                throw new SerializationException(
-                        "IntEncodeType mismatch: " + serField.getIntEncodeType());
+                throw new SerializationException("Unsupported patch type: " + type);
         }
     }
 
-    /* ########## write sub ########## */
-
-    private void writeSubValue(SerContext ctx, SerField serField, FieldType type, Object value) {
-        if (value == null) {
-            throw new SerializationException("value is null");
+    /**
+     * 写入map中一个修改的值，可以只写入变化的部分时写入补丁
+     */
+    private void writeEntryPatch(SerContext ctx, SerField serField, FieldType valueType, Object baseValue,
+                                 Object value) {
+        CodedWriter writer = ctx.getWriter();
+        if (isPatchable(valueType, baseValue, value)) {
+            writer.writeWireType(WireFormat.WIRETYPE_PATCH);
+            writeSubPatch(ctx, serField, valueType, baseValue, value);
+        } else {
+            writer.writeWireType(valueType.getWireType());
+            writeSubValue(ctx, serField, valueType, value);
         }
-        switch (type.getJavaType()) {
-            case BYTE:
-                writeByte(ctx, type, ((Byte) value).byteValue());
-                break;
-
-            case CHAR:
-                writeChar(ctx, type, ((Character) value).charValue());
-                break;
-
-            case SHORT:
-                writeShort(ctx, type, ((Short) value).shortValue());
-                break;
-
-            case INT:
-                writeInt(ctx, type, ((Integer) value).intValue());
-                break;
+    }
 
-            case LONG:
-                writeLong(ctx, type, ((Long) value).longValue());
-                break;
+    private void writeMapPatch(SerContext ctx, SerField serField, FieldType type, Map<?, ?> base, Map<?, ?> value) {
+        CodedWriter writer = ctx.getWriter();
+        FieldType keyType = type.getSubTypes().get(0);
+        FieldType valueType = type.getSubTypes().get(1);
 
-            case FLOAT:
-                writeFloat(ctx, type, ((Float) value).floatValue());
-                break;
+        writer.writeWireType(keyType.getWireType()); // key wireType
+        List<Map.Entry<?, ?>> changed = new ArrayList<>();
+        for (Map.Entry<?, ?> e : value.entrySet()) {
+            if (!valueEquals(valueType, e.getValue(), base.get(e.getKey())) || !base.containsKey(e.getKey())) {
+                changed.add(e);
+            }
+        }
+        writer.writeInt32NoTag(changed.size()); // 修改的数量
+        for (Map.Entry<?, ?> e : changed) {
+            writeSubValue(ctx, serField, keyType, e.getKey());
+            writeEntryPatch(ctx, serField, valueType, base.get(e.getKey()), e.getValue());
+        }
 
-            case DOUBLE:
-                writeDouble(ctx, type, ((Double) value).doubleValue());
-                break;
+        int removed = 0;
+        for (Object k : base.keySet()) {
+            if (!value.containsKey(k)) {
+                removed++;
+            }
+        }
+        writer.writeInt32NoTag(removed); // 删除的数量
+        for (Object k : base.keySet()) {
+            if (!value.containsKey(k)) {
+                writeSubValue(ctx, serField, keyType, k);
+            }
+        }
+    }
 
-            case BOOL:
-                writeBoolean(ctx, type, ((Boolean) value).booleanValue());
-                break;
+    private void writeIntMapPatch(SerContext ctx, SerField serField, FieldType type, IntMap<?> base,
+                                  IntMap<?> value) {
+        CodedWriter writer = ctx.getWriter();
+        FieldType valueType = type.getSubTypes().get(0);
 
-            case ENUM:
-                writeEnum(ctx, type, (Enum<?>) value);
-                break;
+        writer.writeWireType(WireFormat.WIRETYPE_VARINT); // key wireType
+        List<IntMap.Entry<?>> changed = new ArrayList<>();
+        for (IntMap.Entry<?> e : value.entrySet()) {
+            if (!valueEquals(valueType, e.getValue(), base.get(e.getKey())) || !base.containsKey(e.getKey())) {
+                changed.add(e);
+            }
+        }
+        writer.writeInt32NoTag(changed.size()); // 修改的数量
+        for (IntMap.Entry<?> e : changed) {
+            writer.writeInt32NoTag(e.getKey());
+            writeEntryPatch(ctx, serField, valueType, base.get(e.getKey()), e.getValue());
+        }
 
-            case BYTES:
-                writeBytes(ctx, type, (byte[]) value);
-                break;
+        int removed = 0;
+        for (IntMap.Entry<?> e : base.entrySet()) {
+            if (!value.containsKey(e.getKey())) {
+                removed++;
+            }
+        }
+        writer.writeInt32NoTag(removed); // 删除的数量
+        for (IntMap.Entry<?> e : base.entrySet()) {
+            if (!value.containsKey(e.getKey())) {
+                writer.writeInt32NoTag(e.getKey());
+            }
+        }
+    }
 
-            case STRING:
-                writeString(ctx, type, (String) value);
-                break;
+    private void writeLongMapPatch(SerContext ctx, SerField serField, FieldType type, LongMap<?> base,
+                                   LongMap<?> value) {
+        CodedWriter writer = ctx.getWriter();
+        FieldType valueType = type.getSubTypes().get(0);
 
-            case LIST:
-            case SET:
-                writeCollection(ctx, serField, type, (Collection<?>) value);
-                break;
+        writer.writeWireType(WireFormat.WIRETYPE_VARINT); // key wireType
+        List<LongMap.Entry<?>> changed = new ArrayList<>();
+        for (LongMap.Entry<?> e : value.entrySet()) {
+            if (!valueEquals(valueType, e.getValue(), base.get(e.getKey())) || !base.containsKey(e.getKey())) {
+                changed.add(e);
+            }
+        }
+        writer.writeInt32NoTag(changed.size()); // 修改的数量
+        for (LongMap.Entry<?> e : changed) {
+            writer.writeInt64NoTag(e.getKey());
+            writeEntryPatch(ctx, serField, valueType, base.get(e.getKey()), e.getValue());
+        }
 
-            case INT_SET:
-                writeIntSet(ctx, serField, type, (IntSet) value);
-                break;
+        int removed = 0;
+        for (LongMap.Entry<?> e : base.entrySet()) {
+            if (!value.containsKey(e.getKey())) {
+                removed++;
+            }
+        }
+        writer.writeInt32NoTag(removed); // 删除的数量
+        for (LongMap.Entry<?> e : base.entrySet()) {
+            if (!value.containsKey(e.getKey())) {
+                writer.writeInt64NoTag(e.getKey());
+            }
+        }
+    }
 
-            case LONG_SET:
-                writeLongSet(ctx, serField, type, (LongSet) value);
-                break;
+    /**
+     * 和快照比较，只写入编码后不同的字段
+     *
+     * @param ctx
+     * @param base
+     * @param obj
+     */
+    void writeDelta(SerContext ctx, SerSnapshot base, Object obj) {
+        SerClass serClass = SerClassParser.ins().parse(obj.getClass());
+        if (base.getClazz() != obj.getClass()) {
+            throw new SerializationException("Class mismatch. base=" + base.getClazz() + ", obj=" + obj.getClass());
+        }
+        if (base.isLengthDelimited() != ctx.isLengthDelimited()) {
+            throw new SerializationException("Format mismatch. snapshot lengthDelimited=" + base.isLengthDelimited());
+        }
+        writeFormat(ctx);
+        CodedWriter writer = ctx.getWriter();
+        ByteArrayWriter fieldWriter = new ByteArrayWriter();
+        SerContext fieldCtx = new SerContext(fieldWriter, ctx.getContainerSizeLimit(), ctx.isLengthDelimited());
 
-            case MAP:
-                writeMap(ctx, serField, type, (Map<?, ?>) value);
-                break;
+        callHook(serClass.getBeforeSer(), obj);
+        List<SerField> cleared = null;
+        List<SerField> serFields = serClass.getFields();
+        for (int i = 0; i < serFields.size(); i++) {
+            SerField serField = serFields.get(i);
+            fieldWriter.reset();
+            writeField(fieldCtx, obj, serField);
+            if (Utils.equals(base.getFieldBytes(i), fieldWriter.buf(), fieldWriter.offset(), fieldWriter.size())) {
+                continue;
+            }
+            if (fieldWriter.size() == 0) { // 变为null
+                if (cleared == null) {
+                    cleared = new ArrayList<>();
+                }
+                cleared.add(serField);
+            } else {
+                writer.writeRawBytes(fieldWriter.buf(), fieldWriter.offset(), fieldWriter.size());
+            }
+        }
+        writer.writeStop();
+        writeCleared(writer, cleared);
+        callHook(serClass.getAfterSer(), obj);
+    }
+
+    /**
+     * 创建快照，按顺序编码每个字段
+     *
+     * @param ctx
+     * @param obj
+     * @return
+     */
+    SerSnapshot snapshot(SerContext ctx, Object obj) {
+        SerClass serClass = SerClassParser.ins().parse(obj.getClass());
+        ByteArrayWriter fieldWriter = new ByteArrayWriter();
+        SerContext fieldCtx = new SerContext(fieldWriter, ctx.getContainerSizeLimit(), ctx.isLengthDelimited());
+
+        callHook(serClass.getBeforeSer(), obj);
+        List<SerField> serFields = serClass.getFields();
+        byte[][] fieldBytes = new byte[serFields.size()][];
+        for (int i = 0; i < fieldBytes.length; i++) {
+            fieldWriter.reset();
+            writeField(fieldCtx, obj, serFields.get(i));
+            fieldBytes[i] = fieldWriter.toByteArray();
+        }
+        callHook(serClass.getAfterSer(), obj);
+        return new SerSnapshot(obj.getClass(), ctx.isLengthDelimited(), fieldBytes);
+    }
 
-            case INT_MAP:
-                writeIntMap(ctx, serField, type, (IntMap<?>) value);
-                break;
+    private Object getValue(Object obj, SerField serField) {
+        Object value = serField.getAccessor().get(obj);
+        if (serField.isLazy() && value != null) {
+            value = ((Lazy<?>) value).get();
+        }
+        return value;
+    }
 
-            case LONG_MAP:
-                writeLongMap(ctx, serField, type, (LongMap<?>) value);
-                break;
+    private void writeCleared(CodedWriter writer, List<SerField> cleared) {
+        if (cleared == null) {
+            writer.writeInt32NoTag(0);
+            return;
+        }
+        writer.writeInt32NoTag(cleared.size());
+        for (SerField serField : cleared) {
+            writer.writeInt32NoTag(serField.getNumber());
+        }
+    }
 
-            case INT_VALUE_MAP:
-                writeIntValueMap(ctx, serField, type, (IntValueMap<?>) value);
-                break;
+    private void callHook(Consumer<Object> hook, Object obj) {
+        if (hook != null) {
+            hook.accept(obj);
+        }
+    }
 
-            case LONG_VALUE_MAP:
-                writeLongValueMap(ctx, serField, type, (LongValueMap<?>) value);
-                break;
+    private void writeSerObject(SerContext ctx, Object obj, SerClass serClass) {
+        CodedWriter writer = ctx.getWriter();
+        // 计算大小时使用缓存，缓存的是默认格式的大小
+        if (obj instanceof SizeCacheable && writer instanceof CountingWriter && !ctx.isLengthDelimited()) {
+            countSerObject(ctx, (CountingWriter) writer, (SizeCacheable) obj, serClass);
+        } else {
+            encodeSerObject(ctx, obj, serClass);
+        }
+    }
 
-            case FLOAT_VALUE_MAP:
-                writeFloatValueMap(ctx, serField, type, (FloatValueMap<?>) value);
-                break;
+    private void encodeSerObject(SerContext ctx, Object obj, SerClass serClass) {
+        CodedWriter writer = ctx.getWriter();
 
-            case DOUBLE_VALUE_MAP:
-                writeDoubleValueMap(ctx, serField, type, (DoubleValueMap<?>) value);
-                break;
+        // 调用before方法
+        Consumer<Object> beforeSer = serClass.getBeforeSer();
+        if (beforeSer != null) {
+            beforeSer.accept(obj);
+        }
 
-            case SER_OBJECT:
-                writeSerObject(ctx, serField, type, value);
-                break;
+        // 编码字段
+        for (SerField serField : serClass.getFieldArray()) {
+            try {
+                writeField(ctx, obj, serField);
+            } catch (SerializationException e) {
+                throw new SerializationException("Error while writing the field. Field=" + serField, e);
+            }
+        }
+        // 字段结束
+        writer.writeStop();
 
-            default:
-                throw new SerializationException("Unsupported type: " + type);
+        // 调用after方法
+        Consumer<Object> afterSer = serClass.getAfterSer();
+        if (afterSer != null) {
+            afterSer.accept(obj);
         }
     }
 
-    private void writeByte(SerContext ctx, FieldType type, byte value) {
-        CodedWriter writer = ctx.getWriter();
-        writer.writeInt32NoTag(value);
+    private void countSerObject(SerContext ctx, CountingWriter writer, SizeCacheable obj, SerClass serClass) {
+        int cachedSize = obj.getCachedSerializedSize();
+        if (cachedSize >= 0) {
+            writer.skip(cachedSize);
+            return;
+        }
+        int start = writer.count();
+        encodeSerObject(ctx, obj, serClass);
+        obj.setCachedSerializedSize(writer.count() - start);
     }
 
-    private void writeChar(SerContext ctx, FieldType type, char value) {
-        CodedWriter writer = ctx.getWriter();
-        writer.writeInt32NoTag(value);
+    private void writeField(SerContext ctx, Object obj, SerField serField) {
+        serField.getCodec().write(this, ctx, obj);
     }
 
-    private void writeShort(SerContext ctx, FieldType type, short value) {
-        CodedWriter writer = ctx.getWriter();
-        writer.writeInt32NoTag(value);
+    void writeObjectField(SerContext ctx, Object obj, SerField serField) {
+        FieldType fieldType = serField.getType();
+        Object value = serField.getAccessor().get(obj);
+        if (value == null) {
+            return; // 跳过null
+        }
+        int wireType = fieldType.getWireType();
+        if (serField.isLazy()) {
+            Lazy<?> lazy = (Lazy<?>) value;
+            // 使用字符串表时原始字节中的索引对应的是另一个表，需要重新编码
+            byte[] rawBytes = ctx.getStrings() == null ? lazy.rawBytes(ctx.isLengthDelimited()) : null;
+            if (rawBytes != null) { // 还没有解码，直接写入原始字节
+                CodedWriter writer = ctx.getWriter();
+                writer.writeTag(serField.getNumber(), wireType);
+                if (ctx.isLengthDelimited()) {
+                    writer.writeRawVarint32(rawBytes.length);
+                }
+                writer.writeRawBytes(rawBytes);
+                return;
+            }
+            value = lazy.get();
+            if (value == null) {
+                return; // 跳过null
+            }
+        }
+        ctx.getWriter().writeTag(serField.getNumber(), wireType);
+        writeSubValue(ctx, serField, fieldType, value); // tag后面的编码和容器中的元素一样
     }
 
-    private void writeInt(SerContext ctx, FieldType type, int value) {
-        CodedWriter writer = ctx.getWriter();
-        writer.writeInt32NoTag(value);
-    }
+    /* ########## write sub ########## */
 
-    private void writeLong(SerContext ctx, FieldType type, long value) {
+    void writeString0(SerContext ctx, String value) {
         CodedWriter writer = ctx.getWriter();
-        writer.writeInt64NoTag(value);
+        StringTable strings = ctx.getStrings();
+        if (strings == null) {
+            writer.writeStringNoTag(value);
+            return;
+        }
+        // 仍然按bytes写入，内容是表中的索引
+        int index = strings.indexOf(value);
+        writer.writeRawVarint32(CodedWriter.computeRawVarint32Size(index));
+        writer.writeRawVarint32(index);
     }
 
-    private void writeFloat(SerContext ctx, FieldType type, float value) {
-        CodedWriter writer = ctx.getWriter();
-        writer.writeFloatNoTag(value);
+    private void writeSubValue(SerContext ctx, SerField serField, FieldType type, Object value) {
+        if (value == null) {
+            throw new SerializationException("value is null");
+        }
+        if (ctx.isLengthDelimited() && WireFormat.isLengthDelimited(type.getWireType())) {
+            CodedWriter writer = ctx.getWriter();
+            int mark = writer.beginLengthDelimited();
+            writeSubValue0(ctx, serField, type, value);
+            writer.endLengthDelimited(mark);
+        } else {
+            writeSubValue0(ctx, serField, type, value);
+        }
     }
 
-    private void writeDouble(SerContext ctx, FieldType type, double value) {
-        CodedWriter writer = ctx.getWriter();
-        writer.writeDoubleNoTag(value);
+    private void writeSubValue0(SerContext ctx, SerField serField, FieldType type, Object value) {
+        type.getCodec().write(this, ctx, serField, type, value);
     }
 
-    private void writeBoolean(SerContext ctx, FieldType type, boolean value) {
-        CodedWriter writer = ctx.getWriter();
-        writer.writeBoolNoTag(value);
+    void writeIntArray(SerContext ctx, SerField serField, IntEncodeType intEncodeType, int[] value) {
+        checkContainerSize(ctx, value.length, serField);
+        writeIntArrayNoTag(ctx.getWriter(), intEncodeType, value);
     }
 
-    private void writeEnum(SerContext ctx, FieldType type, Enum<?> value) {
-        CodedWriter writer = ctx.getWriter();
-        writer.writeInt32NoTag(EnumUtils.tagOf(value)); // write tag
+    void writeLongArray(SerContext ctx, SerField serField, IntEncodeType intEncodeType, long[] value) {
+        checkContainerSize(ctx, value.length, serField);
+        writeLongArrayNoTag(ctx.getWriter(), intEncodeType, value);
     }
 
-
-    private void writeBytes(SerContext ctx, FieldType type, byte[] value) {
-        CodedWriter writer = ctx.getWriter();
-        writer.writeBytesNoTag(value);
+    void writeFloatArray(SerContext ctx, SerField serField, float[] value) {
+        checkContainerSize(ctx, value.length, serField);
+        writeFloatArrayNoTag(ctx.getWriter(), value);
     }
 
-    private void writeString(SerContext ctx, FieldType type, String value) {
-        CodedWriter writer = ctx.getWriter();
-        writer.writeStringNoTag(value);
+    void writeDoubleArray(SerContext ctx, SerField serField, double[] value) {
+        checkContainerSize(ctx, value.length, serField);
+        writeDoubleArrayNoTag(ctx.getWriter(), value);
     }
 
-    private void writeCollection(SerContext ctx, SerField serField, FieldType type,
-                                 Collection<?> value) {
+    void writeCollection(SerContext ctx, SerField serField, FieldType type, Collection<?> value) {
         int size = value.size();
         checkContainerSize(ctx, size, serField);
 
@@ -882,7 +721,7 @@ class SerWriter {
         }
     }
 
-    private void writeIntSet(SerContext ctx, SerField serField, FieldType type, IntSet value) {
+    void writeIntSet(SerContext ctx, SerField serField, FieldType type, IntSet value) {
         int size = value.size();
         checkContainerSize(ctx, size, serField);
 
@@ -898,7 +737,7 @@ class SerWriter {
         }
     }
 
-    private void writeLongSet(SerContext ctx, SerField serField, FieldType type, LongSet value) {
+    void writeLongSet(SerContext ctx, SerField serField, FieldType type, LongSet value) {
         int size = value.size();
         checkContainerSize(ctx, size, serField);
 
@@ -914,7 +753,7 @@ class SerWriter {
         }
     }
 
-    private void writeMap(SerContext ctx, SerField serField, FieldType type, Map<?, ?> value) {
+    void writeMap(SerContext ctx, SerField serField, FieldType type, Map<?, ?> value) {
         int size = value.size();
         checkContainerSize(ctx, size, serField);
 
@@ -933,7 +772,7 @@ class SerWriter {
         }
     }
 
-    private void writeIntMap(SerContext ctx, SerField serField, FieldType type, IntMap<?> value) {
+    void writeIntMap(SerContext ctx, SerField serField, FieldType type, IntMap<?> value) {
         int size = value.size();
         checkContainerSize(ctx, size, serField);
 
@@ -951,7 +790,7 @@ class SerWriter {
         }
     }
 
-    private void writeLongMap(SerContext ctx, SerField serField, FieldType type, LongMap<?> value) {
+    void writeLongMap(SerContext ctx, SerField serField, FieldType type, LongMap<?> value) {
         int size = value.size();
         checkContainerSize(ctx, size, serField);
 
@@ -969,8 +808,7 @@ class SerWriter {
         }
     }
 
-    private void writeIntValueMap(SerContext ctx, SerField serField, FieldType type,
-                                  IntValueMap<?> value) {
+    void writeIntValueMap(SerContext ctx, SerField serField, FieldType type, IntValueMap<?> value) {
         int size = value.size();
         checkContainerSize(ctx, size, serField);
 
@@ -988,8 +826,7 @@ class SerWriter {
         }
     }
 
-    private void writeLongValueMap(SerContext ctx, SerField serField, FieldType type,
-                                   LongValueMap<?> value) {
+    void writeLongValueMap(SerContext ctx, SerField serField, FieldType type, LongValueMap<?> value) {
         int size = value.size();
         checkContainerSize(ctx, size, serField);
 
@@ -1007,8 +844,7 @@ class SerWriter {
         }
     }
 
-    private void writeFloatValueMap(SerContext ctx, SerField serField, FieldType type,
-                                    FloatValueMap<?> value) {
+    void writeFloatValueMap(SerContext ctx, SerField serField, FieldType type, FloatValueMap<?> value) {
         int size = value.size();
         checkContainerSize(ctx, size, serField);
 
@@ -1026,8 +862,7 @@ class SerWriter {
         }
     }
 
-    private void writeDoubleValueMap(SerContext ctx, SerField serField, FieldType type,
-                                     DoubleValueMap<?> value) {
+    void writeDoubleValueMap(SerContext ctx, SerField serField, FieldType type, DoubleValueMap<?> value) {
         int size = value.size();
         checkContainerSize(ctx, size, serField);
 
@@ -1045,12 +880,108 @@ class SerWriter {
         }
     }
 
-    private void writeSerObject(SerContext ctx, SerField serField, FieldType type, Object value) {
+    void writeSerObject(SerContext ctx, SerField serField, FieldType type, Object value) {
+        SerClass valueSerClass = SerClassParser.ins().parse(value.getClass());
+
+        writeSerObject(ctx, value, valueSerClass);
+    }
+
+    void writePolyObject(SerContext ctx, SerField serField, FieldType type, Object value) {
+        int typeId = SerTypeRegistry.ins().typeIdOf(value.getClass());
+        if (typeId == 0) {
+            throw new SerializationException(value.getClass() + " has no typeId. Field=" + serField);
+        }
         SerClass valueSerClass = SerClassParser.ins().parse(value.getClass());
 
+        ctx.getWriter().writeInt32NoTag(typeId);
         writeSerObject(ctx, value, valueSerClass);
     }
 
+    /* ########## packed array ########## */
+
+    private void writeIntArrayNoTag(CodedWriter writer, IntEncodeType intEncodeType, int[] value) {
+        int dataSize = 0;
+        switch (intEncodeType) {
+            case VARINT:
+                for (int e : value) {
+                    dataSize += CodedWriter.computeInt32Size(e);
+                }
+                writeArrayHeader(writer, WireFormat.WIRETYPE_VARINT, value.length, dataSize);
+                for (int e : value) {
+                    writer.writeInt32NoTag(e);
+                }
+                break;
+            case SIGNED_VARINT:
+                for (int e : value) {
+                    dataSize += CodedWriter.computeRawVarint32Size(CodedWriter.encodeZigZag32(e));
+                }
+                writeArrayHeader(writer, WireFormat.WIRETYPE_VARINT, value.length, dataSize);
+                for (int e : value) {
+                    writer.writeSInt32NoTag(e);
+                }
+                break;
+            case FIXED:
+                dataSize = value.length * WireFormat.FIXED_32_SIZE;
+                writeArrayHeader(writer, WireFormat.WIRETYPE_FIXED32, value.length, dataSize);
+                writer.writeRawLittleEndian32s(value);
+                break;
+            default:
+                throw new SerializationException("IntEncodeType mismatch: " + intEncodeType);
+        }
+    }
+
+    private void writeLongArrayNoTag(CodedWriter writer, IntEncodeType intEncodeType, long[] value) {
+        int dataSize = 0;
+        switch (intEncodeType) {
+            case VARINT:
+                for (long e : value) {
+                    dataSize += CodedWriter.computeRawVarint64Size(e);
+                }
+                writeArrayHeader(writer, WireFormat.WIRETYPE_VARINT, value.length, dataSize);
+                for (long e : value) {
+                    writer.writeInt64NoTag(e);
+                }
+                break;
+            case SIGNED_VARINT:
+                for (long e : value) {
+                    dataSize += CodedWriter.computeRawVarint64Size(CodedWriter.encodeZigZag64(e));
+                }
+                writeArrayHeader(writer, WireFormat.WIRETYPE_VARINT, value.length, dataSize);
+                for (long e : value) {
+                    writer.writeSInt64NoTag(e);
+                }
+                break;
+            case FIXED:
+                dataSize = value.length * WireFormat.FIXED_64_SIZE;
+                writeArrayHeader(writer, WireFormat.WIRETYPE_FIXED64, value.length, dataSize);
+                writer.writeRawLittleEndian64s(value);
+                break;
+            default:
+                throw new SerializationException("IntEncodeType mismatch: " + intEncodeType);
+        }
+    }
+
+    private void writeFloatArrayNoTag(CodedWriter writer, float[] value) {
+        writeArrayHeader(writer, WireFormat.WIRETYPE_FIXED32, value.length, value.length * WireFormat.FIXED_32_SIZE);
+        writer.writeRawFloats(value);
+    }
+
+    private void writeDoubleArrayNoTag(CodedWriter writer, double[] value) {
+        writeArrayHeader(writer, WireFormat.WIRETYPE_FIXED64, value.length, value.length * WireFormat.FIXED_64_SIZE);
+        writer.writeRawDoubles(value);
+    }
+
+    /**
+     * 数组打包编码，和bytes一样以字节长度开头，可以整体跳过：字节长度，元素的wireType，数量，元素
+     */
+    private void writeArrayHeader(CodedWriter writer, int elementWireType, int length, int dataSize) {
+        int byteSize = CodedWriter.computeRawVarint32Size(elementWireType)
+                + CodedWriter.computeRawVarint32Size(length) + dataSize;
+        writer.writeRawVarint32(byteSize); // 字节长度
+        writer.writeWireType(elementWireType); // 元素的wireType
+        writer.writeRawVarint32(length); // 数量
+    }
+
     private void checkContainerSize(SerContext ctx, int size, SerField serField) {
         if (size < 0) {
             throw new SerializationException("Container size < 0: " + size);
@@ -38,4 +38,8 @@ public class SerializationException extends RuntimeException {
         return new SerializationException("CodedReader encountered a malformed varint.");
     }
 
+    public static SerializationException totalByteSizeExceeded(long size, int limit) {
+        return new SerializationException("Total byte size exceeded max allowed. size=" + size + ", limit=" + limit);
+    }
+
 }
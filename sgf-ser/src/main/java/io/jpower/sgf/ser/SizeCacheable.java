@@ -0,0 +1,30 @@
+package io.jpower.sgf.ser;
+
+/**
+ * 可以缓存序列化后字节大小的对象
+ * <p>
+ * <ul>
+ * <li>{@link Ser#serializedSize(Object)}计算时会把结果缓存到对象中，嵌套的对象也一样</li>
+ * <li>有缓存时，计算大小会直接使用缓存，{@link Ser#serialize(Object)}也会按照缓存的大小一次分配好字节数组</li>
+ * <li>对象（包括嵌套的对象）中的字段被修改后，需要调用{@link #setCachedSerializedSize(int)}设置为-1来清除缓存</li>
+ * </ul>
+ *
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+public interface SizeCacheable {
+
+    /**
+     * 返回缓存的字节大小
+     *
+     * @return 没有缓存时返回-1
+     */
+    int getCachedSerializedSize();
+
+    /**
+     * 设置缓存的字节大小
+     *
+     * @param size -1表示清除缓存
+     */
+    void setCachedSerializedSize(int size);
+
+}
@@ -30,6 +30,26 @@ class StreamReader extends CodedReader {
 
     private int limit;
 
+    /**
+     * 已经从缓冲区中移除的字节数，加上{@link #position}就是已经读取的总字节数
+     */
+    private long totalBytesRetired;
+
+    /**
+     * 字节数限制，见{@link #setByteLimit(int)}
+     */
+    private int byteLimit = Ser.NO_SIZE_LIMIT;
+
+    /**
+     * 字节数限制对应的读取总字节数，不限制时为{@link Long#MAX_VALUE}
+     */
+    private long byteLimitEnd = Long.MAX_VALUE;
+
+    /**
+     * 缓冲区中超过字节数限制的字节数，这部分数据在{@link #limit}之后，不能读取
+     */
+    private int bufferSizeAfterLimit;
+
     StreamReader(InputStream input) {
         this(input, DEFAULT_BUFFER_SIZE);
     }
@@ -51,7 +71,7 @@ class StreamReader extends CodedReader {
         if (size > 0 && size <= (limit - position)) {
             // Fast path: We already have the bytes in a contiguous buffer, so
             // just copy directly from it.
-            String result = new String(buffer, position, size, Utils.CHARSET);
+            String result = Utils.decodeUtf8(buffer, position, size);
             position += size;
             return result;
         }
@@ -60,12 +80,12 @@ class StreamReader extends CodedReader {
         }
         if (size <= limit) {
             refillBuffer(size);
-            String result = new String(buffer, position, size, Utils.CHARSET);
+            String result = Utils.decodeUtf8(buffer, position, size);
             position += size;
             return result;
         }
         // Slow path: Build a byte array first then copy it.
-        return new String(readRawBytesSlowPath(size), Utils.CHARSET);
+        return Utils.decodeUtf8(readRawBytesSlowPath(size), 0, size);
 
     }
 
@@ -290,8 +310,44 @@ class StreamReader extends CodedReader {
         }
     }
 
+    /**
+     * 缓冲区中超过限制的数据先隐藏起来，从流中读取数据时也最多读到限制的位置，需要的数据超过限制时抛出异常
+     */
+    @Override
+    void setByteLimit(int byteLimit) {
+        this.byteLimit = byteLimit;
+        this.byteLimitEnd = byteLimit == Ser.NO_SIZE_LIMIT ? Long.MAX_VALUE : totalBytesRetired + position + byteLimit;
+
+        limit += bufferSizeAfterLimit;
+        long bufferEnd = totalBytesRetired + limit;
+        if (bufferEnd > byteLimitEnd) {
+            bufferSizeAfterLimit = (int) (bufferEnd - byteLimitEnd);
+            limit -= bufferSizeAfterLimit;
+        } else {
+            bufferSizeAfterLimit = 0;
+        }
+    }
+
     /* ########## 自己的方法 ########## */
 
+    /**
+     * 是否已经读到流的末尾，缓冲区中没有数据时会尝试从流中读取
+     *
+     * @return
+     */
+    boolean isAtEnd() {
+        return position == limit && !tryRefillBuffer(1);
+    }
+
+    /**
+     * 从流的开头到当前位置一共读取的字节数
+     *
+     * @return
+     */
+    long totalBytesRead() {
+        return totalBytesRetired + position;
+    }
+
     /**
      * Ensures that at least {@code n} bytes are available in the buffer,
      * reading more bytes from the input if necessary to make it so. Caller must
@@ -313,6 +369,7 @@ class StreamReader extends CodedReader {
      * @throws SerializationException The end of the stream or the current limit was reached.
      */
     private void refillBuffer(int n) {
+        checkByteLimit(n);
         if (!tryRefillBuffer(n)) {
             throw SerializationException.truncatedMessage();
         }
@@ -331,6 +388,9 @@ class StreamReader extends CodedReader {
             throw new IllegalStateException(
                     "refillBuffer() called when " + n + " bytes were already available in buffer");
         }
+        if (totalBytesRetired + limit >= byteLimitEnd) { // 已经到达限制的位置，缓冲区中可能还有隐藏的数据
+            return false;
+        }
 
         int tempPos = position;
         if (tempPos > 0) {
@@ -339,11 +399,19 @@ class StreamReader extends CodedReader {
             }
             limit -= tempPos;
             position = 0;
+            totalBytesRetired += tempPos;
         }
 
+        int len = buffer.length - limit;
+        if (byteLimitEnd != Long.MAX_VALUE) { // 不从流中读取超过限制的数据
+            len = (int) Math.min(len, byteLimitEnd - totalBytesRetired - limit);
+            if (len <= 0) {
+                return false;
+            }
+        }
         int bytesRead;
         try {
-            bytesRead = input.read(buffer, limit, buffer.length - limit);
+            bytesRead = input.read(buffer, limit, len);
         } catch (IOException e) {
             throw JavaUtils.sneakyThrow(e);
         }
@@ -366,12 +434,15 @@ class StreamReader extends CodedReader {
             throw SerializationException.negativeSize(size);
         }
 
+        checkByteLimit(size);
+
         final int originalBufferPos = position;
         final int bufferedBytes = limit - position;
 
         // Mark the current buffer consumed.
         position = 0;
         limit = 0;
+        totalBytesRetired += originalBufferPos + size;
 
         // Determine the number of bytes we need to read from the input stream.
         int sizeLeft = size - bufferedBytes;
@@ -461,12 +532,15 @@ class StreamReader extends CodedReader {
             throw SerializationException.negativeSize(size);
         }
 
+        checkByteLimit(size);
+
         final int originalBufferPos = position;
         final int bufferedBytes = limit - position;
 
         // Mark the current buffer consumed.
         position = 0;
         limit = 0;
+        totalBytesRetired += originalBufferPos + size;
 
         // Determine the number of bytes we need to read from the input stream.
         int sizeLeft = size - bufferedBytes;
@@ -567,6 +641,7 @@ class StreamReader extends CodedReader {
         if (size < 0) {
             throw SerializationException.negativeSize(size);
         }
+        checkByteLimit(size);
 
         // Skipping more bytes than are in the buffer. First skip what we have.
         int tempPos = limit - position;
@@ -586,4 +661,14 @@ class StreamReader extends CodedReader {
         position = size - tempPos;
     }
 
+    /**
+     * 检查再读取n个字节是否会超过字节数限制
+     */
+    private void checkByteLimit(int n) {
+        long end = totalBytesRetired + position + n;
+        if (end > byteLimitEnd) {
+            throw SerializationException.totalByteSizeExceeded(end - (byteLimitEnd - byteLimit), byteLimit);
+        }
+    }
+
 }
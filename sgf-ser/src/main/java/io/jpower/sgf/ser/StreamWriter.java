@@ -24,6 +24,11 @@ class StreamWriter extends CodedWriter {
 
     private int totalBytesWritten = 0;
 
+    /**
+     * 字节数限制对应的{@link #totalBytesWritten}，不限制时为{@link Long#MAX_VALUE}
+     */
+    private long byteLimitEnd = Long.MAX_VALUE;
+
     StreamWriter(OutputStream output) {
         this(output, DEFAULT_BUFFER_SIZE);
     }
@@ -76,6 +81,7 @@ class StreamWriter extends CodedWriter {
                 position = length;
             } else {
                 // Write is very big. Let's do it all at once.
+                checkByteLimit((long) totalBytesWritten + length);
                 try {
                     output.write(value, offset, length);
                 } catch (IOException e) {
@@ -86,13 +92,42 @@ class StreamWriter extends CodedWriter {
         }
     }
 
+    /* ########## 覆盖父类方法 ########## */
+
+    /**
+     * 能放进缓冲区时直接编码到缓冲区中，不创建临时的字节数组
+     */
+    @Override
+    void writeStringNoTag(String value) {
+        int length = Utils.utf8Length(value);
+        if (length > limit) { // 太大了，放不进缓冲区
+            super.writeStringNoTag(value);
+            return;
+        }
+        writeRawVarint32(length);
+        if (limit - position < length) {
+            flush();
+        }
+        position = Utils.encodeUtf8(value, buffer, position);
+        totalBytesWritten += length;
+    }
+
+    @Override
+    void setByteLimit(int byteLimit) {
+        super.setByteLimit(byteLimit);
+        byteLimitEnd = byteLimit == Ser.NO_SIZE_LIMIT ? Long.MAX_VALUE : (long) totalBytesWritten + byteLimit;
+    }
+
     /* ########## 自己的方法 ########## */
 
     /**
      * Flushes the stream and forces any buffered bytes to be written. This does
      * not flush the underlying OutputStream.
+     * <p>
+     * 超过字节数限制时抛出{@link SerializationException}，缓冲区中的数据不会写入
      */
     void flush() {
+        checkByteLimit(totalBytesWritten);
         try {
             output.write(buffer, 0, position);
         } catch (IOException e) {
@@ -110,4 +145,10 @@ class StreamWriter extends CodedWriter {
         return totalBytesWritten;
     }
 
+    private void checkByteLimit(long total) {
+        if (total > byteLimitEnd) {
+            throw SerializationException.totalByteSizeExceeded(total - (byteLimitEnd - getByteLimit()), getByteLimit());
+        }
+    }
+
 }
@@ -0,0 +1,46 @@
+package io.jpower.sgf.ser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.jpower.sgf.collection.IntValueHashMap;
+import io.jpower.sgf.collection.IntValueMap;
+
+/**
+ * 一次序列化中使用的字符串表，相同的字符串只保存一次，值中只写入在表中的索引
+ * <p>
+ * 格式见{@link WireFormat#FORMAT_STRING_TABLE}
+ *
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+class StringTable {
+
+    private final IntValueMap<String> indexes = new IntValueHashMap<>();
+
+    private final List<String> strings = new ArrayList<>();
+
+    /**
+     * 返回字符串在表中的索引，不存在时加入到表的末尾
+     *
+     * @param value
+     * @return
+     */
+    int indexOf(String value) {
+        int index = indexes.get(value, -1);
+        if (index < 0) {
+            index = strings.size();
+            strings.add(value);
+            indexes.put(value, index);
+        }
+        return index;
+    }
+
+    int size() {
+        return strings.size();
+    }
+
+    String get(int index) {
+        return strings.get(index);
+    }
+
+}
@@ -0,0 +1,118 @@
+package io.jpower.sgf.ser;
+
+import java.lang.reflect.Field;
+
+import sun.misc.Unsafe;
+
+/**
+ * 通过{@link Unsafe}和字段偏移量直接读写字段，用于没有getter和setter方法的字段
+ *
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+class UnsafeFieldAccessor extends FieldAccessor {
+
+    private final Unsafe unsafe;
+
+    private final long offset;
+
+    UnsafeFieldAccessor(Unsafe unsafe, Field field) {
+        super(field.getName(), field.getType());
+        this.unsafe = unsafe;
+        this.offset = unsafe.objectFieldOffset(field);
+    }
+
+    @Override
+    Object get(Object obj) {
+        return unsafe.getObject(obj, offset);
+    }
+
+    @Override
+    void set(Object obj, Object value) {
+        if (value != null && !getType().isInstance(value)) { // Unsafe不做类型检查，这里需要自己检查
+            throw new IllegalArgumentException("Can not set " + getType().getName() + " field to "
+                    + value.getClass().getName());
+        }
+        unsafe.putObject(obj, offset, value);
+    }
+
+    @Override
+    byte getByte(Object obj) {
+        return unsafe.getByte(obj, offset);
+    }
+
+    @Override
+    void setByte(Object obj, byte value) {
+        unsafe.putByte(obj, offset, value);
+    }
+
+    @Override
+    char getChar(Object obj) {
+        return unsafe.getChar(obj, offset);
+    }
+
+    @Override
+    void setChar(Object obj, char value) {
+        unsafe.putChar(obj, offset, value);
+    }
+
+    @Override
+    short getShort(Object obj) {
+        return unsafe.getShort(obj, offset);
+    }
+
+    @Override
+    void setShort(Object obj, short value) {
+        unsafe.putShort(obj, offset, value);
+    }
+
+    @Override
+    int getInt(Object obj) {
+        return unsafe.getInt(obj, offset);
+    }
+
+    @Override
+    void setInt(Object obj, int value) {
+        unsafe.putInt(obj, offset, value);
+    }
+
+    @Override
+    long getLong(Object obj) {
+        return unsafe.getLong(obj, offset);
+    }
+
+    @Override
+    void setLong(Object obj, long value) {
+        unsafe.putLong(obj, offset, value);
+    }
+
+    @Override
+    float getFloat(Object obj) {
+        return unsafe.getFloat(obj, offset);
+    }
+
+    @Override
+    void setFloat(Object obj, float value) {
+        unsafe.putFloat(obj, offset, value);
+    }
+
+    @Override
+    double getDouble(Object obj) {
+        return unsafe.getDouble(obj, offset);
+    }
+
+    @Override
+    void setDouble(Object obj, double value) {
+        unsafe.putDouble(obj, offset, value);
+    }
+
+    @Override
+    boolean getBool(Object obj) {
+        return unsafe.getBoolean(obj, offset);
+    }
+
+    @Override
+    void setBool(Object obj, boolean value) {
+        unsafe.putBoolean(obj, offset, value);
+    }
+
+}
@@ -44,6 +44,122 @@ class Utils {
         return name.substring(0, 1).toUpperCase(ENGLISH) + name.substring(1);
     }
 
+    /**
+     * 计算字符串UTF-8编码后的字节数，不会分配内存
+     * <p>
+     * 和{@link String#getBytes(Charset)}的结果一致，不成对的surrogate会被替换为'?'，占1个字节
+     *
+     * @param value
+     * @return
+     */
+    static int utf8Length(String value) {
+        int length = value.length();
+        int utf8Length = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                utf8Length += 1;
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    utf8Length += 2; // 两个char编码为4个字节
+                    i++;
+                }
+            } else {
+                utf8Length += 2;
+            }
+        }
+        return utf8Length;
+    }
+
+    /**
+     * 把字符串按UTF-8编码写入到buf中pos开始的位置，返回写入后的位置
+     * <p>
+     * <ul>
+     * <li>和{@link String#getBytes(Charset)}的结果一致，写入的字节数等于{@link #utf8Length(String)}，调用前需要确认空间足够</li>
+     * <li>先按ASCII逐个写入，遇到第一个非ASCII字符后再逐个判断编码长度</li>
+     * </ul>
+     *
+     * @param value
+     * @param buf
+     * @param pos
+     * @return
+     */
+    static int encodeUtf8(String value, byte[] buf, int pos) {
+        int length = value.length();
+        int i = 0;
+        for (; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                break;
+            }
+            buf[pos++] = (byte) c;
+        }
+        for (; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buf[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                buf[pos++] = (byte) (0xC0 | (c >>> 6));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    buf[pos++] = (byte) (0xF0 | (codePoint >>> 18));
+                    buf[pos++] = (byte) (0x80 | ((codePoint >>> 12) & 0x3F));
+                    buf[pos++] = (byte) (0x80 | ((codePoint >>> 6) & 0x3F));
+                    buf[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else { // 不成对的surrogate
+                    buf[pos++] = '?';
+                }
+            } else {
+                buf[pos++] = (byte) (0xE0 | (c >>> 12));
+                buf[pos++] = (byte) (0x80 | ((c >>> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * 解码UTF-8编码的字节
+     * <p>
+     * JDK 9以后的String构造方法自带ASCII的快速路径，不需要再预先扫描一遍
+     *
+     * @param bytes
+     * @param offset
+     * @param length
+     * @return
+     */
+    static String decodeUtf8(byte[] bytes, int offset, int length) {
+        return new String(bytes, offset, length, CHARSET);
+    }
+
+    /**
+     * a是否和b中从offset开始的length个字节相同
+     *
+     * @param a
+     * @param b
+     * @param offset
+     * @param length
+     * @return
+     */
+    static boolean equals(byte[] a, byte[] b, int offset, int length) {
+        if (a.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (a[i] != b[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     static Object invoke(Method method, Object obj, Object... params) {
         try {
             return method.invoke(obj, params);
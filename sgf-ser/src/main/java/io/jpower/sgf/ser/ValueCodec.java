@@ -0,0 +1,813 @@
+package io.jpower.sgf.ser;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Map;
+
+import io.jpower.sgf.collection.DoubleValueMap;
+import io.jpower.sgf.collection.FloatValueMap;
+import io.jpower.sgf.collection.IntMap;
+import io.jpower.sgf.collection.IntSet;
+import io.jpower.sgf.collection.IntValueMap;
+import io.jpower.sgf.collection.LongMap;
+import io.jpower.sgf.collection.LongSet;
+import io.jpower.sgf.collection.LongValueMap;
+import io.jpower.sgf.enumtype.EnumUtils;
+
+/**
+ * 值的编码和解码（不包括tag）
+ * <p>
+ * 分析类型时根据{@link JavaType}确定下来，保存在{@link FieldType}中，读写时直接调用，不需要再判断类型。
+ * 字段的类型和容器中元素的类型使用不同的实例：字段会使用{@link SerField}中指定的整数编码方式，deSerClazz和intern，元素不会
+ *
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+abstract class ValueCodec {
+
+    /**
+     * @param serWriter
+     * @param ctx
+     * @param serField  所属的字段
+     * @param type      值的类型
+     * @param value     不为null
+     */
+    abstract void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value);
+
+    /**
+     * @param serReader
+     * @param ctx
+     * @param serField 所属的字段
+     * @param type     值的类型
+     * @param reuse    合并到已有对象时原来的值，容器和对象类型相同时可以重用，否则为null
+     * @return 类型不匹配被跳过时返回null
+     */
+    abstract Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse);
+
+    /**
+     * 字段的值
+     *
+     * @param serField
+     * @return
+     */
+    static ValueCodec forField(SerField serField) {
+        FieldType type = serField.getType();
+        IntEncodeType intEncodeType = serField.getIntEncodeType();
+        switch (type.getJavaType()) {
+            case BYTE:
+                return new ByteCodec(IntEncoder.of(intEncodeType, WireFormat.FIXED_8_SIZE));
+            case CHAR:
+                return new CharCodec(IntEncoder.of(intEncodeType, WireFormat.FIXED_16_SIZE));
+            case SHORT:
+                return new ShortCodec(IntEncoder.of(intEncodeType, WireFormat.FIXED_16_SIZE));
+            case INT:
+                return new IntCodec(IntEncoder.of(intEncodeType, WireFormat.FIXED_32_SIZE));
+            case LONG:
+                return new LongCodec(LongEncoder.of(intEncodeType));
+            case ENUM:
+                return new EnumCodec(IntEncoder.of(intEncodeType, WireFormat.FIXED_32_SIZE));
+            case STRING:
+                return serField.isIntern() ? INTERN_STRING : STRING;
+            case INT_ARRAY:
+                return new IntArrayCodec(intEncodeType);
+            case LONG_ARRAY:
+                return new LongArrayCodec(intEncodeType);
+            case LIST:
+                return FIELD_LIST;
+            case SET:
+                return FIELD_SET;
+            case INT_SET:
+                return FIELD_INT_SET;
+            case LONG_SET:
+                return FIELD_LONG_SET;
+            case MAP:
+                return FIELD_MAP;
+            case INT_MAP:
+                return FIELD_INT_MAP;
+            case LONG_MAP:
+                return FIELD_LONG_MAP;
+            case INT_VALUE_MAP:
+                return FIELD_INT_VALUE_MAP;
+            case LONG_VALUE_MAP:
+                return FIELD_LONG_VALUE_MAP;
+            case FLOAT_VALUE_MAP:
+                return FIELD_FLOAT_VALUE_MAP;
+            case DOUBLE_VALUE_MAP:
+                return FIELD_DOUBLE_VALUE_MAP;
+            default:
+                return forElement(type);
+        }
+    }
+
+    /**
+     * 容器中元素的值
+     *
+     * @param type
+     * @return
+     */
+    static ValueCodec forElement(FieldType type) {
+        switch (type.getJavaType()) {
+            case BYTE:
+                return VARINT_BYTE;
+            case CHAR:
+                return VARINT_CHAR;
+            case SHORT:
+                return VARINT_SHORT;
+            case INT:
+                return VARINT_INT;
+            case LONG:
+                return VARINT_LONG;
+            case FLOAT:
+                return FLOAT;
+            case DOUBLE:
+                return DOUBLE;
+            case BOOL:
+                return BOOL;
+            case ENUM:
+                return VARINT_ENUM;
+            case BYTES:
+                return BYTES;
+            case BYTE_BUFFER:
+                return BYTE_BUFFER;
+            case INT_ARRAY:
+                return VARINT_INT_ARRAY;
+            case LONG_ARRAY:
+                return VARINT_LONG_ARRAY;
+            case FLOAT_ARRAY:
+                return FLOAT_ARRAY;
+            case DOUBLE_ARRAY:
+                return DOUBLE_ARRAY;
+            case STRING:
+                return STRING;
+            case LIST:
+                return LIST;
+            case SET:
+                return SET;
+            case INT_SET:
+                return INT_SET;
+            case LONG_SET:
+                return LONG_SET;
+            case MAP:
+                return MAP;
+            case INT_MAP:
+                return INT_MAP;
+            case LONG_MAP:
+                return LONG_MAP;
+            case INT_VALUE_MAP:
+                return INT_VALUE_MAP;
+            case LONG_VALUE_MAP:
+                return LONG_VALUE_MAP;
+            case FLOAT_VALUE_MAP:
+                return FLOAT_VALUE_MAP;
+            case DOUBLE_VALUE_MAP:
+                return DOUBLE_VALUE_MAP;
+            case SER_OBJECT:
+                return SER_OBJECT;
+            case POLY_OBJECT:
+                return POLY_OBJECT;
+            default:
+                throw new SerializationException("Unsupported type: " + type);
+        }
+    }
+
+    /* ########## 数值 ########## */
+
+    private static final ValueCodec VARINT_BYTE = new ByteCodec(IntEncoder.VARINT);
+
+    private static final ValueCodec VARINT_CHAR = new CharCodec(IntEncoder.VARINT);
+
+    private static final ValueCodec VARINT_SHORT = new ShortCodec(IntEncoder.VARINT);
+
+    private static final ValueCodec VARINT_INT = new IntCodec(IntEncoder.VARINT);
+
+    private static final ValueCodec VARINT_LONG = new LongCodec(LongEncoder.VARINT);
+
+    private static final ValueCodec VARINT_ENUM = new EnumCodec(IntEncoder.VARINT);
+
+    private static final class ByteCodec extends ValueCodec {
+
+        private final IntEncoder encoder;
+
+        ByteCodec(IntEncoder encoder) {
+            this.encoder = encoder;
+        }
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            encoder.writeInt(ctx.getWriter(), ((Byte) value).byteValue());
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return (byte) encoder.readInt(ctx.getReader());
+        }
+
+    }
+
+    private static final class CharCodec extends ValueCodec {
+
+        private final IntEncoder encoder;
+
+        CharCodec(IntEncoder encoder) {
+            this.encoder = encoder;
+        }
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            encoder.writeInt(ctx.getWriter(), ((Character) value).charValue());
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return (char) encoder.readInt(ctx.getReader());
+        }
+
+    }
+
+    private static final class ShortCodec extends ValueCodec {
+
+        private final IntEncoder encoder;
+
+        ShortCodec(IntEncoder encoder) {
+            this.encoder = encoder;
+        }
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            encoder.writeInt(ctx.getWriter(), ((Short) value).shortValue());
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return (short) encoder.readInt(ctx.getReader());
+        }
+
+    }
+
+    private static final class IntCodec extends ValueCodec {
+
+        private final IntEncoder encoder;
+
+        IntCodec(IntEncoder encoder) {
+            this.encoder = encoder;
+        }
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            encoder.writeInt(ctx.getWriter(), ((Integer) value).intValue());
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return encoder.readInt(ctx.getReader());
+        }
+
+    }
+
+    private static final class LongCodec extends ValueCodec {
+
+        private final LongEncoder encoder;
+
+        LongCodec(LongEncoder encoder) {
+            this.encoder = encoder;
+        }
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            encoder.writeLong(ctx.getWriter(), ((Long) value).longValue());
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return encoder.readLong(ctx.getReader());
+        }
+
+    }
+
+    private static final ValueCodec FLOAT = new ValueCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            ctx.getWriter().writeFloatNoTag(((Float) value).floatValue());
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return ctx.getReader().readFloat();
+        }
+
+    };
+
+    private static final ValueCodec DOUBLE = new ValueCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            ctx.getWriter().writeDoubleNoTag(((Double) value).doubleValue());
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return ctx.getReader().readDouble();
+        }
+
+    };
+
+    private static final ValueCodec BOOL = new ValueCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            ctx.getWriter().writeBoolNoTag(((Boolean) value).booleanValue());
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return ctx.getReader().readBool();
+        }
+
+    };
+
+    private static final class EnumCodec extends ValueCodec {
+
+        private final IntEncoder encoder;
+
+        EnumCodec(IntEncoder encoder) {
+            this.encoder = encoder;
+        }
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            encoder.writeInt(ctx.getWriter(), EnumUtils.tagOf((Enum<?>) value)); // write tag
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            int tag = encoder.readInt(ctx.getReader()); // read tag
+            return serReader.parseEnum(ctx, (Class<? extends Enum<?>>) type.getRawType(), tag);
+        }
+
+    }
+
+    /* ########## bytes ########## */
+
+    private static final ValueCodec BYTES = new ValueCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            ctx.getWriter().writeBytesNoTag((byte[]) value);
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return serReader.readBytes0(ctx, serField);
+        }
+
+    };
+
+    /**
+     * 和byte[]的编码相同，读取时返回输入数据的只读视图，见{@link CodedReader#readByteBuffer(int)}
+     */
+    private static final ValueCodec BYTE_BUFFER = new ValueCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            ctx.getWriter().writeByteBufferNoTag((ByteBuffer) value);
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return serReader.readByteBuffer0(ctx, serField);
+        }
+
+    };
+
+    private static final ValueCodec STRING = new ValueCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            serWriter.writeString0(ctx, (String) value);
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return serReader.readString0(ctx, serField);
+        }
+
+    };
+
+    private static final ValueCodec INTERN_STRING = new ValueCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            serWriter.writeString0(ctx, (String) value);
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return serReader.readString0(ctx, serField).intern();
+        }
+
+    };
+
+    private static final ValueCodec VARINT_INT_ARRAY = new IntArrayCodec(IntEncodeType.VARINT);
+
+    private static final ValueCodec VARINT_LONG_ARRAY = new LongArrayCodec(IntEncodeType.VARINT);
+
+    private static final class IntArrayCodec extends ValueCodec {
+
+        private final IntEncodeType intEncodeType;
+
+        IntArrayCodec(IntEncodeType intEncodeType) {
+            this.intEncodeType = intEncodeType;
+        }
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            serWriter.writeIntArray(ctx, serField, intEncodeType, (int[]) value);
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return serReader.readIntArray(ctx, serField, intEncodeType);
+        }
+
+    }
+
+    private static final class LongArrayCodec extends ValueCodec {
+
+        private final IntEncodeType intEncodeType;
+
+        LongArrayCodec(IntEncodeType intEncodeType) {
+            this.intEncodeType = intEncodeType;
+        }
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            serWriter.writeLongArray(ctx, serField, intEncodeType, (long[]) value);
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return serReader.readLongArray(ctx, serField, intEncodeType);
+        }
+
+    }
+
+    private static final ValueCodec FLOAT_ARRAY = new ValueCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            serWriter.writeFloatArray(ctx, serField, (float[]) value);
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return serReader.readFloatArray(ctx, serField);
+        }
+
+    };
+
+    private static final ValueCodec DOUBLE_ARRAY = new ValueCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            serWriter.writeDoubleArray(ctx, serField, (double[]) value);
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return serReader.readDoubleArray(ctx, serField);
+        }
+
+    };
+
+    /* ########## 容器 ########## */
+
+    private static final ValueCodec LIST = new ValueCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            serWriter.writeCollection(ctx, serField, type, (Collection<?>) value);
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return serReader.readList(ctx, serField, type, reuse);
+        }
+
+    };
+
+    private static final ValueCodec FIELD_LIST = new ValueCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            serWriter.writeCollection(ctx, serField, type, (Collection<?>) value);
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return serReader.readList(ctx, serField, reuse);
+        }
+
+    };
+
+    private static final ValueCodec SET = new ValueCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            serWriter.writeCollection(ctx, serField, type, (Collection<?>) value);
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return serReader.readSet(ctx, serField, type, reuse);
+        }
+
+    };
+
+    private static final ValueCodec FIELD_SET = new ValueCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            serWriter.writeCollection(ctx, serField, type, (Collection<?>) value);
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return serReader.readSet(ctx, serField, reuse);
+        }
+
+    };
+
+    private static final ValueCodec INT_SET = new ValueCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            serWriter.writeIntSet(ctx, serField, type, (IntSet) value);
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return serReader.readIntSet(ctx, serField, type, reuse);
+        }
+
+    };
+
+    private static final ValueCodec FIELD_INT_SET = new ValueCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            serWriter.writeIntSet(ctx, serField, type, (IntSet) value);
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return serReader.readIntSet(ctx, serField, reuse);
+        }
+
+    };
+
+    private static final ValueCodec LONG_SET = new ValueCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            serWriter.writeLongSet(ctx, serField, type, (LongSet) value);
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return serReader.readLongSet(ctx, serField, type, reuse);
+        }
+
+    };
+
+    private static final ValueCodec FIELD_LONG_SET = new ValueCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            serWriter.writeLongSet(ctx, serField, type, (LongSet) value);
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return serReader.readLongSet(ctx, serField, reuse);
+        }
+
+    };
+
+    private static final ValueCodec MAP = new ValueCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            serWriter.writeMap(ctx, serField, type, (Map<?, ?>) value);
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return serReader.readMap(ctx, serField, type, reuse);
+        }
+
+    };
+
+    private static final ValueCodec FIELD_MAP = new ValueCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            serWriter.writeMap(ctx, serField, type, (Map<?, ?>) value);
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return serReader.readMap(ctx, serField, reuse);
+        }
+
+    };
+
+    private static final ValueCodec INT_MAP = new ValueCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            serWriter.writeIntMap(ctx, serField, type, (IntMap<?>) value);
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return serReader.readIntMap(ctx, serField, type, reuse);
+        }
+
+    };
+
+    private static final ValueCodec FIELD_INT_MAP = new ValueCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            serWriter.writeIntMap(ctx, serField, type, (IntMap<?>) value);
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return serReader.readIntMap(ctx, serField, reuse);
+        }
+
+    };
+
+    private static final ValueCodec LONG_MAP = new ValueCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            serWriter.writeLongMap(ctx, serField, type, (LongMap<?>) value);
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return serReader.readLongMap(ctx, serField, type, reuse);
+        }
+
+    };
+
+    private static final ValueCodec FIELD_LONG_MAP = new ValueCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            serWriter.writeLongMap(ctx, serField, type, (LongMap<?>) value);
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return serReader.readLongMap(ctx, serField, reuse);
+        }
+
+    };
+
+    /**
+     * 值为基本类型的map作为容器中的元素时只支持写入
+     */
+    private abstract static class WriteOnlyCodec extends ValueCodec {
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            throw new SerializationException("Unsupported type: " + type);
+        }
+
+    }
+
+    private static final ValueCodec INT_VALUE_MAP = new WriteOnlyCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            serWriter.writeIntValueMap(ctx, serField, type, (IntValueMap<?>) value);
+        }
+
+    };
+
+    private static final ValueCodec FIELD_INT_VALUE_MAP = new ValueCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            serWriter.writeIntValueMap(ctx, serField, type, (IntValueMap<?>) value);
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return serReader.readIntValueMap(ctx, serField, reuse);
+        }
+
+    };
+
+    private static final ValueCodec LONG_VALUE_MAP = new WriteOnlyCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            serWriter.writeLongValueMap(ctx, serField, type, (LongValueMap<?>) value);
+        }
+
+    };
+
+    private static final ValueCodec FIELD_LONG_VALUE_MAP = new ValueCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            serWriter.writeLongValueMap(ctx, serField, type, (LongValueMap<?>) value);
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return serReader.readLongValueMap(ctx, serField, reuse);
+        }
+
+    };
+
+    private static final ValueCodec FLOAT_VALUE_MAP = new WriteOnlyCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            serWriter.writeFloatValueMap(ctx, serField, type, (FloatValueMap<?>) value);
+        }
+
+    };
+
+    private static final ValueCodec FIELD_FLOAT_VALUE_MAP = new ValueCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            serWriter.writeFloatValueMap(ctx, serField, type, (FloatValueMap<?>) value);
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return serReader.readFloatValueMap(ctx, serField, reuse);
+        }
+
+    };
+
+    private static final ValueCodec DOUBLE_VALUE_MAP = new WriteOnlyCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            serWriter.writeDoubleValueMap(ctx, serField, type, (DoubleValueMap<?>) value);
+        }
+
+    };
+
+    private static final ValueCodec FIELD_DOUBLE_VALUE_MAP = new ValueCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            serWriter.writeDoubleValueMap(ctx, serField, type, (DoubleValueMap<?>) value);
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return serReader.readDoubleValueMap(ctx, serField, reuse);
+        }
+
+    };
+
+    private static final ValueCodec SER_OBJECT = new ValueCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            serWriter.writeSerObject(ctx, serField, type, value);
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return serReader.readSerObject(ctx, serField, type, reuse);
+        }
+
+    };
+
+    private static final ValueCodec POLY_OBJECT = new ValueCodec() {
+
+        @Override
+        void write(SerWriter serWriter, SerContext ctx, SerField serField, FieldType type, Object value) {
+            serWriter.writePolyObject(ctx, serField, type, value);
+        }
+
+        @Override
+        Object read(SerReader serReader, DeserContext ctx, SerField serField, FieldType type, Object reuse) {
+            return serReader.readPolyObject(ctx, serField, type, reuse);
+        }
+
+    };
+
+}
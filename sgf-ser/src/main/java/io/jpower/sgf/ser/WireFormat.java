@@ -64,12 +64,42 @@ final class WireFormat {
      */
     static final int WIRETYPE_SER_OBJECT = 8;
 
+    /**
+     * 只出现在补丁数据中，值是嵌套对象或者map的补丁，见{@link SerWriter#writePatch(SerContext, Object, Object)}
+     */
+    static final int WIRETYPE_PATCH = 9;
+
+    /**
+     * 接口或者抽象类类型的serializable object，值前面是varint编码的type id，见{@link SerTypeRegistry}
+     */
+    static final int WIRETYPE_POLY_OBJECT = 10;
+
     static final int TAG_TYPE_BITS = 4;
 
     static final int TAG_TYPE_MASK = (1 << TAG_TYPE_BITS) - 1;
 
     final static int MAX_FIELD_NUMBER = (1 << 28) - 1;
 
+    /**
+     * 数据格式头，写在最外层对象的开头，后面跟着1个字节的格式标记
+     * <p>
+     * fieldNumber为0，旧格式中只会出现结束标记(0)，所以不会和旧格式冲突
+     */
+    static final int FORMAT_TAG = makeTag(0, WIRETYPE_FIXED8);
+
+    /**
+     * 格式标记：collection、map、serializable object的值前面带有字节长度
+     */
+    static final int FORMAT_LENGTH_DELIMITED = 1;
+
+    /**
+     * 格式标记：使用字符串表
+     * <p>
+     * 格式标记后面是字符串表：字符串数量，每个字符串（和普通的字符串值一样）。之后字符串的值仍然是{@link #WIRETYPE_BYTES}，
+     * 内容是varint编码的表中索引，所以跳过字段时不需要知道字符串表
+     */
+    static final int FORMAT_STRING_TABLE = 2;
+
     /**
      * Given a idOf value, determines the wire type (the lower 4 bits).
      */
@@ -84,6 +114,14 @@ final class WireFormat {
         return tag >>> TAG_TYPE_BITS;
     }
 
+    /**
+     * 在{@link #FORMAT_LENGTH_DELIMITED}格式中，值前面是否带有字节长度
+     */
+    static boolean isLengthDelimited(final int wireType) {
+        return wireType == WIRETYPE_COLLECTION || wireType == WIRETYPE_MAP || wireType == WIRETYPE_SER_OBJECT
+                || wireType == WIRETYPE_PATCH || wireType == WIRETYPE_POLY_OBJECT;
+    }
+
     /**
      * Makes a idOf value given a field number and wire type.
      */
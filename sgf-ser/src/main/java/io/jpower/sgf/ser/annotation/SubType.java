@@ -0,0 +1,38 @@
+package io.jpower.sgf.ser.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 多态字段的一个具体类型，用在{@link SubTypes}中
+ *
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({})
+public @interface SubType {
+
+    /**
+     * type id 类型的序号
+     * <p>
+     * <ul>
+     * <li>值必须大于0，最大值为2^16 - 1，尽量使用小的值</li>
+     * <li>所有多态类型共用同一个序号空间，一个序号只能对应一个类</li>
+     * <li>这个值被使用后，不能随意修改。反序列化需要通过此值来确定具体的类型。</li>
+     * </ul>
+     *
+     * @return
+     */
+    int id();
+
+    /**
+     * 具体的类型，需要有{@link Serializable}注解
+     *
+     * @return
+     */
+    Class<?> value();
+
+}
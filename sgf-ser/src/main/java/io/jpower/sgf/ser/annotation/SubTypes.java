@@ -0,0 +1,26 @@
+package io.jpower.sgf.ser.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记在接口或者抽象类上，声明可以出现在这个类型的字段中的具体类型
+ * <p>
+ * <ul>
+ * <li>字段的类型是接口或者抽象类时，序列化时会先写入值的type id，反序列化时根据type id创建对象</li>
+ * <li>也可以不使用注解，在启动时通过{@link io.jpower.sgf.ser.Ser#registerType(int, Class)}注册</li>
+ * </ul>
+ *
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+public @interface SubTypes {
+
+    SubType[] value();
+
+}
@@ -0,0 +1,160 @@
+package io.jpower.sgf.ser;
+
+import io.jpower.sgf.ser.annotation.Field;
+import io.jpower.sgf.ser.annotation.Serializable;
+
+/**
+ * 各种基本类型的字段，一部分没有getter和setter方法
+ *
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+@Serializable
+public class Baz {
+
+    @Field(1)
+    private byte b;
+
+    @Field(2)
+    private char c;
+
+    @Field(3)
+    private short s;
+
+    @Field(4)
+    private int i;
+
+    @Field(5)
+    private long l;
+
+    @Field(6)
+    private float f;
+
+    @Field(7)
+    private double d;
+
+    @Field(8)
+    private boolean bool;
+
+    @Field(9)
+    private Integer boxed;
+
+    @Field(10)
+    private String str;
+
+    public Baz() {
+
+    }
+
+    Baz(byte b, char c, short s, int i, long l, float f, double d, boolean bool, Integer boxed,
+        String str) {
+        this.b = b;
+        this.c = c;
+        this.s = s;
+        this.i = i;
+        this.l = l;
+        this.f = f;
+        this.d = d;
+        this.bool = bool;
+        this.boxed = boxed;
+        this.str = str;
+    }
+
+    public byte getB() {
+        return b;
+    }
+
+    public void setB(byte b) {
+        this.b = b;
+    }
+
+    public short getS() {
+        return s;
+    }
+
+    public void setS(short s) {
+        this.s = s;
+    }
+
+    public long getL() {
+        return l;
+    }
+
+    public void setL(long l) {
+        this.l = l;
+    }
+
+    public double getD() {
+        return d;
+    }
+
+    public void setD(double d) {
+        this.d = d;
+    }
+
+    public boolean isBool() {
+        return bool;
+    }
+
+    public void setBool(boolean bool) {
+        this.bool = bool;
+    }
+
+    public String getStr() {
+        return str;
+    }
+
+    public void setStr(String str) {
+        this.str = str;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        Baz baz = (Baz) o;
+
+        if (b != baz.b) return false;
+        if (c != baz.c) return false;
+        if (s != baz.s) return false;
+        if (i != baz.i) return false;
+        if (l != baz.l) return false;
+        if (Float.compare(baz.f, f) != 0) return false;
+        if (Double.compare(baz.d, d) != 0) return false;
+        if (bool != baz.bool) return false;
+        if (boxed != null ? !boxed.equals(baz.boxed) : baz.boxed != null) return false;
+        return str != null ? str.equals(baz.str) : baz.str == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) b;
+        result = 31 * result + (int) c;
+        result = 31 * result + (int) s;
+        result = 31 * result + i;
+        result = 31 * result + (int) (l ^ (l >>> 32));
+        result = 31 * result + Float.floatToIntBits(f);
+        long temp = Double.doubleToLongBits(d);
+        result = 31 * result + (int) (temp ^ (temp >>> 32));
+        result = 31 * result + (bool ? 1 : 0);
+        result = 31 * result + (boxed != null ? boxed.hashCode() : 0);
+        result = 31 * result + (str != null ? str.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Baz(" +
+                "b=" + b +
+                ", c=" + c +
+                ", s=" + s +
+                ", i=" + i +
+                ", l=" + l +
+                ", f=" + f +
+                ", d=" + d +
+                ", bool=" + bool +
+                ", boxed=" + boxed +
+                ", str='" + str + '\'' +
+                ')';
+    }
+}
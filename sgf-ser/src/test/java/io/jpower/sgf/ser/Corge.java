@@ -0,0 +1,105 @@
+package io.jpower.sgf.ser;
+
+import java.util.Arrays;
+import java.util.List;
+
+import io.jpower.sgf.ser.annotation.Field;
+import io.jpower.sgf.ser.annotation.Serializable;
+
+/**
+ * 基本类型数组的字段
+ *
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+@Serializable
+public class Corge {
+
+    @Field(1)
+    private int[] ints;
+
+    @Field(value = 2, intEncodeType = IntEncodeType.SIGNED_VARINT)
+    private int[] sints;
+
+    @Field(value = 3, intEncodeType = IntEncodeType.FIXED)
+    private int[] fixedInts;
+
+    @Field(4)
+    private long[] longs;
+
+    @Field(value = 5, intEncodeType = IntEncodeType.FIXED)
+    private long[] fixedLongs;
+
+    @Field(6)
+    private float[] floats;
+
+    @Field(7)
+    private double[] doubles;
+
+    @Field(8)
+    private List<double[]> doublesList;
+
+    public Corge() {
+
+    }
+
+    Corge(int[] ints, int[] sints, int[] fixedInts, long[] longs, long[] fixedLongs, float[] floats,
+          double[] doubles, List<double[]> doublesList) {
+        this.ints = ints;
+        this.sints = sints;
+        this.fixedInts = fixedInts;
+        this.longs = longs;
+        this.fixedLongs = fixedLongs;
+        this.floats = floats;
+        this.doubles = doubles;
+        this.doublesList = doublesList;
+    }
+
+    public List<double[]> getDoublesList() {
+        return doublesList;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        Corge corge = (Corge) o;
+
+        if (!Arrays.equals(ints, corge.ints)) return false;
+        if (!Arrays.equals(sints, corge.sints)) return false;
+        if (!Arrays.equals(fixedInts, corge.fixedInts)) return false;
+        if (!Arrays.equals(longs, corge.longs)) return false;
+        if (!Arrays.equals(fixedLongs, corge.fixedLongs)) return false;
+        if (!Arrays.equals(floats, corge.floats)) return false;
+        if (!Arrays.equals(doubles, corge.doubles)) return false;
+        if (doublesList == null || corge.doublesList == null) return doublesList == corge.doublesList;
+        return Arrays.deepEquals(doublesList.toArray(), corge.doublesList.toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(ints);
+        result = 31 * result + Arrays.hashCode(sints);
+        result = 31 * result + Arrays.hashCode(fixedInts);
+        result = 31 * result + Arrays.hashCode(longs);
+        result = 31 * result + Arrays.hashCode(fixedLongs);
+        result = 31 * result + Arrays.hashCode(floats);
+        result = 31 * result + Arrays.hashCode(doubles);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Corge(" +
+                "ints=" + Arrays.toString(ints) +
+                ", sints=" + Arrays.toString(sints) +
+                ", fixedInts=" + Arrays.toString(fixedInts) +
+                ", longs=" + Arrays.toString(longs) +
+                ", fixedLongs=" + Arrays.toString(fixedLongs) +
+                ", floats=" + Arrays.toString(floats) +
+                ", doubles=" + Arrays.toString(doubles) +
+                ", doublesList=" + doublesList +
+                ')';
+    }
+
+}
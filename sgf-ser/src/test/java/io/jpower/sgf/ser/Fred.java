@@ -0,0 +1,49 @@
+package io.jpower.sgf.ser;
+
+import io.jpower.sgf.ser.annotation.Field;
+import io.jpower.sgf.ser.annotation.Serializable;
+
+/**
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+@Serializable
+public class Fred extends Waldo {
+
+    @Field(2)
+    private int num;
+
+    public Fred() {
+
+    }
+
+    public int getNum() {
+        return num;
+    }
+
+    public void setNum(int num) {
+        this.num = num;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!super.equals(o)) return false;
+
+        Fred fred = (Fred) o;
+
+        return num == fred.num;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + num;
+    }
+
+    @Override
+    public String toString() {
+        return "Fred(" +
+                "name=" + getName() +
+                ", num=" + num +
+                ')';
+    }
+
+}
@@ -0,0 +1,114 @@
+package io.jpower.sgf.ser;
+
+import java.util.List;
+import java.util.Map;
+
+import io.jpower.sgf.collection.IntMap;
+import io.jpower.sgf.collection.IntSet;
+import io.jpower.sgf.collection.LongValueMap;
+import io.jpower.sgf.ser.annotation.Field;
+import io.jpower.sgf.ser.annotation.Serializable;
+
+/**
+ * 基本类型的容器字段
+ *
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+@Serializable
+public class Garply {
+
+    @Field(1)
+    private IntMap<Bar> barMap;
+
+    @Field(2)
+    private LongValueMap<String> scores;
+
+    @Field(3)
+    private IntSet ids;
+
+    @Field(4)
+    private Map<Integer, List<Bar>> groups;
+
+    @Field(5)
+    private Bar bar;
+
+    public Garply() {
+
+    }
+
+    public IntMap<Bar> getBarMap() {
+        return barMap;
+    }
+
+    public void setBarMap(IntMap<Bar> barMap) {
+        this.barMap = barMap;
+    }
+
+    public LongValueMap<String> getScores() {
+        return scores;
+    }
+
+    public void setScores(LongValueMap<String> scores) {
+        this.scores = scores;
+    }
+
+    public IntSet getIds() {
+        return ids;
+    }
+
+    public void setIds(IntSet ids) {
+        this.ids = ids;
+    }
+
+    public Map<Integer, List<Bar>> getGroups() {
+        return groups;
+    }
+
+    public void setGroups(Map<Integer, List<Bar>> groups) {
+        this.groups = groups;
+    }
+
+    public Bar getBar() {
+        return bar;
+    }
+
+    public void setBar(Bar bar) {
+        this.bar = bar;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        Garply garply = (Garply) o;
+
+        if (barMap != null ? !barMap.equals(garply.barMap) : garply.barMap != null) return false;
+        if (scores != null ? !scores.equals(garply.scores) : garply.scores != null) return false;
+        if (ids != null ? !ids.equals(garply.ids) : garply.ids != null) return false;
+        if (groups != null ? !groups.equals(garply.groups) : garply.groups != null) return false;
+        return bar != null ? bar.equals(garply.bar) : garply.bar == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = barMap != null ? barMap.hashCode() : 0;
+        result = 31 * result + (scores != null ? scores.hashCode() : 0);
+        result = 31 * result + (ids != null ? ids.hashCode() : 0);
+        result = 31 * result + (groups != null ? groups.hashCode() : 0);
+        result = 31 * result + (bar != null ? bar.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Garply(" +
+                "barMap=" + barMap +
+                ", scores=" + scores +
+                ", ids=" + ids +
+                ", groups=" + groups +
+                ", bar=" + bar +
+                ')';
+    }
+
+}
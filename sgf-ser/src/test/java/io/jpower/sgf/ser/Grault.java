@@ -0,0 +1,77 @@
+package io.jpower.sgf.ser;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import io.jpower.sgf.ser.annotation.Field;
+import io.jpower.sgf.ser.annotation.Serializable;
+
+/**
+ * {@link ByteBuffer}类型的字段
+ *
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+@Serializable
+public class Grault {
+
+    @Field(1)
+    private ByteBuffer data;
+
+    @Field(2)
+    private List<ByteBuffer> dataList;
+
+    @Field(3)
+    private String name;
+
+    public Grault() {
+
+    }
+
+    Grault(ByteBuffer data, List<ByteBuffer> dataList, String name) {
+        this.data = data;
+        this.dataList = dataList;
+        this.name = name;
+    }
+
+    public ByteBuffer getData() {
+        return data;
+    }
+
+    public List<ByteBuffer> getDataList() {
+        return dataList;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        Grault grault = (Grault) o;
+
+        if (data != null ? !data.equals(grault.data) : grault.data != null) return false;
+        if (dataList != null ? !dataList.equals(grault.dataList) : grault.dataList != null) return false;
+        return name != null ? name.equals(grault.name) : grault.name == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = data != null ? data.hashCode() : 0;
+        result = 31 * result + (dataList != null ? dataList.hashCode() : 0);
+        result = 31 * result + (name != null ? name.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Grault(" +
+                "data=" + data +
+                ", dataList=" + dataList +
+                ", name=" + name +
+                ')';
+    }
+
+}
@@ -0,0 +1,69 @@
+package io.jpower.sgf.ser;
+
+import java.util.List;
+
+import io.jpower.sgf.ser.annotation.Field;
+import io.jpower.sgf.ser.annotation.Serializable;
+
+/**
+ * 多态字段
+ *
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+@Serializable
+public class Plugh extends Waldo {
+
+    @Field(2)
+    private Waldo first;
+
+    @Field(3)
+    private List<Waldo> children;
+
+    public Plugh() {
+
+    }
+
+    public Waldo getFirst() {
+        return first;
+    }
+
+    public void setFirst(Waldo first) {
+        this.first = first;
+    }
+
+    public List<Waldo> getChildren() {
+        return children;
+    }
+
+    public void setChildren(List<Waldo> children) {
+        this.children = children;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!super.equals(o)) return false;
+
+        Plugh plugh = (Plugh) o;
+
+        if (first != null ? !first.equals(plugh.first) : plugh.first != null) return false;
+        return children != null ? children.equals(plugh.children) : plugh.children == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = super.hashCode();
+        result = 31 * result + (first != null ? first.hashCode() : 0);
+        result = 31 * result + (children != null ? children.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Plugh(" +
+                "name=" + getName() +
+                ", first=" + first +
+                ", children=" + children +
+                ')';
+    }
+
+}
@@ -0,0 +1,80 @@
+package io.jpower.sgf.ser;
+
+import java.util.List;
+
+import io.jpower.sgf.ser.annotation.Field;
+import io.jpower.sgf.ser.annotation.Serializable;
+
+/**
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+@Serializable
+public class Quux {
+
+    @Field(1)
+    private int id;
+
+    @Field(2)
+    private Lazy<Bar> bar;
+
+    @Field(3)
+    private Lazy<List<Bar>> barList;
+
+    public Quux() {
+
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public Lazy<Bar> getBar() {
+        return bar;
+    }
+
+    public void setBar(Lazy<Bar> bar) {
+        this.bar = bar;
+    }
+
+    public Lazy<List<Bar>> getBarList() {
+        return barList;
+    }
+
+    public void setBarList(Lazy<List<Bar>> barList) {
+        this.barList = barList;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        Quux quux = (Quux) o;
+
+        if (id != quux.id) return false;
+        if (bar != null ? !bar.equals(quux.bar) : quux.bar != null) return false;
+        return barList != null ? barList.equals(quux.barList) : quux.barList == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = id;
+        result = 31 * result + (bar != null ? bar.hashCode() : 0);
+        result = 31 * result + (barList != null ? barList.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Quux(" +
+                "id=" + id +
+                ", bar=" + bar +
+                ", barList=" + barList +
+                ')';
+    }
+
+}
@@ -0,0 +1,54 @@
+package io.jpower.sgf.ser;
+
+import java.util.List;
+
+import io.jpower.sgf.ser.annotation.Field;
+import io.jpower.sgf.ser.annotation.Serializable;
+
+/**
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+@Serializable
+public class Qux implements SizeCacheable {
+
+    @Field(1)
+    private String name;
+
+    @Field(2)
+    private List<Qux> children;
+
+    private int cachedSerializedSize = -1;
+
+    public Qux() {
+
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+        this.cachedSerializedSize = -1;
+    }
+
+    public List<Qux> getChildren() {
+        return children;
+    }
+
+    public void setChildren(List<Qux> children) {
+        this.children = children;
+        this.cachedSerializedSize = -1;
+    }
+
+    @Override
+    public int getCachedSerializedSize() {
+        return cachedSerializedSize;
+    }
+
+    @Override
+    public void setCachedSerializedSize(int size) {
+        this.cachedSerializedSize = size;
+    }
+
+}
@@ -1,14 +1,37 @@
 package io.jpower.sgf.ser;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import io.jpower.sgf.collection.IntHashMap;
+import io.jpower.sgf.collection.IntHashSet;
+import io.jpower.sgf.collection.IntMap;
+import io.jpower.sgf.collection.LongValueHashMap;
+import io.jpower.sgf.collection.LongValueMap;
 import org.junit.Test;
 
 /**
@@ -55,6 +78,964 @@ public class SerTest {
         assertNotEquals(foo, deserFoo);
     }
 
+    @Test
+    public void testGeneratedAccessor() {
+        SerClass serClass = SerClassParser.ins().parse(Baz.class);
+        for (SerField serField : serClass.getFields()) {
+            assertFalse(serField.toString(), serField.getAccessor() instanceof ReflectFieldAccessor);
+        }
+
+        Baz baz = new Baz((byte) -1, 'z', (short) 300, -123456, 1234567890123L, 1.5f, -2.25, true, 42,
+                "baz");
+
+        Ser ser = Ser.ins();
+
+        byte[] data = ser.serialize(baz);
+        Baz deserBaz = ser.deserialize(data, Baz.class);
+        assertEquals(baz, deserBaz);
+
+        // 读写的类型和字段的类型不符
+        SerField byteField = serClass.getFields().get(0);
+        try {
+            byteField.getAccessor().getInt(baz);
+            fail();
+        } catch (SerializationException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(byteField.getAccessor().getName()));
+        }
+    }
+
+    @Test
+    public void testSerializeToBuffer() {
+        Bar bar = bar(123456.123456, "bar", Ide.IDEA, new String[]{"bar", "hehe"});
+
+        Ser ser = Ser.ins();
+        byte[] data = ser.serialize(bar);
+
+        // byte[]
+        byte[] dst = new byte[data.length + 10];
+        int size = ser.serialize(bar, dst, 10);
+        assertEquals(data.length, size);
+        assertArrayEquals(data, Arrays.copyOfRange(dst, 10, 10 + size));
+
+        try {
+            ser.serialize(bar, new byte[data.length - 1], 0);
+            fail();
+        } catch (SerializationException ignored) {
+
+        }
+
+        // ByteBuffer
+        for (ByteBuffer buf : new ByteBuffer[]{ByteBuffer.allocate(data.length + 5),
+                ByteBuffer.allocateDirect(data.length + 5)}) {
+            buf.position(5);
+            assertEquals(data.length, ser.serialize(bar, buf));
+            assertEquals(buf.limit(), buf.position());
+            buf.position(5);
+            byte[] bytes = new byte[data.length];
+            buf.get(bytes);
+            assertArrayEquals(data, bytes);
+        }
+    }
+
+    @Test
+    public void testByteBuffer() throws IOException {
+        double[] doubles = new double[100]; // 带长度的格式中长度需要多个字节
+        for (int i = 0; i < doubles.length; i++) {
+            doubles[i] = i * 0.5;
+        }
+        Corge corge = new Corge(new int[]{1, -1}, new int[]{-2}, new int[]{3}, new long[]{4L}, new long[]{-5L},
+                new float[]{6f}, doubles, Arrays.asList(doubles, new double[]{7.0}));
+        Quux quux = new Quux();
+        quux.setId(1);
+        quux.setBar(Lazy.of(bar(1.0, "bar", Ide.IDEA, new String[]{"a"})));
+
+        for (Ser ser : new Ser[]{Ser.ins(), new Ser(Ser.NO_SIZE_LIMIT, Ser.NO_SIZE_LIMIT, false, true)}) {
+            byte[] data = ser.serialize(corge);
+            ByteBuffer direct = ByteBuffer.allocateDirect(data.length * 2);
+            assertEquals(data.length, ser.serialize(corge, direct));
+            assertEquals(data.length, ser.serialize(corge, direct));
+            assertEquals(ByteBuffer.wrap(data), ((ByteBuffer) direct.duplicate().flip()).slice().limit(data.length));
+
+            direct.flip();
+            assertEquals(corge, ser.deserialize(direct, Corge.class));
+            assertEquals(corge, ser.deserialize(direct, Corge.class));
+            assertFalse(direct.hasRemaining());
+
+            try {
+                ser.serialize(corge, ByteBuffer.allocateDirect(data.length - 1));
+                fail();
+            } catch (SerializationException ignored) {
+
+            }
+
+            // Lazy字段保留原始字节
+            byte[] quuxData = ser.serialize(quux);
+            ByteBuffer quuxBuf = ByteBuffer.allocateDirect(quuxData.length);
+            quuxBuf.put(quuxData).flip();
+            Quux deser = ser.deserialize(quuxBuf, Quux.class);
+            assertFalse(deser.getBar().isDecoded());
+            assertEquals(quux, deser);
+        }
+
+        // 内存映射文件
+        File file = File.createTempFile("sgf-ser", ".bin");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            int size = Ser.ins().serializedSize(corge);
+            MappedByteBuffer mapped = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            assertEquals(size, Ser.ins().serialize(corge, mapped));
+            mapped.flip();
+            assertEquals(corge, Ser.ins().deserialize(mapped, Corge.class));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testByteBufferField() {
+        ByteBuffer data = ByteBuffer.wrap(new byte[]{9, 1, 2, 3, 9}, 1, 3); // 只写入position到limit之间的数据
+        ByteBuffer direct = ByteBuffer.allocateDirect(2);
+        direct.put((byte) 4).put((byte) 5).flip();
+        Grault grault = new Grault(data, Arrays.asList(direct, ByteBuffer.allocate(0)), "中文name");
+
+        for (Ser ser : new Ser[]{Ser.ins(), new Ser(Ser.NO_SIZE_LIMIT, Ser.NO_SIZE_LIMIT, false, true)}) {
+            byte[] bytes = ser.serialize(grault);
+            assertEquals(1, data.position());
+            assertEquals(bytes.length, ser.serializedSize(grault));
+
+            Grault deser = ser.deserialize(bytes, Grault.class);
+            assertEquals(grault, deser);
+            assertTrue(deser.getData().isReadOnly());
+            assertEquals(grault, ser.deserialize(new ByteArrayInputStream(bytes), Grault.class));
+            ByteBuffer src = ByteBuffer.allocateDirect(bytes.length);
+            src.put(bytes).flip();
+            assertEquals(grault, ser.deserialize(src, Grault.class));
+
+            // 直接引用输入的数据，不复制
+            Arrays.fill(bytes, (byte) 'x');
+            assertEquals('x', deser.getData().get(0));
+        }
+
+        try {
+            Ser.ins().serialize(new Xyzzy()); // 只支持声明为ByteBuffer的字段
+            fail();
+        } catch (SerializationException ignored) {
+
+        }
+    }
+
+    @Test
+    public void testWriteString() {
+        StringBuilder longStr = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            longStr.append("abc中文\uD83D\uDE00");
+        }
+        String[] values = {"", "ascii", "0123456", "é", "中文", "\uD83D\uDE00", "a\uD83Db", "\uDE00\uD83D", "end\uD83D",
+                longStr.toString()};
+        for (String value : values) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            ByteArrayWriter expected = new ByteArrayWriter();
+            expected.writeRawVarint32(bytes.length);
+            expected.writeRawBytes(bytes);
+
+            ByteArrayWriter byteArrayWriter = new ByteArrayWriter(1);
+            byteArrayWriter.writeStringNoTag(value);
+            assertArrayEquals(value, expected.toByteArray(), byteArrayWriter.toByteArray());
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            StreamWriter streamWriter = new StreamWriter(out, 8); // 缓冲区剩余的空间不够时先flush
+            streamWriter.writeRawByte((byte) 1);
+            streamWriter.writeStringNoTag(value);
+            streamWriter.flush();
+            assertArrayEquals(value, expected.toByteArray(), Arrays.copyOfRange(out.toByteArray(), 1, out.size()));
+
+            for (ByteBuffer buf : new ByteBuffer[]{ByteBuffer.allocate(expected.size()),
+                    ByteBuffer.allocateDirect(expected.size())}) {
+                ByteBufferWriter byteBufferWriter = new ByteBufferWriter(buf);
+                byteBufferWriter.writeStringNoTag(value);
+                assertEquals(value, ByteBuffer.wrap(expected.toByteArray()), buf);
+            }
+        }
+    }
+
+    @Test
+    public void testReadRaw() {
+        long[] values = {0, 1, 127, 128, 255, 16383, 16384, Short.MAX_VALUE, Short.MIN_VALUE, Integer.MAX_VALUE,
+                Integer.MIN_VALUE, -1, 1L << 35, 1L << 56, Long.MAX_VALUE, Long.MIN_VALUE};
+        for (long value : values) {
+            ByteArrayWriter writer = new ByteArrayWriter();
+            writer.writeRawVarint32((int) value);
+            writer.writeRawVarint64(value);
+            writer.writeRawLittleEndian16((int) value);
+            writer.writeRawLittleEndian32((int) value);
+            writer.writeRawLittleEndian64(value);
+            writer.writeRawVarint64(value);
+            byte[] bytes = writer.toByteArray();
+            ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+            direct.put(bytes).flip();
+
+            // 最后一个varint后面没有足够的字节，会走慢速路径
+            for (CodedReader reader : new CodedReader[]{new ByteArrayReader(bytes), new ByteBufferReader(
+                    ByteBuffer.wrap(bytes)), new ByteBufferReader(direct), new StreamReader(
+                    new ByteArrayInputStream(bytes))}) {
+                String msg = reader.getClass().getSimpleName() + " " + value;
+                assertEquals(msg, (int) value, reader.readRawVarint32());
+                assertEquals(msg, value, reader.readRawVarint64());
+                assertEquals(msg, (short) value, reader.readRawLittleEndian16());
+                assertEquals(msg, (int) value, reader.readRawLittleEndian32());
+                assertEquals(msg, value, reader.readRawLittleEndian64());
+                assertEquals(msg, value, reader.readRawVarint64());
+                try {
+                    reader.readRawByte();
+                    fail(msg);
+                } catch (IndexOutOfBoundsException | SerializationException ignored) {
+
+                }
+            }
+
+            ByteArrayReader reader = new ByteArrayReader(bytes);
+            reader.skipRawVarint();
+            reader.skipRawVarint();
+            assertEquals((short) value, reader.readRawLittleEndian16());
+        }
+
+        byte[] malformed = new byte[11];
+        Arrays.fill(malformed, (byte) 0xff);
+        for (CodedReader reader : new CodedReader[]{new ByteArrayReader(malformed), new ByteBufferReader(
+                ByteBuffer.wrap(malformed))}) {
+            try {
+                reader.readRawVarint64();
+                fail();
+            } catch (SerializationException ignored) {
+
+            }
+        }
+        try {
+            new ByteArrayReader(malformed, 0, 3).readRawVarint32(); // 数据不完整
+            fail();
+        } catch (IndexOutOfBoundsException ignored) {
+
+        }
+    }
+
+    @Test
+    public void testSerializedSize() {
+        Foo foo = new Foo();
+        foo.setInum(-1);
+        foo.setLnum(Long.MIN_VALUE);
+        foo.setDesc("中文\uD83D\uDE00\uD800end"); // 包括4字节的字符和不成对的surrogate
+        foo.setBarList(Arrays.asList(bar(1.0, "bar", Ide.ECLIPSE, new String[]{"é", ""})));
+
+        Ser ser = Ser.ins();
+        assertEquals(ser.serialize(foo).length, ser.serializedSize(foo));
+
+        Baz baz = new Baz((byte) 1, '\uffff', Short.MIN_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, 1f, 2.0, false,
+                -1, "baz");
+        assertEquals(ser.serialize(baz).length, ser.serializedSize(baz));
+
+        // SizeCacheable
+        Qux child = new Qux();
+        child.setName("child");
+        Qux qux = new Qux();
+        qux.setName("qux");
+        qux.setChildren(Arrays.asList(child));
+
+        int size = ser.serializedSize(qux);
+        assertEquals(size, qux.getCachedSerializedSize());
+        assertEquals(ser.serialize(child).length, child.getCachedSerializedSize());
+        byte[] data = ser.serialize(qux);
+        assertEquals(size, data.length);
+
+        child.setName("child2"); // 只清除了child的缓存
+        assertEquals(size, ser.serializedSize(qux));
+        qux.setCachedSerializedSize(-1);
+        assertEquals(size + 1, ser.serializedSize(qux));
+
+        // 缓存的大小不对时也能正确序列化
+        qux.setCachedSerializedSize(size);
+        assertEquals(size + 1, ser.serialize(qux).length);
+        qux.setCachedSerializedSize(size + 10);
+        assertEquals(size + 1, ser.serialize(qux).length);
+    }
+
+    @Test
+    public void testLengthDelimited() throws Exception {
+        Foo foo = new Foo();
+        foo.setInum(1);
+        foo.setFruit(Fruit.APPLE);
+        char[] longName = new char[300];
+        Arrays.fill(longName, 'b');
+        Map<String, Bar> barMap = new HashMap<>();
+        barMap.put("bar1", bar(1.5, new String(longName), Ide.IDEA, new String[]{"a", "b"})); // 长度需要多个字节
+        foo.setBarMap(barMap);
+        foo.setBarList(Arrays.asList(bar(2.5, "bar2", Ide.ECLIPSE, new String[]{"c"}),
+                bar(3.5, "bar3", Ide.IDEA, new String[0])));
+
+        Ser ser = new Ser(Ser.NO_SIZE_LIMIT, Ser.NO_SIZE_LIMIT, false, true);
+        byte[] data = ser.serialize(foo);
+        assertEquals(data.length, ser.serializedSize(foo));
+        assertEquals(foo, ser.deserialize(data, Foo.class));
+
+        // 默认的Ser也能读取
+        Ser legacy = Ser.ins();
+        assertEquals(foo, legacy.deserialize(data, Foo.class));
+        assertEquals(foo, ser.deserialize(legacy.serialize(foo), Foo.class));
+
+        // 跳过不认识和类型不匹配的字段
+        assertEquals(legacy.deserialize(legacy.serialize(foo), Bar.class), ser.deserialize(data, Bar.class));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ser.serialize(foo, output);
+        assertArrayEquals(data, output.toByteArray());
+        assertEquals(foo, ser.deserialize(new ByteArrayInputStream(data), Foo.class));
+    }
+
+    @Test
+    public void testProjection() {
+        Foo foo = new Foo();
+        foo.setInum(100);
+        foo.setLnum(200L);
+        foo.setFruit(Fruit.ORANGE);
+        foo.setBarList(Arrays.asList(bar(1.0, "bar", Ide.IDEA, new String[]{"a"})));
+
+        for (Ser ser : new Ser[]{Ser.ins(), new Ser(Ser.NO_SIZE_LIMIT, Ser.NO_SIZE_LIMIT, false, true)}) {
+            Foo projected = ser.deserialize(ser.serialize(foo), Foo.class, 1, 4);
+            assertEquals(100, projected.getInum());
+            assertEquals(Fruit.ORANGE, projected.getFruit());
+            assertEquals(0L, projected.getLnum());
+            assertNull(projected.getBarList());
+        }
+    }
+
+    @Test
+    public void testLazy() {
+        Quux quux = new Quux();
+        quux.setId(1);
+        quux.setBar(Lazy.of(bar(1.0, "bar", Ide.IDEA, new String[]{"a"})));
+        quux.setBarList(Lazy.of(Arrays.asList(bar(2.0, "bar2", Ide.ECLIPSE, new String[]{"b", "c"}))));
+
+        for (Ser ser : new Ser[]{Ser.ins(), new Ser(Ser.NO_SIZE_LIMIT, Ser.NO_SIZE_LIMIT, false, true)}) {
+            byte[] data = ser.serialize(quux);
+            Quux deser = ser.deserialize(data, Quux.class);
+            assertFalse(deser.getBar().isDecoded());
+            assertFalse(deser.getBarList().isDecoded());
+
+            // 没有解码时直接写入原始字节
+            assertArrayEquals(data, ser.serialize(deser));
+            assertEquals(data.length, ser.serializedSize(deser));
+
+            assertEquals(quux.getBar().get(), deser.getBar().get());
+            assertTrue(deser.getBar().isDecoded());
+            assertEquals(quux, deser);
+            assertArrayEquals(data, ser.serialize(deser));
+
+            // 默认格式从流中读取时不能保留原始字节
+            Quux streamDeser = ser.deserialize(new ByteArrayInputStream(data), Quux.class);
+            assertEquals(ser == Ser.ins(), streamDeser.getBarList().isDecoded());
+            assertEquals(quux, streamDeser);
+        }
+
+        // 格式不同时重新编码
+        Ser delimited = new Ser(Ser.NO_SIZE_LIMIT, Ser.NO_SIZE_LIMIT, false, true);
+        Quux deser = Ser.ins().deserialize(Ser.ins().serialize(quux), Quux.class);
+        assertArrayEquals(delimited.serialize(quux), delimited.serialize(deser));
+
+        // 解码时使用反序列化时的限制
+        Quux limited = new Ser(Ser.NO_SIZE_LIMIT, 1, false).deserialize(Ser.ins().serialize(quux), Quux.class);
+        try {
+            limited.getBarList().get(); // strs的数量超出限制
+            fail();
+        } catch (SerializationException ignored) {
+
+        }
+        Ser shallowSer = Ser.builder().lengthDelimited(true).maxDepth(1).build();
+        Quux shallow = shallowSer.deserialize(shallowSer.serialize(quux), Quux.class); // 带长度的格式不需要解析Lazy字段
+        try {
+            shallow.getBar().get(); // 外层对象已经用掉了1层
+            fail();
+        } catch (SerializationException ignored) {
+
+        }
+    }
+
+    @Test
+    public void testStringTable() {
+        Foo foo = new Foo();
+        foo.setInum(1);
+        List<Bar> barList = new ArrayList<>();
+        Map<String, Bar> barMap = new HashMap<>();
+        for (int i = 0; i < 50; i++) {
+            Bar bar = bar(i, "player_" + (i % 5), Ide.IDEA, new String[]{"item_sword", "item_shield"});
+            barList.add(bar);
+            barMap.put("key_" + i, bar);
+        }
+        foo.setBarList(barList);
+        foo.setBarMap(barMap);
+
+        for (boolean lengthDelimited : new boolean[]{false, true}) {
+            Ser ser = Ser.builder().lengthDelimited(lengthDelimited).stringTable(true).build();
+            byte[] data = ser.serialize(foo);
+            assertTrue(data.length < Ser.ins().serialize(foo).length);
+            assertEquals(data.length, ser.serializedSize(foo));
+            assertArrayEquals(data, ser.serialize(foo)); // 重用缓冲区
+            Foo deser = ser.deserialize(data, Foo.class);
+            assertEquals(foo, deser);
+            assertTrue(deser.getBarList().get(0).getName() == deser.getBarList().get(5).getName()); // 相同的字符串只创建一次
+
+            // 其他Ser也能读取
+            assertEquals(foo, Ser.ins().deserialize(data, Foo.class));
+            assertEquals(foo, Ser.ins().deserialize(new ByteArrayInputStream(data), Foo.class));
+            assertEquals(foo, Ser.ins().deserialize(ByteBuffer.wrap(data), Foo.class));
+
+            // 跳过字段
+            Foo projected = ser.deserialize(data, Foo.class, 1, 6);
+            assertEquals(barMap, projected.getBarMap());
+            assertNull(projected.getBarList());
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            ser.serialize(foo, output);
+            assertArrayEquals(data, output.toByteArray());
+        }
+
+        // Lazy字段保存原始字节时也保存字符串表
+        Quux quux = new Quux();
+        quux.setId(1);
+        quux.setBar(Lazy.of(bar(1.0, "bar", Ide.IDEA, new String[]{"bar"})));
+        quux.setBarList(Lazy.of(Arrays.asList(bar(2.0, "bar", Ide.ECLIPSE, new String[]{"bar", "c"}))));
+        Ser ser = Ser.builder().stringTable(true).build();
+        byte[] data = ser.serialize(quux);
+        Quux deser = ser.deserialize(data, Quux.class);
+        assertFalse(deser.getBar().isDecoded());
+        assertArrayEquals(data, ser.serialize(deser)); // 重新编码
+        assertArrayEquals(Ser.ins().serialize(quux), Ser.ins().serialize(deser));
+        assertEquals(quux, deser);
+
+        // 索引超出字符串表
+        try {
+            Ser.ins().deserialize(new byte[]{(byte) WireFormat.FORMAT_TAG, WireFormat.FORMAT_STRING_TABLE, 0,
+                    (byte) WireFormat.makeTag(2, WireFormat.WIRETYPE_BYTES), 1, 0, 0}, Bar.class);
+            fail();
+        } catch (SerializationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testDelimited() {
+        List<Bar> bars = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            bars.add(bar(i, "bar" + i, Ide.IDEA, new String[]{"a", "b"}));
+        }
+        Bar longBar = bar(1.0, new String(new char[5000]).replace('\0', 'x'), Ide.ECLIPSE, new String[0]);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Ser.ins().writeDelimited(longBar, output);
+        Ser.ins().serializeAll(bars, output);
+        Ser.builder().lengthDelimited(true).stringTable(true).build().writeDelimited(longBar, output);
+
+        List<Bar> expected = new ArrayList<>();
+        expected.add(longBar);
+        expected.addAll(bars);
+        expected.add(longBar);
+        List<Bar> result = new ArrayList<>();
+        Iterator<Bar> it = Ser.ins().readDelimited(new ByteArrayInputStream(output.toByteArray()), Bar.class);
+        while (it.hasNext()) {
+            result.add(it.next());
+        }
+        assertEquals(expected, result);
+
+        // 读取时也检查大小
+        Ser limited = new Ser(100, Ser.NO_SIZE_LIMIT, false);
+        it = limited.readDelimited(new ByteArrayInputStream(output.toByteArray()), Bar.class);
+        try {
+            it.next();
+            fail();
+        } catch (SerializationException e) {
+            // expected
+        }
+
+        // 每个对象只读取长度前缀指定的字节
+        Bar small = bar(1.0, "a", Ide.IDEA, new String[]{"b"});
+        byte[] data = Ser.ins().serialize(small);
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        frames.write(data.length + 2); // 多出的字节被跳过
+        frames.write(data, 0, data.length);
+        frames.write(0);
+        frames.write(0);
+        Ser.ins().writeDelimited(small, frames);
+        it = Ser.ins().readDelimited(new ByteArrayInputStream(frames.toByteArray()), Bar.class);
+        assertEquals(small, it.next());
+        assertEquals(small, it.next());
+        assertFalse(it.hasNext());
+
+        frames.reset();
+        frames.write(3); // 长度前缀比数据短
+        frames.write(data, 0, data.length);
+        it = Ser.ins().readDelimited(new ByteArrayInputStream(frames.toByteArray()), Bar.class);
+        try {
+            it.next();
+            fail();
+        } catch (SerializationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testParallel() {
+        List<Bar> bars = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            bars.add(bar(i, "bar" + i, Ide.IDEA, new String[]{"a"}));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<byte[]> data = Ser.ins().serializeParallel(bars, executor);
+            assertEquals(bars.size(), data.size());
+            for (int i = 0; i < bars.size(); i++) {
+                assertArrayEquals(Ser.ins().serialize(bars.get(i)), data.get(i));
+            }
+            assertEquals(bars, Ser.ins().deserializeParallel(data, Bar.class, executor));
+            assertEquals(bars, Ser.ins().deserializeParallel(Ser.ins().serializeParallel(bars), Bar.class));
+            assertEquals(bars.subList(0, 3), Ser.ins().deserializeParallel(data.subList(0, 3), Bar.class));
+
+            // 抛出其中的异常
+            List<byte[]> broken = new ArrayList<>(data);
+            broken.set(10, new byte[]{(byte) WireFormat.FORMAT_TAG, 100});
+            try {
+                Ser.ins().deserializeParallel(broken, Bar.class, executor);
+                fail();
+            } catch (SerializationException e) {
+                // expected
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testElements() {
+        List<Bar> bars = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) { // 多个块
+            bars.add(bar(i, "bar" + i, Ide.IDEA, new String[]{"a"}));
+        }
+
+        for (Ser ser : new Ser[]{Ser.ins(), new Ser(Ser.NO_SIZE_LIMIT, 10, false, true)}) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            ser.serializeElements(bars.iterator(), output);
+            byte[] data = output.toByteArray();
+
+            List<Bar> result = new ArrayList<>();
+            ser.deserializeElements(new ByteArrayInputStream(data), Bar.class, result::add);
+            assertEquals(bars, result);
+
+            ByteBuffer buf = ByteBuffer.allocateDirect(data.length + 1);
+            buf.put(data).put((byte) 1).flip();
+            result.clear();
+            ser.deserializeElements(buf, Bar.class, result::add);
+            assertEquals(bars, result);
+            assertEquals(data.length, buf.position());
+
+            // 提前停止
+            result.clear();
+            ser.deserializeElements(new ByteArrayInputStream(data), Bar.class, e -> result.add(e) && result.size() < 10);
+            assertEquals(bars.subList(0, 10), result);
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Ser.ins().serializeElements(new ArrayList<Bar>().iterator(), output);
+        Ser.ins().deserializeElements(new ByteArrayInputStream(output.toByteArray()), Bar.class, e -> {
+            fail();
+            return true;
+        });
+    }
+
+    @Test
+    public void testDeepCopy() {
+        Foo foo = new Foo();
+        foo.setInum(1);
+        foo.setLnum(2L);
+        foo.setFruit(Fruit.APPLE);
+        Map<String, Bar> barMap = new HashMap<>();
+        barMap.put("bar1", bar(1.5, "bar1", Ide.IDEA, new String[]{"a", "b"}));
+        foo.setBarMap(barMap);
+        foo.setBarList(Arrays.asList(bar(2.5, "bar2", Ide.ECLIPSE, new String[]{"c"})));
+
+        Foo copy = Ser.ins().deepCopy(foo);
+        assertEquals(foo, copy);
+        assertTrue(foo.getBarList() != copy.getBarList());
+        assertTrue(foo.getBarList().get(0) != copy.getBarList().get(0));
+        assertTrue(foo.getBarMap().get("bar1").getStrs() != copy.getBarMap().get("bar1").getStrs());
+        copy.getBarList().get(0).setName("changed");
+        assertEquals("bar2", foo.getBarList().get(0).getName());
+
+        Baz baz = new Baz((byte) 1, 'a', (short) 2, 3, 4L, 5f, 6.0, true, 7, "baz");
+        assertEquals(baz, Ser.ins().deepCopy(baz));
+
+        // 值为null的字段保留默认值，和反序列化相同
+        Thud thud = new Thud();
+        thud.setIds(null);
+        assertNotNull(Ser.ins().deepCopy(thud).getIds());
+        assertNotNull(Ser.ins().deserialize(Ser.ins().serialize(thud), Thud.class).getIds());
+
+        Corge corge = new Corge(new int[]{1, -1}, new int[]{-2}, new int[]{3}, new long[]{4L}, new long[]{-5L},
+                new float[]{6f}, new double[]{7.0}, Arrays.asList(new double[]{8.0}, new double[0]));
+        assertEquals(corge, Ser.ins().deepCopy(corge));
+
+        Grault grault = new Grault(ByteBuffer.wrap(new byte[]{1, 2, 3}), Arrays.asList(ByteBuffer.allocate(0)), "g");
+        Grault graultCopy = Ser.ins().deepCopy(grault);
+        assertEquals(grault, graultCopy);
+        assertTrue(graultCopy.getData().isReadOnly());
+
+        Garply garply = new Garply();
+        IntMap<Bar> intMap = new IntHashMap<>();
+        intMap.put(1, bar(1.0, "bar", Ide.IDEA, new String[0]));
+        garply.setBarMap(intMap);
+        LongValueMap<String> scores = new LongValueHashMap<>();
+        scores.put("a", 100L);
+        garply.setScores(scores);
+        garply.setIds(new IntHashSet(new int[]{1, 2, 3}));
+        Map<Integer, List<Bar>> groups = new HashMap<>();
+        groups.put(1, Arrays.asList(bar(2.0, "bar2", Ide.ECLIPSE, new String[]{"x"})));
+        garply.setGroups(groups);
+        Garply garplyCopy = Ser.ins().deepCopy(garply);
+        assertEquals(garply, garplyCopy);
+        assertEquals(Ser.ins().deserialize(Ser.ins().serialize(garply), Garply.class), garplyCopy);
+        assertTrue(garply.getBarMap().get(1) != garplyCopy.getBarMap().get(1));
+
+        // 没有解码的Lazy字段共用原始字节
+        Quux quux = new Quux();
+        quux.setId(1);
+        quux.setBar(Lazy.of(bar(1.0, "bar", Ide.IDEA, new String[]{"a"})));
+        Quux deser = Ser.ins().deserialize(Ser.ins().serialize(quux), Quux.class);
+        Quux quuxCopy = Ser.ins().deepCopy(deser);
+        assertFalse(quuxCopy.getBar().isDecoded());
+        assertEquals(quux, quuxCopy);
+        assertTrue(deser.getBar().get() != quuxCopy.getBar().get());
+    }
+
+    @Test
+    public void testDelta() {
+        for (Ser ser : new Ser[]{Ser.ins(), new Ser(Ser.NO_SIZE_LIMIT, Ser.NO_SIZE_LIMIT, false, true)}) {
+            Foo foo = new Foo();
+            foo.setInum(1);
+            foo.setLnum(2L);
+            foo.setFruit(Fruit.APPLE);
+            foo.setBarList(new ArrayList<>(Arrays.asList(bar(1.0, "bar", Ide.IDEA, new String[]{"a"}))));
+
+            Foo base = ser.deserialize(ser.serialize(foo), Foo.class);
+            SerSnapshot snapshot = ser.snapshot(foo);
+
+            byte[] empty = ser.serializeDelta(base, foo);
+            assertArrayEquals(empty, ser.serializeDelta(snapshot, foo));
+
+            foo.setInum(100);
+            foo.setFruit(null);
+            foo.getBarList().add(bar(2.0, "bar2", Ide.ECLIPSE, new String[0]));
+
+            byte[] delta = ser.serializeDelta(base, foo);
+            assertArrayEquals(delta, ser.serializeDelta(snapshot, foo));
+            assertTrue(delta.length < ser.serialize(foo).length);
+
+            Foo target = ser.deserialize(ser.serialize(base), Foo.class);
+            assertEquals(foo, ser.applyDelta(delta, target));
+            assertEquals(base, ser.applyDelta(empty, ser.deserialize(ser.serialize(base), Foo.class)));
+        }
+    }
+
+    @Test
+    public void testDiff() {
+        Garply base = new Garply();
+        IntMap<Bar> barMap = new IntHashMap<>();
+        barMap.put(1, bar(1.0, "bar1", Ide.IDEA, new String[]{"a"}));
+        barMap.put(3, bar(3.0, "bar3", Ide.IDEA, new String[0]));
+        base.setBarMap(barMap);
+        Map<Integer, List<Bar>> groups = new HashMap<>();
+        groups.put(1, Arrays.asList(bar(1.0, "g1", Ide.IDEA, new String[0])));
+        groups.put(2, Arrays.asList(bar(2.0, "g2", Ide.IDEA, new String[0])));
+        base.setGroups(groups);
+        base.setIds(new IntHashSet(new int[]{1}));
+        base.setBar(bar(5.0, "bar5", Ide.ECLIPSE, new String[]{"b"}));
+
+        for (Ser ser : new Ser[]{Ser.ins(), new Ser(Ser.NO_SIZE_LIMIT, Ser.NO_SIZE_LIMIT, false, true)}) {
+            Garply obj = ser.deepCopy(base);
+            obj.getBarMap().get(1).setName("changed"); // 修改嵌套对象
+            obj.getBarMap().put(2, bar(2.0, "bar2", Ide.IDEA, new String[0])); // 添加
+            obj.getBarMap().remove(3); // 删除
+            obj.getGroups().put(1, Arrays.asList(bar(1.5, "g1", Ide.IDEA, new String[0])));
+            obj.getGroups().remove(2);
+            obj.getBar().setDnum(6.0);
+            obj.setIds(null);
+
+            byte[] patch = ser.diff(base, obj);
+            assertTrue(patch.length < ser.serializeDelta(base, obj).length);
+
+            Garply target = ser.deepCopy(base);
+            Bar nested = target.getBarMap().get(1);
+            assertEquals(obj, ser.applyDelta(patch, target));
+            assertTrue(nested == target.getBarMap().get(1)); // 直接修改原来的对象
+
+            Garply unchanged = ser.deepCopy(base);
+            assertEquals(base, ser.applyDelta(ser.diff(base, ser.deepCopy(base)), unchanged));
+
+            // 没有变化时补丁最小，即使嵌套的对象没有实现equals
+            Qux qux = new Qux();
+            qux.setName("qux");
+            Qux child = new Qux();
+            child.setName("child");
+            qux.setChildren(new ArrayList<>(Arrays.asList(child)));
+            assertEquals(ser.diff(qux, qux).length, ser.diff(qux, ser.deepCopy(qux)).length);
+            assertEquals(ser.diff(base, base).length, ser.diff(base, ser.deepCopy(base)).length);
+
+            // 跳过不认识的字段的补丁
+            Thud thud = new Thud();
+            thud.setIds(new IntHashSet(new int[]{1}));
+            assertNull(ser.applyDelta(patch, thud).getIds());
+
+            // 对应的字段为null时不能合并
+            Garply broken = ser.deepCopy(base);
+            broken.setBar(null);
+            try {
+                ser.applyDelta(patch, broken);
+                fail();
+            } catch (SerializationException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testPrimitiveArray() {
+        Corge corge = new Corge(new int[]{0, 1, -1, Integer.MAX_VALUE, Integer.MIN_VALUE},
+                new int[]{-1, -200, 300}, new int[]{7, -7}, new long[]{Long.MIN_VALUE, 0, 1L << 40},
+                new long[]{-1L, 2L}, new float[]{1.5f, Float.NaN, -0f}, new double[]{Math.PI, -1e300},
+                Arrays.asList(new double[]{1.0}, new double[0]));
+
+        for (Ser ser : new Ser[]{Ser.ins(), new Ser(Ser.NO_SIZE_LIMIT, Ser.NO_SIZE_LIMIT, false, true)}) {
+            byte[] data = ser.serialize(corge);
+            assertEquals(data.length, ser.serializedSize(corge));
+            assertEquals(corge, ser.deserialize(data, Corge.class));
+            assertEquals(corge, ser.deserialize(new ByteArrayInputStream(data), Corge.class));
+            assertEquals(new Corge(), ser.deserialize(data, Corge.class, 100)); // 整体跳过
+        }
+        Corge empty = new Corge(new int[0], new int[0], new int[0], new long[0], new long[0], new float[0],
+                new double[0], new ArrayList<>());
+        assertEquals(empty, Ser.ins().deserialize(Ser.ins().serialize(empty), Corge.class));
+    }
+
+    @Test
+    public void testFieldLookup() {
+        // 字段乱序也可以解码
+        Baz baz = new Baz((byte) 1, 'a', (short) 2, 3, 4L, 5f, 6.0, true, 7, "baz");
+        Ser ser = Ser.ins();
+        SerSnapshot snapshot = ser.snapshot(baz);
+        int fieldCount = SerClassParser.ins().parse(Baz.class).getFieldArray().length;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = fieldCount - 1; i >= 0; i--) {
+            byte[] fieldBytes = snapshot.getFieldBytes(i);
+            out.write(fieldBytes, 0, fieldBytes.length);
+        }
+        out.write(0); // 结束
+        assertEquals(baz, ser.deserialize(out.toByteArray(), Baz.class));
+
+        // fieldNumber比较稀疏时使用map查找
+        int sparseNumber = SerClass.DENSE_FIELD_NUMBER_LIMIT;
+        SerClass serClass = new SerClass(Object.class);
+        IntMap<SerField> fieldMap = new IntHashMap<>();
+        for (int number : new int[]{1, sparseNumber}) {
+            SerField serField = new SerField("f" + number, null);
+            serField.setNumber(number);
+            fieldMap.put(number, serField);
+        }
+        serClass.setFields(new ArrayList<>(fieldMap.values()));
+        serClass.setFieldMap(fieldMap);
+        assertEquals(sparseNumber, serClass.getField(sparseNumber).getNumber());
+        assertEquals(1, serClass.getField(1).getNumber());
+        assertNull(serClass.getField(2));
+    }
+
+    @Test
+    public void testDeserializeInto() {
+        Foo foo1 = new Foo();
+        foo1.setInum(1);
+        foo1.setFruit(Fruit.APPLE);
+        foo1.setBarList(new ArrayList<>(Arrays.asList(bar(1.0, "a", Ide.IDEA, new String[]{"a"}),
+                bar(2.0, "b", Ide.IDEA, new String[]{"b"}))));
+        Foo foo2 = new Foo();
+        foo2.setInum(2);
+        foo2.setBarList(new ArrayList<>(Arrays.asList(bar(3.0, "c", Ide.ECLIPSE, new String[]{"c", "cc"}))));
+        Map<String, Bar> barMap = new HashMap<>();
+        barMap.put("d", bar(4.0, "d", Ide.IDEA, new String[0]));
+        foo2.setBarMap(barMap);
+
+        for (Ser ser : new Ser[]{Ser.ins(), new Ser(Ser.NO_SIZE_LIMIT, Ser.NO_SIZE_LIMIT, false, true)}) {
+            Foo target = ser.deserialize(ser.serialize(foo1), Foo.class);
+            List<Bar> barList = target.getBarList();
+            Bar bar = barList.get(0);
+
+            byte[] data = ser.serialize(foo2);
+            assertTrue(target == ser.deserializeInto(data, target));
+            assertEquals(foo2, target);
+            assertNull(target.getFruit());
+            assertTrue(barList == target.getBarList()); // 重用容器
+            assertTrue(bar == target.getBarList().get(0)); // 重用元素
+
+            assertEquals(foo1, ser.deserializeInto(new ByteArrayInputStream(ser.serialize(foo1)), target));
+            ByteBuffer buf = ByteBuffer.allocateDirect(data.length);
+            buf.put(data).flip();
+            assertEquals(foo2, ser.deserializeInto(buf, target));
+            assertFalse(buf.hasRemaining());
+
+            // 新建的嵌套对象保留字段的默认值，和deserialize相同
+            Thud thud = new Thud();
+            thud.setIds(null);
+            Thud child = new Thud();
+            child.setIds(null);
+            thud.setChild(child);
+            byte[] thudData = ser.serialize(thud);
+            assertNotNull(ser.deserialize(thudData, Thud.class).getChild().getIds());
+            Thud thudTarget = ser.deserializeInto(thudData, new Thud());
+            assertNull(thudTarget.getIds()); // target中没有的字段设为null
+            assertNotNull(thudTarget.getChild().getIds());
+            assertTrue(thudTarget.getChild().getIds().isEmpty());
+        }
+    }
+
+    @Test
+    public void testPolymorphic() {
+        Ser.registerType(2, Fred.class);
+        Ser.registerType(2, Fred.class); // 重复注册相同的类型
+        try {
+            Ser.registerType(2, Plugh.class); // typeId重复
+            fail();
+        } catch (SerializationException ignored) {
+
+        }
+
+        Plugh child = new Plugh();
+        child.setName("child");
+        child.setChildren(new ArrayList<>(Arrays.asList(fred("b", 2))));
+        Plugh plugh = new Plugh();
+        plugh.setName("root");
+        plugh.setFirst(fred("a", 1));
+        plugh.setChildren(new ArrayList<>(Arrays.asList(child, fred("c", 3))));
+
+        for (Ser ser : new Ser[]{Ser.ins(), new Ser(Ser.NO_SIZE_LIMIT, Ser.NO_SIZE_LIMIT, false, true)}) {
+            byte[] data = ser.serialize(plugh);
+            assertFalse(new String(data, StandardCharsets.ISO_8859_1).contains("Fred")); // 只写入type id
+            assertEquals(plugh, ser.deserialize(data, Plugh.class));
+            assertEquals(plugh, ser.deepCopy(plugh));
+
+            Fred skipped = ser.deserialize(data, Fred.class); // 类型不匹配的字段被跳过
+            assertEquals("root", skipped.getName());
+            assertEquals(0, skipped.getNum());
+
+            Plugh unregistered = new Plugh();
+            unregistered.setFirst(new Waldo() {
+
+            });
+            try {
+                ser.serialize(unregistered);
+                fail();
+            } catch (SerializationException ignored) {
+
+            }
+        }
+    }
+
+    @Test
+    public void testContainerSizeLimitOnRead() {
+        Foo foo = new Foo();
+        foo.setBarList(new ArrayList<>(Arrays.asList(bar(1.0, "a", Ide.IDEA, new String[]{"a", "b", "c"}),
+                bar(2.0, "b", Ide.IDEA, new String[]{"d"}))));
+        byte[] data = Ser.ins().serialize(foo);
+
+        assertEquals(foo, new Ser(Ser.NO_SIZE_LIMIT, 3, false).deserialize(data, Foo.class));
+        assertEquals(foo, new Ser(Ser.NO_SIZE_LIMIT, 3, false).deserialize(new ByteArrayInputStream(data),
+                Foo.class));
+        try {
+            new Ser(Ser.NO_SIZE_LIMIT, 2, false).deserialize(data, Foo.class); // strs的数量超出限制
+            fail();
+        } catch (SerializationException ignored) {
+
+        }
+    }
+
+    @Test
+    public void testByteLimit() {
+        Foo foo = new Foo();
+        foo.setBarList(new ArrayList<>(Arrays.asList(bar(1.0, "a", Ide.IDEA, new String[]{"a", "b", "c"}),
+                bar(2.0, "b", Ide.IDEA, new String[]{"d"}))));
+        byte[] data = Ser.ins().serialize(foo);
+
+        Ser exact = Ser.builder().totalByteSizeLimit(data.length).build();
+        assertArrayEquals(data, exact.serialize(foo));
+        assertEquals(foo, exact.deserialize(data, Foo.class));
+
+        Ser small = Ser.builder().totalByteSizeLimit(data.length - 1).build();
+        try {
+            small.serialize(foo);
+            fail();
+        } catch (SerializationException ignored) {
+
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            small.serialize(foo, output);
+            fail();
+        } catch (SerializationException ignored) {
+
+        }
+        try {
+            small.deserialize(data, Foo.class);
+            fail();
+        } catch (SerializationException ignored) {
+
+        }
+        try {
+            small.deserialize(new ByteArrayInputStream(data), Foo.class);
+            fail();
+        } catch (SerializationException ignored) {
+
+        }
+        ByteBuffer buf = ByteBuffer.allocateDirect(data.length);
+        buf.put(data).flip();
+        try {
+            small.deserialize(buf, Foo.class);
+            fail();
+        } catch (SerializationException ignored) {
+
+        }
+
+        // 嵌套深度
+        Qux root = new Qux();
+        Qux qux = root;
+        for (int i = 0; i < Ser.DEFAULT_MAX_DEPTH; i++) {
+            Qux child = new Qux();
+            child.setName("qux" + i);
+            qux.setChildren(new ArrayList<>(Arrays.asList(child)));
+            qux = child;
+        }
+        byte[] deep = Ser.ins().serialize(root);
+        try {
+            Ser.ins().deserialize(deep, Qux.class);
+            fail();
+        } catch (SerializationException ignored) {
+
+        }
+        Qux result = Ser.builder().maxDepth(Ser.NO_SIZE_LIMIT).build().deserialize(deep, Qux.class);
+        for (int i = 0; i < Ser.DEFAULT_MAX_DEPTH; i++) {
+            result = result.getChildren().get(0);
+        }
+        assertEquals("qux" + (Ser.DEFAULT_MAX_DEPTH - 1), result.getName());
+    }
+
+    private Fred fred(String name, int num) {
+        Fred fred = new Fred();
+        fred.setName(name);
+        fred.setNum(num);
+
+        return fred;
+    }
+
     private Bar bar(double dnum, String name, Ide ide, String[] strs) {
         Bar bar = new Bar();
         bar.setDnum(dnum);
@@ -0,0 +1,42 @@
+package io.jpower.sgf.ser;
+
+import io.jpower.sgf.collection.IntHashSet;
+import io.jpower.sgf.collection.IntSet;
+import io.jpower.sgf.ser.annotation.Field;
+import io.jpower.sgf.ser.annotation.Serializable;
+
+/**
+ * 只有{@link Garply}的部分字段，字段有默认值
+ *
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+@Serializable
+public class Thud {
+
+    @Field(3)
+    private IntSet ids = new IntHashSet();
+
+    @Field(6)
+    private Thud child;
+
+    public Thud() {
+
+    }
+
+    public IntSet getIds() {
+        return ids;
+    }
+
+    public void setIds(IntSet ids) {
+        this.ids = ids;
+    }
+
+    public Thud getChild() {
+        return child;
+    }
+
+    public void setChild(Thud child) {
+        this.child = child;
+    }
+
+}
@@ -0,0 +1,41 @@
+package io.jpower.sgf.ser;
+
+import io.jpower.sgf.ser.annotation.Field;
+import io.jpower.sgf.ser.annotation.SubType;
+import io.jpower.sgf.ser.annotation.SubTypes;
+
+/**
+ * 多态字段的基类，{@link Fred}在测试中通过{@link Ser#registerType(int, Class)}注册
+ *
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+@SubTypes({@SubType(id = 1, value = Plugh.class)})
+public abstract class Waldo {
+
+    @Field(1)
+    private String name;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        Waldo waldo = (Waldo) o;
+
+        return name != null ? name.equals(waldo.name) : waldo.name == null;
+    }
+
+    @Override
+    public int hashCode() {
+        return name != null ? name.hashCode() : 0;
+    }
+
+}
@@ -0,0 +1,31 @@
+package io.jpower.sgf.ser;
+
+import java.nio.MappedByteBuffer;
+
+import io.jpower.sgf.ser.annotation.Field;
+import io.jpower.sgf.ser.annotation.Serializable;
+
+/**
+ * 不支持的{@link java.nio.ByteBuffer}子类型字段
+ *
+ * @author <a href="mailto:szhnet@gmail.com">szh</a>
+ */
+@Serializable
+public class Xyzzy {
+
+    @Field(1)
+    private MappedByteBuffer data;
+
+    public Xyzzy() {
+
+    }
+
+    public MappedByteBuffer getData() {
+        return data;
+    }
+
+    public void setData(MappedByteBuffer data) {
+        this.data = data;
+    }
+
+}